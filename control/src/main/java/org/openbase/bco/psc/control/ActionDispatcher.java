@@ -0,0 +1,397 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the actions of the control stage on a bounded pool of worker threads, so that the thread handling the incoming events never waits for a device.
+ * The actions of one unit are executed one after another in the order they were dispatched. An action setting a state of the unit supersedes every action
+ * still waiting for the running action of that unit, which is cancelled without being executed. Actions depending on the state the unit has when they are
+ * executed, e.g. toggling the power state, are never superseded, because skipping them would change the resulting state.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class ActionDispatcher {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ActionDispatcher.class);
+    /**
+     * Default number of worker threads.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+    /**
+     * Default number of actions that can wait for a worker thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    /**
+     * Default time in milliseconds an action may take before it is considered as timed out.
+     */
+    public static final long DEFAULT_ACTION_TIMEOUT = 5000;
+    /**
+     * Interval in milliseconds in which the statistics are logged.
+     */
+    private static final long STATISTICS_INTERVAL = 60000;
+
+    /**
+     * An action that is executed for a unit, e.g. setting a service state.
+     */
+    @FunctionalInterface
+    public interface Action {
+
+        /**
+         * Starts the action.
+         *
+         * @return a future that is done as soon as the action is done.
+         * @throws CouldNotPerformException if the action could not be started.
+         * @throws InterruptedException if interrupted while starting the action.
+         */
+        Future<?> execute() throws CouldNotPerformException, InterruptedException;
+    }
+
+    /**
+     * Number of worker threads.
+     */
+    private final int parallelism;
+    /**
+     * Number of actions that can wait for a worker thread.
+     */
+    private final int queueSize;
+    /**
+     * Time in milliseconds an action may take before it is considered as timed out.
+     */
+    private final long actionTimeout;
+    /**
+     * Executor running the actions, replaced when the dispatcher is started again after a shutdown.
+     */
+    private ThreadPoolExecutor executor;
+    /**
+     * Number of shutdowns, used to ignore tasks that were still running on the executor of an earlier start when they finish.
+     */
+    private int generation = 0;
+    /**
+     * The actions waiting for the running action of every unit that currently has a running action by the unit id.
+     */
+    private final Map<String, Deque<Task>> lanes = new HashMap<>();
+
+    private long dispatched = 0;
+    private long coalesced = 0;
+    private long rejected = 0;
+    private long completed = 0;
+    private long failed = 0;
+    private long timedOut = 0;
+    private long latencyNanos = 0;
+    private long lastStatistics = System.currentTimeMillis();
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism number of worker threads.
+     * @param queueSize number of actions that can wait for a worker thread before further actions are rejected.
+     * @param actionTimeout time in milliseconds an action may take before it is considered as timed out.
+     */
+    public ActionDispatcher(final int parallelism, final int queueSize, final long actionTimeout) {
+        this.parallelism = parallelism;
+        this.queueSize = queueSize;
+        this.actionTimeout = actionTimeout;
+        this.executor = createExecutor();
+    }
+
+    private ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            final Thread thread = new Thread(runnable, getClass().getSimpleName() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Dispatches an action setting a state of a unit. The action is started right away if no other action of the unit is running, otherwise it replaces
+     * the actions waiting for the running one.
+     *
+     * @param unitId the id of the unit the action belongs to.
+     * @param action the action.
+     * @return a future that is completed when the action is done, completed exceptionally if it failed, timed out or was rejected and cancelled if it was
+     * superseded by a later action of the same unit.
+     */
+    public CompletableFuture<Void> dispatch(final String unitId, final Action action) {
+        return dispatch(unitId, action, true);
+    }
+
+    /**
+     * Dispatches an action of a unit. The action is started right away if no other action of the unit is running, otherwise it waits for the actions
+     * dispatched before.
+     *
+     * @param unitId the id of the unit the action belongs to.
+     * @param action the action.
+     * @param supersede true, if the action sets a state regardless of the current one, so that it replaces the actions waiting for the running one. False,
+     * if the result of the action depends on the actions dispatched before, e.g. a toggle.
+     * @return a future that is completed when the action is done, completed exceptionally if it failed, timed out or was rejected and cancelled if it was
+     * superseded by a later action of the same unit.
+     */
+    public synchronized CompletableFuture<Void> dispatch(final String unitId, final Action action, final boolean supersede) {
+        dispatched++;
+        final Task task = new Task(unitId, action, generation);
+        final Deque<Task> waiting = lanes.get(unitId);
+        if (waiting != null) {
+            if (supersede) {
+                for (Task superseded : waiting) {
+                    coalesced++;
+                    superseded.future.cancel(false);
+                }
+                waiting.clear();
+            }
+            waiting.add(task);
+        } else {
+            lanes.put(unitId, new ArrayDeque<>());
+            submit(task);
+        }
+        return task.future;
+    }
+
+    /**
+     * Dispatches the actions of several units at once, e.g. of all units of a selected group, so that they are executed concurrently.
+     *
+     * @param actions the actions by the id of their unit.
+     * @return a future that is completed when all actions are done and completed exceptionally if any of them failed, timed out, was rejected or was
+     * superseded.
+     */
+    public synchronized CompletableFuture<Void> dispatchAll(final Map<String, Action> actions) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(actions.size());
+        for (Map.Entry<String, Action> entry : actions.entrySet()) {
+            futures.add(dispatch(entry.getKey(), entry.getValue()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Starts the worker threads again after a shutdown. Does nothing if the dispatcher is running.
+     */
+    public synchronized void start() {
+        if (executor.isShutdown()) {
+            executor = createExecutor();
+        }
+    }
+
+    /**
+     * Cancels all waiting actions and stops the worker threads. Actions dispatched afterwards are rejected until the dispatcher is started again.
+     */
+    public synchronized void shutdown() {
+        for (Deque<Task> waiting : lanes.values()) {
+            for (Task task : waiting) {
+                task.future.cancel(false);
+            }
+        }
+        lanes.clear();
+        generation++;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks if the dispatcher was shut down and not started again.
+     *
+     * @return true, if dispatched actions are rejected because the dispatcher is shut down.
+     */
+    public synchronized boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Gets the number of actions that were done within the timeout.
+     *
+     * @return the number of completed actions.
+     */
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * Gets the number of actions that failed.
+     *
+     * @return the number of failed actions.
+     */
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of actions that were not done within the timeout.
+     *
+     * @return the number of timed out actions.
+     */
+    public synchronized long getTimedOutCount() {
+        return timedOut;
+    }
+
+    /**
+     * Gets the number of actions that were superseded by a later action of the same unit before they were started.
+     *
+     * @return the number of coalesced actions.
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * Gets the number of actions that were rejected because the queue was full or the dispatcher was shut down.
+     *
+     * @return the number of rejected actions.
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Hands a task to the executor. Has to be called while holding the lock of this dispatcher.
+     *
+     * @param task the task.
+     */
+    private void submit(final Task task) {
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException ex) {
+            // the actions waiting for the rejected one would never be started.
+            final Deque<Task> waiting = lanes.remove(task.unitId);
+            final CouldNotPerformException exception = executor.isShutdown()
+                    ? new CouldNotPerformException("Action of unit " + task.unitId + " was rejected because the dispatcher is shut down.", ex)
+                    : new CouldNotPerformException("Action of unit " + task.unitId + " was rejected because the queue is full.", ex);
+            rejected++;
+            task.future.completeExceptionally(exception);
+            if (waiting != null) {
+                for (Task waitingTask : waiting) {
+                    rejected++;
+                    waitingTask.future.completeExceptionally(exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes a task and waits for its action to be done.
+     *
+     * @param task the task.
+     */
+    private void run(final Task task) {
+        final long startTime = System.nanoTime();
+        CouldNotPerformException exception = null;
+        boolean isTimedOut = false;
+        try {
+            task.action.execute().get(actionTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            isTimedOut = true;
+            exception = new CouldNotPerformException("Action of unit " + task.unitId + " timed out after " + actionTimeout + " milliseconds.", ex);
+        } catch (CouldNotPerformException | ExecutionException | RuntimeException ex) {
+            exception = new CouldNotPerformException("Could not execute action of unit " + task.unitId + ".", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            exception = new CouldNotPerformException("Action of unit " + task.unitId + " was interrupted.", ex);
+        }
+        finish(task, System.nanoTime() - startTime, exception, isTimedOut);
+        if (exception != null) {
+            ExceptionPrinter.printHistory(exception, LOGGER, LogLevel.WARN);
+            task.future.completeExceptionally(exception);
+        } else {
+            task.future.complete(null);
+        }
+    }
+
+    /**
+     * Records the outcome of a task and starts the next action of the unit that is waiting for it, if any.
+     *
+     * @param task the finished task.
+     * @param latency the time in nanoseconds the task took.
+     * @param exception the exception of the task or null if it was successful.
+     * @param isTimedOut true, if the task timed out.
+     */
+    private synchronized void finish(final Task task, final long latency, final CouldNotPerformException exception, final boolean isTimedOut) {
+        latencyNanos += latency;
+        if (isTimedOut) {
+            timedOut++;
+        } else if (exception != null) {
+            failed++;
+        } else {
+            completed++;
+        }
+
+        // the lane of a task running while the dispatcher was shut down may already belong to actions dispatched after a restart.
+        if (task.generation == generation) {
+            final Deque<Task> waiting = lanes.get(task.unitId);
+            Task next = waiting != null ? waiting.poll() : null;
+            while (next != null && next.future.isCancelled()) {
+                next = waiting.poll();
+            }
+            if (next != null && !executor.isShutdown()) {
+                submit(next);
+            } else {
+                lanes.remove(task.unitId);
+            }
+        }
+
+        final long currentTime = System.currentTimeMillis();
+        if (currentTime - lastStatistics > STATISTICS_INTERVAL) {
+            lastStatistics = currentTime;
+            final long finished = completed + failed + timedOut;
+            LOGGER.info(String.format("Action dispatcher: %d dispatched, %d coalesced, %d rejected, %d completed, %d failed, %d timed out, mean latency %.1f ms, %d queued.",
+                    dispatched, coalesced, rejected, completed, failed, timedOut, latencyNanos / 1e6 / finished, executor.getQueue().size()));
+        }
+    }
+
+    /**
+     * An action of a unit together with the future handed out for it.
+     */
+    private static class Task {
+
+        private final String unitId;
+        private final Action action;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final int generation;
+
+        Task(final String unitId, final Action action, final int generation) {
+            this.unitId = unitId;
+            this.action = action;
+            this.generation = generation;
+        }
+    }
+}
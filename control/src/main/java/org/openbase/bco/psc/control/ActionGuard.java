@@ -0,0 +1,68 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+
+/**
+ * A check that is performed before an action is dispatched and that can prevent the action, e.g. for safety reasons.
+ * Guards keep the state they need up to date themselves, so that the check does not have to contact any units.
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public interface ActionGuard {
+
+    /**
+     * Updates the units observed by this guard. Called on activation and whenever the unit registry changes.
+     *
+     * @param unitRegistryData the current data of the unit registry.
+     * @throws CouldNotPerformException if the observed units could not be updated.
+     * @throws InterruptedException if interrupted while updating the observed units.
+     */
+    void updateConfiguration(final UnitRegistryData unitRegistryData) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Checks if an action may be executed.
+     *
+     * @param actionParameter the action parameter including the id of the target unit.
+     * @return true, if the action may be executed.
+     */
+    boolean isPermitted(final ActionParameter actionParameter);
+
+    /**
+     * Notifies the guard that a permitted action was applied, which may have changed the states the guard depends on.
+     *
+     * @param actionParameter the action parameter including the id of the target unit.
+     */
+    void actionApplied(final ActionParameter actionParameter);
+
+    /**
+     * Stops observing all units until the next configuration update.
+     */
+    void deactivate();
+}
@@ -24,11 +24,17 @@ package org.openbase.bco.psc.control;
  */
 import org.openbase.bco.psc.control.jp.JPControlThreshold;
 import org.openbase.bco.psc.control.jp.JPCooldownTime;
+import org.openbase.bco.psc.control.jp.JPIntentTimeout;
 import org.openbase.bco.psc.control.jp.JPMultimodalMode;
+import org.openbase.bco.psc.control.jp.JPPrewarmServiceRemotes;
+import org.openbase.bco.psc.control.jp.JPServiceRemoteIdleTime;
+import org.openbase.bco.psc.control.jp.JPServiceRemotePoolSize;
+import org.openbase.bco.psc.control.jp.JPWindowGuardLocations;
 import org.openbase.bco.psc.lib.jp.JPIntentScope;
 import org.openbase.bco.psc.lib.jp.JPLocalInput;
 import org.openbase.bco.psc.lib.jp.JPPSCBaseScope;
 import org.openbase.bco.psc.lib.jp.JPPscUnitFilterList;
+import org.openbase.bco.psc.lib.jp.JPUnitDataFixture;
 import org.openbase.bco.authentication.lib.BCO;
 import org.openbase.jps.core.JPService;
 import org.openbase.jul.exception.CouldNotPerformException;
@@ -71,12 +77,20 @@ public class ControlLauncher extends AbstractLauncher<PSCControl> {
 
         // Component specific
         JPService.registerProperty(JPCooldownTime.class);
+        JPService.registerProperty(JPServiceRemotePoolSize.class);
+        JPService.registerProperty(JPServiceRemoteIdleTime.class);
+        JPService.registerProperty(JPPrewarmServiceRemotes.class);
 
         // Transport specification
         JPService.registerProperty(JPLocalInput.class);
 
+        // Unit data source
+        JPService.registerProperty(JPUnitDataFixture.class);
+
         // Multimodal mode
         JPService.registerProperty(JPMultimodalMode.class);
+        JPService.registerProperty(JPIntentTimeout.class);
+        JPService.registerProperty(JPWindowGuardLocations.class);
     }
 
     /**
@@ -24,21 +24,23 @@ package org.openbase.bco.psc.control;
  */
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.openbase.bco.dal.remote.layer.service.PowerStateServiceRemote;
-import org.openbase.bco.dal.remote.layer.service.ServiceRemoteFactoryImpl;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufJSonProcessor;
 import org.openbase.jul.extension.type.processing.LabelProcessor;
 import org.openbase.jul.iface.Configurable;
 import org.openbase.type.domotic.action.ActionInitiatorType.ActionInitiator.InitiatorType;
 import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
 import org.openbase.type.domotic.action.ActionParameterType.ActionParameter.Builder;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
 import org.slf4j.LoggerFactory;
-import org.openbase.type.domotic.service.ServiceTemplateType;
 import org.openbase.type.domotic.state.PowerStateType.PowerState;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 
@@ -57,6 +59,22 @@ public class ControllableObject implements Configurable<String, UnitConfig> {
      * Cooldown time that is required before the power state can be switched again.
      */
     private final long cooldownTime;
+    /**
+     * Loader providing the service remotes created in advance, or null if they are created on demand.
+     */
+    private final PowerStateRemoteLoader serviceRemoteLoader;
+    /**
+     * Pool providing the service remote when the power state is switched, or null if this object keeps its service remote active.
+     */
+    private final PowerStateRemotePool serviceRemotePool;
+    /**
+     * Dispatcher executing the power switches, or null if they are executed on the calling thread.
+     */
+    private final ActionDispatcher actionDispatcher;
+    /**
+     * Data source reading and setting the power state instead of a service remote, or null if a service remote is used.
+     */
+    private final UnitDataSource unitDataSource;
     /**
      * UnitConfig of the corresponding Unit.
      */
@@ -74,39 +92,39 @@ public class ControllableObject implements Configurable<String, UnitConfig> {
      * Constructor.
      *
      * @param cooldownTime Cooldown time that is required before the power state can be switched again.
+     * @param serviceRemoteLoader Loader providing the service remotes created in advance, or null if they are created on demand.
+     * @param serviceRemotePool Pool providing the service remote when the power state is switched, or null if this object keeps its service remote active.
+     * @param actionDispatcher Dispatcher executing the power switches, or null if they are executed on the calling thread.
+     * @param unitDataSource Data source reading and setting the power state instead of a service remote, or null if a service remote is used.
      */
-    public ControllableObject(final long cooldownTime) {
+    public ControllableObject(final long cooldownTime, final PowerStateRemoteLoader serviceRemoteLoader, final PowerStateRemotePool serviceRemotePool, final ActionDispatcher actionDispatcher,
+            final UnitDataSource unitDataSource) {
         this.cooldownTime = cooldownTime;
+        this.serviceRemoteLoader = serviceRemoteLoader;
+        this.serviceRemotePool = serviceRemotePool;
+        this.actionDispatcher = actionDispatcher;
+        this.unitDataSource = unitDataSource;
     }
 
     /**
      * Switches the power state of the corresponding unit (from off to on and
-     * vice versa).
+     * vice versa). If an action dispatcher is set, the switch is only dispatched and this method returns without waiting for the unit.
      *
-     * @return true, if the power switch was successful.
+     * @return true, if the power switch was successful or dispatched, false if the cooldown time has not passed yet.
      * @throws CouldNotPerformException is thrown if something goes wrong during the power switch.
      */
     public synchronized boolean switchPowerState() throws CouldNotPerformException, InterruptedException {
         long currentTime = System.currentTimeMillis();
         if (currentTime - lastSwitch > cooldownTime) {
-            PowerState.State newState;
-            try {
-                switch (serviceRemote.getPowerState().getValue()) {
-                    case OFF:
-                    case UNKNOWN:
-                    default:
-                        newState = PowerState.State.ON;
-                        break;
-                    case ON:
-                        newState = PowerState.State.OFF;
-                        break;
+            if (actionDispatcher != null) {
+                // a toggle must not be superseded by the next one, otherwise two switches would only toggle the power state once.
+                actionDispatcher.dispatch(getId(), this::togglePowerState, false);
+            } else {
+                try {
+                    togglePowerState().get(ActionDispatcher.DEFAULT_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException ex) {
+                    throw new CouldNotPerformException("Could not switch power state.", ex);
                 }
-                LOGGER.info("Switching power of " + LabelProcessor.getBestMatch(config.getLabel(), "?") + " to " + newState.toString());
-                final ActionParameter.Builder actionParameterBuilder = ActionParameter.newBuilder();
-                actionParameterBuilder.getActionInitiatorBuilder().setInitiatorType(InitiatorType.HUMAN);
-                serviceRemote.setPowerState(PowerState.newBuilder().setValue(newState).build(), actionParameterBuilder.build()).get(5, TimeUnit.SECONDS);
-            } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
-                throw new CouldNotPerformException("Could not switch power state.", ex);
             }
             lastSwitch = currentTime;
             return true;
@@ -114,6 +132,106 @@ public class ControllableObject implements Configurable<String, UnitConfig> {
         return false;
     }
 
+    /**
+     * Sets the power state of the corresponding unit to the opposite of its current power state.
+     * The current power state is read when the action is executed, so that a dispatched switch toggles the state the unit has at that time.
+     *
+     * @return the future of the power state action.
+     * @throws CouldNotPerformException is thrown if the power state could not be set.
+     */
+    private Future<?> togglePowerState() throws CouldNotPerformException, InterruptedException {
+        final PowerStateServiceRemote serviceRemote;
+        final UnitConfig config;
+        synchronized (this) {
+            serviceRemote = this.serviceRemote;
+            config = this.config;
+        }
+        if (serviceRemotePool == null) {
+            return togglePowerState(serviceRemote, config);
+        }
+        // a pooled service remote must not be released before the power state is set, otherwise it may be deactivated in the meantime.
+        final PowerStateServiceRemote pooledServiceRemote = serviceRemotePool.get(config);
+        try {
+            final Future<?> future = togglePowerState(pooledServiceRemote, config);
+            future.get(ActionDispatcher.DEFAULT_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
+            return future;
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new CouldNotPerformException("Could not switch power state.", ex);
+        } finally {
+            serviceRemotePool.release(pooledServiceRemote);
+        }
+    }
+
+    /**
+     * Sets the power state of the corresponding unit to the opposite of its current power state using the given service remote.
+     *
+     * @param serviceRemote the service remote, which is not used if the data source is set.
+     * @param config the config of the unit.
+     * @return the future of the power state action.
+     * @throws CouldNotPerformException is thrown if the power state could not be set.
+     * @throws InterruptedException is thrown if interrupted while waiting for the unit.
+     */
+    private Future<?> togglePowerState(final PowerStateServiceRemote serviceRemote, final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        PowerState.State newState;
+        try {
+            switch (getCurrentPowerState(serviceRemote, config)) {
+                case OFF:
+                case UNKNOWN:
+                default:
+                    newState = PowerState.State.ON;
+                    break;
+                case ON:
+                    newState = PowerState.State.OFF;
+                    break;
+            }
+            LOGGER.info("Switching power of " + LabelProcessor.getBestMatch(config.getLabel(), "?") + " to " + newState.toString());
+            final ActionParameter.Builder actionParameterBuilder = ActionParameter.newBuilder();
+            actionParameterBuilder.getActionInitiatorBuilder().setInitiatorType(InitiatorType.HUMAN);
+            if (unitDataSource != null) {
+                actionParameterBuilder.getServiceStateDescriptionBuilder()
+                        .setUnitId(config.getId())
+                        .setServiceType(ServiceType.POWER_STATE_SERVICE)
+                        .setServiceStateClassName(PowerState.class.getName())
+                        .setServiceState(new ProtoBufJSonProcessor().serialize(PowerState.newBuilder().setValue(newState).build()));
+                return unitDataSource.applyAction(actionParameterBuilder.build());
+            }
+            return serviceRemote.setPowerState(PowerState.newBuilder().setValue(newState).build(), actionParameterBuilder.build());
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not switch power state.", ex);
+        }
+    }
+
+    /**
+     * Gets the current power state from the data source if set, otherwise from the service remote.
+     *
+     * @param serviceRemote the service remote, which is not used if the data source is set.
+     * @param config the config of the unit.
+     * @return the current power state, or UNKNOWN if the data source does not know it.
+     * @throws CouldNotPerformException is thrown if the power state could not be read.
+     * @throws InterruptedException is thrown if interrupted while waiting for the unit.
+     */
+    private PowerState.State getCurrentPowerState(final PowerStateServiceRemote serviceRemote, final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        if (unitDataSource == null) {
+            return serviceRemote.getPowerState().getValue();
+        }
+        try {
+            return unitDataSource.getServiceState(config, ServiceType.POWER_STATE_SERVICE, PowerState.class).getValue();
+        } catch (NotAvailableException ex) {
+            return PowerState.State.UNKNOWN;
+        }
+    }
+
+    /**
+     * Starts creating the service remote in advance if it is created on demand, because the unit is likely to be selected soon.
+     *
+     * @throws NotAvailableException is thrown if the object has no config yet.
+     */
+    public void prewarm() throws NotAvailableException {
+        if (serviceRemotePool != null) {
+            serviceRemotePool.prewarm(getConfig());
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -124,15 +242,20 @@ public class ControllableObject implements Configurable<String, UnitConfig> {
      */
     @Override
     public synchronized UnitConfig applyConfigUpdate(UnitConfig config) throws CouldNotPerformException, InterruptedException {
-        this.config = config;
         try {
-            serviceRemote = (PowerStateServiceRemote) ServiceRemoteFactoryImpl.getInstance().newInitializedInstance(
-                    ServiceTemplateType.ServiceTemplate.ServiceType.POWER_STATE_SERVICE,
-                    config);
-            serviceRemote.activate();
+            // the service remote is only replaced if the service configs changed. A pool creates it when the power state is switched.
+            // no service remote is needed if the power state is set by the data source.
+            if (unitDataSource == null && serviceRemotePool == null && (serviceRemote == null || this.config == null || !this.config.getServiceConfigList().equals(config.getServiceConfigList()))) {
+                final PowerStateServiceRemote previousServiceRemote = serviceRemote;
+                serviceRemote = serviceRemoteLoader != null ? serviceRemoteLoader.get(config) : PowerStateRemoteLoader.createServiceRemote(config);
+                if (previousServiceRemote != null) {
+                    previousServiceRemote.deactivate();
+                }
+            }
         } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not apply ConfigUpdate on ControllableObject", ex);
         }
+        this.config = config;
         return this.config;
     }
 
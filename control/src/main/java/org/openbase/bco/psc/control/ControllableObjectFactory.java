@@ -23,6 +23,7 @@ package org.openbase.bco.psc.control;
  * #L%
  */
 import org.openbase.bco.psc.control.jp.JPCooldownTime;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
 import org.openbase.jps.core.JPService;
 import org.openbase.jps.exception.JPNotAvailableException;
 import org.openbase.jul.exception.CouldNotPerformException;
@@ -50,6 +51,22 @@ public class ControllableObjectFactory implements Factory<ControllableObject, Un
      * Cooldown time used to initialize the <code>ControllableObject</code>s.
      */
     private final long cooldownTime;
+    /**
+     * Loader providing the service remotes created in advance, or null if they are created on demand.
+     */
+    private final PowerStateRemoteLoader serviceRemoteLoader;
+    /**
+     * Pool providing the service remotes on demand, or null if every object keeps its service remote active.
+     */
+    private final PowerStateRemotePool serviceRemotePool;
+    /**
+     * Dispatcher executing the power switches, or null if they are executed on the calling thread.
+     */
+    private final ActionDispatcher actionDispatcher;
+    /**
+     * Data source setting the power states instead of service remotes, or null if service remotes are used.
+     */
+    private final UnitDataSource unitDataSource;
 
     /**
      * Constructor.
@@ -58,6 +75,25 @@ public class ControllableObjectFactory implements Factory<ControllableObject, Un
      * instantiated.
      */
     private ControllableObjectFactory() throws InstantiationException {
+        this(null, null, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param serviceRemoteLoader Loader providing the service remotes created in advance, or null if they are created on demand.
+     * @param serviceRemotePool Pool providing the service remotes on demand, or null if every object keeps its service remote active.
+     * @param actionDispatcher Dispatcher executing the power switches, or null if they are executed on the calling thread.
+     * @param unitDataSource Data source setting the power states instead of service remotes, or null if service remotes are used.
+     * @throws InstantiationException Is thrown, if the factory could not be
+     * instantiated.
+     */
+    public ControllableObjectFactory(final PowerStateRemoteLoader serviceRemoteLoader, final PowerStateRemotePool serviceRemotePool, final ActionDispatcher actionDispatcher,
+            final UnitDataSource unitDataSource) throws InstantiationException {
+        this.serviceRemoteLoader = serviceRemoteLoader;
+        this.serviceRemotePool = serviceRemotePool;
+        this.actionDispatcher = actionDispatcher;
+        this.unitDataSource = unitDataSource;
         try {
             cooldownTime = JPService.getProperty(JPCooldownTime.class).getValue();
             LOGGER.info("Selected Control cooldown time: " + cooldownTime + " milliseconds");
@@ -91,7 +127,7 @@ public class ControllableObjectFactory implements Factory<ControllableObject, Un
     @Override
     public ControllableObject newInstance(UnitConfigType.UnitConfig config) throws InstantiationException, InterruptedException {
         try {
-            ControllableObject object = new ControllableObject(cooldownTime);
+            ControllableObject object = new ControllableObject(cooldownTime, serviceRemoteLoader, serviceRemotePool, actionDispatcher, unitDataSource);
             object.applyConfigUpdate(config);
             return object;
         } catch (CouldNotPerformException ex) {
@@ -0,0 +1,358 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceConfigType.ServiceConfig;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServicePattern;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.slf4j.LoggerFactory;
+import rsb.MetaData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches the units selected by pointing with the actions received from other modalities.
+ * Pending actions are indexed by their service type and the operation service types of every unit are precomputed from the unit registry, so that
+ * matching a selected unit only intersects its service types with the service types of the pending actions. The meta data of every intent is kept with
+ * it, so that the trace of the selection that was actually matched can be continued.
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class IntentMatcher {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(IntentMatcher.class);
+
+    /**
+     * Timeout in milliseconds after which pending intents are discarded.
+     */
+    private final long intentTimeout;
+
+    /**
+     * Pending selected units in the order of their receive time.
+     */
+    private final IntentStore<Intent<UnitProbabilityCollection>> selectedUnitIntents;
+
+    /**
+     * Pending actions by their service type in the order of their receive time.
+     */
+    private final Map<ServiceType, IntentStore<Intent<ActionParameter>>> receivedStatesIntents = new EnumMap<>(ServiceType.class);
+
+    /**
+     * Operation service types of every dal unit and unit group by their unit id, replaced whenever the unit registry changes.
+     */
+    private volatile Map<String, Set<ServiceType>> operationServiceTypes = Collections.emptyMap();
+
+    /**
+     * Constructor.
+     *
+     * @param intentTimeout the timeout in milliseconds after which pending intents are discarded.
+     */
+    public IntentMatcher(final long intentTimeout) {
+        this.intentTimeout = intentTimeout;
+        this.selectedUnitIntents = new IntentStore<>(intentTimeout, IntentStore.DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Recomputes the operation service types of all dal units and unit groups.
+     *
+     * @param unitRegistryData the current data of the unit registry.
+     */
+    public void updateServiceTypes(final UnitRegistryData unitRegistryData) {
+        final Map<String, Set<ServiceType>> serviceTypes = new HashMap<>();
+        for (UnitConfig config : unitRegistryData.getDalUnitConfigList()) {
+            serviceTypes.put(config.getId(), getOperationServiceTypes(config));
+        }
+        for (UnitConfig config : unitRegistryData.getUnitGroupUnitConfigList()) {
+            serviceTypes.put(config.getId(), getOperationServiceTypes(config));
+        }
+        operationServiceTypes = serviceTypes;
+        LOGGER.debug("Updated operation service types of " + serviceTypes.size() + " units.");
+    }
+
+    /**
+     * Gets the service types of a unit that can be operated.
+     *
+     * @param config the config of the unit.
+     * @return the service types with an operation service.
+     */
+    public static Set<ServiceType> getOperationServiceTypes(final UnitConfig config) {
+        final Set<ServiceType> serviceTypes = EnumSet.noneOf(ServiceType.class);
+        for (ServiceConfig serviceConfig : config.getServiceConfigList()) {
+            if (serviceConfig.getServiceDescription().getPattern() == ServicePattern.OPERATION) {
+                serviceTypes.add(serviceConfig.getServiceDescription().getServiceType());
+            }
+        }
+        return serviceTypes;
+    }
+
+    /**
+     * Adds units selected by pointing.
+     *
+     * @param receiveTime the receive time in milliseconds.
+     * @param unitProbabilityCollection the selected units.
+     */
+    public void addSelectedUnits(final long receiveTime, final UnitProbabilityCollection unitProbabilityCollection) {
+        addSelectedUnits(receiveTime, unitProbabilityCollection, null);
+    }
+
+    /**
+     * Adds units selected by pointing together with the meta data of their event.
+     *
+     * @param receiveTime the receive time in milliseconds.
+     * @param unitProbabilityCollection the selected units.
+     * @param metaData the meta data of the selection event, may be null.
+     */
+    public synchronized void addSelectedUnits(final long receiveTime, final UnitProbabilityCollection unitProbabilityCollection, final MetaData metaData) {
+        selectedUnitIntents.add(receiveTime, new Intent<>(unitProbabilityCollection, metaData));
+    }
+
+    /**
+     * Adds an action whose unit is not specified yet.
+     *
+     * @param receiveTime the receive time in milliseconds.
+     * @param actionParameter the action.
+     */
+    public void addAction(final long receiveTime, final ActionParameter actionParameter) {
+        addAction(receiveTime, actionParameter, null);
+    }
+
+    /**
+     * Adds an action whose unit is not specified yet together with the meta data of its event.
+     *
+     * @param receiveTime the receive time in milliseconds.
+     * @param actionParameter the action.
+     * @param metaData the meta data of the action event, may be null.
+     */
+    public synchronized void addAction(final long receiveTime, final ActionParameter actionParameter, final MetaData metaData) {
+        receivedStatesIntents.computeIfAbsent(actionParameter.getServiceStateDescription().getServiceType(),
+                serviceType -> new IntentStore<>(intentTimeout, IntentStore.DEFAULT_WHEEL_SIZE)).add(receiveTime, new Intent<>(actionParameter, metaData));
+    }
+
+    /**
+     * Discards the timed out intents and matches the remaining ones, oldest first. Every selected unit joins an action already matched with its selection
+     * if it can operate it, otherwise it is matched with the oldest pending action it can operate. This way a single action is applied to all units of a
+     * selected group. Matched actions and selections with at least one matched unit are removed, all others are kept for later matches.
+     *
+     * @param currentTime the current time in milliseconds.
+     * @return the matched actions with the units they have to be applied to.
+     */
+    public synchronized List<Match> match(final long currentTime) {
+        removeOldIntents(currentTime);
+        LOGGER.trace("After remove: #units: " + selectedUnitIntents.size() + " #states: " + getReceivedStatesIntentCount());
+        final List<Match> matches = new ArrayList<>();
+        final Iterator<Intent<UnitProbabilityCollection>> selections = selectedUnitIntents.iterator();
+        while (selections.hasNext() && hasPendingActions()) {
+            final Intent<UnitProbabilityCollection> selection = selections.next();
+            final List<Match> selectionMatches = new ArrayList<>();
+            for (UnitProbability unitProbability : selection.value.getElementList()) {
+                final Set<ServiceType> serviceTypes = operationServiceTypes.get(unitProbability.getId());
+                if (serviceTypes == null) {
+                    LOGGER.debug("Unit " + unitProbability.getId() + " is not known and can not be matched.");
+                    continue;
+                }
+                Match match = null;
+                for (Match selectionMatch : selectionMatches) {
+                    if (serviceTypes.contains(selectionMatch.actionParameter.getServiceStateDescription().getServiceType())) {
+                        match = selectionMatch;
+                        break;
+                    }
+                }
+                if (match == null) {
+                    final Intent<ActionParameter> action = pollOldestAction(serviceTypes);
+                    if (action == null) {
+                        continue;
+                    }
+                    match = new Match(action.value, selection.metaData, action.metaData);
+                    selectionMatches.add(match);
+                }
+                LOGGER.debug("Matched unit " + unitProbability.getId() + " with " + match.actionParameter.getServiceStateDescription().getServiceType());
+                match.unitIds.add(unitProbability.getId());
+            }
+            if (!selectionMatches.isEmpty()) {
+                matches.addAll(selectionMatches);
+                selections.remove();
+            }
+        }
+        return matches;
+    }
+
+    private void removeOldIntents(final long currentTime) {
+        selectedUnitIntents.expire(currentTime);
+        for (IntentStore<Intent<ActionParameter>> actionsOfType : receivedStatesIntents.values()) {
+            actionsOfType.expire(currentTime);
+        }
+    }
+
+    private boolean hasPendingActions() {
+        for (IntentStore<Intent<ActionParameter>> actionsOfType : receivedStatesIntents.values()) {
+            if (!actionsOfType.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the oldest pending action whose service type can be operated on a unit.
+     *
+     * @param serviceTypes the operation service types of the unit.
+     * @return the action with its meta data or null, if no pending action matches the unit.
+     */
+    private Intent<ActionParameter> pollOldestAction(final Set<ServiceType> serviceTypes) {
+        IntentStore<Intent<ActionParameter>> oldest = null;
+        // intersect the smaller set with the bigger one.
+        if (receivedStatesIntents.size() <= serviceTypes.size()) {
+            for (Map.Entry<ServiceType, IntentStore<Intent<ActionParameter>>> entry : receivedStatesIntents.entrySet()) {
+                if (serviceTypes.contains(entry.getKey()) && isOlder(entry.getValue(), oldest)) {
+                    oldest = entry.getValue();
+                }
+            }
+        } else {
+            for (ServiceType serviceType : serviceTypes) {
+                final IntentStore<Intent<ActionParameter>> actionsOfType = receivedStatesIntents.get(serviceType);
+                if (actionsOfType != null && isOlder(actionsOfType, oldest)) {
+                    oldest = actionsOfType;
+                }
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        return oldest.pollOldest();
+    }
+
+    private static boolean isOlder(final IntentStore<Intent<ActionParameter>> actions, final IntentStore<Intent<ActionParameter>> oldest) {
+        return !actions.isEmpty() && (oldest == null || actions.getOldestTime() < oldest.getOldestTime());
+    }
+
+    /**
+     * Gets the number of pending selections.
+     *
+     * @return the number of pending selections.
+     */
+    public synchronized int getSelectedUnitIntentCount() {
+        return selectedUnitIntents.size();
+    }
+
+    /**
+     * Gets the number of pending actions.
+     *
+     * @return the number of pending actions.
+     */
+    public synchronized int getReceivedStatesIntentCount() {
+        int count = 0;
+        for (IntentStore<Intent<ActionParameter>> actionsOfType : receivedStatesIntents.values()) {
+            count += actionsOfType.size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of selections and actions that were discarded because they timed out.
+     *
+     * @return the number of expired intents.
+     */
+    public synchronized long getExpiredIntentCount() {
+        long count = selectedUnitIntents.getExpiredCount();
+        for (IntentStore<Intent<ActionParameter>> actionsOfType : receivedStatesIntents.values()) {
+            count += actionsOfType.getExpiredCount();
+        }
+        return count;
+    }
+
+    /**
+     * A pending intent together with the meta data of its event.
+     */
+    private static final class Intent<V> {
+
+        private final V value;
+        private final MetaData metaData;
+
+        private Intent(final V value, final MetaData metaData) {
+            this.value = value;
+            this.metaData = metaData;
+        }
+    }
+
+    /**
+     * An action matched with the units it has to be applied to.
+     */
+    public static final class Match {
+
+        private final List<String> unitIds = new ArrayList<>();
+        private final ActionParameter actionParameter;
+        private final MetaData selectionMetaData;
+        private final MetaData actionMetaData;
+
+        private Match(final ActionParameter actionParameter, final MetaData selectionMetaData, final MetaData actionMetaData) {
+            this.actionParameter = actionParameter;
+            this.selectionMetaData = selectionMetaData;
+            this.actionMetaData = actionMetaData;
+        }
+
+        public List<String> getUnitIds() {
+            return Collections.unmodifiableList(unitIds);
+        }
+
+        public ActionParameter getActionParameter() {
+            return actionParameter;
+        }
+
+        /**
+         * Gets the meta data of the selection the action was matched with.
+         *
+         * @return the meta data or null, if the selection was added without it.
+         */
+        public MetaData getSelectionMetaData() {
+            return selectionMetaData;
+        }
+
+        /**
+         * Gets the meta data of the event of the action.
+         *
+         * @return the meta data or null, if the action was added without it.
+         */
+        public MetaData getActionMetaData() {
+            return actionMetaData;
+        }
+    }
+}
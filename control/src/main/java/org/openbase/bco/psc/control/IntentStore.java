@@ -0,0 +1,243 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps intents until their timeout expired. Intents are ordered by their arrival and expired by a hashed timing wheel, so that adding, removing and
+ * expiring an intent takes amortized constant time and intents with identical timestamps are all kept. Expired intents are removed with a resolution of
+ * one tick of the wheel, i.e. the timeout divided by the wheel size. Instances are not thread safe.
+ *
+ * @param <V> the type of the intents.
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class IntentStore<V> implements Iterable<V> {
+
+    /**
+     * Default number of slots of the timing wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    /**
+     * Timeout in milliseconds after which intents expire.
+     */
+    private final long timeout;
+    /**
+     * Duration of one tick of the wheel in milliseconds.
+     */
+    private final long tickDuration;
+    /**
+     * The slots of the wheel containing the intents by the tick of their expiration.
+     */
+    private final List<List<Entry<V>>> wheel;
+    /**
+     * The pending intents in the order of their arrival.
+     */
+    private final LinkedHashSet<Entry<V>> intents = new LinkedHashSet<>();
+    /**
+     * The last tick whose expired intents were removed, or Long.MIN_VALUE if the wheel was not started yet.
+     */
+    private long lastTick = Long.MIN_VALUE;
+    /**
+     * Number of intents removed because they expired.
+     */
+    private long expiredCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param timeout the timeout in milliseconds after which intents expire.
+     * @param wheelSize the number of slots of the timing wheel.
+     */
+    public IntentStore(final long timeout, final int wheelSize) {
+        this.timeout = timeout;
+        this.tickDuration = Math.max(1, (timeout + wheelSize - 1) / wheelSize);
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds an intent.
+     *
+     * @param time the time of the intent in milliseconds.
+     * @param intent the intent.
+     */
+    public void add(final long time, final V intent) {
+        final Entry<V> entry = new Entry<>(time, Math.floorDiv(time + timeout, tickDuration), intent);
+        if (lastTick == Long.MIN_VALUE) {
+            lastTick = Math.floorDiv(time, tickDuration) - 1;
+        }
+        if (entry.expirationTick <= lastTick) {
+            // the intent would already have been removed.
+            expiredCount++;
+            return;
+        }
+        wheel.get(getSlot(entry.expirationTick)).add(entry);
+        intents.add(entry);
+    }
+
+    /**
+     * Removes all intents that expired before the current tick.
+     *
+     * @param currentTime the current time in milliseconds.
+     */
+    public void expire(final long currentTime) {
+        final long expiredTick = Math.floorDiv(currentTime, tickDuration) - 1;
+        if (lastTick == Long.MIN_VALUE) {
+            lastTick = expiredTick;
+            return;
+        }
+        if (expiredTick <= lastTick) {
+            return;
+        }
+        final long steps = Math.min(expiredTick - lastTick, wheel.size());
+        for (long step = 1; step <= steps; step++) {
+            final Iterator<Entry<V>> slot = wheel.get(getSlot(lastTick + step)).iterator();
+            while (slot.hasNext()) {
+                final Entry<V> entry = slot.next();
+                if (entry.removed) {
+                    slot.remove();
+                } else if (entry.expirationTick <= expiredTick) {
+                    slot.remove();
+                    intents.remove(entry);
+                    expiredCount++;
+                }
+            }
+        }
+        lastTick = expiredTick;
+    }
+
+    /**
+     * Gets the time of the oldest pending intent.
+     *
+     * @return the time in milliseconds.
+     * @throws NoSuchElementException if no intent is pending.
+     */
+    public long getOldestTime() {
+        return intents.iterator().next().time;
+    }
+
+    /**
+     * Removes the oldest pending intent.
+     *
+     * @return the intent or null, if no intent is pending.
+     */
+    public V pollOldest() {
+        final Iterator<V> iterator = iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final V intent = iterator.next();
+        iterator.remove();
+        return intent;
+    }
+
+    /**
+     * Iterates the pending intents from the oldest to the newest. Intents removed by the iterator are not expired later.
+     *
+     * @return the iterator.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        final Iterator<Entry<V>> entries = intents.iterator();
+        return new Iterator<V>() {
+            private Entry<V> current;
+
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public V next() {
+                current = entries.next();
+                return current.intent;
+            }
+
+            @Override
+            public void remove() {
+                entries.remove();
+                // the entry is dropped from the wheel when its slot is checked.
+                current.removed = true;
+            }
+        };
+    }
+
+    /**
+     * Checks if no intent is pending.
+     *
+     * @return true, if no intent is pending.
+     */
+    public boolean isEmpty() {
+        return intents.isEmpty();
+    }
+
+    /**
+     * Gets the number of pending intents.
+     *
+     * @return the number of pending intents.
+     */
+    public int size() {
+        return intents.size();
+    }
+
+    /**
+     * Gets the number of intents that were removed because they expired.
+     *
+     * @return the number of expired intents.
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    private int getSlot(final long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.size());
+    }
+
+    /**
+     * A pending intent together with the tick of its expiration.
+     */
+    private static class Entry<V> {
+
+        private final long time;
+        private final long expirationTick;
+        private final V intent;
+        private boolean removed = false;
+
+        Entry(final long time, final long expirationTick, final V intent) {
+            this.time = time;
+            this.expirationTick = expirationTick;
+            this.intent = intent;
+        }
+    }
+}
@@ -23,17 +23,23 @@ package org.openbase.bco.psc.control;
  * #L%
  */
 
-import org.openbase.bco.dal.remote.action.RemoteAction;
-import org.openbase.bco.dal.remote.layer.unit.Units;
-import org.openbase.bco.dal.remote.layer.unit.connection.ConnectionRemote;
-import org.openbase.bco.dal.remote.layer.unit.location.LocationRemote;
 import org.openbase.bco.psc.control.jp.JPControlThreshold;
 import org.openbase.bco.psc.control.jp.JPIntentTimeout;
 import org.openbase.bco.psc.control.jp.JPMultimodalMode;
+import org.openbase.bco.psc.control.jp.JPPrewarmServiceRemotes;
+import org.openbase.bco.psc.control.jp.JPServiceRemoteIdleTime;
+import org.openbase.bco.psc.control.jp.JPServiceRemotePoolSize;
+import org.openbase.bco.psc.control.jp.JPWindowGuardLocations;
 import org.openbase.bco.psc.control.rsb.RSBConnection;
 import org.openbase.bco.psc.lib.jp.JPPscUnitFilterList;
+import org.openbase.bco.psc.lib.registry.FixtureUnitDataSource;
 import org.openbase.bco.psc.lib.registry.PointingUnitChecker;
-import org.openbase.bco.registry.remote.Registries;
+import org.openbase.bco.psc.lib.registry.UnitConfigSynchronizer;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
+import org.openbase.bco.psc.lib.trace.EventTrace;
+import org.openbase.bco.psc.lib.trace.TraceCollector;
+import org.openbase.bco.psc.lib.trace.TraceStage;
 import org.openbase.jps.core.JPService;
 import org.openbase.jps.exception.JPNotAvailableException;
 import org.openbase.jul.exception.CouldNotPerformException;
@@ -43,33 +49,28 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.iface.Launchable;
 import org.openbase.jul.iface.VoidInitializable;
-import org.openbase.jul.storage.registry.RegistrySynchronizer;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
 import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
 import org.openbase.type.domotic.action.ActionParameterType;
 import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
-import org.openbase.type.domotic.service.ServiceConfigType;
-import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate;
-import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
-import org.openbase.type.domotic.state.WindowStateType.WindowState;
-import org.openbase.type.domotic.unit.UnitConfigType;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
 import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
 import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
-import org.openbase.type.domotic.unit.UnitTemplateType;
-import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
 import org.slf4j.LoggerFactory;
 import rsb.AbstractEventHandler;
 import rsb.Event;
+import rsb.MetaData;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.function.Predicate;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
-import static org.openbase.bco.registry.remote.Registries.getUnitRegistry;
 import static org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType.BLIND_STATE_SERVICE;
 
 /**
@@ -95,13 +96,33 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
     /**
      * The synchronizer which synchronizes the unit registry with the internal controllableObjectRegistry.
      */
-    private RegistrySynchronizer<String, ControllableObject, UnitConfigType.UnitConfig, UnitConfigType.UnitConfig.Builder> controllableObjectRegistrySynchronizer;
+    private UnitConfigSynchronizer controllableObjectRegistrySynchronizer;
+
+    /**
+     * The source of the unit configs and the executor of the actions.
+     */
+    private UnitDataSource unitDataSource;
 
     /**
      * Internal synchronized registry containing all controllable objects.
      */
     private SynchronizableRegistryImpl<String, ControllableObject> controllableObjectRegistry;
 
+    /**
+     * Creates the service remotes of the controllable objects in parallel, or null if they are created on demand.
+     */
+    private PowerStateRemoteLoader serviceRemoteLoader;
+
+    /**
+     * Creates the service remotes of the controllable objects on demand, or null if they are created in advance.
+     */
+    private PowerStateRemotePool serviceRemotePool;
+
+    /**
+     * Whether the service remotes of all units contained in received selections are created in advance.
+     */
+    private boolean prewarmServiceRemotes;
+
     /**
      * The flags used to identify controllable objects in the unit registry.
      */
@@ -113,7 +134,7 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
     private double threshold;
 
     /**
-     * Timeout for keeping and matching intent events.
+     * Timeout in milliseconds for keeping and matching intent events.
      */
     private Long intentTimeout;
 
@@ -133,14 +154,37 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
     private boolean initialized = false;
 
     /**
-     * Collection of the selected UnitProbabilityCollections with the selection time.
+     * Matches the selected UnitProbabilityCollections with the received ActionParameters.
+     */
+    private IntentMatcher intentMatcher;
+
+    /**
+     * Executes the actions of the controlled units without blocking the event handler.
+     */
+    private ActionDispatcher actionDispatcher;
+
+    /**
+     * Guards that have to permit an action before it is dispatched.
+     */
+    private final List<ActionGuard> actionGuards = new ArrayList<>();
+
+    /**
+     * Collects the latencies of the pipeline stages of the traced events that led to an action.
      */
-    private TreeMap<Long, UnitProbabilityCollection> selectedUnitIntents;
+    private final TraceCollector traceCollector = new TraceCollector(TraceCollector.DEFAULT_REPORT_INTERVAL);
 
     /**
-     * Collection of the received ActionParameters with the time of arrival.
+     * Starts creating the service remotes of changed units and updates the intent matcher and the action guards whenever the unit registry changes.
      */
-    private TreeMap<Long, ActionParameter> receivedStatesIntents;
+    private final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> unitRegistryDataObserver = (source, data) -> {
+        if (serviceRemoteLoader != null) {
+            serviceRemoteLoader.loadAll(data);
+        }
+        intentMatcher.updateServiceTypes(data);
+        for (ActionGuard actionGuard : actionGuards) {
+            actionGuard.updateConfiguration(data);
+        }
+    };
 
     /**
      * {@inheritDoc}
@@ -163,21 +207,30 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
 
                     if (selectedUnits.size() > 0) {
                         unitProbabilityCollection = UnitProbabilityCollection.newBuilder().addAllElement(selectedUnits).build();
-                        selectedUnitIntents.put(event.getMetaData().getReceiveTime(), unitProbabilityCollection);
+                        intentMatcher.addSelectedUnits(event.getMetaData().getReceiveTime() / 1000, unitProbabilityCollection, event.getMetaData());
                         handleIntents();
                     }
                 } else if (event.getData() instanceof ActionParameter) {
-                    receivedStatesIntents.put(event.getMetaData().getReceiveTime(), (ActionParameter) event.getData());
+                    intentMatcher.addAction(event.getMetaData().getReceiveTime() / 1000, (ActionParameter) event.getData(), event.getMetaData());
                     handleIntents();
                 }
             } else {
                 if (event.getData() instanceof UnitProbabilityCollection) {
                     UnitProbabilityCollection collection = (UnitProbabilityCollection) event.getData();
+                    if (prewarmServiceRemotes) {
+                        for (UnitProbability unitProbability : collection.getElementList()) {
+                            if (controllableObjectRegistry.contains(unitProbability.getId())) {
+                                controllableObjectRegistry.get(unitProbability.getId()).prewarm();
+                            }
+                        }
+                    }
+                    final AtomicBoolean switched = new AtomicBoolean(false);
                     collection.getElementList().stream().filter(x -> x.getProbability() >= threshold).forEach(x -> {
                         if (controllableObjectRegistry.contains(x.getId())) {
                             try {
                                 if (controllableObjectRegistry.get(x.getId()).switchPowerState()) {
-                                    LOGGER.info("Switched power state of unit " + controllableObjectRegistry.get(x.getId()).getConfig().getLabel() + " with id " + x.getId());
+                                    switched.set(true);
+                                    LOGGER.info("Dispatched power switch of unit " + controllableObjectRegistry.get(x.getId()).getConfig().getLabel() + " with id " + x.getId());
                                 } else {
                                     LOGGER.trace("Did not switch power state of unit " + controllableObjectRegistry.get(x.getId()).getConfig().getLabel() + " with id " + x.getId());
                                 }
@@ -189,6 +242,9 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
                             }
                         }
                     });
+                    if (switched.get()) {
+                        recordActionTrace(createActionTrace(event.getMetaData()));
+                    }
                 }
             }
         } catch (CouldNotPerformException ex) {
@@ -196,106 +252,107 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
         }
     }
 
+    /**
+     * Matches the pending intents and dispatches the resulting actions. Every action continues the trace of the selection it was matched with.
+     *
+     * @throws CouldNotPerformException if the intents could not be matched.
+     * @throws InterruptedException if interrupted while matching.
+     */
     private synchronized void handleIntents() throws CouldNotPerformException, InterruptedException {
-        LOGGER.trace("Updated stack: #units: " + selectedUnitIntents.size() + " #states: " + receivedStatesIntents.size());
-        removeOldIntents();
-        LOGGER.trace("After remove: #units: " + selectedUnitIntents.size() + " #states: " + receivedStatesIntents.size());
-        executeMatchingIntents();
-    }
-
-    private void removeOldIntents() {
-        long currentTime = System.currentTimeMillis() * 1000;
-
-        // logging
-        LOGGER.trace("Remove: time " + currentTime + " timeout: " + intentTimeout);
-        selectedUnitIntents.keySet().forEach(receiveTime ->
-                LOGGER.trace("unit receive time " + receiveTime + " diff " + (receiveTime - currentTime)));
-        receivedStatesIntents.keySet().forEach(receiveTime ->
-                LOGGER.trace("state receive time " + receiveTime + " diff " + (receiveTime - currentTime)));
-
-        selectedUnitIntents.keySet().removeIf(receiveTime -> currentTime > intentTimeout + receiveTime);
-        receivedStatesIntents.keySet().removeIf(receiveTime -> currentTime > intentTimeout + receiveTime);
+        LOGGER.trace("Updated stack: #units: " + intentMatcher.getSelectedUnitIntentCount() + " #states: " + intentMatcher.getReceivedStatesIntentCount() + " #expired: " + intentMatcher.getExpiredIntentCount());
+        for (IntentMatcher.Match match : intentMatcher.match(System.currentTimeMillis())) {
+            final MetaData actionTrace = createActionTrace(match.getSelectionMetaData());
+            if (actionTrace != null) {
+                // an action received after the selection was waited for, which must not count as matching latency.
+                final MetaData actionMetaData = match.getActionMetaData();
+                final long selectionReceiveTime = match.getSelectionMetaData().getReceiveTime();
+                EventTrace.mark(actionTrace, TraceStage.INTENT_RECEIVE, actionMetaData != null ? Math.max(actionMetaData.getReceiveTime(), selectionReceiveTime) : selectionReceiveTime);
+                EventTrace.mark(actionTrace, TraceStage.INTENT_MATCH);
+            }
+            if (completeActionDescription(match.getActionParameter(), match.getUnitIds())) {
+                recordActionTrace(actionTrace);
+            }
+        }
     }
 
-    private void executeMatchingIntents() throws CouldNotPerformException, InterruptedException {
-        try {
-            Map<Long, UnitProbabilityCollection> unmatchedSelectedUnitIntents = new TreeMap<>();
-            Map<Long, ActionParameter> unmatchedReceivedStatesIntents = new TreeMap<>();
-
-            LOGGER.trace("executeMatchingIntents");
-            if (selectedUnitIntents.size() > 0 && receivedStatesIntents.size() > 0) {
-                while (selectedUnitIntents.size() > 0) {
-                    Long selectedUnitTime = selectedUnitIntents.firstKey();
-                    UnitProbabilityCollection unitProbabilityCollection = selectedUnitIntents.remove(selectedUnitTime);
-                    List<String> selectedUnitIds = unitProbabilityCollection.getElementList().stream()
-                            .map(UnitProbability::getId)
-                            .collect(Collectors.toList());
-
-                    for (String unitId : selectedUnitIds) {
-                        LOGGER.debug("unitId " + unitId + " used for matching");
-                        UnitConfigType.UnitConfig unitConfig = getUnitRegistry().getUnitConfigById(unitId);
-
-                        while (receivedStatesIntents.size() > 0) {
-                            Long receivedStateTime = receivedStatesIntents.firstKey();
-                            ActionParameter actionParameter = receivedStatesIntents.remove(receivedStateTime);
-                            ServiceType serviceType = actionParameter.getServiceStateDescription().getServiceType();
-
-                            LOGGER.debug(" >   matching with " + serviceType);
-
-                            if (unitConfig.getServiceConfigList().stream().anyMatch(isMatchingAndOperationServiceType(serviceType))) {
-                                LOGGER.debug(" >>>>>>>>>>> MATCH <<<<<<<<<<<<<<<");
-                                completeActionDescription(actionParameter, unitId);
-                                break;
-                            } else {
-                                // restore unmatched intents for reuse
-                                unmatchedSelectedUnitIntents.put(selectedUnitTime, unitProbabilityCollection);
-                                unmatchedReceivedStatesIntents.put(receivedStateTime, actionParameter);
-                            }
-
-                        }
-                    }
-                }
-            }
-            selectedUnitIntents.putAll(unmatchedSelectedUnitIntents);
-            receivedStatesIntents.putAll(unmatchedReceivedStatesIntents);
-        } catch (CouldNotPerformException ex) {
-            throw new CouldNotPerformException("cannot match intents.", ex);
+    /**
+     * Creates the meta data used to continue the trace of an event that leads to an action.
+     *
+     * @param trace the meta data of the event, may be null.
+     * @return the meta data of the action, or null if the event is not traced.
+     */
+    private MetaData createActionTrace(final MetaData trace) {
+        if (!EventTrace.isTraced(trace)) {
+            return null;
         }
+        final MetaData actionTrace = new MetaData();
+        EventTrace.copy(trace, actionTrace);
+        return actionTrace;
     }
 
-    private Predicate<ServiceConfigType.ServiceConfig> isMatchingAndOperationServiceType(ServiceType serviceType) {
-        return x -> x.getServiceDescription().getServiceType() == serviceType
-                && x.getServiceDescription().getPattern() == ServiceTemplate.ServicePattern.OPERATION;
+    /**
+     * Marks the dispatch of the action and records the latencies of its trace.
+     *
+     * @param actionTrace the meta data of the action, may be null.
+     */
+    private void recordActionTrace(final MetaData actionTrace) {
+        if (actionTrace != null) {
+            EventTrace.mark(actionTrace, TraceStage.ACTION_DISPATCH);
+            traceCollector.record(actionTrace);
+        }
     }
 
-    private void completeActionDescription(ActionParameterType.ActionParameter actionParameter, String unitId)
-            throws CouldNotPerformException, InterruptedException {
-        try {
+    /**
+     * Completes the action description for each matched unit and dispatches the actions permitted by all action guards at once, so that the units of a
+     * group are switched concurrently and the event handler does not wait for them.
+     *
+     * @param actionParameter the received action parameter.
+     * @param unitIds the ids of the matched units.
+     * @return true, if any action was dispatched.
+     */
+    private boolean completeActionDescription(ActionParameterType.ActionParameter actionParameter, List<String> unitIds) {
+        final Map<String, ActionDispatcher.Action> actions = new LinkedHashMap<>();
+        final List<ActionParameter> permittedActionParameters = new ArrayList<>();
+        for (String unitId : unitIds) {
             ActionParameter.Builder builder = actionParameter.toBuilder();
             builder.getServiceStateDescriptionBuilder().setUnitId(unitId);
             ActionParameter actionParameterNew = builder.build();
-
-            // WORKAROUND: security check if windows are closed when using blind service
-            if (actionParameterNew.getServiceStateDescription().getServiceType() == BLIND_STATE_SERVICE) {
-                LocationRemote living = Units.getUnitByAlias("LIVING", false, Units.LOCATION);
-                List<? extends ConnectionRemote> connectionRemotes = living.getUnits(UnitTemplateType.UnitTemplate.UnitType.CONNECTION, false, Units.CONNECTION);
-                for (ConnectionRemote connectionRemote : connectionRemotes) {
-                    if (connectionRemote.getConfig().getConnectionConfig().getConnectionType() == ConnectionType.WINDOW) {
-                        if (connectionRemote.getWindowState().getValue() != WindowState.State.CLOSED) {
-                            LOGGER.warn("RemoteAction was canceled because of open window!");
-                            return;
-                        }
-                    }
+            if (isPermitted(actionParameterNew)) {
+                permittedActionParameters.add(actionParameterNew);
+                actions.put(unitId, () -> {
+                    LOGGER.info("Executing RemoteAction for unit " + unitId);
+                    return unitDataSource.applyAction(actionParameterNew);
+                });
+            }
+        }
+        if (actions.isEmpty()) {
+            return false;
+        }
+        actionDispatcher.dispatchAll(actions).whenComplete((result, ex) -> {
+            // even a failed group may have applied some of its actions.
+            for (ActionParameter permittedActionParameter : permittedActionParameters) {
+                for (ActionGuard actionGuard : actionGuards) {
+                    actionGuard.actionApplied(permittedActionParameter);
                 }
             }
+            if (ex == null) {
+                LOGGER.info("RemoteAction for units " + actions.keySet() + " was delivered.");
+            } else if (ex instanceof CancellationException || ex.getCause() instanceof CancellationException) {
+                LOGGER.debug("RemoteAction for units " + actions.keySet() + " was superseded by a later action.");
+            } else {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("RemoteAction for units " + actions.keySet() + " was not delivered to all units.", ex), LOGGER, LogLevel.WARN);
+            }
+        });
+        return true;
+    }
 
-            RemoteAction remoteAction = new RemoteAction(actionParameterNew);
-            remoteAction.execute().get(5, TimeUnit.SECONDS);
-            LOGGER.info("RemoteAction was delivered " + remoteAction);
-
-        } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
-            throw new CouldNotPerformException("could not complete action.", ex);
+    private boolean isPermitted(final ActionParameter actionParameter) {
+        for (ActionGuard actionGuard : actionGuards) {
+            if (!actionGuard.isPermitted(actionParameter)) {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -313,14 +370,37 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
                 controllableObjectRegistry = new SynchronizableRegistryImpl<>();
                 registryFlags = JPService.getProperty(JPPscUnitFilterList.class).getValue();
                 LOGGER.info("Selected Control Registry flags: " + registryFlags.toString());
+                unitDataSource = UnitDataSources.getInstance();
+                // units of a fixture have no service remotes, their power states are set by the data source.
+                final boolean fixtureMode = unitDataSource instanceof FixtureUnitDataSource;
+                final int serviceRemotePoolSize = JPService.getProperty(JPServiceRemotePoolSize.class).getValue();
+                LOGGER.info("Selected service remote pool size: " + serviceRemotePoolSize);
+                if (fixtureMode) {
+                    LOGGER.info("Service remotes are not used with a unit data fixture.");
+                } else if (serviceRemotePoolSize > 0) {
+                    final long serviceRemoteIdleTime = JPService.getProperty(JPServiceRemoteIdleTime.class).getValue();
+                    LOGGER.info("Selected service remote idle time: " + serviceRemoteIdleTime + " milliseconds");
+                    prewarmServiceRemotes = JPService.getProperty(JPPrewarmServiceRemotes.class).getValue();
+                    LOGGER.info("Selected service remote prewarming: " + prewarmServiceRemotes);
+                    serviceRemotePool = new PowerStateRemotePool(serviceRemotePoolSize, serviceRemoteIdleTime);
+                } else {
+                    serviceRemoteLoader = new PowerStateRemoteLoader(registryFlags);
+                }
                 threshold = JPService.getProperty(JPControlThreshold.class).getValue();
                 LOGGER.info("Selected Control threshold: " + threshold);
                 intentTimeout = JPService.getProperty(JPIntentTimeout.class).getValue();
-                LOGGER.info("Selected intent timeout: " + intentTimeout);
+                LOGGER.info("Selected intent timeout: " + intentTimeout + " milliseconds");
                 inMultimodalMode = JPService.getProperty(JPMultimodalMode.class).getValue();
-                LOGGER.info("Selected intent timeout: " + intentTimeout);
+                intentMatcher = new IntentMatcher(intentTimeout);
+                final List<String> windowGuardLocations = JPService.getProperty(JPWindowGuardLocations.class).getValue();
+                LOGGER.info("Selected window guard locations: " + windowGuardLocations);
+                if (!windowGuardLocations.isEmpty()) {
+                    actionGuards.add(new WindowStateGuard(windowGuardLocations, EnumSet.of(BLIND_STATE_SERVICE), fixtureMode ? unitDataSource : null));
+                }
+
+                actionDispatcher = new ActionDispatcher(ActionDispatcher.DEFAULT_PARALLELISM, ActionDispatcher.DEFAULT_QUEUE_SIZE, ActionDispatcher.DEFAULT_ACTION_TIMEOUT);
 
-                initializeRegistryConnection();
+                initializeRegistryConnection(fixtureMode);
 
                 rsbConnection = new RSBConnection(this);
                 rsbConnection.init();
@@ -328,27 +408,30 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
             } catch (JPNotAvailableException | CouldNotPerformException ex) {
                 throw new InitializationException(PSCControl.class, ex);
             }
-            selectedUnitIntents = new TreeMap<>();
-            receivedStatesIntents = new TreeMap<>();
         }
     }
 
     /**
      * Initializes the synchronization of the internal controllableObjectRegistry with the unit registry.
      *
+     * @param fixtureMode whether the power states of the controllable objects are set by the unit data source instead of service remotes.
      * @throws InterruptedException     is thrown in case of an external interruption.
      * @throws CouldNotPerformException is thrown, if the registry synchronization could not be initialized.
      */
-    private void initializeRegistryConnection() throws InterruptedException, CouldNotPerformException {
+    private void initializeRegistryConnection(final boolean fixtureMode) throws InterruptedException, CouldNotPerformException {
         try {
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.getUnitRegistry().waitForData();
+            unitDataSource.waitForData();
 
-            controllableObjectRegistrySynchronizer = new RegistrySynchronizer<>(
-                    controllableObjectRegistry, getUnitRegistry().getUnitConfigRemoteRegistry(), getUnitRegistry(), ControllableObjectFactory.getInstance());
-            controllableObjectRegistrySynchronizer.addFilter(config -> {
+            final ControllableObjectFactory factory = new ControllableObjectFactory(serviceRemoteLoader, serviceRemotePool, actionDispatcher, fixtureMode ? unitDataSource : null);
+            controllableObjectRegistrySynchronizer = unitDataSource.createSynchronizer(controllableObjectRegistry, factory, config -> {
                 try {
-                    return !PointingUnitChecker.isPointingControlUnit(config, registryFlags);
+                    final boolean filtered = !PointingUnitChecker.isPointingControlUnit(config, registryFlags);
+                    if (filtered && serviceRemoteLoader != null) {
+                        // the service remote may have been created in advance while the unit was not yet filtered.
+                        serviceRemoteLoader.release(config);
+                    }
+                    return filtered;
                 } catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
                     return true;
@@ -377,9 +460,26 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
         }
         if (!active) {
             active = true;
+            // the executors are shut down by deactivate.
+            actionDispatcher.start();
+            if (serviceRemoteLoader != null) {
+                serviceRemoteLoader.start();
+            }
+            if (serviceRemotePool != null) {
+                serviceRemotePool.start();
+            }
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.waitForData();
+            unitDataSource.waitForData();
             LOGGER.info("Activating Registry synchronization.");
+            // create all service remotes at once, so that the synchronizer does not wait for them one after another.
+            if (serviceRemoteLoader != null) {
+                serviceRemoteLoader.loadAll(unitDataSource.getData());
+            }
+            intentMatcher.updateServiceTypes(unitDataSource.getData());
+            for (ActionGuard actionGuard : actionGuards) {
+                actionGuard.updateConfiguration(unitDataSource.getData());
+            }
+            unitDataSource.addDataObserver(unitRegistryDataObserver);
             controllableObjectRegistrySynchronizer.activate();
             rsbConnection.activate();
         }
@@ -399,6 +499,17 @@ public class PSCControl extends AbstractEventHandler implements Control, Launcha
             rsbConnection.deactivate();
             LOGGER.info("Deactivating Registry synchronization.");
             controllableObjectRegistrySynchronizer.deactivate();
+            unitDataSource.removeDataObserver(unitRegistryDataObserver);
+            for (ActionGuard actionGuard : actionGuards) {
+                actionGuard.deactivate();
+            }
+            if (serviceRemoteLoader != null) {
+                serviceRemoteLoader.shutdown();
+            }
+            if (serviceRemotePool != null) {
+                serviceRemotePool.shutdown();
+            }
+            actionDispatcher.shutdown();
         }
     }
 
@@ -0,0 +1,153 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.zip.CRC32;
+import org.openbase.bco.dal.remote.layer.service.PowerStateServiceRemote;
+import org.openbase.bco.dal.remote.layer.service.ServiceRemoteFactoryImpl;
+import org.openbase.bco.psc.lib.registry.AbstractParallelConfigLoader;
+import org.openbase.bco.psc.lib.registry.PointingUnitChecker;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.type.domotic.service.ServiceConfigType.ServiceConfig;
+import org.openbase.type.domotic.service.ServiceTemplateType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates and activates the power state service remotes of the controllable objects in parallel.
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class PowerStateRemoteLoader extends AbstractParallelConfigLoader<PowerStateServiceRemote> {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PowerStateRemoteLoader.class);
+    /**
+     * The flags used to identify controllable objects in the unit registry.
+     */
+    private final List<String> registryFlags;
+
+    /**
+     * Constructor.
+     *
+     * @param registryFlags the flags of which one has to be set in the meta config of a controllable unit.
+     */
+    public PowerStateRemoteLoader(final List<String> registryFlags) {
+        super(DEFAULT_PARALLELISM);
+        this.registryFlags = registryFlags;
+    }
+
+    /**
+     * Creates and activates the power state service remote of a unit.
+     *
+     * @param config the config of the unit.
+     * @return the activated service remote.
+     * @throws CouldNotPerformException if the remote could not be created or activated.
+     * @throws InterruptedException if interrupted during the activation.
+     */
+    public static PowerStateServiceRemote createServiceRemote(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        final PowerStateServiceRemote serviceRemote = (PowerStateServiceRemote) ServiceRemoteFactoryImpl.getInstance().newInitializedInstance(
+                ServiceTemplateType.ServiceTemplate.ServiceType.POWER_STATE_SERVICE,
+                config);
+        serviceRemote.activate();
+        return serviceRemote;
+    }
+
+    /**
+     * {@inheritDoc} The service remote only depends on the service configs of the unit.
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long getFingerprint(final UnitConfig config) {
+        final CRC32 checksum = new CRC32();
+        for (ServiceConfig serviceConfig : config.getServiceConfigList()) {
+            checksum.update(serviceConfig.toByteArray());
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    protected boolean isCandidate(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return PointingUnitChecker.isPointingControlUnitCandidate(config, registryFlags);
+    }
+
+    /**
+     * {@inheritDoc} Only units that pass the complete filter of the synchronizer, including their placement, become controllable objects.
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    protected boolean isRequired(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return PointingUnitChecker.isPointingControlUnit(config, registryFlags);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    protected PowerStateServiceRemote load(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return createServiceRemote(config);
+    }
+
+    /**
+     * Deactivates a service remote that was created for a unit which did not become a controllable object.
+     *
+     * @param serviceRemote the unused service remote.
+     */
+    @Override
+    protected void discard(final PowerStateServiceRemote serviceRemote) {
+        try {
+            serviceRemote.deactivate();
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
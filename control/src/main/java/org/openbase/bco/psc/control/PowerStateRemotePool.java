@@ -0,0 +1,433 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openbase.bco.dal.remote.layer.service.PowerStateServiceRemote;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.type.domotic.service.ServiceConfigType.ServiceConfig;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the power state service remotes of the controllable objects on demand, i.e. when a unit is selected for the first time, instead of at startup.
+ * At most a fixed number of remotes is kept active. The least recently used remote is deactivated when this number is exceeded and remotes that were
+ * not used for the idle time are deactivated as well. A remote handed out by <code>get</code> is pinned until it is handed back by <code>release</code>,
+ * so that it is not deactivated while it is in use. The pool may exceed its size while all remotes are pinned.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class PowerStateRemotePool {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PowerStateRemotePool.class);
+    /**
+     * Number of threads creating and deactivating the service remotes.
+     */
+    private static final int PARALLELISM = 4;
+
+    /**
+     * Executor creating the service remotes and checking for idle remotes, replaced when the pool is started again after a shutdown.
+     */
+    private ScheduledExecutorService executorService;
+    /**
+     * Maximal number of active service remotes that are not pinned.
+     */
+    private final int maxSize;
+    /**
+     * Time in milliseconds after which an unused remote is deactivated, or 0 if remotes are only deactivated when they are displaced.
+     */
+    private final long idleTime;
+    /**
+     * The remotes by the id of their unit in the order of their last use.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The entries of the remotes handed out by <code>get</code> that were not released yet.
+     */
+    private final Map<PowerStateServiceRemote, Entry> leases = new IdentityHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize maximal number of active service remotes.
+     * @param idleTime time in milliseconds after which an unused remote is deactivated, or 0 if remotes are only deactivated when they are displaced.
+     */
+    public PowerStateRemotePool(final int maxSize, final long idleTime) {
+        this.maxSize = maxSize;
+        this.idleTime = idleTime;
+        this.executorService = createExecutorService();
+    }
+
+    private ScheduledExecutorService createExecutorService() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(PARALLELISM, runnable -> {
+            final Thread thread = new Thread(runnable, getClass().getSimpleName() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (idleTime > 0) {
+            final long checkInterval = Math.max(1000, idleTime / 2);
+            executor.scheduleWithFixedDelay(this::removeIdleRemotes, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+        return executor;
+    }
+
+    /**
+     * Gets the service remote of a unit and creates it if it is not active yet or if the service configs of the unit changed. The remote is pinned until
+     * it is handed back by <code>release</code>.
+     *
+     * @param config the config of the unit.
+     * @return the activated service remote.
+     * @throws CouldNotPerformException if the remote could not be created or activated or if the pool was shut down.
+     * @throws InterruptedException if interrupted while waiting for the remote.
+     */
+    public PowerStateServiceRemote get(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        while (true) {
+            final Entry entry;
+            final List<Entry> discarded = new ArrayList<>();
+            synchronized (this) {
+                if (executorService.isShutdown()) {
+                    throw new CouldNotPerformException("Could not get service remote of unit " + config.getId() + " because the pool is shut down.");
+                }
+                entry = getEntry(config, discarded);
+                entry.pins++;
+            }
+            discardAll(discarded);
+            try {
+                final PowerStateServiceRemote serviceRemote = entry.future.get();
+                synchronized (this) {
+                    leases.put(serviceRemote, entry);
+                }
+                return serviceRemote;
+            } catch (CancellationException ex) {
+                // only creations that are not pinned are cancelled, but if it happens anyway the remote is requested again.
+                unpin(entry);
+            } catch (ExecutionException ex) {
+                synchronized (this) {
+                    if (entries.get(config.getId()) == entry) {
+                        entries.remove(config.getId());
+                    }
+                }
+                unpin(entry);
+                throw new CouldNotPerformException("Could not create service remote of unit " + config.getId(), ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Hands back a service remote obtained by <code>get</code>, so that it can be deactivated when it is displaced or idle.
+     *
+     * @param serviceRemote the service remote.
+     */
+    public void release(final PowerStateServiceRemote serviceRemote) {
+        final Entry entry;
+        synchronized (this) {
+            entry = leases.get(serviceRemote);
+            if (entry == null) {
+                return;
+            }
+            entry.pins--;
+            if (entry.pins > 0) {
+                return;
+            }
+            leases.remove(serviceRemote);
+            if (!entry.retired) {
+                return;
+            }
+        }
+        discard(entry);
+    }
+
+    /**
+     * Starts creating the service remote of a unit in the background, so that it is ready when the unit is selected.
+     *
+     * @param config the config of the unit.
+     */
+    public void prewarm(final UnitConfig config) {
+        final List<Entry> discarded = new ArrayList<>();
+        synchronized (this) {
+            if (executorService.isShutdown()) {
+                return;
+            }
+            getEntry(config, discarded);
+        }
+        discardAll(discarded);
+    }
+
+    /**
+     * Gets the number of service remotes that are active or being created.
+     *
+     * @return the number of service remotes.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Starts the executor again after a shutdown. Does nothing if the pool is running.
+     */
+    public synchronized void start() {
+        if (executorService.isShutdown()) {
+            executorService = createExecutorService();
+        }
+    }
+
+    /**
+     * Deactivates all service remotes and stops the executor. Remotes that are in use are deactivated when they are released. No remotes are created
+     * until the pool is started again.
+     */
+    public void shutdown() {
+        final List<Entry> discarded = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                retire(entry, discarded);
+            }
+            entries.clear();
+            executorService.shutdown();
+        }
+        discardAll(discarded);
+    }
+
+    /**
+     * Creates and activates the service remote of a unit. Called by the worker threads of this pool.
+     *
+     * @param config the config of the unit.
+     * @return the activated service remote.
+     * @throws CouldNotPerformException if the remote could not be created or activated.
+     * @throws InterruptedException if interrupted while activating the remote.
+     */
+    protected PowerStateServiceRemote createServiceRemote(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return PowerStateRemoteLoader.createServiceRemote(config);
+    }
+
+    /**
+     * Deactivates a service remote that was removed from this pool.
+     *
+     * @param serviceRemote the service remote.
+     * @throws CouldNotPerformException if the remote could not be deactivated.
+     * @throws InterruptedException if interrupted while deactivating the remote.
+     */
+    protected void deactivateServiceRemote(final PowerStateServiceRemote serviceRemote) throws CouldNotPerformException, InterruptedException {
+        serviceRemote.deactivate();
+    }
+
+    /**
+     * Gets the entry of a unit, marks it as used and starts creating the remote if required. Has to be called while holding the lock of this pool.
+     *
+     * @param config the config of the unit.
+     * @param discarded the list the entries that have to be discarded after releasing the lock are added to.
+     * @return the entry.
+     */
+    private Entry getEntry(final UnitConfig config, final List<Entry> discarded) {
+        Entry entry = entries.get(config.getId());
+        if (entry == null || !entry.serviceConfigs.equals(config.getServiceConfigList())) {
+            if (entry != null) {
+                retire(entry, discarded);
+            }
+            // room is made before the new entry is added, so that it cannot displace itself.
+            trim(maxSize - 1, discarded);
+            final Entry created = new Entry(config.getServiceConfigList());
+            created.future = executorService.submit(() -> complete(created, createServiceRemote(config)));
+            entry = created;
+            entries.put(config.getId(), entry);
+            LOGGER.debug("Creating service remote of unit " + config.getId() + ", " + entries.size() + " remotes active.");
+        }
+        entry.lastUse = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * Removes the least recently used entries that are not pinned until the pool does not exceed the given size. Has to be called while holding the lock
+     * of this pool.
+     *
+     * @param size the size the pool should not exceed.
+     * @param discarded the list the removed entries are added to.
+     */
+    private void trim(final int size, final List<Entry> discarded) {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > size && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.pins == 0) {
+                iterator.remove();
+                discarded.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Handles an entry that was removed from the pool. It is discarded right away if it is not pinned, otherwise when it is released. Has to be called
+     * while holding the lock of this pool.
+     *
+     * @param entry the removed entry.
+     * @param discarded the list the entry is added to if it can be discarded.
+     */
+    private void retire(final Entry entry, final List<Entry> discarded) {
+        if (entry.pins == 0) {
+            discarded.add(entry);
+        } else {
+            entry.retired = true;
+        }
+    }
+
+    /**
+     * Removes a pin of an entry and discards the entry if it was removed from the pool while it was pinned.
+     *
+     * @param entry the entry.
+     */
+    private void unpin(final Entry entry) {
+        synchronized (this) {
+            entry.pins--;
+            if (entry.pins > 0 || !entry.retired) {
+                return;
+            }
+        }
+        discard(entry);
+    }
+
+    /**
+     * Deactivates the remotes that were not used for the idle time and are not pinned.
+     */
+    void removeIdleRemotes() {
+        final List<Entry> idleEntries = new ArrayList<>();
+        synchronized (this) {
+            final long minimalLastUse = System.currentTimeMillis() - idleTime;
+            final Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                final Entry entry = iterator.next();
+                if (entry.lastUse < minimalLastUse && entry.pins == 0) {
+                    idleEntries.add(entry);
+                    iterator.remove();
+                }
+            }
+        }
+        discardAll(idleEntries);
+        if (!idleEntries.isEmpty()) {
+            LOGGER.debug("Deactivated " + idleEntries.size() + " idle service remotes.");
+        }
+    }
+
+    /**
+     * Discards the given entries. Must not be called while holding the lock of this pool, because deactivating a remote may block.
+     *
+     * @param discarded the entries.
+     */
+    private void discardAll(final List<Entry> discarded) {
+        for (Entry entry : discarded) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Hands out a created service remote, or deactivates it if its entry was discarded while it was created. Called by the worker threads of this pool.
+     *
+     * @param entry the entry of the remote.
+     * @param serviceRemote the created service remote.
+     * @return the service remote.
+     * @throws CouldNotPerformException if the entry was discarded.
+     * @throws InterruptedException if interrupted while deactivating the remote.
+     */
+    private PowerStateServiceRemote complete(final Entry entry, final PowerStateServiceRemote serviceRemote) throws CouldNotPerformException, InterruptedException {
+        synchronized (this) {
+            if (!entry.discarded) {
+                entry.created = true;
+                return serviceRemote;
+            }
+        }
+        deactivateServiceRemote(serviceRemote);
+        throw new CouldNotPerformException("Service remote was discarded while it was created.");
+    }
+
+    /**
+     * Deactivates the remote of an entry that was removed from the pool. If the remote is still being created, it is deactivated when the creation
+     * finishes, because the activation may not react to a cancellation.
+     *
+     * @param entry the removed entry.
+     */
+    private void discard(final Entry entry) {
+        synchronized (this) {
+            entry.discarded = true;
+            if (!entry.created) {
+                // creations that did not start yet are skipped, running ones deactivate their remote themselves.
+                entry.future.cancel(false);
+                return;
+            }
+        }
+        try {
+            deactivateServiceRemote(entry.future.get());
+        } catch (ExecutionException | CancellationException ex) {
+            // failed creations have nothing to deactivate.
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A service remote together with the service configs it was created for, the time of its last use and the number of its users.
+     */
+    private static class Entry {
+
+        private final List<ServiceConfig> serviceConfigs;
+        private Future<PowerStateServiceRemote> future;
+        private long lastUse;
+        /**
+         * Number of callers of <code>get</code> that did not release the remote yet.
+         */
+        private int pins;
+        /**
+         * True, if the entry was removed from the pool while it was pinned and has to be discarded when it is released.
+         */
+        private boolean retired;
+        /**
+         * True, if the remote was created and handed to the pool.
+         */
+        private boolean created;
+        /**
+         * True, if the entry was discarded, so that a remote created afterwards is deactivated right away.
+         */
+        private boolean discarded;
+
+        Entry(final List<ServiceConfig> serviceConfigs) {
+            this.serviceConfigs = serviceConfigs;
+        }
+    }
+}
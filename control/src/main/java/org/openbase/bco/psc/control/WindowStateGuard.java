@@ -0,0 +1,295 @@
+package org.openbase.bco.psc.control;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openbase.bco.dal.remote.layer.unit.Units;
+import org.openbase.bco.dal.remote.layer.unit.connection.ConnectionRemote;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.state.WindowStateType.WindowState;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
+import org.openbase.type.domotic.unit.connection.ConnectionDataType.ConnectionData;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prevents actions of the guarded service types, e.g. moving blinds, while a window in one of the guarded locations is not closed.
+ * The windows of the guarded locations are taken from the unit registry and their states are kept up to date by observing the window units, so that
+ * checking an action is a lookup in the set of open windows. If a window state source is given, the states are read from it whenever the configuration
+ * is updated or an action was applied instead. Guarded actions are denied while a guarded location or the state of one of its windows is unknown.
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class WindowStateGuard implements ActionGuard {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(WindowStateGuard.class);
+    /**
+     * Aliases of the locations whose windows have to be closed.
+     */
+    private final List<String> locationAliases;
+    /**
+     * Service types of the actions that are guarded.
+     */
+    private final Set<ServiceType> guardedServiceTypes;
+    /**
+     * Aliases of the guarded locations containing a window by the id of the window.
+     */
+    private final Map<String, Set<String>> windowLocations = new HashMap<>();
+    /**
+     * Ids of the windows that are not closed by the alias of the guarded location.
+     */
+    private final Map<String, Set<String>> openWindows = new HashMap<>();
+    /**
+     * Aliases of the guarded locations that could not be resolved by the last configuration update.
+     */
+    private final Set<String> unresolvedLocations = new HashSet<>();
+    /**
+     * Configs of the windows in the guarded locations by their id.
+     */
+    private final Map<String, UnitConfig> windowConfigs = new HashMap<>();
+    /**
+     * Remotes of the observed windows by their id.
+     */
+    private final Map<String, ConnectionRemote> windowRemotes = new HashMap<>();
+    /**
+     * Observers registered on the window remotes by the id of the window.
+     */
+    private final Map<String, Observer<DataProvider<ConnectionData>, ConnectionData>> windowObservers = new HashMap<>();
+    /**
+     * Data source providing the window states, or null if the window units are observed.
+     */
+    private final UnitDataSource windowStateSource;
+
+    /**
+     * Constructor.
+     *
+     * @param locationAliases aliases of the locations whose windows have to be closed.
+     * @param guardedServiceTypes service types of the actions that are guarded.
+     */
+    public WindowStateGuard(final List<String> locationAliases, final Set<ServiceType> guardedServiceTypes) {
+        this(locationAliases, guardedServiceTypes, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param locationAliases aliases of the locations whose windows have to be closed.
+     * @param guardedServiceTypes service types of the actions that are guarded.
+     * @param windowStateSource data source providing the window states, or null if the window units are observed.
+     */
+    public WindowStateGuard(final List<String> locationAliases, final Set<ServiceType> guardedServiceTypes, final UnitDataSource windowStateSource) {
+        this.locationAliases = locationAliases;
+        this.guardedServiceTypes = guardedServiceTypes;
+        this.windowStateSource = windowStateSource;
+        this.unresolvedLocations.addAll(locationAliases);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param unitRegistryData {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public synchronized void updateConfiguration(final UnitRegistryData unitRegistryData) throws CouldNotPerformException, InterruptedException {
+        // the guarded locations stay unresolved if the update fails.
+        unresolvedLocations.addAll(locationAliases);
+        final Map<String, UnitConfig> connectionConfigs = new HashMap<>();
+        for (UnitConfig config : unitRegistryData.getConnectionUnitConfigList()) {
+            if (config.getConnectionConfig().getConnectionType() == ConnectionType.WINDOW) {
+                connectionConfigs.put(config.getId(), config);
+            }
+        }
+
+        windowLocations.clear();
+        windowConfigs.clear();
+        openWindows.clear();
+        final Set<String> missingLocations = new HashSet<>();
+        for (String locationAlias : locationAliases) {
+            openWindows.put(locationAlias, new HashSet<>());
+            boolean found = false;
+            for (UnitConfig config : unitRegistryData.getLocationUnitConfigList()) {
+                if (config.getAliasList().contains(locationAlias)) {
+                    found = true;
+                    for (String unitId : config.getLocationConfig().getUnitIdList()) {
+                        if (connectionConfigs.containsKey(unitId)) {
+                            windowLocations.computeIfAbsent(unitId, id -> new HashSet<>()).add(locationAlias);
+                            windowConfigs.put(unitId, connectionConfigs.get(unitId));
+                        }
+                    }
+                }
+            }
+            if (!found) {
+                LOGGER.warn("Guarded location " + locationAlias + " does not exist, guarded actions are denied.");
+                missingLocations.add(locationAlias);
+            }
+        }
+
+        if (windowStateSource != null) {
+            refreshWindowStates();
+        } else {
+            updateWindowRemotes();
+        }
+        unresolvedLocations.clear();
+        unresolvedLocations.addAll(missingLocations);
+        LOGGER.info("Guarding " + guardedServiceTypes + " by " + windowLocations.size() + " windows in " + locationAliases + ".");
+    }
+
+    /**
+     * Reads the states of all windows in the guarded locations from the window state source.
+     *
+     * @throws InterruptedException if interrupted while reading a window state.
+     */
+    private synchronized void refreshWindowStates() throws InterruptedException {
+        for (Map.Entry<String, UnitConfig> entry : windowConfigs.entrySet()) {
+            WindowState.State state;
+            try {
+                state = windowStateSource.getServiceState(entry.getValue(), ServiceType.WINDOW_STATE_SERVICE, WindowState.class).getValue();
+            } catch (CouldNotPerformException ex) {
+                state = WindowState.State.UNKNOWN;
+            }
+            updateWindowState(entry.getKey(), state);
+        }
+    }
+
+    /**
+     * Observes the windows in the guarded locations and stops observing all other windows.
+     *
+     * @throws CouldNotPerformException if a window remote could not be created.
+     * @throws InterruptedException if interrupted while creating a window remote.
+     */
+    private void updateWindowRemotes() throws CouldNotPerformException, InterruptedException {
+        final Iterator<Map.Entry<String, ConnectionRemote>> iterator = windowRemotes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, ConnectionRemote> entry = iterator.next();
+            if (!windowLocations.containsKey(entry.getKey())) {
+                entry.getValue().removeDataObserver(windowObservers.remove(entry.getKey()));
+                iterator.remove();
+            }
+        }
+        for (String windowId : windowLocations.keySet()) {
+            if (!windowRemotes.containsKey(windowId)) {
+                final ConnectionRemote windowRemote = Units.getUnit(windowId, false, Units.CONNECTION);
+                final Observer<DataProvider<ConnectionData>, ConnectionData> observer = (source, data) -> updateWindowState(windowId, data.getWindowState().getValue());
+                windowRemote.addDataObserver(observer);
+                windowRemotes.put(windowId, windowRemote);
+                windowObservers.put(windowId, observer);
+            }
+            final ConnectionRemote windowRemote = windowRemotes.get(windowId);
+            // windows without data are considered open until their state is known.
+            updateWindowState(windowId, windowRemote.isDataAvailable() ? windowRemote.getData().getWindowState().getValue() : WindowState.State.UNKNOWN);
+        }
+    }
+
+    /**
+     * Updates the open windows of the guarded locations after the state of a window changed.
+     *
+     * @param windowId the id of the window.
+     * @param state the new state of the window.
+     */
+    private synchronized void updateWindowState(final String windowId, final WindowState.State state) {
+        for (String locationAlias : windowLocations.getOrDefault(windowId, Collections.emptySet())) {
+            if (state == WindowState.State.CLOSED) {
+                openWindows.get(locationAlias).remove(windowId);
+            } else {
+                openWindows.get(locationAlias).add(windowId);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param actionParameter {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isPermitted(final ActionParameter actionParameter) {
+        if (!guardedServiceTypes.contains(actionParameter.getServiceStateDescription().getServiceType())) {
+            return true;
+        }
+        if (!unresolvedLocations.isEmpty()) {
+            LOGGER.warn("RemoteAction was canceled because the windows of " + unresolvedLocations + " are unknown!");
+            return false;
+        }
+        for (Map.Entry<String, Set<String>> entry : openWindows.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                LOGGER.warn("RemoteAction was canceled because of open window in " + entry.getKey() + "!");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} The window states are read again if they are taken from a window state source, because the action may have moved a window.
+     *
+     * @param actionParameter {@inheritDoc}
+     */
+    @Override
+    public synchronized void actionApplied(final ActionParameter actionParameter) {
+        if (windowStateSource == null) {
+            return;
+        }
+        try {
+            refreshWindowStates();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void deactivate() {
+        for (Map.Entry<String, ConnectionRemote> entry : windowRemotes.entrySet()) {
+            entry.getValue().removeDataObserver(windowObservers.get(entry.getKey()));
+        }
+        windowRemotes.clear();
+        windowObservers.clear();
+        windowLocations.clear();
+        windowConfigs.clear();
+        openWindows.clear();
+        unresolvedLocations.addAll(locationAliases);
+    }
+}
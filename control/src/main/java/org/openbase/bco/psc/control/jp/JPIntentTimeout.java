@@ -27,7 +27,7 @@ import org.openbase.jps.exception.JPNotAvailableException;
 
 
 /**
- * JavaProperty used to specify the timeout defining how long an intent will be kept and used for matching.
+ * JavaProperty used to specify the timeout in milliseconds defining how long an intent will be kept and used for matching.
  *
  * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
  * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
@@ -38,7 +38,7 @@ public class JPIntentTimeout extends AbstractJPTimeout {
     /**
      * The identifiers that can be used in front of the command line argument.
      */
-    public final static String[] COMMAND_IDENTIFIERS = {"--intent-timneout"};
+    public final static String[] COMMAND_IDENTIFIERS = {"--intent-timeout", "--intent-timneout"};
 
     /**
      * Constructor.
@@ -55,7 +55,7 @@ public class JPIntentTimeout extends AbstractJPTimeout {
      */
     @Override
     protected Long getPropertyDefaultValue() throws JPNotAvailableException {
-        return 5000000L;
+        return 5000L;
     }
 
     /**
@@ -65,7 +65,7 @@ public class JPIntentTimeout extends AbstractJPTimeout {
      */
     @Override
     public String getDescription() {
-        return "Intent timeout defining how long an intent will be kept and used for matching with other intents.";
+        return "Intent timeout in milliseconds defining how long an intent will be kept and used for matching with other intents.";
     }
 
 }
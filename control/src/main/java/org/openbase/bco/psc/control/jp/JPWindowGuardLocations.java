@@ -0,0 +1,98 @@
+package org.openbase.bco.psc.control.jp;
+
+/*-
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import org.openbase.jps.core.AbstractJavaProperty;
+import org.openbase.jps.exception.JPNotAvailableException;
+
+/**
+ * JavaProperty used to specify the aliases of the locations whose windows have to be closed before blinds are moved.
+ * An empty list disables the window check.
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class JPWindowGuardLocations extends AbstractJavaProperty<List<String>> {
+
+    /**
+     * String identifying the type of the argument.
+     */
+    public final static String[] ARGUMENT_IDENTIFIERS = {"STRING-LIST"};
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--window-guard-locations"};
+
+    /**
+     * Constructor.
+     */
+    public JPWindowGuardLocations() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected String[] generateArgumentIdentifiers() {
+        return ARGUMENT_IDENTIFIERS;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected List<String> getPropertyDefaultValue() throws JPNotAvailableException {
+        return Arrays.asList("LIVING");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param arguments {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws Exception {@inheritDoc}
+     */
+    @Override
+    protected List<String> parse(List<String> arguments) throws Exception {
+        return arguments;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Aliases of the locations whose windows have to be closed before blinds are moved. Leave empty to disable the window check.";
+    }
+}
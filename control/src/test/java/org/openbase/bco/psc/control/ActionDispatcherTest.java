@@ -0,0 +1,303 @@
+package org.openbase.bco.psc.control;
+
+/*-
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.jul.exception.CouldNotPerformException;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class ActionDispatcherTest {
+
+    /**
+     * Time in milliseconds the tests wait for a dispatched action.
+     */
+    private static final long WAIT_TIME = 5000;
+
+    private ActionDispatcher dispatcher;
+    /**
+     * Names of the executed actions in the order they were started.
+     */
+    private List<String> executed;
+
+    public ActionDispatcherTest() {
+    }
+
+    @Before
+    public void setUp() {
+        dispatcher = new ActionDispatcher(4, 16, WAIT_TIME);
+        executed = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Creates an action that records its execution and is done when the given future is done.
+     */
+    private ActionDispatcher.Action action(final String name, final CompletableFuture<Void> done) {
+        return () -> {
+            executed.add(name);
+            return done;
+        };
+    }
+
+    private ActionDispatcher.Action action(final String name) {
+        return action(name, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Creates an action that blocks until the returned future is completed and counts down the latch when it is started.
+     */
+    private ActionDispatcher.Action blockingAction(final String name, final CompletableFuture<Void> done, final CountDownLatch started) {
+        return () -> {
+            executed.add(name);
+            started.countDown();
+            return done;
+        };
+    }
+
+    /**
+     * Test of the lanes of the dispatch method, of class ActionDispatcher.
+     */
+    @Test
+    public void testLanes() throws Exception {
+        System.out.println("lanes");
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CountDownLatch started = new CountDownLatch(2);
+        dispatcher.dispatch("unit1", blockingAction("first", first, started));
+        // the actions of other units are not blocked by the running action.
+        final CompletableFuture<Void> other = new CompletableFuture<>();
+        final CompletableFuture<Void> otherResult = dispatcher.dispatch("unit2", blockingAction("other", other, started));
+        assertTrue(started.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+
+        final CompletableFuture<Void> second = dispatcher.dispatch("unit1", action("second"));
+        other.complete(null);
+        otherResult.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertFalse(second.isDone());
+        assertFalse(executed.contains("second"));
+
+        first.complete(null);
+        second.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertEquals("second", executed.get(2));
+        assertEquals(3, dispatcher.getCompletedCount());
+    }
+
+    /**
+     * Test of the coalescing of the dispatch method, of class ActionDispatcher.
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        System.out.println("coalescing");
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch("unit1", blockingAction("first", first, started));
+        assertTrue(started.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+
+        final CompletableFuture<Void> superseded = dispatcher.dispatch("unit1", action("superseded"));
+        final CompletableFuture<Void> latest = dispatcher.dispatch("unit1", action("latest"));
+        assertTrue(superseded.isCancelled());
+        assertEquals(1, dispatcher.getCoalescedCount());
+
+        first.complete(null);
+        latest.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertFalse(executed.contains("superseded"));
+        assertEquals("latest", executed.get(1));
+    }
+
+    /**
+     * Test of actions that must not be superseded, of class ActionDispatcher.
+     */
+    @Test
+    public void testToggles() throws Exception {
+        System.out.println("toggles");
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch("unit1", blockingAction("first", first, started));
+        assertTrue(started.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+
+        final CompletableFuture<Void> toggle1 = dispatcher.dispatch("unit1", action("toggle1"), false);
+        final CompletableFuture<Void> toggle2 = dispatcher.dispatch("unit1", action("toggle2"), false);
+        assertEquals(0, dispatcher.getCoalescedCount());
+        first.complete(null);
+        toggle2.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertTrue(toggle1.isDone() && !toggle1.isCancelled());
+        assertEquals("toggle1", executed.get(1));
+        assertEquals("toggle2", executed.get(2));
+
+        // setting a state supersedes the waiting toggles, because it determines the resulting state anyway.
+        final CompletableFuture<Void> second = new CompletableFuture<>();
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        dispatcher.dispatch("unit1", blockingAction("second", second, secondStarted));
+        assertTrue(secondStarted.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+        final CompletableFuture<Void> toggle3 = dispatcher.dispatch("unit1", action("toggle3"), false);
+        final CompletableFuture<Void> state = dispatcher.dispatch("unit1", action("state"));
+        assertTrue(toggle3.isCancelled());
+        second.complete(null);
+        state.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertFalse(executed.contains("toggle3"));
+    }
+
+    /**
+     * Test of the timeout of actions, of class ActionDispatcher.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        System.out.println("timeout");
+        dispatcher.shutdown();
+        dispatcher = new ActionDispatcher(1, 4, 50);
+        final CompletableFuture<Void> timedOut = dispatcher.dispatch("unit1", action("timedOut", new CompletableFuture<>()));
+        final CompletableFuture<Void> next = dispatcher.dispatch("unit1", action("next"));
+        try {
+            timedOut.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+            fail("The action did not time out.");
+        } catch (ExecutionException ex) {
+            // expected
+        }
+        // the lane continues with the next action after the timeout.
+        next.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertEquals(1, dispatcher.getTimedOutCount());
+        assertEquals(1, dispatcher.getCompletedCount());
+    }
+
+    /**
+     * Test of the dispatchAll method, of class ActionDispatcher.
+     */
+    @Test
+    public void testDispatchAll() throws Exception {
+        System.out.println("dispatchAll");
+        // every action waits until all of them are started, so that they can only complete if they are executed concurrently.
+        final CountDownLatch started = new CountDownLatch(3);
+        final Map<String, ActionDispatcher.Action> actions = new LinkedHashMap<>();
+        for (String unitId : new String[]{"unit1", "unit2", "unit3"}) {
+            actions.put(unitId, () -> {
+                executed.add(unitId);
+                started.countDown();
+                started.await(WAIT_TIME, TimeUnit.MILLISECONDS);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+        dispatcher.dispatchAll(actions).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertEquals(0, started.getCount());
+        assertEquals(3, executed.size());
+        assertEquals(3, dispatcher.getCompletedCount());
+    }
+
+    /**
+     * Test of the dispatchAll method with a failing action, of class ActionDispatcher.
+     */
+    @Test
+    public void testDispatchAllFailure() throws Exception {
+        System.out.println("dispatchAllFailure");
+        final Map<String, ActionDispatcher.Action> actions = new LinkedHashMap<>();
+        actions.put("unit1", action("unit1"));
+        actions.put("unit2", () -> {
+            throw new CouldNotPerformException("Could not start action.");
+        });
+        actions.put("unit3", action("unit3"));
+        try {
+            dispatcher.dispatchAll(actions).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+            fail("The failed action was not reported.");
+        } catch (ExecutionException ex) {
+            // expected
+        }
+        // the other units are switched nevertheless.
+        assertTrue(executed.contains("unit1"));
+        assertTrue(executed.contains("unit3"));
+        assertEquals(2, dispatcher.getCompletedCount());
+        assertEquals(1, dispatcher.getFailedCount());
+    }
+
+    /**
+     * Test of the shutdown and start methods, of class ActionDispatcher.
+     */
+    @Test
+    public void testShutdownAndStart() throws Exception {
+        System.out.println("shutdownAndStart");
+        // the first action ignores the interruption by the shutdown, so that it finishes after the dispatcher was started again.
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CompletableFuture<Void> stale = dispatcher.dispatch("unit1", () -> {
+            started.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+        assertTrue(started.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+        final CompletableFuture<Void> waiting = dispatcher.dispatch("unit1", action("waiting"), false);
+        dispatcher.shutdown();
+        assertTrue(dispatcher.isShutdown());
+        assertTrue(waiting.isCancelled());
+
+        try {
+            dispatcher.dispatch("unit2", action("rejected")).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+            fail("The action was not rejected.");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause().getMessage().contains("shut down"));
+        }
+        assertEquals(1, dispatcher.getRejectedCount());
+
+        dispatcher.start();
+        assertFalse(dispatcher.isShutdown());
+        final CompletableFuture<Void> second = new CompletableFuture<>();
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        dispatcher.dispatch("unit1", blockingAction("second", second, secondStarted));
+        assertTrue(secondStarted.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+        final CompletableFuture<Void> third = dispatcher.dispatch("unit1", action("third"), false);
+
+        // the action running before the shutdown does not start the actions of the new lane of its unit.
+        release.countDown();
+        stale.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertFalse(third.isDone());
+        assertFalse(executed.contains("third"));
+
+        second.complete(null);
+        third.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        assertEquals("third", executed.get(executed.size() - 1));
+    }
+}
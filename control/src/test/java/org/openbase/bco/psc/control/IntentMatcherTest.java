@@ -0,0 +1,210 @@
+package org.openbase.bco.psc.control;
+
+/*-
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceConfigType.ServiceConfig;
+import org.openbase.type.domotic.service.ServiceDescriptionType.ServiceDescription;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServicePattern;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import rsb.MetaData;
+
+/**
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class IntentMatcherTest {
+
+    private static final long INTENT_TIMEOUT = 1000;
+
+    private IntentMatcher intentMatcher;
+
+    public IntentMatcherTest() {
+    }
+
+    @Before
+    public void setUp() {
+        intentMatcher = new IntentMatcher(INTENT_TIMEOUT);
+        intentMatcher.updateServiceTypes(UnitRegistryData.newBuilder()
+                .addDalUnitConfig(unit("lamp1", ServiceType.POWER_STATE_SERVICE, ServiceType.BRIGHTNESS_STATE_SERVICE))
+                .addDalUnitConfig(unit("lamp2", ServiceType.POWER_STATE_SERVICE))
+                .addDalUnitConfig(unit("blind1", ServiceType.BLIND_STATE_SERVICE))
+                .addUnitGroupUnitConfig(unit("group1", ServiceType.POWER_STATE_SERVICE))
+                .build());
+    }
+
+    private static UnitConfig unit(final String id, final ServiceType... serviceTypes) {
+        final UnitConfig.Builder config = UnitConfig.newBuilder().setId(id);
+        for (ServiceType serviceType : serviceTypes) {
+            config.addServiceConfig(ServiceConfig.newBuilder().setServiceDescription(ServiceDescription.newBuilder()
+                    .setServiceType(serviceType).setPattern(ServicePattern.OPERATION)));
+            // provider services can not be operated and must not be matched.
+            config.addServiceConfig(ServiceConfig.newBuilder().setServiceDescription(ServiceDescription.newBuilder()
+                    .setServiceType(ServiceType.COLOR_STATE_SERVICE).setPattern(ServicePattern.PROVIDER)));
+        }
+        return config.build();
+    }
+
+    private static UnitProbabilityCollection selection(final String... unitIds) {
+        final UnitProbabilityCollection.Builder collection = UnitProbabilityCollection.newBuilder();
+        for (String unitId : unitIds) {
+            collection.addElement(UnitProbability.newBuilder().setId(unitId).setProbability(1f));
+        }
+        return collection.build();
+    }
+
+    private static ActionParameter action(final ServiceType serviceType, final String serviceState) {
+        final ActionParameter.Builder actionParameter = ActionParameter.newBuilder();
+        actionParameter.getServiceStateDescriptionBuilder().setServiceType(serviceType).setServiceState(serviceState);
+        return actionParameter.build();
+    }
+
+    /**
+     * Test of the grouping of the match method, of class IntentMatcher.
+     */
+    @Test
+    public void testGrouping() {
+        System.out.println("grouping");
+        final ActionParameter powerAction = action(ServiceType.POWER_STATE_SERVICE, "ON");
+        intentMatcher.addAction(0, powerAction);
+        intentMatcher.addSelectedUnits(10, selection("lamp1", "blind1", "lamp2", "group1"));
+
+        final List<IntentMatcher.Match> matches = intentMatcher.match(20);
+        assertEquals(1, matches.size());
+        assertSame(powerAction, matches.get(0).getActionParameter());
+        assertEquals(Arrays.asList("lamp1", "lamp2", "group1"), matches.get(0).getUnitIds());
+        assertEquals(0, intentMatcher.getSelectedUnitIntentCount());
+        assertEquals(0, intentMatcher.getReceivedStatesIntentCount());
+    }
+
+    /**
+     * Test of matching several actions with one selection, of class IntentMatcher.
+     */
+    @Test
+    public void testSeveralActions() {
+        System.out.println("severalActions");
+        final ActionParameter powerAction = action(ServiceType.POWER_STATE_SERVICE, "ON");
+        final ActionParameter blindAction = action(ServiceType.BLIND_STATE_SERVICE, "UP");
+        intentMatcher.addAction(0, powerAction);
+        intentMatcher.addAction(5, blindAction);
+        intentMatcher.addSelectedUnits(10, selection("blind1", "lamp1", "lamp2"));
+
+        final List<IntentMatcher.Match> matches = intentMatcher.match(20);
+        assertEquals(2, matches.size());
+        assertSame(blindAction, matches.get(0).getActionParameter());
+        assertEquals(Arrays.asList("blind1"), matches.get(0).getUnitIds());
+        assertSame(powerAction, matches.get(1).getActionParameter());
+        assertEquals(Arrays.asList("lamp1", "lamp2"), matches.get(1).getUnitIds());
+    }
+
+    /**
+     * Test of matching the oldest pending action first, of class IntentMatcher.
+     */
+    @Test
+    public void testOldestActionFirst() {
+        System.out.println("oldestActionFirst");
+        final ActionParameter brightnessAction = action(ServiceType.BRIGHTNESS_STATE_SERVICE, "50");
+        final ActionParameter powerAction = action(ServiceType.POWER_STATE_SERVICE, "OFF");
+        intentMatcher.addAction(0, brightnessAction);
+        intentMatcher.addAction(5, powerAction);
+        intentMatcher.addSelectedUnits(10, selection("lamp1"));
+
+        List<IntentMatcher.Match> matches = intentMatcher.match(20);
+        assertEquals(1, matches.size());
+        assertSame(brightnessAction, matches.get(0).getActionParameter());
+        assertEquals(1, intentMatcher.getReceivedStatesIntentCount());
+
+        intentMatcher.addSelectedUnits(30, selection("lamp1"));
+        matches = intentMatcher.match(40);
+        assertEquals(1, matches.size());
+        assertSame(powerAction, matches.get(0).getActionParameter());
+    }
+
+    /**
+     * Test of keeping the intents that can not be matched, of class IntentMatcher.
+     */
+    @Test
+    public void testUnmatchedIntentsAreKept() {
+        System.out.println("unmatchedIntentsAreKept");
+        intentMatcher.addAction(0, action(ServiceType.POWER_STATE_SERVICE, "ON"));
+        intentMatcher.addSelectedUnits(10, selection("blind1", "unknown"));
+
+        assertTrue(intentMatcher.match(20).isEmpty());
+        assertEquals(1, intentMatcher.getSelectedUnitIntentCount());
+        assertEquals(1, intentMatcher.getReceivedStatesIntentCount());
+
+        intentMatcher.addSelectedUnits(30, selection("lamp2"));
+        assertEquals(1, intentMatcher.match(40).size());
+        assertEquals(1, intentMatcher.getSelectedUnitIntentCount());
+        assertEquals(0, intentMatcher.getReceivedStatesIntentCount());
+    }
+
+    /**
+     * Test of discarding timed out intents, of class IntentMatcher.
+     */
+    @Test
+    public void testTimeout() {
+        System.out.println("timeout");
+        intentMatcher.addAction(0, action(ServiceType.POWER_STATE_SERVICE, "ON"));
+        intentMatcher.addSelectedUnits(3 * INTENT_TIMEOUT, selection("lamp1"));
+
+        assertTrue(intentMatcher.match(3 * INTENT_TIMEOUT).isEmpty());
+        assertEquals(0, intentMatcher.getReceivedStatesIntentCount());
+        assertEquals(1, intentMatcher.getExpiredIntentCount());
+    }
+
+    /**
+     * Test of keeping the meta data of the matched intents, of class IntentMatcher.
+     */
+    @Test
+    public void testMetaData() {
+        System.out.println("metaData");
+        final MetaData lampSelection = new MetaData();
+        final MetaData blindSelection = new MetaData();
+        final MetaData powerAction = new MetaData();
+        intentMatcher.addSelectedUnits(0, selection("lamp1"), lampSelection);
+        intentMatcher.addSelectedUnits(5, selection("blind1"), blindSelection);
+        intentMatcher.addAction(10, action(ServiceType.POWER_STATE_SERVICE, "ON"), powerAction);
+
+        // the action completes the older selection, not the latest one.
+        final List<IntentMatcher.Match> matches = intentMatcher.match(20);
+        assertEquals(1, matches.size());
+        assertSame(lampSelection, matches.get(0).getSelectionMetaData());
+        assertSame(powerAction, matches.get(0).getActionMetaData());
+
+        intentMatcher.addAction(30, action(ServiceType.BLIND_STATE_SERVICE, "UP"));
+        final IntentMatcher.Match blindMatch = intentMatcher.match(40).get(0);
+        assertSame(blindSelection, blindMatch.getSelectionMetaData());
+        assertNull(blindMatch.getActionMetaData());
+    }
+}
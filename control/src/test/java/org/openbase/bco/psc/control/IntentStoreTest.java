@@ -0,0 +1,175 @@
+package org.openbase.bco.psc.control;
+
+/*-
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:dreinsch@techfak.uni-bielefeld.de">Dennis Reinsch</a>
+ * @author <a href="mailto:jbitschene@techfak.uni-bielefeld.de">Jennifer Bitschene</a>
+ * @author <a href="mailto:jniermann@techfak.uni-bielefeld.de">Julia Niermann</a>
+ */
+public class IntentStoreTest {
+
+    private static final long TIMEOUT = 640;
+    private static final int WHEEL_SIZE = 64;
+    /**
+     * Duration of one tick of the wheel in milliseconds.
+     */
+    private static final long TICK = TIMEOUT / WHEEL_SIZE;
+
+    private IntentStore<String> store;
+
+    public IntentStoreTest() {
+    }
+
+    @Before
+    public void setUp() {
+        store = new IntentStore<>(TIMEOUT, WHEEL_SIZE);
+    }
+
+    private List<String> getIntents() {
+        final List<String> intents = new ArrayList<>();
+        for (String intent : store) {
+            intents.add(intent);
+        }
+        return intents;
+    }
+
+    /**
+     * Test of add method with identical timestamps, of class IntentStore.
+     */
+    @Test
+    public void testIdenticalTimestamps() {
+        System.out.println("identicalTimestamps");
+        store.add(1000, "a");
+        store.add(1000, "b");
+        store.add(1000, "a");
+        assertEquals(3, store.size());
+        assertEquals(Arrays.asList("a", "b", "a"), getIntents());
+        assertEquals(1000, store.getOldestTime());
+
+        store.expire(1000 + TIMEOUT);
+        assertEquals(3, store.size());
+        store.expire(1000 + TIMEOUT + TICK);
+        assertTrue(store.isEmpty());
+        assertEquals(3, store.getExpiredCount());
+    }
+
+    /**
+     * Test of expire method with expirations exactly at the tick resolution, of class IntentStore.
+     */
+    @Test
+    public void testExpireAtTickResolution() {
+        System.out.println("expireAtTickResolution");
+        // the first intent expires exactly at a tick boundary, the second one within the same tick.
+        store.add(0, "a");
+        store.add(TICK - 1, "b");
+        store.add(TICK, "c");
+
+        // intents are never removed before their timeout.
+        store.expire(TIMEOUT);
+        assertEquals(3, store.size());
+        store.expire(TIMEOUT + TICK - 1);
+        assertEquals(3, store.size());
+        // both expire with the end of their tick, which is less than one tick after their timeout.
+        store.expire(TIMEOUT + TICK);
+        assertEquals(Arrays.asList("c"), getIntents());
+        assertEquals(TICK, store.getOldestTime());
+        store.expire(TIMEOUT + 2 * TICK - 1);
+        assertEquals(1, store.size());
+        store.expire(TIMEOUT + 2 * TICK);
+        assertTrue(store.isEmpty());
+        assertEquals(3, store.getExpiredCount());
+    }
+
+    /**
+     * Test of expire method after a gap longer than one revolution of the wheel, of class IntentStore.
+     */
+    @Test
+    public void testGapLongerThanRevolution() {
+        System.out.println("gapLongerThanRevolution");
+        // the first two intents are stored in the same slot of the wheel, one revolution apart.
+        store.add(0, "a");
+        store.add(TIMEOUT, "b");
+        store.add(TIMEOUT + 4 * TICK, "c");
+
+        store.expire(TIMEOUT + 5 * TICK);
+        assertEquals(Arrays.asList("b", "c"), getIntents());
+        assertEquals(1, store.getExpiredCount());
+        // more than one revolution passes without a call, so every slot is checked once. The last intent is stored in the slot of the last
+        // checked tick, which is only checked in the last step.
+        store.expire(2 * TIMEOUT + 6 * TICK);
+        assertTrue(store.isEmpty());
+        assertEquals(3, store.getExpiredCount());
+
+        // the wheel keeps working after the gap.
+        store.add(10 * TIMEOUT, "d");
+        store.expire(11 * TIMEOUT);
+        assertEquals(Arrays.asList("d"), getIntents());
+        store.expire(11 * TIMEOUT + TICK);
+        assertTrue(store.isEmpty());
+        // an intent that would already have been removed is not stored.
+        store.add(10 * TIMEOUT - TICK, "e");
+        assertTrue(store.isEmpty());
+        assertEquals(5, store.getExpiredCount());
+    }
+
+    /**
+     * Test of the lazy removal from the wheel by pollOldest and the iterator, of class IntentStore.
+     */
+    @Test
+    public void testLazilyRemovedEntries() {
+        System.out.println("lazilyRemovedEntries");
+        store.add(0, "a");
+        store.add(0, "b");
+        store.add(TICK, "c");
+        assertEquals("a", store.pollOldest());
+        final Iterator<String> iterator = store.iterator();
+        assertEquals("b", iterator.next());
+        iterator.remove();
+        assertEquals(Arrays.asList("c"), getIntents());
+        assertEquals(TICK, store.getOldestTime());
+
+        // the removed entries are dropped from the wheel without being counted as expired.
+        store.expire(TIMEOUT + TICK);
+        assertEquals(Arrays.asList("c"), getIntents());
+        assertEquals(0, store.getExpiredCount());
+        store.expire(TIMEOUT + 2 * TICK);
+        assertEquals(1, store.getExpiredCount());
+        assertNull(store.pollOldest());
+        try {
+            store.getOldestTime();
+            fail("An empty store returned the time of an intent.");
+        } catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+}
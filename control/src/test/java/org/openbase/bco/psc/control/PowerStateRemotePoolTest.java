@@ -0,0 +1,257 @@
+package org.openbase.bco.psc.control;
+
+/*-
+ * #%L
+ * BCO PSC Control
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.bco.dal.remote.layer.service.PowerStateServiceRemote;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.service.ServiceConfigType.ServiceConfig;
+import org.openbase.type.domotic.service.ServiceDescriptionType.ServiceDescription;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class PowerStateRemotePoolTest {
+
+    /**
+     * The service remotes deactivated by the pool.
+     */
+    private Set<PowerStateServiceRemote> deactivated;
+    /**
+     * The service remotes created by the pool.
+     */
+    private List<PowerStateServiceRemote> created;
+    /**
+     * Released to finish the creation of the remote of the unit "slow".
+     */
+    private CountDownLatch slowCreation;
+    private PowerStateRemotePool pool;
+
+    /**
+     * Pool creating service remotes that are not activated and recording their deactivation.
+     */
+    private class TestPool extends PowerStateRemotePool {
+
+        TestPool(final int maxSize, final long idleTime) {
+            super(maxSize, idleTime);
+        }
+
+        @Override
+        protected PowerStateServiceRemote createServiceRemote(final UnitConfig config) throws CouldNotPerformException {
+            if (config.getId().equals("broken")) {
+                throw new CouldNotPerformException("Could not create service remote.");
+            }
+            if (config.getId().equals("slow")) {
+                // the activation of a remote does not react to interruptions.
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        slowCreation.await();
+                        break;
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            final PowerStateServiceRemote serviceRemote = new PowerStateServiceRemote();
+            created.add(serviceRemote);
+            return serviceRemote;
+        }
+
+        @Override
+        protected void deactivateServiceRemote(final PowerStateServiceRemote serviceRemote) {
+            deactivated.add(serviceRemote);
+        }
+    }
+
+    public PowerStateRemotePoolTest() {
+    }
+
+    @Before
+    public void setUp() {
+        deactivated = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        created = Collections.synchronizedList(new ArrayList<>());
+        slowCreation = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static UnitConfig config(final String id) {
+        return UnitConfig.newBuilder().setId(id).build();
+    }
+
+    /**
+     * Test of the displacement of the least recently used remotes, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testPinnedRemotesAreNotDisplaced() throws Exception {
+        System.out.println("pinnedRemotesAreNotDisplaced");
+        pool = new TestPool(1, 0);
+        final PowerStateServiceRemote remote1 = pool.get(config("unit1"));
+        final PowerStateServiceRemote remote2 = pool.get(config("unit2"));
+        // both remotes are in use, so the pool exceeds its size.
+        assertEquals(2, pool.size());
+        assertTrue(deactivated.isEmpty());
+
+        pool.release(remote1);
+        pool.release(remote2);
+        final PowerStateServiceRemote remote3 = pool.get(config("unit3"));
+        assertEquals(1, pool.size());
+        assertTrue(deactivated.contains(remote1));
+        assertTrue(deactivated.contains(remote2));
+        assertFalse(deactivated.contains(remote3));
+        pool.release(remote3);
+    }
+
+    /**
+     * Test of the removeIdleRemotes method, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testRemoveIdleRemotes() throws Exception {
+        System.out.println("removeIdleRemotes");
+        pool = new TestPool(4, 20);
+        final PowerStateServiceRemote remote1 = pool.get(config("unit1"));
+        final PowerStateServiceRemote remote2 = pool.get(config("unit2"));
+        pool.release(remote2);
+        Thread.sleep(50);
+        pool.removeIdleRemotes();
+        assertEquals(1, pool.size());
+        assertFalse(deactivated.contains(remote1));
+        assertTrue(deactivated.contains(remote2));
+
+        // the remote stays in the pool after it was released.
+        pool.release(remote1);
+        assertFalse(deactivated.contains(remote1));
+        assertSame(remote1, pool.get(config("unit1")));
+        pool.release(remote1);
+    }
+
+    /**
+     * Test of the replacement of a remote whose service configs changed, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testChangedConfigRetiresPinnedRemote() throws Exception {
+        System.out.println("changedConfigRetiresPinnedRemote");
+        pool = new TestPool(4, 0);
+        final PowerStateServiceRemote remote1 = pool.get(config("unit1"));
+        final UnitConfig changedConfig = config("unit1").toBuilder()
+                .addServiceConfig(ServiceConfig.newBuilder().setServiceDescription(ServiceDescription.newBuilder().setServiceType(ServiceType.POWER_STATE_SERVICE)))
+                .build();
+        final PowerStateServiceRemote remote2 = pool.get(changedConfig);
+        assertNotSame(remote1, remote2);
+        assertEquals(1, pool.size());
+        assertFalse(deactivated.contains(remote1));
+
+        pool.release(remote1);
+        assertTrue(deactivated.contains(remote1));
+        pool.release(remote2);
+        assertFalse(deactivated.contains(remote2));
+    }
+
+    /**
+     * Test of the shutdown method, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        System.out.println("shutdown");
+        pool = new TestPool(4, 0);
+        final PowerStateServiceRemote remote1 = pool.get(config("unit1"));
+        final PowerStateServiceRemote remote2 = pool.get(config("unit2"));
+        pool.release(remote2);
+        pool.shutdown();
+        assertTrue(deactivated.contains(remote2));
+        assertFalse(deactivated.contains(remote1));
+        pool.release(remote1);
+        assertTrue(deactivated.contains(remote1));
+        try {
+            pool.get(config("unit1"));
+            fail("A shut down pool handed out a service remote.");
+        } catch (CouldNotPerformException ex) {
+            // expected
+        }
+
+        // remotes are created again after the pool was started again.
+        pool.start();
+        final PowerStateServiceRemote remote3 = pool.get(config("unit1"));
+        assertNotSame(remote1, remote3);
+        assertEquals(1, pool.size());
+        pool.release(remote3);
+        assertFalse(deactivated.contains(remote3));
+    }
+
+    /**
+     * Test of discarding a remote while it is created, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testDiscardDuringCreation() throws Exception {
+        System.out.println("discardDuringCreation");
+        pool = new TestPool(4, 0);
+        pool.prewarm(config("slow"));
+        pool.shutdown();
+        assertTrue(created.isEmpty());
+
+        // the creation finishes although it was discarded, so its remote has to be deactivated.
+        slowCreation.countDown();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (deactivated.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, created.size());
+        assertTrue(deactivated.contains(created.get(0)));
+    }
+
+    /**
+     * Test of a failed creation, of class PowerStateRemotePool.
+     */
+    @Test
+    public void testFailedCreation() throws Exception {
+        System.out.println("failedCreation");
+        pool = new TestPool(4, 0);
+        try {
+            pool.get(config("broken"));
+            fail("The creation did not fail.");
+        } catch (CouldNotPerformException ex) {
+            // expected
+        }
+        assertEquals(0, pool.size());
+    }
+}
@@ -24,7 +24,7 @@ package org.openbase.bco.psc.dummyintent;
  */
 
 import org.openbase.bco.psc.dummyintent.rsb.RSBConnection;
-import org.openbase.bco.registry.remote.Registries;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InitializationException;
 import org.openbase.jul.exception.NotAvailableException;
@@ -74,7 +74,9 @@ public class DummyIntentController extends AbstractEventHandler implements Dummy
 
                     // publish unit for testing
                     UnitProbabilityCollectionType.UnitProbabilityCollection.Builder collectionBuilder = UnitProbabilityCollectionType.UnitProbabilityCollection.newBuilder();
-                    UnitConfigType.UnitConfig unitConfig = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitTemplateType.UnitTemplate.UnitType.COLORABLE_LIGHT).get(0);
+                    UnitConfigType.UnitConfig unitConfig = UnitDataSources.getInstance().getData().getDalUnitConfigList().stream()
+                            .filter(config -> config.getUnitType() == UnitTemplateType.UnitTemplate.UnitType.COLORABLE_LIGHT)
+                            .findFirst().orElseThrow(() -> new NotAvailableException("colorable light"));
                     collectionBuilder.addElementBuilder().setId(unitConfig.getId()).setProbability(1.0f);
                     UnitProbabilityCollectionType.UnitProbabilityCollection unit = collectionBuilder.build();
                     unitInformer.publish(unit);
@@ -99,7 +101,7 @@ public class DummyIntentController extends AbstractEventHandler implements Dummy
     private void initializeRegistryConnection() throws InterruptedException, CouldNotPerformException {
         try {
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.getUnitRegistry().waitForData();
+            UnitDataSources.getInstance().waitForData();
 
         } catch (NotAvailableException ex) {
             throw new CouldNotPerformException("Could not connect to the registry.", ex);
@@ -133,7 +135,7 @@ public class DummyIntentController extends AbstractEventHandler implements Dummy
         }
         if (!active) {
             active = true;
-            Registries.waitForData();
+            UnitDataSources.getInstance().waitForData();
             LOGGER.info("Activating Registry synchronization.");
             unitInformer.activate();
             rsbConnection.activate();
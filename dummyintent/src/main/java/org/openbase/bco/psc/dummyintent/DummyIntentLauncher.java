@@ -28,6 +28,7 @@ import org.openbase.bco.psc.lib.jp.JPLocalInput;
 import org.openbase.bco.psc.lib.jp.JPLocalOutput;
 import org.openbase.bco.psc.lib.jp.JPPSCBaseScope;
 import org.openbase.bco.psc.lib.jp.JPPscUnitFilterList;
+import org.openbase.bco.psc.lib.jp.JPUnitDataFixture;
 import org.openbase.jps.core.JPService;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InstantiationException;
@@ -67,6 +68,9 @@ public class DummyIntentLauncher extends AbstractLauncher<DummyIntentController>
         // Transport specification
         JPService.registerProperty(JPLocalInput.class);
         JPService.registerProperty(JPLocalOutput.class);
+
+        // Unit data source
+        JPService.registerProperty(JPUnitDataFixture.class);
     }
 
     /**
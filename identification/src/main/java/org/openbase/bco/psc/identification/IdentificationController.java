@@ -23,18 +23,39 @@ package org.openbase.bco.psc.identification;
  * #L%
  */
 
+import java.io.File;
+import org.openbase.bco.psc.identification.jp.JPBoundingBoxCacheFile;
 import org.openbase.bco.psc.identification.jp.JPDistanceType;
+import org.openbase.bco.psc.identification.jp.JPEvidenceHalfLife;
+import org.openbase.bco.psc.identification.jp.JPEvidenceThreshold;
 import org.openbase.bco.psc.identification.jp.JPIdentificationThreshold;
+import org.openbase.bco.psc.identification.jp.JPIdentificationTopK;
+import org.openbase.bco.psc.identification.jp.JPLocationConnectionTypes;
+import org.openbase.bco.psc.identification.jp.JPLocationPartition;
+import org.openbase.bco.psc.identification.jp.JPRayCacheDirectionResolution;
+import org.openbase.bco.psc.identification.jp.JPRayCacheOriginResolution;
+import org.openbase.bco.psc.identification.jp.JPRayCacheSize;
+import org.openbase.bco.psc.identification.jp.JPScoringEngine;
+import org.openbase.bco.psc.identification.jp.JPSpatialIndex;
 import org.openbase.bco.psc.identification.jp.JPUnitSelectorType;
+import org.openbase.bco.psc.identification.jp.JPVisibilityField;
+import org.openbase.bco.psc.identification.jp.JPVisibilityFieldFile;
+import org.openbase.bco.psc.identification.jp.JPVisibilityFieldVoxelSize;
 import org.openbase.bco.psc.identification.rsb.RSBConnection;
 import org.openbase.bco.psc.identification.selection.*;
 import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
 import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.bco.psc.identification.selection.distance.AngleVsMaxMeasure;
 import org.openbase.bco.psc.identification.selection.distance.DistanceType;
 import org.openbase.bco.psc.identification.selection.distance.OrthogonalMeasure;
+import org.openbase.bco.psc.identification.selection.distance.PearsonMeasure;
 import org.openbase.bco.psc.lib.jp.JPPscUnitFilterList;
 import org.openbase.bco.psc.lib.registry.PointingUnitChecker;
-import org.openbase.bco.registry.remote.Registries;
+import org.openbase.bco.psc.lib.registry.UnitConfigSynchronizer;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
+import org.openbase.bco.psc.lib.trace.EventTrace;
+import org.openbase.bco.psc.lib.trace.TraceStage;
 import org.openbase.jps.core.JPService;
 import org.openbase.jps.exception.JPNotAvailableException;
 import org.openbase.jul.exception.CouldNotPerformException;
@@ -45,19 +66,27 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.iface.Launchable;
 import org.openbase.jul.iface.VoidInitializable;
-import org.openbase.jul.storage.registry.RegistrySynchronizer;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
 import org.slf4j.LoggerFactory;
 import rsb.AbstractEventHandler;
 import rsb.Event;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
+import org.openbase.type.domotic.unit.location.LocationConfigType.LocationConfig.LocationType;
 import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
 import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
-import static org.openbase.bco.registry.remote.Registries.getUnitRegistry;
-
 /**
  * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
  */
@@ -65,9 +94,28 @@ public class IdentificationController extends AbstractEventHandler implements Id
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(IdentificationController.class);
     private AbstractUnitSelector selector;
+    /**
+     * Accumulates the selected units over time, null if the units of every frame are published.
+     */
+    private EvidenceAccumulator evidenceAccumulator;
+    /**
+     * Decays the accumulated evidence periodically while the controller is active, null if no evidence is accumulated.
+     */
+    private Timer evidenceDecayTimer;
     private RSBConnection rsbConnection;
 
-    private RegistrySynchronizer<String, SelectableObject, UnitConfig, UnitConfig.Builder> selectableObjectRegistrySynchronizer;
+    private UnitDataSource unitDataSource;
+    private UnitConfigSynchronizer selectableObjectRegistrySynchronizer;
+    private UnitConfigSynchronizer locationWallsRegistrySynchronizer;
+    private boolean locationPartition;
+    private BoundingBoxCache boundingBoxCache;
+    private BoundingBoxLoader boundingBoxLoader;
+    private final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> unitRegistryDataObserver = (source, data) -> {
+        BoundingBoxCache.updateLocationIndex(data);
+        boundingBoxLoader.loadAll(data);
+        // moved locations do not change the configs of the units placed in them, so their bounding boxes are refreshed here.
+        GlobalCachedExecutorService.submit(this::refreshPlacements);
+    };
 
     private List<String> registryFlags;
 
@@ -82,8 +130,12 @@ public class IdentificationController extends AbstractEventHandler implements Id
         if ((event.getData() instanceof PointingRay3DFloatDistributionCollection)) {
             PointingRay3DFloatDistributionCollection collection = (PointingRay3DFloatDistributionCollection) event.getData();
             try {
-                UnitProbabilityCollection selectedUnits = selector.getUnitProbabilities(collection);
-                rsbConnection.publishData(selectedUnits);
+                if (evidenceAccumulator == null) {
+                    UnitProbabilityCollection selectedUnits = selector.getUnitProbabilities(collection);
+                    publishUnitProbabilities(selectedUnits, event);
+                } else if (evidenceAccumulator.update(collection, System.currentTimeMillis())) {
+                    publishUnitProbabilities(evidenceAccumulator.getUnitProbabilities(), event);
+                }
             } catch (CouldNotPerformException ex) {
                 ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.ERROR);
             } catch (InterruptedException ex) {
@@ -93,15 +145,37 @@ public class IdentificationController extends AbstractEventHandler implements Id
         }
     }
 
+    /**
+     * Publishes the selected units, continuing the trace of the ray event they were computed from.
+     *
+     * @param selectedUnits the selected units.
+     * @param rayEvent the received ray event or null, if the units were not selected by a ray event.
+     * @throws CouldNotPerformException if the units could not be published.
+     * @throws InterruptedException if interrupted while publishing.
+     */
+    private void publishUnitProbabilities(final UnitProbabilityCollection selectedUnits, final Event rayEvent) throws CouldNotPerformException, InterruptedException {
+        final Event unitEvent = new Event(UnitProbabilityCollection.class);
+        unitEvent.setData(selectedUnits);
+        if (rayEvent != null) {
+            EventTrace.copy(rayEvent.getMetaData(), unitEvent.getMetaData());
+            EventTrace.mark(unitEvent.getMetaData(), TraceStage.IDENTIFICATION);
+        }
+        rsbConnection.publishEvent(unitEvent);
+    }
+
     private void initializeRegistryConnection() throws InterruptedException, CouldNotPerformException {
         try {
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.getUnitRegistry().waitForData();
+            unitDataSource = UnitDataSources.getInstance();
+            unitDataSource.waitForData();
 
-            selectableObjectRegistrySynchronizer = new RegistrySynchronizer<String, SelectableObject, UnitConfig, UnitConfig.Builder>(
-                    selector.getSelectedObjectRegistry(), getUnitRegistry().getUnitConfigRemoteRegistry(), getUnitRegistry(), SelectableObjectFactory.getInstance());
-            selectableObjectRegistrySynchronizer.addFilter(config -> {
+            selectableObjectRegistrySynchronizer = unitDataSource.createSynchronizer(
+                    selector.getSelectedObjectRegistry(), new SelectableObjectFactory(boundingBoxCache, boundingBoxLoader), config -> {
                 try {
+                    // units with a cached bounding box are not waited for until their transformation is available.
+                    if (boundingBoxCache != null && boundingBoxCache.contains(config)) {
+                        return !PointingUnitChecker.isPointingControlUnitCandidate(config, registryFlags);
+                    }
                     return !PointingUnitChecker.isPointingControlUnit(config, registryFlags);
                 } catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
@@ -112,6 +186,10 @@ public class IdentificationController extends AbstractEventHandler implements Id
                     return true;
                 }
             });
+            if (selector instanceof NearestHitSelector || locationPartition) {
+                locationWallsRegistrySynchronizer = unitDataSource.createSynchronizer(selector.getLocationRegistry(), LocationWallsFactory.getInstance(),
+                        config -> config.getUnitType() != UnitType.LOCATION || config.getLocationConfig().getLocationType() != LocationType.TILE);
+            }
         } catch (NotAvailableException ex) {
             throw new CouldNotPerformException("Could not connect to the registry.", ex);
         } catch (CouldNotPerformException ex) {
@@ -131,18 +209,18 @@ public class IdentificationController extends AbstractEventHandler implements Id
             case ANGLE:
                 distanceMeasure = new AngleMeasure();
                 break;
-//            case ANGLE_MAX:
-//                distanceMeasure = new AngleVsMaxMeasure();
-//                break;
+            case ANGLE_MAX:
+                distanceMeasure = new AngleVsMaxMeasure();
+                break;
             case ORTHOGONAL:
                 distanceMeasure = new OrthogonalMeasure();
                 break;
 //            case ORTHOGONAL_MAX:
 //                distanceMeasure = new OrthogonalVsMaxMeasure();
 //                break;
-//            case PEARSON:
-//                distanceMeasure = new PearsonMeasure();
-//                break;
+            case PEARSON:
+                distanceMeasure = new PearsonMeasure();
+                break;
             default:
                 distanceMeasure = new AngleMeasure();
                 break;
@@ -154,10 +232,62 @@ public class IdentificationController extends AbstractEventHandler implements Id
             case MEAN:
                 selector = new MeanSelector(threshold, distanceMeasure);
                 break;
+            case NEAREST_HIT:
+                selector = new NearestHitSelector(threshold, distanceMeasure);
+                break;
             default:
                 selector = new MeanSelector(threshold, distanceMeasure);
                 break;
         }
+        int topK = JPService.getProperty(JPIdentificationTopK.class).getValue();
+        LOGGER.info("Selected top k: " + topK);
+        selector.setTopK(topK);
+        int rayCacheSize = JPService.getProperty(JPRayCacheSize.class).getValue();
+        if (rayCacheSize > 0) {
+            double originResolution = JPService.getProperty(JPRayCacheOriginResolution.class).getValue();
+            double directionResolution = JPService.getProperty(JPRayCacheDirectionResolution.class).getValue();
+            LOGGER.info("Selected ray cache of size " + rayCacheSize + " with origin resolution " + originResolution + " and direction resolution " + directionResolution);
+            selector.enableRayResultCache(rayCacheSize, originResolution, directionResolution);
+        }
+        long evidenceHalfLife = JPService.getProperty(JPEvidenceHalfLife.class).getValue();
+        if (evidenceHalfLife > 0) {
+            double evidenceThreshold = JPService.getProperty(JPEvidenceThreshold.class).getValue();
+            LOGGER.info("Selected evidence accumulation with half-life " + evidenceHalfLife + "ms and threshold " + evidenceThreshold);
+            evidenceAccumulator = new EvidenceAccumulator(selector, evidenceHalfLife, evidenceThreshold);
+        }
+        if (selectorType == SelectorType.NEAREST_HIT) {
+            LOGGER.info("Spatial index, scoring engine and location partition are not used by the selector " + SelectorType.NEAREST_HIT.name() + ".");
+            return;
+        }
+        locationPartition = JPService.getProperty(JPLocationPartition.class).getValue();
+        if (locationPartition) {
+            Set<ConnectionType> connectionTypes = EnumSet.noneOf(ConnectionType.class);
+            for (String connectionType : JPService.getProperty(JPLocationConnectionTypes.class).getValue()) {
+                if (!JPLocationConnectionTypes.NONE.equals(connectionType)) {
+                    connectionTypes.add(ConnectionType.valueOf(connectionType));
+                }
+            }
+            LOGGER.info("Selected location partition with connection types: " + connectionTypes);
+            selector.enableLocationPartition(connectionTypes);
+        }
+        if (JPService.getProperty(JPVisibilityField.class).getValue()) {
+            double voxelSize = JPService.getProperty(JPVisibilityFieldVoxelSize.class).getValue();
+            File file = JPService.getProperty(JPVisibilityFieldFile.class).getValue();
+            LOGGER.info("Selected spatial index: visibility field with voxel size " + voxelSize);
+            selector.enableVisibilityField(voxelSize, file.getPath().isEmpty() ? null : file);
+        } else if (JPService.getProperty(JPSpatialIndex.class).getValue()) {
+            LOGGER.info("Selected spatial index: bounding volume hierarchy");
+            selector.enableSpatialIndex();
+        } else if (JPService.getProperty(JPScoringEngine.class).getValue()) {
+            if (locationPartition) {
+                LOGGER.warn("The scoring engine is not used together with the location partition.");
+            } else if (distanceType == DistanceType.ANGLE) {
+                LOGGER.info("Selected scoring engine.");
+                selector.enableScoringEngine();
+            } else {
+                LOGGER.warn("The scoring engine is only available for the distance measure " + DistanceType.ANGLE.name() + " and is not used.");
+            }
+        }
 
     }
 
@@ -167,6 +297,12 @@ public class IdentificationController extends AbstractEventHandler implements Id
             try {
                 initSelector();
                 registryFlags = JPService.getProperty(JPPscUnitFilterList.class).getValue();
+                boundingBoxLoader = new BoundingBoxLoader(registryFlags);
+                File boundingBoxCacheFile = JPService.getProperty(JPBoundingBoxCacheFile.class).getValue();
+                if (!boundingBoxCacheFile.getPath().isEmpty()) {
+                    LOGGER.info("Selected bounding box cache: " + boundingBoxCacheFile);
+                    boundingBoxCache = new BoundingBoxCache(boundingBoxCacheFile);
+                }
 
                 initializeRegistryConnection();
                 rsbConnection = new RSBConnection(this);
@@ -186,21 +322,108 @@ public class IdentificationController extends AbstractEventHandler implements Id
         }
         if (!active) {
             active = true;
-            Registries.waitForData();
+            unitDataSource.waitForData();
             LOGGER.info("Activating Registry synchronization.");
+            // start all transformation lookups at once, so that the synchronizer does not wait for them one after another.
+            BoundingBoxCache.updateLocationIndex(unitDataSource.getData());
+            boundingBoxLoader.loadAll(unitDataSource.getData());
+            unitDataSource.addDataObserver(unitRegistryDataObserver);
             selectableObjectRegistrySynchronizer.activate();
+            if (boundingBoxCache != null) {
+                GlobalCachedExecutorService.submit(this::reconcileBoundingBoxes);
+            }
+            if (locationWallsRegistrySynchronizer != null) {
+                locationWallsRegistrySynchronizer.activate();
+            }
             rsbConnection.activate();
+            if (evidenceAccumulator != null) {
+                evidenceDecayTimer = new Timer(getClass().getSimpleName() + "-EvidenceDecay", true);
+                evidenceDecayTimer.scheduleAtFixedRate(new TimerTask() {
+                    @Override
+                    public void run() {
+                        decayEvidence();
+                    }
+                }, evidenceAccumulator.getDecayInterval(), evidenceAccumulator.getDecayInterval());
+            }
+        }
+    }
+
+    /**
+     * Decays the accumulated evidence and publishes the remaining units, if units were withdrawn.
+     */
+    private void decayEvidence() {
+        try {
+            if (evidenceAccumulator.decay(System.currentTimeMillis())) {
+                publishUnitProbabilities(evidenceAccumulator.getUnitProbabilities(), null);
+            }
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory(new CouldNotPerformException("Could not publish the decayed units", ex), LOGGER, LogLevel.WARN);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Computes the bounding boxes of all selectable objects whose locations were moved.
+     */
+    private void refreshPlacements() {
+        int changed = 0;
+        for (SelectableObject object : selector.getSelectedObjectRegistry().getEntries()) {
+            try {
+                if (object.refreshPlacement()) {
+                    selector.getSelectedObjectRegistry().update(object);
+                    changed++;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not refresh the bounding box of a moved unit", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        if (changed > 0) {
+            LOGGER.info("Refreshed " + changed + " bounding boxes of units in moved locations.");
+        }
+    }
+
+    /**
+     * Replaces all bounding boxes taken from the cache by the ones computed from the registry and disables further cache lookups.
+     */
+    private void reconcileBoundingBoxes() {
+        int changed = 0;
+        for (SelectableObject object : selector.getSelectedObjectRegistry().getEntries()) {
+            try {
+                if (object.reconcile()) {
+                    selector.getSelectedObjectRegistry().update(object);
+                    changed++;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not reconcile cached bounding box", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        boundingBoxCache.disableLookup();
+        LOGGER.info("Reconciled cached bounding boxes, " + changed + " of them changed.");
+    }
+
     @Override
     public void deactivate() throws CouldNotPerformException, InterruptedException {
         LOGGER.debug("Deactivating " + getClass().getName() + ".");
         if (active) {
             active = false;
+            if (evidenceDecayTimer != null) {
+                evidenceDecayTimer.cancel();
+                evidenceDecayTimer = null;
+            }
             rsbConnection.deactivate();
             LOGGER.info("Deactivating Registry synchronization.");
             selectableObjectRegistrySynchronizer.deactivate();
+            unitDataSource.removeDataObserver(unitRegistryDataObserver);
+            if (locationWallsRegistrySynchronizer != null) {
+                locationWallsRegistrySynchronizer.deactivate();
+            }
         }
     }
 
@@ -22,9 +22,23 @@ package org.openbase.bco.psc.identification;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import org.openbase.bco.psc.identification.jp.JPBoundingBoxCacheFile;
 import org.openbase.bco.psc.identification.jp.JPDistanceType;
+import org.openbase.bco.psc.identification.jp.JPEvidenceHalfLife;
+import org.openbase.bco.psc.identification.jp.JPEvidenceThreshold;
 import org.openbase.bco.psc.identification.jp.JPIdentificationThreshold;
+import org.openbase.bco.psc.identification.jp.JPIdentificationTopK;
+import org.openbase.bco.psc.identification.jp.JPLocationConnectionTypes;
+import org.openbase.bco.psc.identification.jp.JPLocationPartition;
+import org.openbase.bco.psc.identification.jp.JPRayCacheDirectionResolution;
+import org.openbase.bco.psc.identification.jp.JPRayCacheOriginResolution;
+import org.openbase.bco.psc.identification.jp.JPRayCacheSize;
+import org.openbase.bco.psc.identification.jp.JPScoringEngine;
+import org.openbase.bco.psc.identification.jp.JPSpatialIndex;
 import org.openbase.bco.psc.identification.jp.JPUnitSelectorType;
+import org.openbase.bco.psc.identification.jp.JPVisibilityField;
+import org.openbase.bco.psc.identification.jp.JPVisibilityFieldFile;
+import org.openbase.bco.psc.identification.jp.JPVisibilityFieldVoxelSize;
 import org.openbase.bco.psc.lib.jp.*;
 import org.openbase.bco.psc.lib.jp.JPIntentScope;
 import org.openbase.bco.authentication.lib.BCO;
@@ -56,6 +70,12 @@ public class IdentificationLauncher extends AbstractLauncher<IdentificationContr
 
         // Threshold
         JPService.registerProperty(JPIdentificationThreshold.class);
+        JPService.registerProperty(JPIdentificationTopK.class);
+        JPService.registerProperty(JPEvidenceHalfLife.class);
+        JPService.registerProperty(JPEvidenceThreshold.class);
+        JPService.registerProperty(JPRayCacheSize.class);
+        JPService.registerProperty(JPRayCacheOriginResolution.class);
+        JPService.registerProperty(JPRayCacheDirectionResolution.class);
 
         // Unit filter
         JPService.registerProperty(JPPscUnitFilterList.class);
@@ -63,10 +83,21 @@ public class IdentificationLauncher extends AbstractLauncher<IdentificationContr
         // Component specific
         JPService.registerProperty(JPUnitSelectorType.class);
         JPService.registerProperty(JPDistanceType.class);
+        JPService.registerProperty(JPSpatialIndex.class);
+        JPService.registerProperty(JPScoringEngine.class);
+        JPService.registerProperty(JPVisibilityField.class);
+        JPService.registerProperty(JPVisibilityFieldVoxelSize.class);
+        JPService.registerProperty(JPVisibilityFieldFile.class);
+        JPService.registerProperty(JPLocationPartition.class);
+        JPService.registerProperty(JPLocationConnectionTypes.class);
+        JPService.registerProperty(JPBoundingBoxCacheFile.class);
 
         // Transport specification
         JPService.registerProperty(JPLocalInput.class);
         JPService.registerProperty(JPLocalOutput.class);
+
+        // Unit data source
+        JPService.registerProperty(JPUnitDataFixture.class);
     }
 
     /**
@@ -0,0 +1,69 @@
+package org.openbase.bco.psc.identification.jp;
+
+/*-
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.bco.psc.lib.jp.AbstractJPTimeout;
+import org.openbase.jps.exception.JPNotAvailableException;
+
+/**
+ * JavaProperty used to specify the half-life of the accumulated evidence of selected units.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPEvidenceHalfLife extends AbstractJPTimeout {
+
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--identification-evidence-half-life"};
+
+    /**
+     * Constructor.
+     */
+    public JPEvidenceHalfLife() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected Long getPropertyDefaultValue() throws JPNotAvailableException {
+        return 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Half-life in milliseconds of the evidence a frame adds to the score of a selected unit. If greater than 0, the scores are accumulated "
+                + "per user and the selected units are only published if the units reaching " + JPEvidenceThreshold.COMMAND_IDENTIFIERS[0]
+                + " or their order change. 0 publishes the units of every frame.";
+    }
+
+}
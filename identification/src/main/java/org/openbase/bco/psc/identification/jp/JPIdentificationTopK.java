@@ -0,0 +1,86 @@
+package org.openbase.bco.psc.identification.jp;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.List;
+import org.openbase.jps.exception.JPBadArgumentException;
+import org.openbase.jps.exception.JPNotAvailableException;
+import org.openbase.jps.preset.AbstractJPInteger;
+
+/**
+ * JavaProperty used to limit the number of units selected per ray distribution.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPIdentificationTopK extends AbstractJPInteger {
+
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--identification-top-k"};
+
+    /**
+     * Constructor.
+     */
+    public JPIdentificationTopK() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected Integer getPropertyDefaultValue() throws JPNotAvailableException {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param arguments {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws JPBadArgumentException {@inheritDoc}
+     */
+    @Override
+    protected Integer parse(List<String> arguments) throws JPBadArgumentException {
+        Integer k = super.parse(arguments);
+        if (k < 0) {
+            throw new JPBadArgumentException("The number of units per ray distribution has to be at least 0!");
+        }
+        return k;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Limits the number of units selected per ray distribution to the most probable ones. Units that can not beat the k-th best one are skipped early. 0 disables the limit.";
+    }
+
+}
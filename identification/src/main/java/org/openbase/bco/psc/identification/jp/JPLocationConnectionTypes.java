@@ -0,0 +1,112 @@
+package org.openbase.bco.psc.identification.jp;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.List;
+import org.openbase.jps.core.AbstractJavaProperty;
+import org.openbase.jps.exception.JPBadArgumentException;
+import org.openbase.jps.exception.JPNotAvailableException;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
+
+/**
+ * JavaProperty used to specify the types of connections by which the objects of connected tiles are in scope of the location partition.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPLocationConnectionTypes extends AbstractJavaProperty<List<String>> {
+
+    /**
+     * String identifying the type of the argument.
+     */
+    public final static String[] ARGUMENT_IDENTIFIERS = {"STRING-LIST"};
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--identification-location-connections"};
+    /**
+     * Argument used to only include the tile containing the ray origin.
+     */
+    public final static String NONE = "NONE";
+
+    /**
+     * Constructor.
+     */
+    public JPLocationConnectionTypes() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected String[] generateArgumentIdentifiers() {
+        return ARGUMENT_IDENTIFIERS;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected List<String> getPropertyDefaultValue() throws JPNotAvailableException {
+        return Arrays.asList(ConnectionType.PASSAGE.name(), ConnectionType.DOOR.name(), ConnectionType.WINDOW.name());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param arguments {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws Exception {@inheritDoc}
+     */
+    @Override
+    protected List<String> parse(List<String> arguments) throws Exception {
+        for (String argument : arguments) {
+            if (NONE.equals(argument)) {
+                continue;
+            }
+            try {
+                ConnectionType.valueOf(argument);
+            } catch (IllegalArgumentException ex) {
+                throw new JPBadArgumentException("Unknown connection type " + argument + "!");
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Types of connections by which the objects of connected tiles are rated by the location partition, e.g. PASSAGE, DOOR or WINDOW. "
+                + "Use " + NONE + " to only rate the objects of the tile containing the ray origin.";
+    }
+}
@@ -0,0 +1,86 @@
+package org.openbase.bco.psc.identification.jp;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.List;
+import org.openbase.jps.exception.JPBadArgumentException;
+import org.openbase.jps.exception.JPNotAvailableException;
+import org.openbase.jps.preset.AbstractJPDouble;
+
+/**
+ * JavaProperty used to specify the resolution by which the ray origins are quantized for the ray cache.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPRayCacheOriginResolution extends AbstractJPDouble {
+
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--identification-ray-cache-origin-resolution"};
+
+    /**
+     * Constructor.
+     */
+    public JPRayCacheOriginResolution() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected Double getPropertyDefaultValue() throws JPNotAvailableException {
+        return 0.02;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param arguments {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws JPBadArgumentException {@inheritDoc}
+     */
+    @Override
+    protected Double parse(List<String> arguments) throws JPBadArgumentException {
+        Double d = super.parse(arguments);
+        if (d <= 0.0) {
+            throw new JPBadArgumentException("Origin resolution has to be greater than 0.0!");
+        }
+        return d;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "This is only used if the ray cache is enabled via " + JPRayCacheSize.COMMAND_IDENTIFIERS[0] + ". It specifies the edge length in meters of the cells by which the ray origins are quantized.";
+    }
+
+}
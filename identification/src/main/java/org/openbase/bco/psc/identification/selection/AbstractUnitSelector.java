@@ -22,18 +22,30 @@ package org.openbase.bco.psc.identification.selection;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
-import java.util.stream.Collectors;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.bco.psc.identification.selection.distance.AngleScoringEngine;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InstantiationException;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
 import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
 import org.slf4j.LoggerFactory;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
 import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
 import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
 import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
 import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
 
 /**
  *
@@ -42,49 +54,447 @@ import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay
 public abstract class AbstractUnitSelector {
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(AbstractUnitSelector.class);
+    /**
+     * Delay in milliseconds after a registry change before the visibility field is computed.
+     */
+    private static final long VISIBILITY_FIELD_DELAY = 500;
     private final double threshold;
-    //TODO: Ideas: maximal bounding box and kdtree first.
-    // Then rating by distances
-    // Maybe fast enough for required numbers
+    protected final AbstractDistanceMeasure distance;
 
     private SynchronizableRegistryImpl<String, SelectableObject> selectedObjectRegistry;
+    private SynchronizableRegistryImpl<String, LocationWalls> locationRegistry;
+    /**
+     * Immutable copy of the selectable objects, which is replaced on every change of the registry so that rating never locks or copies the registry.
+     */
+    private volatile ObjectSnapshot objectSnapshot = new ObjectSnapshot(new ArrayList<>(), new ArrayList<>());
+    /**
+     * Partition of the selectable objects by tile locations, null if all objects are in scope for every ray distribution.
+     */
+    private volatile LocationPartition locationPartition;
+    /**
+     * Provides the objects rated for a ray distribution, null if all objects are rated for every ray distribution.
+     */
+    private volatile CandidateProvider candidateProvider;
+    /**
+     * Spatial index over the selectable objects, which is refitted instead of rebuilt if possible.
+     */
+    private BoundingVolumeHierarchy hierarchy;
+    /**
+     * Incremented for every requested update of the visibility field, so that outdated background computations are discarded.
+     */
+    private int visibilityFieldGeneration;
+    private Future<?> visibilityFieldTask;
+    /**
+     * The last computed visibility field, which is reused if a registry change does not affect it.
+     */
+    private VisibilityField visibilityField;
+    /**
+     * Scoring engine over all selectable objects, null if the objects are rated separately.
+     */
+    private volatile ScoredObjects scoredObjects;
+    /**
+     * Maximal number of units selected per ray distribution, 0 for no limit.
+     */
+    private volatile int topK;
+    /**
+     * Cache of the rankings of quantized ray distributions, null if every ray distribution is ranked.
+     */
+    private volatile RayResultCache rayResultCache;
 
-    public AbstractUnitSelector(double threshold) throws InstantiationException {
+    public AbstractUnitSelector(double threshold, AbstractDistanceMeasure distance) throws InstantiationException {
         this.threshold = threshold;
+        this.distance = distance;
         try {
             this.selectedObjectRegistry = new SynchronizableRegistryImpl<>();
+            this.locationRegistry = new SynchronizableRegistryImpl<>();
         } catch (InstantiationException ex) {
             throw new InstantiationException(this, ex);
         }
+        selectedObjectRegistry.addObserver((source, data) -> updateObjectSnapshot(data.values()));
+    }
+
+    private void updateObjectSnapshot(final Collection<SelectableObject> selectableObjects) {
+        final List<String> ids = new ArrayList<>(selectableObjects.size());
+        final List<BoundingBox> boxes = new ArrayList<>(selectableObjects.size());
+        for (SelectableObject object : selectableObjects) {
+            try {
+                final String id = object.getId();
+                final BoundingBox box = object.getBoundingBox();
+                if (box != null) {
+                    ids.add(id);
+                    boxes.add(box);
+                }
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not add a SelectableObject to the snapshot", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        objectSnapshot = new ObjectSnapshot(ids, boxes);
+        invalidateRayResultCache();
     }
 
     public SynchronizableRegistryImpl<String, SelectableObject> getSelectedObjectRegistry() {
         return selectedObjectRegistry;
     }
 
+    /**
+     * Gets the registry of tile locations, which is used by the location partition and by selectors that consider walls.
+     *
+     * @return the registry of tile locations.
+     */
+    public SynchronizableRegistryImpl<String, LocationWalls> getLocationRegistry() {
+        return locationRegistry;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Limits the number of units selected per ray distribution to the most probable ones.
+     *
+     * @param topK the maximal number of units per ray distribution or 0 for no limit.
+     */
+    public void setTopK(int topK) {
+        this.topK = topK;
+        invalidateRayResultCache();
+    }
+
+    /**
+     * Enables the cache of ray distribution rankings, which reuses the ranking of a ray distribution for all ray distributions within the same quantization
+     * cells. It is invalidated whenever the state used for the ranking is replaced.
+     *
+     * @param maxSize the maximal number of cached ray distributions.
+     * @param originResolution the edge length in meters of the cells by which the ray origins are quantized.
+     * @param directionResolution the step by which the components of the normalized ray directions and the certainties are quantized.
+     */
+    public void enableRayResultCache(final int maxSize, final double originResolution, final double directionResolution) {
+        rayResultCache = new RayResultCache(maxSize, originResolution, directionResolution);
+    }
+
+    /**
+     * Invalidates the cache of ray distribution rankings, which has to be done whenever anything changes that influences the ranking.
+     */
+    protected void invalidateRayResultCache() {
+        final RayResultCache currentRayResultCache = rayResultCache;
+        if (currentRayResultCache != null) {
+            currentRayResultCache.invalidate();
+        }
+    }
+
+    /**
+     * Enables the location partition, which limits the rated objects to the ones within the tile containing the ray origin, the tiles connected to it and
+     * the objects outside of all tiles. It is rebuilt whenever the selectable objects or the locations change.
+     *
+     * @param connectionTypes the types of connections by which the objects of connected tiles are included.
+     */
+    public void enableLocationPartition(final Set<ConnectionType> connectionTypes) {
+        updateLocationPartition(connectionTypes);
+        selectedObjectRegistry.addObserver((source, data) -> updateLocationPartition(connectionTypes));
+        locationRegistry.addObserver((source, data) -> updateLocationPartition(connectionTypes));
+    }
+
+    private synchronized void updateLocationPartition(final Set<ConnectionType> connectionTypes) {
+        locationPartition = new LocationPartition(locationRegistry.getEntries(), selectedObjectRegistry.getEntries(), connectionTypes);
+        invalidateRayResultCache();
+        LOGGER.debug("Rebuilt location partition over " + locationPartition.size() + " locations.");
+    }
+
+    /**
+     * Enables the bounding volume hierarchy, which is rebuilt or refitted whenever the selectable objects change and limits the rated objects to the ones
+     * that can reach the threshold.
+     */
+    public void enableSpatialIndex() {
+        updateHierarchy(selectedObjectRegistry.getEntryMap());
+        selectedObjectRegistry.addObserver((source, data) -> updateHierarchy(data));
+    }
+
+    private synchronized void updateHierarchy(Map<String, SelectableObject> selectableObjects) {
+        BoundingVolumeHierarchy refitted = hierarchy == null ? null : hierarchy.refit(selectableObjects);
+        hierarchy = refitted != null ? refitted : BoundingVolumeHierarchy.build(selectableObjects.values());
+        candidateProvider = hierarchy;
+        invalidateRayResultCache();
+        LOGGER.debug((refitted != null ? "Refitted" : "Rebuilt") + " bounding volume hierarchy over " + hierarchy.size() + " objects.");
+    }
+
+    /**
+     * Enables the visibility field, which limits the rated objects to the ones stored for the voxel and direction of the rays.
+     * The field is computed in the background whenever the ids or bounding boxes of the selectable objects change, in the meantime all objects are rated.
+     * Changes following each other within a short delay are combined into a single computation. If a file is given, the field is loaded from it if it
+     * matches the current objects and saved to it after every computation.
+     * The field is only enabled if the distance measure bounds the probability by the angle, otherwise every object would be a candidate everywhere.
+     *
+     * @param voxelSize the edge length of the voxels in meters.
+     * @param file the file the field is persisted to or null.
+     */
+    public void enableVisibilityField(final double voxelSize, final File file) {
+        if (!distance.isBounded()) {
+            LOGGER.warn("The distance measure " + distance.getClass().getSimpleName() + " does not bound the probability by the angle, the visibility field is not used.");
+            return;
+        }
+        updateVisibilityField(selectedObjectRegistry.getEntries(), voxelSize, file);
+        selectedObjectRegistry.addObserver((source, data) -> updateVisibilityField(data.values(), voxelSize, file));
+    }
+
+    private synchronized void updateVisibilityField(final Collection<SelectableObject> selectableObjects, final double voxelSize, final File file) {
+        if (visibilityFieldTask != null) {
+            visibilityFieldTask.cancel(true);
+        }
+        final int generation = ++visibilityFieldGeneration;
+        final VisibilityField reboundField = visibilityField == null ? null : visibilityField.rebind(selectableObjects, voxelSize, distance, threshold);
+        if (reboundField != null) {
+            LOGGER.debug("Visibility field is not affected by the registry change.");
+            visibilityField = reboundField;
+            candidateProvider = reboundField;
+            invalidateRayResultCache();
+            return;
+        }
+        visibilityField = null;
+        candidateProvider = null;
+        invalidateRayResultCache();
+        final List<SelectableObject> objects = new ArrayList<>(selectableObjects);
+        visibilityFieldTask = GlobalCachedExecutorService.submit(() -> {
+            try {
+                // wait for further changes, e.g. while the registry is synchronized initially.
+                Thread.sleep(VISIBILITY_FIELD_DELAY);
+                VisibilityField field = null;
+                if (file != null) {
+                    try {
+                        field = VisibilityField.load(file, objects, voxelSize, distance, threshold);
+                    } catch (CouldNotPerformException ex) {
+                        ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+                    }
+                }
+                if (field == null) {
+                    field = VisibilityField.build(objects, voxelSize, distance, threshold);
+                    if (field == null) {
+                        return;
+                    }
+                    if (file != null) {
+                        try {
+                            field.save(file);
+                        } catch (CouldNotPerformException ex) {
+                            ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+                        }
+                    }
+                } else {
+                    LOGGER.debug("Loaded visibility field from " + file);
+                }
+                synchronized (AbstractUnitSelector.this) {
+                    if (generation == visibilityFieldGeneration) {
+                        visibilityField = field;
+                        candidateProvider = field;
+                        invalidateRayResultCache();
+                        LOGGER.info("Visibility field over " + field.size() + " objects is ready.");
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // a newer update replaced this computation.
+            }
+        });
+    }
+
+    /**
+     * Enables the scoring engine, which rates every ray against all selectable objects in a single loop. It is only valid for the angle measure and is not
+     * used if the spatial index or the location partition is enabled.
+     */
+    public void enableScoringEngine() {
+        updateScoringEngine(selectedObjectRegistry.getEntries());
+        selectedObjectRegistry.addObserver((source, data) -> updateScoringEngine(data.values()));
+    }
+
+    private synchronized void updateScoringEngine(Iterable<SelectableObject> selectableObjects) {
+        final List<String> ids = new ArrayList<>();
+        final List<BoundingBox> boxes = new ArrayList<>();
+        for (SelectableObject object : selectableObjects) {
+            try {
+                final String id = object.getId();
+                boxes.add(object.getBoundingBox());
+                ids.add(id);
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not add a SelectableObject to the scoring engine", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        scoredObjects = new ScoredObjects(ids.toArray(new String[ids.size()]), new AngleScoringEngine(boxes));
+        invalidateRayResultCache();
+        LOGGER.debug("Rebuilt scoring engine over " + ids.size() + " objects.");
+    }
+
     public UnitProbabilityCollection getUnitProbabilities(PointingRay3DFloatDistributionCollection pointingRays) throws CouldNotPerformException {
-        UnitProbabilityCollection.Builder collectionBuilder = UnitProbabilityCollection.newBuilder();
-        //TODO: Invert this here! first iterate the distributions, then the objects!
-        collectionBuilder.addAllElement(selectedObjectRegistry.getEntries().stream()
-                .map(
-                        entry -> pointingRays.getElementList().stream()
-                                .map(rayDist -> getUnitProbability(entry, rayDist))
-                                .max((u1, u2) -> Float.compare(u1.getProbability(), u2.getProbability())))
-                .filter(u -> u.isPresent() && u.get().getProbability() >= threshold)
-                .map(u -> u.get())
-                .collect(Collectors.toList()));
-        return collectionBuilder.build();
-    }
-
-    private UnitProbability getUnitProbability(SelectableObject object, PointingRay3DFloatDistribution rayDistribution) {
-        try {
-            float prob = calculateProbability(object.getBoundingBox(), rayDistribution);
-            return UnitProbability.newBuilder().setId(object.getId()).setProbability(prob).build();
-        } catch (NotAvailableException ex) {
-            ExceptionPrinter.printHistory(new CouldNotPerformException("Could not calculate the probability for a SelectableObject", ex), LOGGER, LogLevel.WARN);
-            return UnitProbability.newBuilder().setProbability(Float.NEGATIVE_INFINITY).build();
+        final Map<String, UnitProbability> unitProbabilities = new LinkedHashMap<>();
+        for (PointingRay3DFloatDistribution rayDist : pointingRays.getElementList()) {
+            UnitRanking.mergeInto(getUnitProbabilities(rayDist), unitProbabilities);
+        }
+        return UnitProbabilityCollection.newBuilder().addAllElement(unitProbabilities.values()).build();
+    }
+
+    /**
+     * Gets the units selected by a single ray distribution, using the ray result cache if it is enabled.
+     *
+     * @param rayDist the rays of one pointing gesture.
+     * @return the units reaching the threshold in no particular order.
+     * @throws CouldNotPerformException if the units could not be ranked.
+     */
+    public List<UnitProbability> getUnitProbabilities(PointingRay3DFloatDistribution rayDist) throws CouldNotPerformException {
+        final RayResultCache currentRayResultCache = rayResultCache;
+        if (currentRayResultCache == null) {
+            return rank(rayDist).getUnitProbabilities();
+        }
+        final RayResultCache.Key key = currentRayResultCache.getKey(rayDist);
+        List<UnitProbability> rankedUnits = currentRayResultCache.get(key);
+        if (rankedUnits == null) {
+            final long generation = currentRayResultCache.getGeneration();
+            rankedUnits = rank(rayDist).getUnitProbabilities();
+            currentRayResultCache.put(key, rankedUnits, generation);
+        }
+        return rankedUnits;
+    }
+
+    /**
+     * Ranks the selectable objects for a single ray distribution.
+     *
+     * @param rayDist the rays of one pointing gesture.
+     * @return the ranking of the units reaching the threshold.
+     * @throws CouldNotPerformException if the ranking could not be created.
+     */
+    protected UnitRanking rank(PointingRay3DFloatDistribution rayDist) throws CouldNotPerformException {
+        final LocationPartition currentLocationPartition = locationPartition;
+        final CandidateProvider currentCandidateProvider = candidateProvider;
+        if (currentCandidateProvider != null) {
+            return rank(rayDist, currentCandidateProvider, currentLocationPartition);
+        }
+        final ScoredObjects currentScoredObjects = scoredObjects;
+        if (currentScoredObjects != null && currentLocationPartition == null) {
+            return rank(rayDist, currentScoredObjects);
+        }
+        if (currentLocationPartition != null) {
+            return rank(rayDist, currentLocationPartition);
+        }
+        final ObjectSnapshot currentObjectSnapshot = objectSnapshot;
+        final UnitRanking ranking = new UnitRanking(threshold, topK);
+        final double[] rays = getBoundingRays(rayDist);
+        for (int i = 0; i < currentObjectSnapshot.ids.length; i++) {
+            final double limit = ranking.getLimit() - BoundingVolumeHierarchy.PRUNING_MARGIN;
+            // skip the calculation, if no point of the bounding sphere of the box can beat the threshold or the k-th best unit.
+            if (rays != null && BoundingVolumeHierarchy.getUpperBound(currentObjectSnapshot.spheres, i, rays, rayDist.getRayCount(), distance, limit) < limit) {
+                continue;
+            }
+            ranking.offer(currentObjectSnapshot.ids[i], calculateProbability(currentObjectSnapshot.boxes[i], rayDist));
+        }
+        return ranking;
+    }
+
+    private UnitRanking rank(PointingRay3DFloatDistribution rayDist, LocationPartition currentLocationPartition) {
+        final UnitRanking ranking = new UnitRanking(threshold, topK);
+        final double[] rays = getBoundingRays(rayDist);
+        final LocationPartition.Scope scope = currentLocationPartition.getScope(rayDist);
+        final List<SelectableObject> objects = scope.getObjects();
+        for (int i = 0; i < objects.size(); i++) {
+            try {
+                final double limit = ranking.getLimit() - BoundingVolumeHierarchy.PRUNING_MARGIN;
+                // skip the calculation, if no point of the bounding sphere of the box can beat the threshold or the k-th best unit.
+                if (rays != null && BoundingVolumeHierarchy.getUpperBound(scope.getSpheres(), i, rays, rayDist.getRayCount(), distance, limit) < limit) {
+                    continue;
+                }
+                final SelectableObject object = objects.get(i);
+                ranking.offer(object.getId(), calculateProbability(object.getBoundingBox(), rayDist));
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not calculate the probability for a SelectableObject", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        return ranking;
+    }
+
+    /**
+     * Gets the rays used to bound the probabilities of the objects before they are rated.
+     *
+     * @param rayDist the rays of one pointing gesture.
+     * @return the rays as created by toRayArray or null, if the distance measure provides no bound or the rays can not be bounded.
+     */
+    private double[] getBoundingRays(PointingRay3DFloatDistribution rayDist) {
+        if (!distance.isBounded()) {
+            return null;
+        }
+        return BoundingVolumeHierarchy.toRayArray(rayDist);
+    }
+
+    private UnitRanking rank(PointingRay3DFloatDistribution rayDist, CandidateProvider currentCandidateProvider, LocationPartition currentLocationPartition) {
+        final UnitRanking ranking = new UnitRanking(threshold, topK);
+        List<SelectableObject> candidates = currentCandidateProvider.getCandidates(rayDist, distance, threshold);
+        if (currentLocationPartition != null) {
+            candidates = currentLocationPartition.filter(rayDist, candidates);
+        }
+        for (SelectableObject object : candidates) {
+            try {
+                ranking.offer(object.getId(), calculateProbability(object.getBoundingBox(), rayDist));
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not calculate the probability for a SelectableObject", ex), LOGGER, LogLevel.WARN);
+            }
         }
+        return ranking;
+    }
+
+    private UnitRanking rank(PointingRay3DFloatDistribution rayDist, ScoredObjects currentScoredObjects) {
+        final int size = currentScoredObjects.engine.size();
+        final float[] accumulated = new float[size];
+        final double[] rayProbabilities = new double[size];
+        for (PointingRay3DFloat pointingRay : rayDist.getRayList()) {
+            currentScoredObjects.engine.score(pointingRay.getRay(), rayProbabilities);
+            for (int i = 0; i < size; i++) {
+                accumulated[i] = accumulate(accumulated[i], (float) (rayProbabilities[i] * pointingRay.getCertainty()));
+            }
+        }
+        final UnitRanking ranking = new UnitRanking(threshold, topK);
+        for (int i = 0; i < size; i++) {
+            ranking.offer(currentScoredObjects.ids[i], accumulated[i]);
+        }
+        return ranking;
     }
 
     protected abstract float calculateProbability(BoundingBox boundingBox, PointingRay3DFloatDistribution pointingRays);
+
+    /**
+     * Combines the probability of a single ray with the probabilities of the previous rays of the same distribution.
+     *
+     * @param accumulator the combined probability of the previous rays.
+     * @param rayProbability the probability of the ray weighted by its certainty.
+     * @return the combined probability.
+     */
+    protected abstract float accumulate(float accumulator, float rayProbability);
+
+    /**
+     * Immutable ids, bounding boxes and bounding spheres (x, y, z, radius) of the selectable objects.
+     */
+    private static final class ObjectSnapshot {
+
+        private final String[] ids;
+        private final BoundingBox[] boxes;
+        private final double[] spheres;
+
+        private ObjectSnapshot(final List<String> ids, final List<BoundingBox> boxes) {
+            this.ids = ids.toArray(new String[ids.size()]);
+            this.boxes = boxes.toArray(new BoundingBox[boxes.size()]);
+            this.spheres = new double[4 * boxes.size()];
+            for (int i = 0; i < boxes.size(); i++) {
+                System.arraycopy(BoundingVolumeHierarchy.getSphere(boxes.get(i)), 0, spheres, 4 * i, 4);
+            }
+        }
+    }
+
+    /**
+     * Ids of the selectable objects in the order of the boxes of the scoring engine.
+     */
+    private static final class ScoredObjects {
+
+        private final String[] ids;
+        private final AngleScoringEngine engine;
+
+        private ScoredObjects(String[] ids, AngleScoringEngine engine) {
+            this.ids = ids;
+            this.engine = engine;
+        }
+    }
 }
@@ -158,6 +158,14 @@ public class BoundingBox {
         return rootCenter;
     }
 
+    public Transform3D getForwardTransform() {
+        return new Transform3D(forwardTransform);
+    }
+
+    public Transform3D getReverseCenterTransform() {
+        return new Transform3D(reverseCenterTransform);
+    }
+
     public Quat4d getOrientation() {
         //TODO: Get rid of this part!
         Quat4d orientation = new Quat4d();
@@ -0,0 +1,271 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import javax.media.j3d.Transform3D;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the bounding boxes of the selectable objects, which allows to serve requests before the transformations of all units are
+ * available. Entries are keyed by the unit id and a checksum of its placement and the poses of its parent locations, so moving the unit or any of its
+ * locations invalidates them. Cached boxes are still reconciled against the registry after startup, as the checksum only covers the configs.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class BoundingBoxCache {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(BoundingBoxCache.class);
+    /**
+     * Identifies files containing a bounding box cache.
+     */
+    private static final int FILE_MAGIC = 0x50534342;
+    /**
+     * Version of the file format, which has to be incremented whenever the format changes.
+     */
+    private static final int FILE_VERSION = 2;
+    /**
+     * Maximal number of parent locations included in the placement checksum, which protects against cycles in the location hierarchy.
+     */
+    private static final int MAX_LOCATION_DEPTH = 64;
+    /**
+     * Locations by their id, which are used to include the poses of the parent locations in the placement checksum.
+     */
+    private static volatile Map<String, UnitConfig> locationIndex = new HashMap<>();
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    /**
+     * Lookups are only answered until the cached boxes have been reconciled against the registry, afterwards boxes are always computed.
+     */
+    private volatile boolean lookupEnabled = true;
+    private Future<?> saveTask;
+
+    /**
+     * Creates the cache and loads the entries stored in the file, if it exists.
+     *
+     * @param file the file the cache is persisted to.
+     */
+    public BoundingBoxCache(final File file) {
+        this.file = file;
+        try {
+            load();
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+        }
+    }
+
+    /**
+     * Gets the cached bounding box of a unit.
+     *
+     * @param config the config of the unit.
+     * @return the cached box or null, if there is no entry for the current placement of the unit or the lookup is disabled.
+     */
+    public synchronized BoundingBox get(final UnitConfig config) {
+        if (!lookupEnabled) {
+            return null;
+        }
+        final Entry entry = entries.get(config.getId());
+        if (entry == null || entry.placementChecksum != getPlacementChecksum(config)) {
+            return null;
+        }
+        return entry.boundingBox;
+    }
+
+    /**
+     * Checks whether the cache contains a bounding box for the current placement of a unit.
+     *
+     * @param config the config of the unit.
+     * @return true if a lookup would return a box.
+     */
+    public boolean contains(final UnitConfig config) {
+        return get(config) != null;
+    }
+
+    /**
+     * Stores the bounding box of a unit and schedules saving the cache.
+     *
+     * @param config the config of the unit.
+     * @param boundingBox the bounding box computed from the registry.
+     */
+    public synchronized void put(final UnitConfig config, final BoundingBox boundingBox) {
+        entries.put(config.getId(), new Entry(getPlacementChecksum(config), boundingBox));
+        if (saveTask == null || saveTask.isDone()) {
+            saveTask = GlobalCachedExecutorService.submit(() -> {
+                try {
+                    save();
+                } catch (CouldNotPerformException ex) {
+                    ExceptionPrinter.printHistory(ex, LOGGER, LogLevel.WARN);
+                }
+            });
+        }
+    }
+
+    /**
+     * Disables further lookups once all cached boxes have been reconciled against the registry.
+     */
+    public void disableLookup() {
+        lookupEnabled = false;
+    }
+
+    /**
+     * Gets the number of cached bounding boxes.
+     *
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void load() throws CouldNotPerformException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION) {
+                throw new CouldNotPerformException("File " + file + " does not contain a bounding box cache of version " + FILE_VERSION + ".");
+            }
+            final int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                final String id = input.readUTF();
+                final long placementChecksum = input.readLong();
+                final double[] matrix = new double[16];
+                for (int j = 0; j < matrix.length; j++) {
+                    matrix[j] = input.readDouble();
+                }
+                final float width = input.readFloat(), depth = input.readFloat(), height = input.readFloat();
+                entries.put(id, new Entry(placementChecksum, new BoundingBox(new Transform3D(matrix), width, depth, height)));
+            }
+            LOGGER.info("Loaded " + size + " bounding boxes from " + file);
+        } catch (IOException ex) {
+            entries.clear();
+            throw new CouldNotPerformException("Could not load bounding box cache from " + file, ex);
+        }
+    }
+
+    private void save() throws CouldNotPerformException {
+        final Map<String, Entry> currentEntries;
+        synchronized (this) {
+            currentEntries = new HashMap<>(entries);
+        }
+        final File temporaryFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try {
+            try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                output.writeInt(FILE_MAGIC);
+                output.writeInt(FILE_VERSION);
+                output.writeInt(currentEntries.size());
+                final double[] matrix = new double[16];
+                for (Map.Entry<String, Entry> entry : currentEntries.entrySet()) {
+                    final BoundingBox boundingBox = entry.getValue().boundingBox;
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().placementChecksum);
+                    boundingBox.getForwardTransform().get(matrix);
+                    for (double element : matrix) {
+                        output.writeDouble(element);
+                    }
+                    output.writeFloat(boundingBox.getWidth());
+                    output.writeFloat(boundingBox.getDepth());
+                    output.writeFloat(boundingBox.getHeight());
+                }
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new CouldNotPerformException("Could not save bounding box cache to " + file, ex);
+        }
+    }
+
+    /**
+     * Updates the locations whose poses are included in the placement checksums. This has to be called whenever the registry data changes.
+     *
+     * @param registryData the current data of the unit registry.
+     */
+    public static void updateLocationIndex(final UnitRegistryData registryData) {
+        final Map<String, UnitConfig> locations = new HashMap<>();
+        for (UnitConfig location : registryData.getLocationUnitConfigList()) {
+            locations.put(location.getId(), location);
+        }
+        locationIndex = locations;
+    }
+
+    /**
+     * Gets a checksum of the placement of a unit and the poses of all its parent locations in the location index, which is stable across restarts unlike
+     * the hash code of the message. Locations that are not indexed yet are not covered.
+     *
+     * @param config the config of the unit.
+     * @return the checksum of the placement.
+     */
+    static long getPlacementChecksum(final UnitConfig config) {
+        final CRC32 checksum = new CRC32();
+        checksum.update(config.getPlacementConfig().toByteArray());
+        final Map<String, UnitConfig> locations = locationIndex;
+        UnitConfig current = config;
+        for (int depth = 0; depth < MAX_LOCATION_DEPTH; depth++) {
+            if (current.getUnitType() == UnitType.LOCATION && current.getLocationConfig().getRoot()) {
+                break;
+            }
+            final UnitConfig location = locations.get(current.getPlacementConfig().getLocationId());
+            if (location == null || location == current) {
+                break;
+            }
+            checksum.update(location.getId().getBytes(StandardCharsets.UTF_8));
+            checksum.update(location.getPlacementConfig().getPose().toByteArray());
+            current = location;
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Cached bounding box and the checksum of the placement it was computed for.
+     */
+    private static final class Entry {
+
+        private final long placementChecksum;
+        private final BoundingBox boundingBox;
+
+        private Entry(final long placementChecksum, final BoundingBox boundingBox) {
+            this.placementChecksum = placementChecksum;
+            this.boundingBox = boundingBox;
+        }
+    }
+}
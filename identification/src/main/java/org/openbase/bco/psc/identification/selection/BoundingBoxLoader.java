@@ -0,0 +1,86 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.List;
+import org.openbase.bco.psc.lib.registry.AbstractParallelConfigLoader;
+import org.openbase.bco.psc.lib.registry.PointingUnitChecker;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+/**
+ * Loads the bounding boxes of the selectable objects in parallel, so that their transformations are looked up at the same time.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class BoundingBoxLoader extends AbstractParallelConfigLoader<BoundingBox> {
+
+    private final List<String> registryFlags;
+
+    /**
+     * Constructor.
+     *
+     * @param registryFlags the flags of which one has to be set in the meta config of a selectable unit.
+     */
+    public BoundingBoxLoader(final List<String> registryFlags) {
+        super(DEFAULT_PARALLELISM);
+        this.registryFlags = registryFlags;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long getFingerprint(final UnitConfig config) {
+        return BoundingBoxCache.getPlacementChecksum(config);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    protected boolean isCandidate(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return PointingUnitChecker.isPointingControlUnitCandidate(config, registryFlags);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    protected BoundingBox load(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return SelectableObject.loadBoundingBox(config);
+    }
+}
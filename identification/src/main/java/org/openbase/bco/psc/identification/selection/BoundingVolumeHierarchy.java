@@ -0,0 +1,397 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.vecmath.Point3d;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable bounding volume hierarchy over the bounding spheres of the bounding boxes of selectable objects.
+ * A ray distribution is traversed like a cone: a node is only visited, if the upper bound of the probability of any box inside it, which the distance measure
+ * derives from the minimal angle between the rays and the node, can reach the threshold. All other objects are guaranteed to stay below the threshold.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class BoundingVolumeHierarchy implements CandidateProvider {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(BoundingVolumeHierarchy.class);
+
+    /**
+     * Maximal number of objects in a leaf node.
+     */
+    private static final int LEAF_SIZE = 4;
+    /**
+     * Margin that keeps the pruning conservative against the float precision of the calculated probabilities.
+     */
+    static final double PRUNING_MARGIN = 1e-6;
+    /**
+     * Rays with an origin closer to the root origin than this get the probability 1 for every box, see AbstractDistanceMeasure.
+     */
+    private static final double ROOT_DISTANCE = 0.05;
+
+    /**
+     * The indexed objects in leaf order.
+     */
+    private final SelectableObject[] objects;
+    /**
+     * Bounding spheres (x, y, z, radius) of the objects in leaf order.
+     */
+    private final double[] objectSpheres;
+    /**
+     * Bounding spheres (x, y, z, radius) of the nodes.
+     */
+    private final double[] nodeSpheres;
+    /**
+     * Index of the first object of a leaf node or of the right child of an inner node.
+     */
+    private final int[] nodeStart;
+    /**
+     * Number of objects of a leaf node or 0 for inner nodes, whose left child directly follows them.
+     */
+    private final int[] nodeCount;
+    /**
+     * Number of nodes in the hierarchy.
+     */
+    private final int nodes;
+
+    /**
+     * Constructor used for the refit of an existing hierarchy.
+     */
+    private BoundingVolumeHierarchy(final SelectableObject[] objects, final double[] objectSpheres, final double[] nodeSpheres, final int[] nodeStart, final int[] nodeCount, final int nodes) {
+        this.objects = objects;
+        this.objectSpheres = objectSpheres;
+        this.nodeSpheres = nodeSpheres;
+        this.nodeStart = nodeStart;
+        this.nodeCount = nodeCount;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Builds a new hierarchy over the given objects. Objects without bounding box are skipped.
+     *
+     * @param selectableObjects the objects to be indexed.
+     * @return the new hierarchy.
+     */
+    public static BoundingVolumeHierarchy build(final Collection<SelectableObject> selectableObjects) {
+        final List<SelectableObject> objectList = new ArrayList<>(selectableObjects.size());
+        final List<double[]> sphereList = new ArrayList<>(selectableObjects.size());
+        for (SelectableObject object : selectableObjects) {
+            final double[] sphere = getSphere(object);
+            if (sphere != null) {
+                objectList.add(object);
+                sphereList.add(sphere);
+            }
+        }
+        final int count = objectList.size();
+        final Integer[] order = new Integer[count];
+        final double[] spheres = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            System.arraycopy(sphereList.get(i), 0, spheres, 4 * i, 4);
+        }
+        final int maxNodes = Math.max(1, 2 * count);
+        final int[] nodeStart = new int[maxNodes];
+        final int[] nodeCount = new int[maxNodes];
+        final double[] nodeSpheres = new double[4 * maxNodes];
+        final int nodes = count == 0 ? 0 : buildNode(order, spheres, 0, count, 0, nodeStart, nodeCount);
+
+        final SelectableObject[] objects = new SelectableObject[count];
+        final double[] objectSpheres = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            objects[i] = objectList.get(order[i]);
+            System.arraycopy(spheres, 4 * order[i], objectSpheres, 4 * i, 4);
+        }
+        final BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(objects, objectSpheres, nodeSpheres, nodeStart, nodeCount, nodes);
+        hierarchy.updateNodeSpheres();
+        return hierarchy;
+    }
+
+    /**
+     * Creates a hierarchy with the topology of this one but updated bounds, if the given objects are the same ones that are indexed by this hierarchy.
+     *
+     * @param selectableObjects the current objects mapped by their ids.
+     * @return the refitted hierarchy or null, if objects have been added or removed and the hierarchy has to be rebuilt.
+     */
+    public BoundingVolumeHierarchy refit(final Map<String, SelectableObject> selectableObjects) {
+        if (selectableObjects.size() != objects.length) {
+            return null;
+        }
+        final SelectableObject[] refittedObjects = new SelectableObject[objects.length];
+        final double[] refittedSpheres = new double[objectSpheres.length];
+        for (int i = 0; i < objects.length; i++) {
+            try {
+                refittedObjects[i] = selectableObjects.get(objects[i].getId());
+            } catch (NotAvailableException ex) {
+                return null;
+            }
+            final double[] sphere = refittedObjects[i] == null ? null : getSphere(refittedObjects[i]);
+            if (sphere == null) {
+                return null;
+            }
+            System.arraycopy(sphere, 0, refittedSpheres, 4 * i, 4);
+        }
+        final BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(refittedObjects, refittedSpheres, new double[nodeSpheres.length], nodeStart, nodeCount, nodes);
+        hierarchy.updateNodeSpheres();
+        return hierarchy;
+    }
+
+    /**
+     * Recursively splits the objects at the median of the longest axis of their centers.
+     *
+     * @return the number of nodes after creating this node and all its children.
+     */
+    private static int buildNode(final Integer[] order, final double[] spheres, final int start, final int end, final int node, final int[] nodeStart, final int[] nodeCount) {
+        if (end - start <= LEAF_SIZE) {
+            nodeStart[node] = start;
+            nodeCount[node] = end - start;
+            return node + 1;
+        }
+        final double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        final double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = start; i < end; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], spheres[4 * order[i] + axis]);
+                max[axis] = Math.max(max[axis], spheres[4 * order[i] + axis]);
+            }
+        }
+        int splitAxis = 0;
+        for (int axis = 1; axis < 3; axis++) {
+            if (max[axis] - min[axis] > max[splitAxis] - min[splitAxis]) {
+                splitAxis = axis;
+            }
+        }
+        final int axis = splitAxis;
+        Arrays.sort(order, start, end, (a, b) -> Double.compare(spheres[4 * a + axis], spheres[4 * b + axis]));
+        final int middle = (start + end) >>> 1;
+        nodeCount[node] = 0;
+        final int rightChild = buildNode(order, spheres, start, middle, node + 1, nodeStart, nodeCount);
+        nodeStart[node] = rightChild;
+        return buildNode(order, spheres, middle, end, rightChild, nodeStart, nodeCount);
+    }
+
+    /**
+     * Calculates the bounding spheres of all nodes bottom up. Children are always stored after their parents.
+     */
+    private void updateNodeSpheres() {
+        for (int node = nodes - 1; node >= 0; node--) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+            final double[] source;
+            final int[] children;
+            if (nodeCount[node] > 0) {
+                source = objectSpheres;
+                children = new int[nodeCount[node]];
+                for (int i = 0; i < children.length; i++) {
+                    children[i] = nodeStart[node] + i;
+                }
+            } else {
+                source = nodeSpheres;
+                children = new int[]{node + 1, nodeStart[node]};
+            }
+            for (int child : children) {
+                final double r = source[4 * child + 3];
+                minX = Math.min(minX, source[4 * child] - r);
+                minY = Math.min(minY, source[4 * child + 1] - r);
+                minZ = Math.min(minZ, source[4 * child + 2] - r);
+                maxX = Math.max(maxX, source[4 * child] + r);
+                maxY = Math.max(maxY, source[4 * child + 1] + r);
+                maxZ = Math.max(maxZ, source[4 * child + 2] + r);
+            }
+            nodeSpheres[4 * node] = (minX + maxX) / 2;
+            nodeSpheres[4 * node + 1] = (minY + maxY) / 2;
+            nodeSpheres[4 * node + 2] = (minZ + maxZ) / 2;
+            nodeSpheres[4 * node + 3] = Math.sqrt((maxX - minX) * (maxX - minX) + (maxY - minY) * (maxY - minY) + (maxZ - minZ) * (maxZ - minZ)) / 2;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param rayDistribution {@inheritDoc}
+     * @param distance {@inheritDoc}
+     * @param threshold {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<SelectableObject> getCandidates(final PointingRay3DFloatDistribution rayDistribution, final AbstractDistanceMeasure distance, final double threshold) {
+        final List<SelectableObject> candidates = new ArrayList<>();
+        if (nodes == 0) {
+            return candidates;
+        }
+        final double[] rays = toRayArray(rayDistribution);
+        if (rays == null) {
+            candidates.addAll(Arrays.asList(objects));
+            return candidates;
+        }
+        final int rayCount = rayDistribution.getRayCount();
+        final double pruningThreshold = threshold - PRUNING_MARGIN;
+        final int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            final int node = stack[--stackSize];
+            if (getUpperBound(nodeSpheres, node, rays, rayCount, distance, pruningThreshold) < pruningThreshold) {
+                continue;
+            }
+            if (nodeCount[node] > 0) {
+                for (int i = nodeStart[node]; i < nodeStart[node] + nodeCount[node]; i++) {
+                    if (getUpperBound(objectSpheres, i, rays, rayCount, distance, pruningThreshold) >= pruningThreshold) {
+                        candidates.add(objects[i]);
+                    }
+                }
+            } else {
+                stack[stackSize++] = nodeStart[node];
+                stack[stackSize++] = node + 1;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Converts the rays of a distribution to an array of (origin x, y, z, normalized direction x, y, z, certainty) per ray.
+     *
+     * @param rayDistribution the rays of one pointing gesture.
+     * @return the ray array or null, if a ray can give any box the maximal probability, so that nothing can be skipped.
+     */
+    static double[] toRayArray(final PointingRay3DFloatDistribution rayDistribution) {
+        final int rayCount = rayDistribution.getRayCount();
+        final double[] rays = new double[7 * rayCount];
+        for (int i = 0; i < rayCount; i++) {
+            final PointingRay3DFloat pointingRay = rayDistribution.getRay(i);
+            final Vec3DFloat origin = pointingRay.getRay().getOrigin();
+            final Vec3DFloat direction = pointingRay.getRay().getDirection();
+            final double length = Math.sqrt((double) direction.getX() * direction.getX() + direction.getY() * direction.getY() + direction.getZ() * direction.getZ());
+            rays[7 * i] = origin.getX();
+            rays[7 * i + 1] = origin.getY();
+            rays[7 * i + 2] = origin.getZ();
+            rays[7 * i + 3] = direction.getX() / length;
+            rays[7 * i + 4] = direction.getY() / length;
+            rays[7 * i + 5] = direction.getZ() / length;
+            rays[7 * i + 6] = pointingRay.getCertainty();
+            if (Math.sqrt(rays[7 * i] * rays[7 * i] + rays[7 * i + 1] * rays[7 * i + 1] + rays[7 * i + 2] * rays[7 * i + 2]) < ROOT_DISTANCE || length == 0) {
+                return null;
+            }
+        }
+        return rays;
+    }
+
+    /**
+     * Calculates the summed up upper bound of the probability of all rays for anything inside the given sphere.
+     * The sum is an upper bound for the maximum as well as for the sum of the probabilities used by the selectors.
+     *
+     * @param spheres array of spheres as (x, y, z, radius).
+     * @param index the index of the sphere in the array.
+     * @param rays the rays as created by toRayArray.
+     * @param rayCount the number of rays.
+     * @param distance the distance measure providing the upper bound of the probability.
+     * @param limit the summation stops as soon as the bound reaches this value.
+     * @return the upper bound or a value of at least limit.
+     */
+    static double getUpperBound(final double[] spheres, final int index, final double[] rays, final int rayCount, final AbstractDistanceMeasure distance, final double limit) {
+        if (limit <= 0) {
+            return limit;
+        }
+        double bound = 0;
+        for (int i = 0; i < rayCount; i++) {
+            bound += rays[7 * i + 6] * distance.maximalProbability(getMinimalAngle(spheres, index, rays, i));
+            if (bound >= limit) {
+                return bound;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Calculates the minimal angle between the direction of a ray and any point inside the given sphere as seen from the ray origin.
+     *
+     * @param spheres array of spheres as (x, y, z, radius).
+     * @param index the index of the sphere in the array.
+     * @param rays the rays as created by toRayArray.
+     * @param ray the index of the ray.
+     * @return the minimal angle in radians, which is 0 if the origin is inside the sphere.
+     */
+    static double getMinimalAngle(final double[] spheres, final int index, final double[] rays, final int ray) {
+        final double radius = spheres[4 * index + 3];
+        final double x = spheres[4 * index] - rays[7 * ray];
+        final double y = spheres[4 * index + 1] - rays[7 * ray + 1];
+        final double z = spheres[4 * index + 2] - rays[7 * ray + 2];
+        final double length = Math.sqrt(x * x + y * y + z * z);
+        if (length <= radius) {
+            return 0;
+        }
+        final double cos = (x * rays[7 * ray + 3] + y * rays[7 * ray + 4] + z * rays[7 * ray + 5]) / length;
+        return Math.max(0, Math.acos(Math.max(-1, Math.min(1, cos))) - Math.asin(radius / length));
+    }
+
+    /**
+     * Gets the bounding sphere of the bounding box of the given object.
+     *
+     * @param object the selectable object.
+     * @return the bounding sphere as (x, y, z, radius) or null, if the bounding box is not available.
+     */
+    static double[] getSphere(final SelectableObject object) {
+        try {
+            final BoundingBox box = object.getBoundingBox();
+            if (box == null) {
+                throw new NotAvailableException("BoundingBox");
+            }
+            return getSphere(box);
+        } catch (NotAvailableException ex) {
+            LOGGER.debug("Skipping SelectableObject without bounding box in the bounding volume hierarchy.");
+            return null;
+        }
+    }
+
+    /**
+     * Gets the bounding sphere of the given bounding box.
+     *
+     * @param box the bounding box.
+     * @return the bounding sphere as (x, y, z, radius).
+     */
+    static double[] getSphere(final BoundingBox box) {
+        final Point3d center = box.getRootCenter();
+        return new double[]{center.x, center.y, center.z, box.getBoxVector().length() / 2};
+    }
+
+    /**
+     * Gets the number of indexed objects.
+     *
+     * @return the number of indexed objects.
+     */
+    public int size() {
+        return objects.length;
+    }
+}
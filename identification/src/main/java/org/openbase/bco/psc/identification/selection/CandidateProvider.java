@@ -0,0 +1,45 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.List;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+
+/**
+ * Interface for structures that limit the selectable objects that have to be rated for a ray distribution.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public interface CandidateProvider {
+
+    /**
+     * Gets all objects that can reach the threshold for the given ray distribution.
+     *
+     * @param rayDistribution the rays of one pointing gesture.
+     * @param distance the distance measure providing the upper bound of the probability.
+     * @param threshold the threshold the probability of an object has to reach.
+     * @return the candidate objects, which include all objects whose probability reaches the threshold.
+     */
+    public List<SelectableObject> getCandidates(final PointingRay3DFloatDistribution rayDistribution, final AbstractDistanceMeasure distance, final double threshold);
+}
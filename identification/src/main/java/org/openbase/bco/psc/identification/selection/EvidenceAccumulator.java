@@ -0,0 +1,355 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates the units selected in consecutive frames to an exponentially decayed score per user and unit, so that single noisy frames do not select
+ * units. The ray distributions do not identify the pointing user, so every ray distribution is assigned to the user whose last ray origin is closest.
+ * The accumulated units are only published if the set of units reaching the threshold or their order changes. As frames are not necessarily received
+ * while the rays do not change, <code>decay</code> has to be called periodically: it holds the selection of the users whose rays were part of the last
+ * frame and decays the scores of the users missing in it, so that units are withdrawn once nobody points at them, however long the ray extractor waits
+ * between unchanged frames.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class EvidenceAccumulator {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(EvidenceAccumulator.class);
+    /**
+     * Maximal distance in meters between the ray origins of a user in consecutive frames.
+     */
+    private static final double ASSOCIATION_DISTANCE = 0.5;
+    /**
+     * Scores below this value are removed from the active units of a user.
+     */
+    private static final float MINIMAL_SCORE = 0.001f;
+    /**
+     * Frame interval in milliseconds assumed until it is measured.
+     */
+    private static final double INITIAL_FRAME_INTERVAL = 33.0;
+    /**
+     * Minimal interval in milliseconds of the periodic decay.
+     */
+    private static final long MINIMAL_DECAY_INTERVAL = 10;
+
+    private final AbstractUnitSelector selector;
+    private final double halfLife;
+    private final float threshold;
+    private final List<UserEvidence> users = new ArrayList<>();
+    private final Map<String, Integer> unitIndices = new HashMap<>();
+    private final List<String> unitIds = new ArrayList<>();
+    /**
+     * Maximal score per unit index over all users, only valid for the units in the published candidates.
+     */
+    private float[] maximalScores = new float[16];
+    private double frameInterval = INITIAL_FRAME_INTERVAL;
+    private long lastUpdate = -1;
+    private int[] publishedUnits = new int[0];
+    private UnitProbabilityCollection publishedCollection = UnitProbabilityCollection.getDefaultInstance();
+
+    /**
+     * Creates a new accumulator.
+     *
+     * @param selector the selector rating the ray distributions of a single frame.
+     * @param halfLife the time in milliseconds after which the evidence of a frame has decayed to half of its weight.
+     * @param threshold the accumulated score a unit needs to be published.
+     */
+    public EvidenceAccumulator(final AbstractUnitSelector selector, final long halfLife, final double threshold) {
+        this.selector = selector;
+        this.halfLife = halfLife;
+        this.threshold = (float) threshold;
+    }
+
+    /**
+     * Adds the evidence of one frame and checks whether the accumulated units changed.
+     *
+     * @param pointingRays the ray distributions of the frame.
+     * @param timestamp the time of the frame in milliseconds.
+     * @return true, if the set of units reaching the threshold or their order changed since the last published collection.
+     * @throws CouldNotPerformException if the ray distributions could not be rated.
+     */
+    public synchronized boolean update(final PointingRay3DFloatDistributionCollection pointingRays, final long timestamp) throws CouldNotPerformException {
+        if (lastUpdate >= 0 && timestamp > lastUpdate) {
+            frameInterval = 0.9 * frameInterval + 0.1 * (timestamp - lastUpdate);
+        }
+        lastUpdate = timestamp;
+        final boolean[] assigned = new boolean[users.size()];
+        for (PointingRay3DFloatDistribution rayDist : pointingRays.getElementList()) {
+            if (rayDist.getRayCount() == 0) {
+                continue;
+            }
+            final double[] origin = getMeanOrigin(rayDist);
+            final int user = findUser(origin, assigned);
+            final UserEvidence evidence;
+            if (user < 0) {
+                evidence = new UserEvidence(origin, timestamp - (long) frameInterval);
+                users.add(evidence);
+            } else {
+                evidence = users.get(user);
+                assigned[user] = true;
+            }
+            evidence.frameUnitProbabilities = selector.getUnitProbabilities(rayDist);
+            evidence.update(origin, timestamp, evidence.frameUnitProbabilities);
+        }
+        for (int i = users.size() - 1; i >= 0; i--) {
+            final UserEvidence evidence = users.get(i);
+            if (i < assigned.length && !assigned[i]) {
+                evidence.frameUnitProbabilities = null;
+                evidence.decay(timestamp);
+            }
+            if (evidence.size == 0) {
+                users.remove(i);
+            }
+        }
+        return updatePublishedUnits();
+    }
+
+    /**
+     * Advances the scores of all users to the given time without a new frame. The users whose rays were part of the last frame are still pointing, as the
+     * ray extractor publishes a frame as soon as rays disappear, so the units they selected in that frame are added again. The scores of all other users
+     * decay, which withdraws the units of users that stopped pointing.
+     *
+     * @param timestamp the current time in milliseconds.
+     * @return true, if the set of units reaching the threshold or their order changed since the last published collection.
+     */
+    public synchronized boolean decay(final long timestamp) {
+        for (int i = users.size() - 1; i >= 0; i--) {
+            final UserEvidence evidence = users.get(i);
+            if (evidence.frameUnitProbabilities != null) {
+                evidence.update(evidence.origin, timestamp, evidence.frameUnitProbabilities);
+            } else {
+                evidence.decay(timestamp);
+            }
+            if (evidence.size == 0) {
+                users.remove(i);
+            }
+        }
+        return updatePublishedUnits();
+    }
+
+    /**
+     * Gets the interval in which <code>decay</code> should be called, which is a quarter of the half-life.
+     *
+     * @return the interval in milliseconds.
+     */
+    public long getDecayInterval() {
+        return Math.max(MINIMAL_DECAY_INTERVAL, (long) (halfLife / 4));
+    }
+
+    /**
+     * Gets the units reaching the threshold ordered by their accumulated score, as of the last update that returned true.
+     *
+     * @return the accumulated units.
+     */
+    public synchronized UnitProbabilityCollection getUnitProbabilities() {
+        return publishedCollection;
+    }
+
+    private int findUser(final double[] origin, final boolean[] assigned) {
+        int user = -1;
+        double minimalDistance = ASSOCIATION_DISTANCE * ASSOCIATION_DISTANCE;
+        for (int i = 0; i < assigned.length; i++) {
+            if (assigned[i]) {
+                continue;
+            }
+            final double[] last = users.get(i).origin;
+            final double x = origin[0] - last[0], y = origin[1] - last[1], z = origin[2] - last[2];
+            final double distance = x * x + y * y + z * z;
+            if (distance <= minimalDistance) {
+                minimalDistance = distance;
+                user = i;
+            }
+        }
+        return user;
+    }
+
+    private static double[] getMeanOrigin(final PointingRay3DFloatDistribution rayDist) {
+        final double[] origin = new double[3];
+        for (PointingRay3DFloat pointingRay : rayDist.getRayList()) {
+            final Vec3DFloat rayOrigin = pointingRay.getRay().getOrigin();
+            origin[0] += rayOrigin.getX() / rayDist.getRayCount();
+            origin[1] += rayOrigin.getY() / rayDist.getRayCount();
+            origin[2] += rayOrigin.getZ() / rayDist.getRayCount();
+        }
+        return origin;
+    }
+
+    private int getUnitIndex(final String id) {
+        Integer index = unitIndices.get(id);
+        if (index == null) {
+            index = unitIds.size();
+            unitIds.add(id);
+            unitIndices.put(id, index);
+        }
+        return index;
+    }
+
+    private boolean updatePublishedUnits() {
+        if (maximalScores.length < unitIds.size()) {
+            maximalScores = Arrays.copyOf(maximalScores, Math.max(unitIds.size(), 2 * maximalScores.length));
+        }
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        for (UserEvidence evidence : users) {
+            for (int i = 0; i < evidence.size; i++) {
+                final float score = evidence.scores[i];
+                if (score < threshold) {
+                    continue;
+                }
+                final int unit = evidence.units[i];
+                if (!contains(candidates, candidateCount, unit)) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * candidateCount);
+                    }
+                    candidates[candidateCount++] = unit;
+                    maximalScores[unit] = score;
+                } else if (score > maximalScores[unit]) {
+                    maximalScores[unit] = score;
+                }
+            }
+        }
+        final Integer[] order = new Integer[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            order[i] = candidates[i];
+        }
+        Arrays.sort(order, (u1, u2) -> Float.compare(maximalScores[u2], maximalScores[u1]));
+        final int[] units = new int[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            units[i] = order[i];
+        }
+        if (Arrays.equals(units, publishedUnits)) {
+            return false;
+        }
+        final UnitProbabilityCollection.Builder collection = UnitProbabilityCollection.newBuilder();
+        for (int unit : units) {
+            collection.addElement(UnitProbability.newBuilder().setId(unitIds.get(unit)).setProbability(maximalScores[unit]));
+        }
+        publishedUnits = units;
+        publishedCollection = collection.build();
+        LOGGER.debug("Accumulated units changed to " + units.length + " units reaching the threshold.");
+        return true;
+    }
+
+    private static boolean contains(final int[] values, final int size, final int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decayed scores of the active units of one user, stored in primitive arrays so that an update only costs the number of active units.
+     */
+    private final class UserEvidence {
+
+        private double[] origin;
+        /**
+         * Time the scores were last decayed to.
+         */
+        private long timestamp;
+        /**
+         * Time of the last frame with evidence of the user or of the last time its selection was held, which determines the weight of the next frame.
+         */
+        private long evidenceTimestamp;
+        private int[] units = new int[8];
+        private float[] scores = new float[8];
+        private int size;
+        /**
+         * Position of every unit index in the active units plus one, 0 if the unit is not active.
+         */
+        private int[] positions = new int[16];
+        /**
+         * Units selected by the rays of the user in the last frame, null if the user was missing in the last frame.
+         */
+        private List<UnitProbability> frameUnitProbabilities;
+
+        private UserEvidence(final double[] origin, final long timestamp) {
+            this.origin = origin;
+            this.timestamp = timestamp;
+            this.evidenceTimestamp = timestamp;
+        }
+
+        private void update(final double[] origin, final long timestamp, final List<UnitProbability> unitProbabilities) {
+            // the weight covers the time since the last evidence, even if the scores were decayed periodically in the meantime.
+            final float weight = (float) (1 - Math.pow(0.5, Math.max(0, timestamp - evidenceTimestamp) / halfLife));
+            decay(timestamp);
+            evidenceTimestamp = timestamp;
+            this.origin = origin;
+            for (UnitProbability unitProbability : unitProbabilities) {
+                final int unit = getUnitIndex(unitProbability.getId());
+                if (unit >= positions.length) {
+                    positions = Arrays.copyOf(positions, Math.max(unit + 1, 2 * positions.length));
+                }
+                int position = positions[unit] - 1;
+                if (position < 0) {
+                    if (size == units.length) {
+                        units = Arrays.copyOf(units, 2 * size);
+                        scores = Arrays.copyOf(scores, 2 * size);
+                    }
+                    position = size++;
+                    units[position] = unit;
+                    scores[position] = 0;
+                    positions[unit] = position + 1;
+                }
+                scores[position] += weight * unitProbability.getProbability();
+            }
+        }
+
+        /**
+         * Decays the scores to the given time and removes the units whose score vanished.
+         */
+        private void decay(final long timestamp) {
+            final float factor = (float) Math.pow(0.5, Math.max(0, timestamp - this.timestamp) / halfLife);
+            this.timestamp = timestamp;
+            for (int i = size - 1; i >= 0; i--) {
+                scores[i] *= factor;
+                if (scores[i] < MINIMAL_SCORE) {
+                    positions[units[i]] = 0;
+                    size--;
+                    if (i < size) {
+                        units[i] = units[size];
+                        scores[i] = scores[size];
+                        positions[units[i]] = i + 1;
+                    }
+                }
+            }
+        }
+    }
+}
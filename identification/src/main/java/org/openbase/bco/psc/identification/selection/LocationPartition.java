@@ -0,0 +1,248 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Partition of the selectable objects by the tile locations containing them. A ray distribution is only rated against the objects of the tile containing
+ * its origin, the tiles connected to it and the objects outside of all tiles. If the origin lies outside of all tiles, all objects are rated.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class LocationPartition {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(LocationPartition.class);
+    /**
+     * Horizontal distance in meters up to which objects are also assigned to tiles whose border they are close to, e.g. units mounted on a wall.
+     */
+    static final double BORDER_MARGIN = 0.3;
+    /**
+     * Vertical margin in meters by which ray origins and objects may exceed the height range of a tile.
+     */
+    static final double HEIGHT_MARGIN = 0.5;
+    /**
+     * Edge length in meters of the cells by which ray origins are cached.
+     */
+    private static final double CELL_SIZE = 0.25;
+    private static final int CACHE_SIZE = 256;
+
+    private final List<LocationWalls> locations;
+    private final List<Scope> scopes;
+    private final Scope unscoped;
+    /**
+     * Most recently used tile index per origin cell. As the ray distributions carry no person id, the cell of the ray origin identifies the tracked person.
+     */
+    private final Map<Long, Integer> locationCache = new LinkedHashMap<Long, Integer>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Creates the partition.
+     *
+     * @param locationWalls the tile locations.
+     * @param objects all selectable objects.
+     * @param connectionTypes the types of connections by which the objects of connected tiles are included, empty to only include the containing tile.
+     */
+    public LocationPartition(final Collection<LocationWalls> locationWalls, final Collection<SelectableObject> objects, final Set<ConnectionType> connectionTypes) {
+        this.locations = new ArrayList<>(locationWalls);
+        final Map<String, Integer> locationIndices = new HashMap<>();
+        final List<List<SelectableObject>> contained = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            contained.add(new ArrayList<>());
+            try {
+                locationIndices.put(locations.get(i).getId(), i);
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not add a location to the partition", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        final List<SelectableObject> outside = new ArrayList<>();
+        final Map<SelectableObject, double[]> spheres = new IdentityHashMap<>();
+        for (SelectableObject object : objects) {
+            try {
+                final double[] sphere = BoundingVolumeHierarchy.getSphere(object.getBoundingBox());
+                spheres.put(object, sphere);
+                boolean assigned = false;
+                for (int i = 0; i < locations.size(); i++) {
+                    final LocationWalls location = locations.get(i);
+                    if (location.contains(sphere[0], sphere[1], sphere[2], HEIGHT_MARGIN)
+                            || (location.isWithinHeight(sphere[2], HEIGHT_MARGIN) && location.getBorderDistance(sphere[0], sphere[1]) < BORDER_MARGIN)) {
+                        contained.get(i).add(object);
+                        assigned = true;
+                    }
+                }
+                if (!assigned) {
+                    outside.add(object);
+                }
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not add a SelectableObject to the partition", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        this.scopes = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            final Scope scope = new Scope();
+            scope.addAll(contained.get(i));
+            for (String connectedId : locations.get(i).getConnectedLocationIds(connectionTypes)) {
+                final Integer connected = locationIndices.get(connectedId);
+                if (connected != null) {
+                    scope.addAll(contained.get(connected));
+                }
+            }
+            scope.addAll(outside);
+            scope.seal(spheres);
+            scopes.add(scope);
+        }
+        this.unscoped = new Scope();
+        unscoped.addAll(objects);
+        unscoped.seal(spheres);
+    }
+
+    /**
+     * Gets the objects that are rated for a ray distribution.
+     *
+     * @param rayDistribution the rays of one pointing gesture.
+     * @return the objects in the scope of the tile containing the ray origin.
+     */
+    public List<SelectableObject> getObjects(final PointingRay3DFloatDistribution rayDistribution) {
+        return getScope(rayDistribution).objects;
+    }
+
+    /**
+     * Gets the objects that are rated for a ray distribution together with their precomputed bounding spheres.
+     *
+     * @param rayDistribution the rays of one pointing gesture.
+     * @return the scope of the tile containing the ray origin.
+     */
+    Scope getScope(final PointingRay3DFloatDistribution rayDistribution) {
+        if (rayDistribution.getRayCount() == 0) {
+            return unscoped;
+        }
+        final Ray3DFloat ray = rayDistribution.getRay(0).getRay();
+        final double x = ray.getOrigin().getX(), y = ray.getOrigin().getY(), z = ray.getOrigin().getZ();
+        final long cell = (((long) Math.floor(x / CELL_SIZE) & 0x1FFFFF) << 42) | (((long) Math.floor(y / CELL_SIZE) & 0x1FFFFF) << 21) | ((long) Math.floor(z / CELL_SIZE) & 0x1FFFFF);
+        synchronized (locationCache) {
+            final Integer cached = locationCache.get(cell);
+            // the cell may overlap several tiles, so the cached tile is only used if it still contains the origin.
+            if (cached != null && locations.get(cached).contains(x, y, z, HEIGHT_MARGIN)) {
+                return scopes.get(cached);
+            }
+        }
+        for (int i = 0; i < locations.size(); i++) {
+            if (locations.get(i).contains(x, y, z, HEIGHT_MARGIN)) {
+                synchronized (locationCache) {
+                    locationCache.put(cell, i);
+                }
+                return scopes.get(i);
+            }
+        }
+        return unscoped;
+    }
+
+    /**
+     * Removes all objects that are not in the scope of the tile containing the ray origin.
+     *
+     * @param rayDistribution the rays of one pointing gesture.
+     * @param candidates the objects to filter.
+     * @return the candidates which are in scope.
+     */
+    public List<SelectableObject> filter(final PointingRay3DFloatDistribution rayDistribution, final List<SelectableObject> candidates) {
+        final Scope scope = getScope(rayDistribution);
+        if (scope == unscoped) {
+            return candidates;
+        }
+        final List<SelectableObject> filtered = new ArrayList<>(Math.min(candidates.size(), scope.objects.size()));
+        for (SelectableObject candidate : candidates) {
+            if (scope.members.contains(candidate)) {
+                filtered.add(candidate);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Gets the number of tiles of the partition.
+     *
+     * @return the number of tiles.
+     */
+    public int size() {
+        return locations.size();
+    }
+
+    /**
+     * Objects rated for ray origins within one tile and their bounding spheres (x, y, z, radius) in the same order.
+     */
+    static final class Scope {
+
+        /**
+         * Sphere of objects without a bounding box, which contains every ray origin so that the object is never skipped.
+         */
+        private static final double[] UNBOUNDED_SPHERE = {0, 0, 0, Double.POSITIVE_INFINITY};
+
+        private final List<SelectableObject> objects = new ArrayList<>();
+        private final Set<SelectableObject> members = Collections.newSetFromMap(new IdentityHashMap<>());
+        private double[] spheres;
+
+        private void addAll(final Collection<SelectableObject> selectableObjects) {
+            for (SelectableObject object : selectableObjects) {
+                if (members.add(object)) {
+                    objects.add(object);
+                }
+            }
+        }
+
+        private void seal(final Map<SelectableObject, double[]> objectSpheres) {
+            spheres = new double[4 * objects.size()];
+            for (int i = 0; i < objects.size(); i++) {
+                final double[] sphere = objectSpheres.get(objects.get(i));
+                System.arraycopy(sphere != null ? sphere : UNBOUNDED_SPHERE, 0, spheres, 4 * i, 4);
+            }
+        }
+
+        List<SelectableObject> getObjects() {
+            return objects;
+        }
+
+        double[] getSpheres() {
+            return spheres;
+        }
+    }
+}
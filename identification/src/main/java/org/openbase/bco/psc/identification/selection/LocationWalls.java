@@ -0,0 +1,334 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.iface.Configurable;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.connection.ConnectionConfigType.ConnectionConfig.ConnectionType;
+import org.openbase.type.math.Vec3DDoubleType.Vec3DDouble;
+import org.openbase.type.spatial.ShapeType.Shape;
+
+/**
+ * Walls and floor area of a tile location. The walls are created as thin bounding boxes along the edges of its floor polygon, leaving openings where doors
+ * or passages connecting the tile are placed on an edge.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class LocationWalls implements Configurable<String, UnitConfig> {
+
+    /**
+     * Thickness of the created walls in meters.
+     */
+    private static final float WALL_THICKNESS = 0.05f;
+    /**
+     * Horizontal distance in meters up to which the bounding box of a door or passage is considered to lie within a wall.
+     */
+    private static final double OPENING_MARGIN = 0.2;
+    /**
+     * Types of connections that leave an opening in the walls.
+     */
+    private static final Set<ConnectionType> OPENING_TYPES = Collections.unmodifiableSet(EnumSet.of(ConnectionType.DOOR, ConnectionType.PASSAGE));
+
+    private UnitConfig config;
+    private List<BoundingBox> walls = Collections.emptyList();
+    /**
+     * Floor polygon in root coordinates, stored as x and y coordinates of the corners.
+     */
+    private double[] floorX = new double[0];
+    private double[] floorY = new double[0];
+    private double minZ;
+    private double maxZ;
+    /**
+     * Ids of the tiles connected to this tile, by the type of the connection.
+     */
+    private Map<ConnectionType, Set<String>> connectedLocationIds = Collections.emptyMap();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException     {@inheritDoc}
+     */
+    @Override
+    public synchronized UnitConfig applyConfigUpdate(UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        try {
+            this.config = config;
+            final UnitDataSource dataSource = UnitDataSources.getInstance();
+            Transform3D locationToRootTransform = dataSource.getUnitToRootTransform3D(config);
+            Shape shape = dataSource.getUnitShape(config);
+            float height = shape.getBoundingBox().getHeight();
+            List<Vec3DDouble> floor = shape.getFloorList();
+            List<Point3d[]> openings = getOpenings(config.getId(), locationToRootTransform, dataSource);
+            List<BoundingBox> locationWalls = new ArrayList<>(floor.size());
+            double[] rootFloorX = new double[floor.size()];
+            double[] rootFloorY = new double[floor.size()];
+            double floorZ = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < floor.size(); i++) {
+                Point3d corner = new Point3d(floor.get(i).getX(), floor.get(i).getY(), floor.get(i).getZ());
+                locationToRootTransform.transform(corner);
+                rootFloorX[i] = corner.x;
+                rootFloorY[i] = corner.y;
+                floorZ = Math.min(floorZ, corner.z);
+            }
+            for (int i = 0; i < floor.size(); i++) {
+                Vec3DDouble start = floor.get(i);
+                Vec3DDouble end = floor.get((i + 1) % floor.size());
+                double length = Math.hypot(end.getX() - start.getX(), end.getY() - start.getY());
+                if (length == 0) {
+                    continue;
+                }
+                double directionX = (end.getX() - start.getX()) / length;
+                double directionY = (end.getY() - start.getY()) / length;
+                double wallStart = 0;
+                for (double[] opening : getOpenIntervals(start, directionX, directionY, length, openings)) {
+                    addWall(locationWalls, locationToRootTransform, start, directionX, directionY, wallStart, opening[0], height);
+                    wallStart = Math.max(wallStart, opening[1]);
+                }
+                addWall(locationWalls, locationToRootTransform, start, directionX, directionY, wallStart, length, height);
+            }
+            walls = locationWalls;
+            floorX = rootFloorX;
+            floorY = rootFloorY;
+            minZ = floor.isEmpty() ? 0 : floorZ;
+            maxZ = minZ + height;
+            connectedLocationIds = getConnectedLocationIds(config.getId(), dataSource);
+            return this.config;
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not apply config update!", ex);
+        }
+    }
+
+    /**
+     * Adds the part of a floor edge between the given distances from its start as a wall.
+     */
+    private static void addWall(List<BoundingBox> locationWalls, Transform3D locationToRootTransform, Vec3DDouble start, double directionX, double directionY, double from, double to, float height) {
+        if (to - from <= 0) {
+            return;
+        }
+        Transform3D edgeTransform = new Transform3D();
+        edgeTransform.rotZ(Math.atan2(directionY, directionX));
+        edgeTransform.setTranslation(new Vector3d(start.getX() + from * directionX, start.getY() + from * directionY, start.getZ()));
+        Transform3D centerOffset = new Transform3D();
+        centerOffset.setTranslation(new Vector3d(0, -WALL_THICKNESS / 2, 0));
+        Transform3D wallTransform = new Transform3D(locationToRootTransform);
+        wallTransform.mul(edgeTransform);
+        wallTransform.mul(centerOffset);
+        locationWalls.add(new BoundingBox(wallTransform, (float) (to - from), WALL_THICKNESS, height));
+    }
+
+    /**
+     * Gets the intervals of a floor edge covered by openings, sorted by their start.
+     *
+     * @return the intervals as distances from the start of the edge, clipped to the edge.
+     */
+    private static List<double[]> getOpenIntervals(Vec3DDouble start, double directionX, double directionY, double length, List<Point3d[]> openings) {
+        List<double[]> intervals = new ArrayList<>();
+        for (Point3d[] corners : openings) {
+            double minU = Double.POSITIVE_INFINITY, maxU = Double.NEGATIVE_INFINITY;
+            double minV = Double.POSITIVE_INFINITY, maxV = Double.NEGATIVE_INFINITY;
+            for (Point3d corner : corners) {
+                double x = corner.x - start.getX(), y = corner.y - start.getY();
+                double u = x * directionX + y * directionY;
+                double v = y * directionX - x * directionY;
+                minU = Math.min(minU, u);
+                maxU = Math.max(maxU, u);
+                minV = Math.min(minV, v);
+                maxV = Math.max(maxV, v);
+            }
+            if (minV > OPENING_MARGIN || maxV < -OPENING_MARGIN || maxU <= 0 || minU >= length) {
+                continue;
+            }
+            intervals.add(new double[]{Math.max(0, minU), Math.min(length, maxU)});
+        }
+        intervals.sort((first, second) -> Double.compare(first[0], second[0]));
+        return intervals;
+    }
+
+    /**
+     * Gets the corners of the bounding boxes of the doors and passages connecting the location in location coordinates.
+     */
+    private static List<Point3d[]> getOpenings(String locationId, Transform3D locationToRootTransform, UnitDataSource dataSource) throws CouldNotPerformException, InterruptedException {
+        List<Point3d[]> openings = new ArrayList<>();
+        Transform3D rootToLocationTransform = new Transform3D(locationToRootTransform);
+        rootToLocationTransform.invert();
+        for (UnitConfig connectionConfig : dataSource.getData().getConnectionUnitConfigList()) {
+            if (!OPENING_TYPES.contains(connectionConfig.getConnectionConfig().getConnectionType())
+                    || !connectionConfig.getConnectionConfig().getTileIdList().contains(locationId)) {
+                continue;
+            }
+            try {
+                BoundingBox box = new BoundingBox(dataSource.getUnitToRootTransform3D(connectionConfig), dataSource.getUnitShape(connectionConfig).getBoundingBox());
+                Point3d[] corners = new Point3d[8];
+                for (int i = 0; i < corners.length; i++) {
+                    corners[i] = new Point3d((i & 1) * box.getWidth(), ((i >> 1) & 1) * box.getDepth(), ((i >> 2) & 1) * box.getHeight());
+                    box.getForwardTransform().transform(corners[i]);
+                    rootToLocationTransform.transform(corners[i]);
+                }
+                openings.add(corners);
+            } catch (CouldNotPerformException ex) {
+                // connections without placement or shape leave no opening.
+            }
+        }
+        return openings;
+    }
+
+    private static Map<ConnectionType, Set<String>> getConnectedLocationIds(String locationId, UnitDataSource dataSource) throws CouldNotPerformException {
+        Map<ConnectionType, Set<String>> connected = new EnumMap<>(ConnectionType.class);
+        for (UnitConfig connectionConfig : dataSource.getData().getConnectionUnitConfigList()) {
+            List<String> tileIds = connectionConfig.getConnectionConfig().getTileIdList();
+            if (!tileIds.contains(locationId)) {
+                continue;
+            }
+            Set<String> ids = connected.computeIfAbsent(connectionConfig.getConnectionConfig().getConnectionType(), type -> new HashSet<>());
+            for (String tileId : tileIds) {
+                if (!tileId.equals(locationId)) {
+                    ids.add(tileId);
+                }
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws NotAvailableException {@inheritDoc}
+     */
+    @Override
+    public synchronized String getId() throws NotAvailableException {
+        if (config == null) {
+            throw new NotAvailableException("Id");
+        }
+        return config.getId();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     *
+     * @throws NotAvailableException {@inheritDoc}
+     */
+    @Override
+    public synchronized UnitConfig getConfig() throws NotAvailableException {
+        if (config == null) {
+            throw new NotAvailableException("Config");
+        }
+        return config;
+    }
+
+    /**
+     * Gets the walls of the location.
+     *
+     * @return the walls as bounding boxes in root coordinates.
+     */
+    public synchronized List<BoundingBox> getWalls() {
+        return walls;
+    }
+
+    /**
+     * Checks whether a point in root coordinates lies above the floor polygon of the location and within the given vertical margin of its height range.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @param margin the vertical margin in meters.
+     * @return true if the point lies within the location.
+     */
+    public synchronized boolean contains(double x, double y, double z, double margin) {
+        if (!isWithinHeight(z, margin)) {
+            return false;
+        }
+        boolean inside = false;
+        for (int i = 0, j = floorX.length - 1; i < floorX.length; j = i++) {
+            if ((floorY[i] > y) != (floorY[j] > y) && x < floorX[j] + (y - floorY[j]) * (floorX[i] - floorX[j]) / (floorY[i] - floorY[j])) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Checks whether a height in root coordinates lies within the given margin of the height range of the location.
+     *
+     * @param z the z coordinate.
+     * @param margin the vertical margin in meters.
+     * @return true if the height lies within the location.
+     */
+    public synchronized boolean isWithinHeight(double z, double margin) {
+        return z >= minZ - margin && z <= maxZ + margin;
+    }
+
+    /**
+     * Gets the horizontal distance of a point in root coordinates to the closest edge of the floor polygon.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @return the distance in meters or infinity if the location has no floor polygon.
+     */
+    public synchronized double getBorderDistance(double x, double y) {
+        double minimal = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = floorX.length - 1; i < floorX.length; j = i++) {
+            final double ex = floorX[i] - floorX[j], ey = floorY[i] - floorY[j];
+            final double lengthSquared = ex * ex + ey * ey;
+            final double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - floorX[j]) * ex + (y - floorY[j]) * ey) / lengthSquared));
+            minimal = Math.min(minimal, Math.hypot(x - floorX[j] - t * ex, y - floorY[j] - t * ey));
+        }
+        return minimal;
+    }
+
+    /**
+     * Gets the ids of the tiles connected to this tile by one of the given connection types.
+     *
+     * @param connectionTypes the types of connections which are followed.
+     * @return the ids of the connected tiles.
+     */
+    public synchronized Set<String> getConnectedLocationIds(Set<ConnectionType> connectionTypes) {
+        final Set<String> ids = new HashSet<>();
+        for (ConnectionType connectionType : connectionTypes) {
+            ids.addAll(connectedLocationIds.getOrDefault(connectionType, Collections.emptySet()));
+        }
+        return ids;
+    }
+}
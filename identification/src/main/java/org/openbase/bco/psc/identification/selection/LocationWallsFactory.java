@@ -0,0 +1,75 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.InstantiationException;
+import org.openbase.jul.pattern.Factory;
+import org.slf4j.LoggerFactory;
+import org.openbase.type.domotic.unit.UnitConfigType;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class LocationWallsFactory implements Factory<LocationWalls, UnitConfigType.UnitConfig> {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(LocationWallsFactory.class);
+    public static LocationWallsFactory instance;
+
+    private LocationWallsFactory() {
+    }
+
+    /**
+     * Method returns a new singelton instance of the location walls factory.
+     *
+     * @return
+     */
+    public synchronized static LocationWallsFactory getInstance() {
+        if (instance == null) {
+            instance = new LocationWallsFactory();
+        }
+        return instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws InstantiationException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public LocationWalls newInstance(UnitConfigType.UnitConfig config) throws InstantiationException, InterruptedException {
+        try {
+            LocationWalls walls = new LocationWalls();
+            walls.applyConfigUpdate(config);
+            LOGGER.info("Created walls for location " + config.getLabel() + " with id " + config.getId());
+            return walls;
+        } catch (CouldNotPerformException ex) {
+            throw new InstantiationException("LocationWallsInstance", ex);
+        }
+    }
+
+}
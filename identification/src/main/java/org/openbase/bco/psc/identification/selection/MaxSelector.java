@@ -31,18 +31,20 @@ import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay
  */
 public class MaxSelector extends AbstractUnitSelector {
 
-    private final AbstractDistanceMeasure distance;
-
     public MaxSelector(double threshold, AbstractDistanceMeasure distance) throws InstantiationException {
-        super(threshold);
-        this.distance = distance;
+        super(threshold, distance);
     }
 
     @Override
     protected float calculateProbability(BoundingBox boundingBox, PointingRay3DFloatDistribution pointingRays) {
         float p = pointingRays.getRayList().stream()
                 .map((pointingRay) -> (float) (distance.probability(pointingRay.getRay(), boundingBox) * pointingRay.getCertainty()))
-                .reduce(0.0f, (accumulator, _item) -> Math.max(accumulator, _item));
+                .reduce(0.0f, this::accumulate);
         return p;
     }
+
+    @Override
+    protected float accumulate(float accumulator, float rayProbability) {
+        return Math.max(accumulator, rayProbability);
+    }
 }
@@ -0,0 +1,169 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.List;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.InstantiationException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector that only rates units which are not occluded by walls or other units.
+ * If a ray directly hits a unit before anything else, only this unit is rated for the ray. Otherwise every unit is rated whose center can be seen from
+ * the ray origin without passing through a wall or another unit. The rays of a distribution are combined by their maximum.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class NearestHitSelector extends AbstractUnitSelector {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(NearestHitSelector.class);
+
+    private volatile Scene scene;
+
+    public NearestHitSelector(double threshold, AbstractDistanceMeasure distance) throws InstantiationException {
+        super(threshold, distance);
+        this.scene = new Scene(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        getSelectedObjectRegistry().addObserver((source, data) -> updateScene());
+        getLocationRegistry().addObserver((source, data) -> updateScene());
+    }
+
+    private synchronized void updateScene() {
+        final List<String> ids = new ArrayList<>();
+        final List<BoundingBox> boxes = new ArrayList<>();
+        for (SelectableObject object : getSelectedObjectRegistry().getEntries()) {
+            try {
+                final String id = object.getId();
+                final BoundingBox box = object.getBoundingBox();
+                if (box != null) {
+                    ids.add(id);
+                    boxes.add(box);
+                }
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not add a SelectableObject to the scene", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        final List<BoundingBox> walls = new ArrayList<>();
+        for (LocationWalls locationWalls : getLocationRegistry().getEntries()) {
+            walls.addAll(locationWalls.getWalls());
+        }
+        scene = new Scene(ids, boxes, walls);
+        invalidateRayResultCache();
+        LOGGER.debug("Rebuilt scene with " + ids.size() + " units and " + walls.size() + " walls.");
+    }
+
+    @Override
+    protected UnitRanking rank(PointingRay3DFloatDistribution rayDist) throws CouldNotPerformException {
+        final Scene currentScene = scene;
+        final float[] probabilities = new float[currentScene.ids.length];
+        final double[] rays = BoundingVolumeHierarchy.toRayArray(rayDist);
+        for (int i = 0; i < rayDist.getRayCount(); i++) {
+            rateRay(currentScene, rayDist.getRay(i), rays, i, probabilities);
+        }
+        final UnitRanking ranking = new UnitRanking(getThreshold(), getTopK());
+        for (int i = 0; i < probabilities.length; i++) {
+            ranking.offer(currentScene.ids[i], probabilities[i]);
+        }
+        return ranking;
+    }
+
+    /**
+     * Rates all visible units for a single ray and keeps the maximal probability per unit.
+     *
+     * @param rays the rays of the distribution as created by BoundingVolumeHierarchy.toRayArray or null, if no unit can be skipped by its angle.
+     */
+    private void rateRay(final Scene currentScene, final PointingRay3DFloat pointingRay, final double[] rays, final int rayIndex, final float[] probabilities) {
+        final Ray3DFloat ray = pointingRay.getRay();
+        final double ox = ray.getOrigin().getX(), oy = ray.getOrigin().getY(), oz = ray.getOrigin().getZ();
+        final int hit = currentScene.caster.castRay(ox, oy, oz, ray.getDirection().getX(), ray.getDirection().getY(), ray.getDirection().getZ(), Double.POSITIVE_INFINITY);
+        if (hit >= 0 && hit < currentScene.ids.length) {
+            probabilities[hit] = accumulate(probabilities[hit], (float) (distance.probability(ray, currentScene.boxes[hit]) * pointingRay.getCertainty()));
+            return;
+        }
+        final double limit = getThreshold() - BoundingVolumeHierarchy.PRUNING_MARGIN;
+        for (int i = 0; i < currentScene.ids.length; i++) {
+            if (rays != null && pointingRay.getCertainty() * distance.maximalProbability(BoundingVolumeHierarchy.getMinimalAngle(currentScene.spheres, i, rays, rayIndex)) < limit) {
+                continue;
+            }
+            final float probability = (float) (distance.probability(ray, currentScene.boxes[i]) * pointingRay.getCertainty());
+            if (probability < getThreshold() || probability <= probabilities[i]) {
+                continue;
+            }
+            // the line of sight ends where it enters the bounding sphere of the unit, so walls the unit is mounted on do not occlude it.
+            final double x = currentScene.spheres[4 * i] - ox, y = currentScene.spheres[4 * i + 1] - oy, z = currentScene.spheres[4 * i + 2] - oz;
+            final double length = Math.sqrt(x * x + y * y + z * z);
+            final double fraction = length <= currentScene.spheres[4 * i + 3] ? 0 : 1 - currentScene.spheres[4 * i + 3] / length;
+            if (fraction == 0 || !currentScene.caster.isOccluded(ox, oy, oz, currentScene.spheres[4 * i], currentScene.spheres[4 * i + 1], currentScene.spheres[4 * i + 2], fraction, i)) {
+                probabilities[i] = accumulate(probabilities[i], probability);
+            }
+        }
+    }
+
+    @Override
+    protected float calculateProbability(BoundingBox boundingBox, PointingRay3DFloatDistribution pointingRays) {
+        return pointingRays.getRayList().stream()
+                .map((pointingRay) -> (float) (distance.probability(pointingRay.getRay(), boundingBox) * pointingRay.getCertainty()))
+                .reduce(0.0f, this::accumulate);
+    }
+
+    @Override
+    protected float accumulate(float accumulator, float rayProbability) {
+        return Math.max(accumulator, rayProbability);
+    }
+
+    /**
+     * Immutable ray casting state of the units and walls.
+     */
+    private static final class Scene {
+
+        private final String[] ids;
+        private final BoundingBox[] boxes;
+        /**
+         * Bounding spheres (x, y, z, radius) of the units.
+         */
+        private final double[] spheres;
+        /**
+         * Ray caster over the units followed by the walls, so that indices below the number of units refer to units.
+         */
+        private final RayCaster caster;
+
+        private Scene(final List<String> ids, final List<BoundingBox> boxes, final List<BoundingBox> walls) {
+            this.ids = ids.toArray(new String[ids.size()]);
+            this.boxes = boxes.toArray(new BoundingBox[boxes.size()]);
+            this.spheres = new double[4 * boxes.size()];
+            for (int i = 0; i < boxes.size(); i++) {
+                System.arraycopy(BoundingVolumeHierarchy.getSphere(boxes.get(i)), 0, spheres, 4 * i, 4);
+            }
+            final List<BoundingBox> occluders = new ArrayList<>(boxes);
+            occluders.addAll(walls);
+            this.caster = new RayCaster(occluders);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.List;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+/**
+ * Immutable bounding volume hierarchy over oriented bounding boxes for ray casting.
+ * The nodes are axis aligned boxes in root coordinates, the boxes themselves are tested exactly with the slab test in their center coordinates.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class RayCaster {
+
+    /**
+     * Maximal number of boxes in a leaf node.
+     */
+    private static final int LEAF_SIZE = 4;
+
+    private final int size;
+    /**
+     * Transforms from root to box center coordinates as rows of a 3x4 matrix per box in leaf order.
+     */
+    private final double[] transforms;
+    /**
+     * Half extents per box in leaf order.
+     */
+    private final double[] halfExtents;
+    /**
+     * Index of each box in leaf order in the list the caster was built from.
+     */
+    private final int[] indices;
+    /**
+     * Axis aligned bounds (min x, y, z, max x, y, z) of the nodes.
+     */
+    private final double[] nodeBounds;
+    /**
+     * Index of the first box of a leaf node or of the right child of an inner node.
+     */
+    private final int[] nodeStart;
+    /**
+     * Number of boxes of a leaf node or 0 for inner nodes, whose left child directly follows them.
+     */
+    private final int[] nodeCount;
+    private final int nodes;
+
+    /**
+     * Builds a new caster over the given boxes.
+     *
+     * @param boxes the bounding boxes, which are referred to by their index in this list.
+     */
+    public RayCaster(final List<BoundingBox> boxes) {
+        size = boxes.size();
+        final double[] boxTransforms = new double[12 * size];
+        final double[] boxHalfExtents = new double[3 * size];
+        final double[] boxBounds = new double[6 * size];
+        final Matrix4d matrix = new Matrix4d();
+        final Point3d corner = new Point3d();
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            final BoundingBox box = boxes.get(i);
+            box.getReverseCenterTransform().get(matrix);
+            boxTransforms[12 * i] = matrix.m00;
+            boxTransforms[12 * i + 1] = matrix.m01;
+            boxTransforms[12 * i + 2] = matrix.m02;
+            boxTransforms[12 * i + 3] = matrix.m03;
+            boxTransforms[12 * i + 4] = matrix.m10;
+            boxTransforms[12 * i + 5] = matrix.m11;
+            boxTransforms[12 * i + 6] = matrix.m12;
+            boxTransforms[12 * i + 7] = matrix.m13;
+            boxTransforms[12 * i + 8] = matrix.m20;
+            boxTransforms[12 * i + 9] = matrix.m21;
+            boxTransforms[12 * i + 10] = matrix.m22;
+            boxTransforms[12 * i + 11] = matrix.m23;
+            boxHalfExtents[3 * i] = box.getWidth() / 2.0;
+            boxHalfExtents[3 * i + 1] = box.getDepth() / 2.0;
+            boxHalfExtents[3 * i + 2] = box.getHeight() / 2.0;
+            final Transform3D forward = box.getReverseCenterTransform();
+            forward.invert();
+            Arrays.fill(boxBounds, 6 * i, 6 * i + 3, Double.MAX_VALUE);
+            Arrays.fill(boxBounds, 6 * i + 3, 6 * i + 6, -Double.MAX_VALUE);
+            for (int c = 0; c < 8; c++) {
+                corner.set((c & 1) == 0 ? -boxHalfExtents[3 * i] : boxHalfExtents[3 * i],
+                        (c & 2) == 0 ? -boxHalfExtents[3 * i + 1] : boxHalfExtents[3 * i + 1],
+                        (c & 4) == 0 ? -boxHalfExtents[3 * i + 2] : boxHalfExtents[3 * i + 2]);
+                forward.transform(corner);
+                boxBounds[6 * i] = Math.min(boxBounds[6 * i], corner.x);
+                boxBounds[6 * i + 1] = Math.min(boxBounds[6 * i + 1], corner.y);
+                boxBounds[6 * i + 2] = Math.min(boxBounds[6 * i + 2], corner.z);
+                boxBounds[6 * i + 3] = Math.max(boxBounds[6 * i + 3], corner.x);
+                boxBounds[6 * i + 4] = Math.max(boxBounds[6 * i + 4], corner.y);
+                boxBounds[6 * i + 5] = Math.max(boxBounds[6 * i + 5], corner.z);
+            }
+        }
+        final int maxNodes = Math.max(1, 2 * size);
+        nodeStart = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+        nodeBounds = new double[6 * maxNodes];
+        nodes = size == 0 ? 0 : buildNode(order, boxBounds, 0, size, 0);
+
+        transforms = new double[12 * size];
+        halfExtents = new double[3 * size];
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = order[i];
+            System.arraycopy(boxTransforms, 12 * order[i], transforms, 12 * i, 12);
+            System.arraycopy(boxHalfExtents, 3 * order[i], halfExtents, 3 * i, 3);
+        }
+    }
+
+    /**
+     * Recursively splits the boxes at the median of the longest axis of their bound centers and stores the bounds of the nodes.
+     *
+     * @return the number of nodes after creating this node and all its children.
+     */
+    private int buildNode(final Integer[] order, final double[] boxBounds, final int start, final int end, final int node) {
+        final double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = start; i < end; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], boxBounds[6 * order[i] + axis]);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], boxBounds[6 * order[i] + axis + 3]);
+            }
+        }
+        System.arraycopy(bounds, 0, nodeBounds, 6 * node, 6);
+        if (end - start <= LEAF_SIZE) {
+            nodeStart[node] = start;
+            nodeCount[node] = end - start;
+            return node + 1;
+        }
+        int splitAxis = 0;
+        for (int axis = 1; axis < 3; axis++) {
+            if (bounds[axis + 3] - bounds[axis] > bounds[splitAxis + 3] - bounds[splitAxis]) {
+                splitAxis = axis;
+            }
+        }
+        final int axis = splitAxis;
+        Arrays.sort(order, start, end, (a, b) -> Double.compare(boxBounds[6 * a + axis] + boxBounds[6 * a + axis + 3], boxBounds[6 * b + axis] + boxBounds[6 * b + axis + 3]));
+        final int middle = (start + end) >>> 1;
+        nodeCount[node] = 0;
+        final int rightChild = buildNode(order, boxBounds, start, middle, node + 1);
+        nodeStart[node] = rightChild;
+        return buildNode(order, boxBounds, middle, end, rightChild);
+    }
+
+    /**
+     * Slab test of the ray against the axis aligned bounds of a node.
+     * Axes the ray is parallel to have an infinite inverse direction component and are checked separately, as an origin on the bounds would result in NaN.
+     *
+     * @return the entry distance or infinity, if the node is missed within the maximal distance.
+     */
+    private double intersectNode(final int node, final double ox, final double oy, final double oz, final double ix, final double iy, final double iz, final double maxDistance) {
+        double entry = 0;
+        double exit = maxDistance;
+        if (Double.isInfinite(ix)) {
+            if (ox < nodeBounds[6 * node] || ox > nodeBounds[6 * node + 3]) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            final double x1 = (nodeBounds[6 * node] - ox) * ix, x2 = (nodeBounds[6 * node + 3] - ox) * ix;
+            entry = Math.max(entry, Math.min(x1, x2));
+            exit = Math.min(exit, Math.max(x1, x2));
+        }
+        if (Double.isInfinite(iy)) {
+            if (oy < nodeBounds[6 * node + 1] || oy > nodeBounds[6 * node + 4]) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            final double y1 = (nodeBounds[6 * node + 1] - oy) * iy, y2 = (nodeBounds[6 * node + 4] - oy) * iy;
+            entry = Math.max(entry, Math.min(y1, y2));
+            exit = Math.min(exit, Math.max(y1, y2));
+        }
+        if (Double.isInfinite(iz)) {
+            if (oz < nodeBounds[6 * node + 2] || oz > nodeBounds[6 * node + 5]) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else {
+            final double z1 = (nodeBounds[6 * node + 2] - oz) * iz, z2 = (nodeBounds[6 * node + 5] - oz) * iz;
+            entry = Math.max(entry, Math.min(z1, z2));
+            exit = Math.min(exit, Math.max(z1, z2));
+        }
+        return entry <= exit ? entry : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Slab test of the ray against the box with the given leaf order position in its center coordinates.
+     *
+     * @return the entry distance, which is negative if the origin is inside the box, or NaN if the box is missed.
+     */
+    private double intersectBox(final int i, final double ox, final double oy, final double oz, final double dx, final double dy, final double dz) {
+        double entry = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            final int row = 12 * i + 4 * axis;
+            final double origin = transforms[row] * ox + transforms[row + 1] * oy + transforms[row + 2] * oz + transforms[row + 3];
+            final double direction = transforms[row] * dx + transforms[row + 1] * dy + transforms[row + 2] * dz;
+            final double extent = halfExtents[3 * i + axis];
+            if (direction == 0) {
+                if (origin < -extent || origin > extent) {
+                    return Double.NaN;
+                }
+                continue;
+            }
+            final double t1 = (-extent - origin) / direction;
+            final double t2 = (extent - origin) / direction;
+            entry = Math.max(entry, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return entry <= exit && exit >= 0 ? entry : Double.NaN;
+    }
+
+    /**
+     * Finds the first box hit by the ray. Boxes containing the ray origin are ignored.
+     *
+     * @param ox x coordinate of the ray origin.
+     * @param oy y coordinate of the ray origin.
+     * @param oz z coordinate of the ray origin.
+     * @param dx x coordinate of the ray direction.
+     * @param dy y coordinate of the ray direction.
+     * @param dz z coordinate of the ray direction.
+     * @param maxDistance the maximal distance in multiples of the direction vector.
+     * @return the index of the first box hit or -1, if no box is hit.
+     */
+    public int castRay(final double ox, final double oy, final double oz, final double dx, final double dy, final double dz, final double maxDistance) {
+        if (nodes == 0) {
+            return -1;
+        }
+        final double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        double nearest = maxDistance;
+        int hit = -1;
+        final int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            final int node = stack[--stackSize];
+            if (intersectNode(node, ox, oy, oz, ix, iy, iz, nearest) > nearest) {
+                continue;
+            }
+            if (nodeCount[node] > 0) {
+                for (int i = nodeStart[node]; i < nodeStart[node] + nodeCount[node]; i++) {
+                    final double entry = intersectBox(i, ox, oy, oz, dx, dy, dz);
+                    if (entry >= 0 && entry < nearest) {
+                        nearest = entry;
+                        hit = indices[i];
+                    }
+                }
+            } else {
+                // visit the nearer child first, so that the farther one can be skipped once a closer hit is found.
+                final double leftEntry = intersectNode(node + 1, ox, oy, oz, ix, iy, iz, nearest);
+                final double rightEntry = intersectNode(nodeStart[node], ox, oy, oz, ix, iy, iz, nearest);
+                if (leftEntry <= rightEntry) {
+                    stack[stackSize++] = nodeStart[node];
+                    stack[stackSize++] = node + 1;
+                } else {
+                    stack[stackSize++] = node + 1;
+                    stack[stackSize++] = nodeStart[node];
+                }
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * Checks whether any box is entered on the segment between the origin and the given fraction of the way to the target.
+     * Boxes containing the origin and the box with the ignored index are not considered.
+     *
+     * @param ox x coordinate of the origin.
+     * @param oy y coordinate of the origin.
+     * @param oz z coordinate of the origin.
+     * @param tx x coordinate of the target.
+     * @param ty y coordinate of the target.
+     * @param tz z coordinate of the target.
+     * @param fraction the fraction of the segment that is checked.
+     * @param ignoredIndex index of a box that is not considered or -1.
+     * @return true, if a box is entered on the segment.
+     */
+    public boolean isOccluded(final double ox, final double oy, final double oz, final double tx, final double ty, final double tz, final double fraction, final int ignoredIndex) {
+        if (nodes == 0) {
+            return false;
+        }
+        final double dx = tx - ox, dy = ty - oy, dz = tz - oz;
+        final double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        final int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            final int node = stack[--stackSize];
+            if (intersectNode(node, ox, oy, oz, ix, iy, iz, fraction) > fraction) {
+                continue;
+            }
+            if (nodeCount[node] > 0) {
+                for (int i = nodeStart[node]; i < nodeStart[node] + nodeCount[node]; i++) {
+                    if (indices[i] == ignoredIndex) {
+                        continue;
+                    }
+                    final double entry = intersectBox(i, ox, oy, oz, dx, dy, dz);
+                    if (entry >= 0 && entry <= fraction) {
+                        return true;
+                    }
+                }
+            } else {
+                stack[stackSize++] = nodeStart[node];
+                stack[stackSize++] = node + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of boxes.
+     *
+     * @return the number of boxes.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,213 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Least recently used cache of the units ranked for a ray distribution. The origins, directions and certainties of the rays are quantized, so that a
+ * pointing gesture held still reuses the ranking of the previous frame instead of rating all objects again.
+ * The cache has to be invalidated whenever the rating could change, i.e. if the selectable objects, the locations or the selection parameters change.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class RayResultCache {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(RayResultCache.class);
+    /**
+     * Interval in milliseconds in which the hit ratio is logged.
+     */
+    private static final long STATISTICS_INTERVAL = 60000;
+
+    private final int maxSize;
+    private final double originResolution;
+    private final double directionResolution;
+    private final Map<Key, List<UnitProbability>> cache;
+    /**
+     * Incremented on every invalidation, so that rankings computed before an invalidation are not cached afterwards.
+     */
+    private long generation;
+    private long hits;
+    private long misses;
+    private long intervalHits;
+    private long intervalMisses;
+    private long intervalStart = System.currentTimeMillis();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximal number of cached ray distributions.
+     * @param originResolution the edge length in meters of the cells by which the ray origins are quantized.
+     * @param directionResolution the step by which the components of the normalized ray directions and the certainties are quantized.
+     */
+    public RayResultCache(final int maxSize, final double originResolution, final double directionResolution) {
+        this.maxSize = maxSize;
+        this.originResolution = originResolution;
+        this.directionResolution = directionResolution;
+        this.cache = new LinkedHashMap<Key, List<UnitProbability>>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<UnitProbability>> eldest) {
+                return size() > RayResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Quantizes a ray distribution to its cache key.
+     *
+     * @param rayDist the ray distribution.
+     * @return the key of all ray distributions within the same quantization cells.
+     */
+    public Key getKey(final PointingRay3DFloatDistribution rayDist) {
+        final int[] values = new int[7 * rayDist.getRayCount()];
+        int index = 0;
+        for (PointingRay3DFloat pointingRay : rayDist.getRayList()) {
+            final Ray3DFloat ray = pointingRay.getRay();
+            final double dx = ray.getDirection().getX(), dy = ray.getDirection().getY(), dz = ray.getDirection().getZ();
+            final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            final double scale = length == 0 ? 0 : 1 / length;
+            values[index++] = quantize(ray.getOrigin().getX(), originResolution);
+            values[index++] = quantize(ray.getOrigin().getY(), originResolution);
+            values[index++] = quantize(ray.getOrigin().getZ(), originResolution);
+            values[index++] = quantize(dx * scale, directionResolution);
+            values[index++] = quantize(dy * scale, directionResolution);
+            values[index++] = quantize(dz * scale, directionResolution);
+            values[index++] = quantize(pointingRay.getCertainty(), directionResolution);
+        }
+        return new Key(values);
+    }
+
+    private static int quantize(final double value, final double resolution) {
+        return (int) Math.floor(value / resolution);
+    }
+
+    /**
+     * Gets the generation of the cache, which has to be passed to put after the ranking was computed.
+     *
+     * @return the current generation.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the cached ranking of a ray distribution and counts the lookup as hit or miss.
+     *
+     * @param key the key of the ray distribution.
+     * @return the ranked units or null, if the ray distribution is not cached.
+     */
+    public synchronized List<UnitProbability> get(final Key key) {
+        final List<UnitProbability> rankedUnits = cache.get(key);
+        if (rankedUnits == null) {
+            misses++;
+            intervalMisses++;
+        } else {
+            hits++;
+            intervalHits++;
+        }
+        logStatistics();
+        return rankedUnits;
+    }
+
+    /**
+     * Caches the ranking of a ray distribution, unless the cache was invalidated since the ranking was started.
+     *
+     * @param key the key of the ray distribution.
+     * @param rankedUnits the ranked units.
+     * @param generation the generation of the cache before the ranking was started.
+     */
+    public synchronized void put(final Key key, final List<UnitProbability> rankedUnits, final long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        cache.put(key, Collections.unmodifiableList(rankedUnits));
+    }
+
+    /**
+     * Removes all cached rankings.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the ratio of lookups that were answered from the cache since its creation.
+     *
+     * @return the hit ratio or 0, if no lookup was done yet.
+     */
+    public synchronized double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    private void logStatistics() {
+        final long now = System.currentTimeMillis();
+        if (now - intervalStart < STATISTICS_INTERVAL) {
+            return;
+        }
+        final long lookups = intervalHits + intervalMisses;
+        LOGGER.info(String.format("Ray result cache: %d lookups, hit ratio %.3f (total %.3f), %d of %d entries.",
+                lookups, (double) intervalHits / lookups, getHitRatio(), cache.size(), maxSize));
+        intervalHits = 0;
+        intervalMisses = 0;
+        intervalStart = now;
+    }
+
+    /**
+     * Quantized values of all rays of a distribution.
+     */
+    public static final class Key {
+
+        private final int[] values;
+        private final int hash;
+
+        private Key(final int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && hash == ((Key) obj).hash && Arrays.equals(values, ((Key) obj).values);
+        }
+    }
+}
@@ -24,15 +24,11 @@ package org.openbase.bco.psc.identification.selection;
  */
 
 import java.util.Objects;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import javax.media.j3d.Transform3D;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
-import org.openbase.bco.registry.remote.Registries;
-import org.openbase.bco.registry.unit.lib.UnitRegistry;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.iface.Configurable;
@@ -47,8 +43,36 @@ public class SelectableObject implements Configurable<String, UnitConfig>, Abstr
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(SelectableObject.class);
 
-    private UnitConfig config;
-    private BoundingBox boundingBox;
+    /**
+     * Written only by config updates and read without locking, so that rating does not contend with the registry synchronization.
+     */
+    private volatile UnitConfig config;
+    private volatile BoundingBox boundingBox;
+    /**
+     * Cache the bounding box is taken from on the first config update, or null if it is always computed.
+     */
+    private final BoundingBoxCache boundingBoxCache;
+    /**
+     * Loader providing the bounding boxes loaded in advance, or null if they are loaded on demand.
+     */
+    private final BoundingBoxLoader boundingBoxLoader;
+    /**
+     * True if the bounding box was taken from the cache and has not been compared to the registry yet.
+     */
+    private boolean cached;
+    /**
+     * Checksum of the placement of the unit and its locations the bounding box was computed for.
+     */
+    private long placementChecksum;
+
+    public SelectableObject() {
+        this(null, null);
+    }
+
+    public SelectableObject(final BoundingBoxCache boundingBoxCache, final BoundingBoxLoader boundingBoxLoader) {
+        this.boundingBoxCache = boundingBoxCache;
+        this.boundingBoxLoader = boundingBoxLoader;
+    }
 
     /**
      * {@inheritDoc}
@@ -62,13 +86,90 @@ public class SelectableObject implements Configurable<String, UnitConfig>, Abstr
      */
     @Override
     public synchronized UnitConfig applyConfigUpdate(UnitConfig config) throws CouldNotPerformException, InterruptedException {
-        try {
+        final long currentPlacementChecksum = BoundingBoxCache.getPlacementChecksum(config);
+        if (this.config != null && placementChecksum == currentPlacementChecksum) {
+            // the bounding box only depends on the placement of the unit and its locations.
             this.config = config;
-            Transform3D unitToRootTransform = Registries.getUnitRegistry(true).getUnitToRootTransform3D(config).get(UnitRegistry.RCT_TIMEOUT, TimeUnit.MILLISECONDS);
-            AxisAlignedBoundingBox3DFloat aabb = Registries.getUnitRegistry().getUnitShapeByUnitConfig(config).getBoundingBox();
-            boundingBox = new BoundingBox(unitToRootTransform, aabb);
-            return this.config;
-        } catch (TimeoutException | ExecutionException | CancellationException ex) {
+            return config;
+        }
+        placementChecksum = currentPlacementChecksum;
+        final BoundingBox cachedBoundingBox = this.config == null && boundingBoxCache != null ? boundingBoxCache.get(config) : null;
+        if (cachedBoundingBox != null) {
+            boundingBox = cachedBoundingBox;
+            cached = true;
+        } else {
+            boundingBox = computeBoundingBox(config);
+            cached = false;
+        }
+        this.config = config;
+        return config;
+    }
+
+    /**
+     * Computes the bounding box again, if the placement of one of the locations of the unit changed. Such changes do not change the config of the unit
+     * and are therefore not applied by the synchronizer.
+     *
+     * @return true if the bounding box was computed again.
+     * @throws CouldNotPerformException if the bounding box could not be computed.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    public synchronized boolean refreshPlacement() throws CouldNotPerformException, InterruptedException {
+        if (config == null) {
+            return false;
+        }
+        final long currentPlacementChecksum = BoundingBoxCache.getPlacementChecksum(config);
+        if (placementChecksum == currentPlacementChecksum) {
+            return false;
+        }
+        placementChecksum = currentPlacementChecksum;
+        boundingBox = computeBoundingBox(config);
+        cached = false;
+        return true;
+    }
+
+    /**
+     * Replaces a bounding box taken from the cache by the one computed from the registry.
+     *
+     * @return true if the computed bounding box differs from the cached one.
+     * @throws CouldNotPerformException if the bounding box could not be computed.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    public synchronized boolean reconcile() throws CouldNotPerformException, InterruptedException {
+        if (!cached) {
+            return false;
+        }
+        final BoundingBox computedBoundingBox = computeBoundingBox(config);
+        cached = false;
+        if (computedBoundingBox.equals(boundingBox)) {
+            return false;
+        }
+        boundingBox = computedBoundingBox;
+        return true;
+    }
+
+    private BoundingBox computeBoundingBox(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        final BoundingBox computedBoundingBox = boundingBoxLoader != null ? boundingBoxLoader.get(config) : loadBoundingBox(config);
+        if (boundingBoxCache != null) {
+            boundingBoxCache.put(config, computedBoundingBox);
+        }
+        return computedBoundingBox;
+    }
+
+    /**
+     * Loads the bounding box of a unit from the registry, waiting for its transformation.
+     *
+     * @param config the config of the unit.
+     * @return the bounding box in root coordinates.
+     * @throws CouldNotPerformException if the transformation or shape is not available.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    static BoundingBox loadBoundingBox(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        try {
+            final UnitDataSource dataSource = UnitDataSources.getInstance();
+            Transform3D unitToRootTransform = dataSource.getUnitToRootTransform3D(config);
+            AxisAlignedBoundingBox3DFloat aabb = dataSource.getUnitShape(config).getBoundingBox();
+            return new BoundingBox(unitToRootTransform, aabb);
+        } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not apply config update!", ex);
         }
     }
@@ -81,11 +182,12 @@ public class SelectableObject implements Configurable<String, UnitConfig>, Abstr
      * @throws NotAvailableException {@inheritDoc}
      */
     @Override
-    public synchronized String getId() throws NotAvailableException {
-        if (config == null) {
+    public String getId() throws NotAvailableException {
+        final UnitConfig currentConfig = config;
+        if (currentConfig == null) {
             throw new NotAvailableException("Id");
         }
-        return config.getId();
+        return currentConfig.getId();
     }
 
     /**
@@ -96,11 +198,12 @@ public class SelectableObject implements Configurable<String, UnitConfig>, Abstr
      * @throws NotAvailableException {@inheritDoc}
      */
     @Override
-    public synchronized UnitConfig getConfig() throws NotAvailableException {
-        if (config == null) {
+    public UnitConfig getConfig() throws NotAvailableException {
+        final UnitConfig currentConfig = config;
+        if (currentConfig == null) {
             throw new NotAvailableException("Config");
         }
-        return config;
+        return currentConfig;
     }
 
     /**
@@ -111,7 +214,7 @@ public class SelectableObject implements Configurable<String, UnitConfig>, Abstr
      * @throws NotAvailableException {@inheritDoc}
      */
     @Override
-    public synchronized BoundingBox getBoundingBox() throws NotAvailableException {
+    public BoundingBox getBoundingBox() throws NotAvailableException {
         return this.boundingBox;
     }
 
@@ -37,7 +37,22 @@ public class SelectableObjectFactory implements Factory<SelectableObject, UnitCo
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(SelectableObjectFactory.class);
     public static SelectableObjectFactory instance;
 
+    private final BoundingBoxCache boundingBoxCache;
+    private final BoundingBoxLoader boundingBoxLoader;
+
     private SelectableObjectFactory() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a factory whose objects take their initial bounding boxes from the given cache and load the others with the given loader.
+     *
+     * @param boundingBoxCache the cache of bounding boxes or null, if bounding boxes are always computed.
+     * @param boundingBoxLoader the loader of bounding boxes or null, if bounding boxes are loaded on demand.
+     */
+    public SelectableObjectFactory(final BoundingBoxCache boundingBoxCache, final BoundingBoxLoader boundingBoxLoader) {
+        this.boundingBoxCache = boundingBoxCache;
+        this.boundingBoxLoader = boundingBoxLoader;
     }
 
     /**
@@ -63,7 +78,7 @@ public class SelectableObjectFactory implements Factory<SelectableObject, UnitCo
     @Override
     public SelectableObject newInstance(UnitConfigType.UnitConfig config) throws InstantiationException, InterruptedException {
         try {
-            SelectableObject box = new SelectableObject();
+            SelectableObject box = new SelectableObject(boundingBoxCache, boundingBoxLoader);
             box.applyConfigUpdate(config);
             LOGGER.info("Created selectable object for unit " + config.getLabel() + " with id " + config.getId());
             return box;
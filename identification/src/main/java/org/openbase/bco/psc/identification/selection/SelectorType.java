@@ -27,5 +27,6 @@ package org.openbase.bco.psc.identification.selection;
  */
 public enum SelectorType {
     MAX,
-    MEAN
+    MEAN,
+    NEAREST_HIT
 }
@@ -0,0 +1,113 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+
+/**
+ * Collects the units of one ray distribution that reach the threshold, bounded to the k most probable ones.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class UnitRanking {
+
+    private final double threshold;
+    private final int size;
+    private final PriorityQueue<UnitProbability> queue;
+
+    /**
+     * Constructor.
+     *
+     * @param threshold the threshold the probability of a unit has to reach.
+     * @param size the maximal number of units or 0 for no limit.
+     */
+    public UnitRanking(final double threshold, final int size) {
+        this.threshold = threshold;
+        this.size = size;
+        this.queue = new PriorityQueue<>((u1, u2) -> Float.compare(u1.getProbability(), u2.getProbability()));
+    }
+
+    private boolean isFull() {
+        return size > 0 && queue.size() >= size;
+    }
+
+    /**
+     * Gets the probability a unit has to reach to be added, which is the threshold or the k-th best probability if the ranking is full.
+     *
+     * @return the minimal probability of a new unit.
+     */
+    public double getLimit() {
+        return isFull() ? Math.max(threshold, queue.peek().getProbability()) : threshold;
+    }
+
+    /**
+     * Adds the unit, if its probability reaches the threshold and it is better than the k-th best unit.
+     *
+     * @param id the id of the unit.
+     * @param probability the probability of the unit.
+     */
+    public void offer(final String id, final float probability) {
+        if (probability < threshold || (isFull() && probability <= queue.peek().getProbability())) {
+            return;
+        }
+        queue.add(UnitProbability.newBuilder().setId(id).setProbability(probability).build());
+        if (size > 0 && queue.size() > size) {
+            queue.poll();
+        }
+    }
+
+    /**
+     * Gets the ranked units.
+     *
+     * @return the ranked units in no particular order.
+     */
+    public List<UnitProbability> getUnitProbabilities() {
+        return new ArrayList<>(queue);
+    }
+
+    /**
+     * Adds the ranked units to the map, keeping the higher probability for units that are already contained.
+     *
+     * @param unitProbabilities the unit probabilities mapped by the unit ids.
+     */
+    public void mergeInto(final Map<String, UnitProbability> unitProbabilities) {
+        mergeInto(queue, unitProbabilities);
+    }
+
+    /**
+     * Adds units to the map, keeping the higher probability for units that are already contained.
+     *
+     * @param rankedUnits the units to add.
+     * @param unitProbabilities the unit probabilities mapped by the unit ids.
+     */
+    public static void mergeInto(final Collection<UnitProbability> rankedUnits, final Map<String, UnitProbability> unitProbabilities) {
+        for (UnitProbability unitProbability : rankedUnits) {
+            unitProbabilities.merge(unitProbability.getId(), unitProbability, (u1, u2) -> u1.getProbability() >= u2.getProbability() ? u1 : u2);
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Precomputed directional visibility field over the selectable objects.
+ * The space around the objects is divided into voxels and the pointing directions into spherical bins. For every pair of voxel and direction bin the field
+ * stores the objects that can reach the threshold for a ray starting inside the voxel with a direction inside the bin, so that only those have to be rated
+ * at runtime. Rays starting outside of the voxels get all objects as candidates.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class VisibilityField implements CandidateProvider {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(VisibilityField.class);
+
+    /**
+     * Number of direction bins around the vertical axis.
+     */
+    private static final int AZIMUTH_BINS = 24;
+    /**
+     * Number of direction bins from the bottom to the top.
+     */
+    private static final int ELEVATION_BINS = 12;
+    /**
+     * Number of direction bins per voxel.
+     */
+    private static final int DIRECTION_BINS = AZIMUTH_BINS * ELEVATION_BINS;
+    /**
+     * Maximal number of voxels, the voxel size is increased if the objects span a larger space.
+     */
+    private static final int MAX_VOXELS = 20000;
+    /**
+     * Maximal number of stored candidate entries, the voxel size is increased if more are needed.
+     */
+    private static final int MAX_ENTRIES = 1 << 23;
+    /**
+     * Maximal number of voxel size increases, after which no field is built and all objects are rated.
+     */
+    private static final int MAX_GROW_STEPS = 32;
+    /**
+     * Cells with a larger fraction of the objects as candidates are not stored and rate all objects.
+     */
+    private static final double DENSE_FRACTION = 0.25;
+    /**
+     * Margin in radians that keeps the cones conservative against the float precision of the rays.
+     */
+    private static final double ANGLE_MARGIN = 1e-4;
+    /**
+     * Rays of a distribution with a larger summed up certainty can reach the threshold without a single ray reaching it.
+     */
+    private static final double MAX_CERTAINTY_SUM = 1 + 1e-6;
+    /**
+     * Identifies files containing a visibility field.
+     */
+    private static final int FILE_MAGIC = 0x50534356;
+    /**
+     * Version of the file format.
+     */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Unit vectors of the centers of the direction bins as (x, y, z).
+     */
+    private static final double[] BIN_CENTERS = new double[3 * DIRECTION_BINS];
+    /**
+     * Maximal angle between the center of a direction bin and any direction inside of it per elevation row.
+     */
+    private static final double[] ROW_RADII = new double[ELEVATION_BINS];
+
+    static {
+        final double azimuthStep = 2 * Math.PI / AZIMUTH_BINS;
+        final double elevationStep = Math.PI / ELEVATION_BINS;
+        for (int row = 0; row < ELEVATION_BINS; row++) {
+            final double elevation = -Math.PI / 2 + (row + 0.5) * elevationStep;
+            for (int column = 0; column < AZIMUTH_BINS; column++) {
+                final double azimuth = -Math.PI + (column + 0.5) * azimuthStep;
+                final int bin = row * AZIMUTH_BINS + column;
+                BIN_CENTERS[3 * bin] = Math.cos(elevation) * Math.cos(azimuth);
+                BIN_CENTERS[3 * bin + 1] = Math.cos(elevation) * Math.sin(azimuth);
+                BIN_CENTERS[3 * bin + 2] = Math.sin(elevation);
+            }
+            // the bins of a row are rotations of each other, so sampling the border of the first one is sufficient.
+            final double centerAzimuth = -Math.PI + 0.5 * azimuthStep;
+            double radius = 0;
+            for (int i = 0; i <= 8; i++) {
+                final double t = i / 8.0;
+                radius = Math.max(radius, angle(elevation, centerAzimuth, elevation - elevationStep / 2, -Math.PI + t * azimuthStep));
+                radius = Math.max(radius, angle(elevation, centerAzimuth, elevation + elevationStep / 2, -Math.PI + t * azimuthStep));
+                radius = Math.max(radius, angle(elevation, centerAzimuth, elevation - elevationStep / 2 + t * elevationStep, -Math.PI));
+                radius = Math.max(radius, angle(elevation, centerAzimuth, elevation - elevationStep / 2 + t * elevationStep, -Math.PI + azimuthStep));
+            }
+            ROW_RADII[row] = radius;
+        }
+    }
+
+    private final SelectableObject[] objects;
+    private final String[] ids;
+    private final long fingerprint;
+    private final double threshold;
+    private final double voxelSize;
+    private final double minX, minY, minZ;
+    private final int sizeX, sizeY, sizeZ;
+    /**
+     * Index of the first candidate of each cell in the candidate array, the candidates of a cell end at the offset of the next cell.
+     */
+    private final int[] offsets;
+    /**
+     * Cells that rate all objects.
+     */
+    private final BitSet dense;
+    /**
+     * Indices of the candidate objects of all cells.
+     */
+    private final int[] candidates;
+
+    private VisibilityField(final SelectableObject[] objects, final String[] ids, final long fingerprint, final double threshold, final double voxelSize, final double[] min, final int[] size, final int[] offsets, final BitSet dense, final int[] candidates) {
+        this.objects = objects;
+        this.ids = ids;
+        this.fingerprint = fingerprint;
+        this.threshold = threshold;
+        this.voxelSize = voxelSize;
+        this.minX = min[0];
+        this.minY = min[1];
+        this.minZ = min[2];
+        this.sizeX = size[0];
+        this.sizeY = size[1];
+        this.sizeZ = size[2];
+        this.offsets = offsets;
+        this.dense = dense;
+        this.candidates = candidates;
+    }
+
+    private static double angle(final double elevation1, final double azimuth1, final double elevation2, final double azimuth2) {
+        final double cos = Math.sin(elevation1) * Math.sin(elevation2) + Math.cos(elevation1) * Math.cos(elevation2) * Math.cos(azimuth1 - azimuth2);
+        return Math.acos(Math.max(-1, Math.min(1, cos)));
+    }
+
+    /**
+     * Calculates the largest angle between a ray and a box for which the distance measure can still reach the threshold.
+     */
+    private static double getMaximalAngle(final AbstractDistanceMeasure distance, final double threshold) {
+        if (distance.maximalProbability(Math.PI) >= threshold) {
+            return Math.PI;
+        }
+        double reachable = 0;
+        double unreachable = Math.PI;
+        for (int i = 0; i < 60; i++) {
+            final double angle = (reachable + unreachable) / 2;
+            if (distance.maximalProbability(angle) >= threshold) {
+                reachable = angle;
+            } else {
+                unreachable = angle;
+            }
+        }
+        return unreachable;
+    }
+
+    /**
+     * Calculates a fingerprint of everything the content of a field depends on.
+     */
+    private static long getFingerprint(final String[] ids, final double[] spheres, final double voxelSize, final double threshold, final double maximalAngle) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < ids.length; i++) {
+            hash = 31 * hash + ids[i].hashCode();
+            for (int k = 0; k < 4; k++) {
+                hash = 31 * hash + Double.doubleToLongBits(spheres[4 * i + k]);
+            }
+        }
+        hash = 31 * hash + Double.doubleToLongBits(voxelSize);
+        hash = 31 * hash + Double.doubleToLongBits(threshold);
+        hash = 31 * hash + Double.doubleToLongBits(maximalAngle);
+        return 31 * hash + DIRECTION_BINS;
+    }
+
+    /**
+     * Computes a new field over the given objects. Objects without bounding box or id are skipped.
+     *
+     * @param selectableObjects the objects to be indexed.
+     * @param voxelSize the edge length of the voxels in meters.
+     * @param distance the distance measure providing the upper bound of the probability.
+     * @param threshold the threshold the probability of an object has to reach.
+     * @return the new field or null, if no voxel size keeps the field within its limits.
+     * @throws InterruptedException is thrown if the thread was interrupted during the computation.
+     */
+    public static VisibilityField build(final Collection<SelectableObject> selectableObjects, final double voxelSize, final AbstractDistanceMeasure distance, final double threshold) throws InterruptedException {
+        final List<SelectableObject> objectList = new ArrayList<>(selectableObjects.size());
+        final List<String> idList = new ArrayList<>(selectableObjects.size());
+        final List<double[]> sphereList = new ArrayList<>(selectableObjects.size());
+        for (SelectableObject object : selectableObjects) {
+            try {
+                final String id = object.getId();
+                final double[] sphere = BoundingVolumeHierarchy.getSphere(object);
+                if (sphere != null) {
+                    objectList.add(object);
+                    idList.add(id);
+                    sphereList.add(sphere);
+                }
+            } catch (NotAvailableException ex) {
+                LOGGER.debug("Skipping SelectableObject without id in the visibility field.");
+            }
+        }
+        final SelectableObject[] objects = objectList.toArray(new SelectableObject[objectList.size()]);
+        final String[] ids = idList.toArray(new String[idList.size()]);
+        final double[] spheres = new double[4 * objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            System.arraycopy(sphereList.get(i), 0, spheres, 4 * i, 4);
+        }
+        final double maximalAngle = getMaximalAngle(distance, threshold);
+        final long fingerprint = getFingerprint(ids, spheres, voxelSize, threshold, maximalAngle);
+
+        final double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        final double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < objects.length; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], spheres[4 * i + axis] - spheres[4 * i + 3]);
+                max[axis] = Math.max(max[axis], spheres[4 * i + axis] + spheres[4 * i + 3]);
+            }
+        }
+        double size = voxelSize;
+        VisibilityField field = compute(objects, ids, spheres, fingerprint, threshold, maximalAngle, size, min, max);
+        for (int step = 0; field == null && step < MAX_GROW_STEPS; step++) {
+            size *= 1.25;
+            field = compute(objects, ids, spheres, fingerprint, threshold, maximalAngle, size, min, max);
+        }
+        if (field == null) {
+            LOGGER.warn("Could not build a visibility field below " + MAX_VOXELS + " voxels and " + MAX_ENTRIES + " candidate entries up to a voxel size of "
+                    + size + ", all objects are rated.");
+            return null;
+        }
+        if (size != voxelSize) {
+            LOGGER.warn("Increased the voxel size of the visibility field from " + voxelSize + " to " + size + " to stay below " + MAX_VOXELS + " voxels and "
+                    + MAX_ENTRIES + " candidate entries.");
+        }
+        return field;
+    }
+
+    /**
+     * Computes the field for a voxel size.
+     *
+     * @return the field or null, if the voxel size results in too many voxels or candidate entries.
+     */
+    private static VisibilityField compute(final SelectableObject[] objects, final String[] ids, final double[] spheres, final long fingerprint, final double threshold, final double maximalAngle, final double size, final double[] min, final double[] max) throws InterruptedException {
+        final int[] voxels = new int[3];
+        for (int axis = 0; axis < 3; axis++) {
+            voxels[axis] = objects.length == 0 ? 0 : Math.max(1, (int) Math.ceil((max[axis] - min[axis]) / size));
+        }
+        if ((long) voxels[0] * voxels[1] * voxels[2] > MAX_VOXELS) {
+            return null;
+        }
+        final int cells = voxels[0] * voxels[1] * voxels[2] * DIRECTION_BINS;
+        final int[] offsets = new int[cells + 1];
+        final BitSet dense = new BitSet(cells);
+        final int denseSize = Math.max(1, (int) (objects.length * DENSE_FRACTION));
+        int[] candidates = new int[16];
+        int count = 0;
+        final double voxelRadius = size * Math.sqrt(3) / 2;
+        final double[] rowLimits = new double[ELEVATION_BINS];
+        final int[][] binCandidates = new int[DIRECTION_BINS][objects.length];
+        final int[] binCounts = new int[DIRECTION_BINS];
+        int voxel = 0;
+        for (int z = 0; z < voxels[2]; z++) {
+            for (int y = 0; y < voxels[1]; y++) {
+                for (int x = 0; x < voxels[0]; x++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    final double centerX = min[0] + (x + 0.5) * size;
+                    final double centerY = min[1] + (y + 0.5) * size;
+                    final double centerZ = min[2] + (z + 0.5) * size;
+                    Arrays.fill(binCounts, 0);
+                    for (int i = 0; i < objects.length; i++) {
+                        final double dx = spheres[4 * i] - centerX;
+                        final double dy = spheres[4 * i + 1] - centerY;
+                        final double dz = spheres[4 * i + 2] - centerZ;
+                        final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                        final double radius = spheres[4 * i + 3] + voxelRadius;
+                        // any origin in the voxel sees any point of the object within this angle around the direction to the sphere center.
+                        final double spread = length <= radius ? Math.PI : Math.asin(radius / length);
+                        for (int row = 0; row < ELEVATION_BINS; row++) {
+                            final double limit = maximalAngle + spread + ROW_RADII[row] + ANGLE_MARGIN;
+                            rowLimits[row] = limit >= Math.PI ? -2 : Math.cos(limit);
+                        }
+                        for (int bin = 0; bin < DIRECTION_BINS; bin++) {
+                            final double cos = length <= radius ? 1 : (BIN_CENTERS[3 * bin] * dx + BIN_CENTERS[3 * bin + 1] * dy + BIN_CENTERS[3 * bin + 2] * dz) / length;
+                            if (cos >= rowLimits[bin / AZIMUTH_BINS]) {
+                                binCandidates[bin][binCounts[bin]++] = i;
+                            }
+                        }
+                    }
+                    for (int bin = 0; bin < DIRECTION_BINS; bin++) {
+                        final int cell = voxel * DIRECTION_BINS + bin;
+                        if (binCounts[bin] > denseSize) {
+                            // storing long lists costs memory without skipping much, so these cells rate all objects.
+                            dense.set(cell);
+                        } else {
+                            if (count + binCounts[bin] > MAX_ENTRIES) {
+                                return null;
+                            }
+                            if (count + binCounts[bin] > candidates.length) {
+                                candidates = Arrays.copyOf(candidates, Math.min(MAX_ENTRIES, Math.max(2 * candidates.length, count + binCounts[bin])));
+                            }
+                            System.arraycopy(binCandidates[bin], 0, candidates, count, binCounts[bin]);
+                            count += binCounts[bin];
+                        }
+                        offsets[cell + 1] = count;
+                    }
+                    voxel++;
+                }
+            }
+        }
+        LOGGER.debug("Computed visibility field with " + voxel + " voxels, " + dense.cardinality() + " dense cells and " + count + " candidate entries over "
+                + objects.length + " objects.");
+        return new VisibilityField(objects, ids, fingerprint, threshold, size, min, voxels, offsets, dense, Arrays.copyOf(candidates, count));
+    }
+
+    /**
+     * Loads a field from the file, if it was computed for exactly the given objects and parameters.
+     *
+     * @param file the file the field was saved to.
+     * @param selectableObjects the current objects.
+     * @param voxelSize the edge length of the voxels in meters.
+     * @param distance the distance measure providing the upper bound of the probability.
+     * @param threshold the threshold the probability of an object has to reach.
+     * @return the loaded field or null, if the file does not exist or does not match.
+     * @throws CouldNotPerformException is thrown if the file could not be read.
+     */
+    public static VisibilityField load(final File file, final Collection<SelectableObject> selectableObjects, final double voxelSize, final AbstractDistanceMeasure distance, final double threshold) throws CouldNotPerformException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION) {
+                throw new CouldNotPerformException("File " + file + " does not contain a visibility field of version " + FILE_VERSION + ".");
+            }
+            final long fingerprint = input.readLong();
+            final String[] ids = new String[input.readInt()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = input.readUTF();
+            }
+            final SelectableObject[] objects = match(ids, fingerprint, selectableObjects, voxelSize, distance, threshold);
+            if (objects == null) {
+                return null;
+            }
+            final double size = input.readDouble();
+            final double[] min = {input.readDouble(), input.readDouble(), input.readDouble()};
+            final int[] voxels = {input.readInt(), input.readInt(), input.readInt()};
+            final int[] offsets = new int[input.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = input.readInt();
+            }
+            final long[] denseWords = new long[input.readInt()];
+            for (int i = 0; i < denseWords.length; i++) {
+                denseWords[i] = input.readLong();
+            }
+            final int[] candidates = new int[input.readInt()];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = input.readInt();
+            }
+            return new VisibilityField(objects, ids, fingerprint, threshold, size, min, voxels, offsets, BitSet.valueOf(denseWords), candidates);
+        } catch (IOException ex) {
+            throw new CouldNotPerformException("Could not load visibility field from " + file, ex);
+        }
+    }
+
+    /**
+     * Reuses the field for the given objects, if their ids and bounding spheres are the ones the field was computed for, so that registry changes not
+     * affecting the field do not trigger a new computation.
+     *
+     * @param selectableObjects the current objects.
+     * @param voxelSize the edge length of the voxels in meters.
+     * @param distance the distance measure providing the upper bound of the probability.
+     * @param threshold the threshold the probability of an object has to reach.
+     * @return a field sharing the content of this one with the current objects or null, if the field has to be computed again.
+     */
+    public VisibilityField rebind(final Collection<SelectableObject> selectableObjects, final double voxelSize, final AbstractDistanceMeasure distance, final double threshold) {
+        final SelectableObject[] reboundObjects = match(ids, fingerprint, selectableObjects, voxelSize, distance, threshold);
+        if (reboundObjects == null) {
+            return null;
+        }
+        return new VisibilityField(reboundObjects, ids, fingerprint, this.threshold, this.voxelSize, new double[]{minX, minY, minZ}, new int[]{sizeX, sizeY, sizeZ}, offsets, dense, candidates);
+    }
+
+    /**
+     * Gets the objects of the given ids, if exactly these objects have a bounding box and match the fingerprint.
+     *
+     * @return the objects in the order of the ids or null, if they do not match.
+     */
+    private static SelectableObject[] match(final String[] ids, final long fingerprint, final Collection<SelectableObject> selectableObjects, final double voxelSize, final AbstractDistanceMeasure distance, final double threshold) {
+        final SelectableObject[] objects = new SelectableObject[ids.length];
+        final double[] spheres = new double[4 * ids.length];
+        final Map<String, SelectableObject> objectMap = new HashMap<>();
+        for (SelectableObject object : selectableObjects) {
+            try {
+                objectMap.put(object.getId(), object);
+            } catch (NotAvailableException ex) {
+                // objects without id are not part of a field.
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            objects[i] = objectMap.remove(ids[i]);
+            final double[] sphere = objects[i] == null ? null : BoundingVolumeHierarchy.getSphere(objects[i]);
+            if (sphere == null) {
+                return null;
+            }
+            System.arraycopy(sphere, 0, spheres, 4 * i, 4);
+        }
+        for (SelectableObject object : objectMap.values()) {
+            if (BoundingVolumeHierarchy.getSphere(object) != null) {
+                return null;
+            }
+        }
+        if (fingerprint != getFingerprint(ids, spheres, voxelSize, threshold, getMaximalAngle(distance, threshold))) {
+            return null;
+        }
+        return objects;
+    }
+
+    /**
+     * Saves the field to the file, which is replaced atomically.
+     *
+     * @param file the target file.
+     * @throws CouldNotPerformException is thrown if the file could not be written.
+     */
+    public void save(final File file) throws CouldNotPerformException {
+        final File temporaryFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try {
+            try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                output.writeInt(FILE_MAGIC);
+                output.writeInt(FILE_VERSION);
+                output.writeLong(fingerprint);
+                output.writeInt(objects.length);
+                for (String id : ids) {
+                    output.writeUTF(id);
+                }
+                output.writeDouble(voxelSize);
+                output.writeDouble(minX);
+                output.writeDouble(minY);
+                output.writeDouble(minZ);
+                output.writeInt(sizeX);
+                output.writeInt(sizeY);
+                output.writeInt(sizeZ);
+                output.writeInt(offsets.length);
+                for (int offset : offsets) {
+                    output.writeInt(offset);
+                }
+                final long[] denseWords = dense.toLongArray();
+                output.writeInt(denseWords.length);
+                for (long word : denseWords) {
+                    output.writeLong(word);
+                }
+                output.writeInt(candidates.length);
+                for (int candidate : candidates) {
+                    output.writeInt(candidate);
+                }
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new CouldNotPerformException("Could not save visibility field to " + file, ex);
+        }
+    }
+
+    /**
+     * Gets the cell of a ray.
+     *
+     * @return the cell index or -1, if the origin is outside of the voxels.
+     */
+    private int getCell(final double[] rays, final int ray) {
+        final int x = (int) Math.floor((rays[7 * ray] - minX) / voxelSize);
+        final int y = (int) Math.floor((rays[7 * ray + 1] - minY) / voxelSize);
+        final int z = (int) Math.floor((rays[7 * ray + 2] - minZ) / voxelSize);
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) {
+            return -1;
+        }
+        final double azimuth = Math.atan2(rays[7 * ray + 4], rays[7 * ray + 3]);
+        final double elevation = Math.asin(Math.max(-1, Math.min(1, rays[7 * ray + 5])));
+        final int column = Math.min(AZIMUTH_BINS - 1, (int) ((azimuth + Math.PI) / (2 * Math.PI) * AZIMUTH_BINS));
+        final int row = Math.min(ELEVATION_BINS - 1, (int) ((elevation + Math.PI / 2) / Math.PI * ELEVATION_BINS));
+        return ((z * sizeY + y) * sizeX + x) * DIRECTION_BINS + row * AZIMUTH_BINS + column;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The distance measure is expected to be the one the field was computed for.
+     *
+     * @param rayDistribution {@inheritDoc}
+     * @param distance {@inheritDoc}
+     * @param threshold {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<SelectableObject> getCandidates(final PointingRay3DFloatDistribution rayDistribution, final AbstractDistanceMeasure distance, final double threshold) {
+        final double[] rays = BoundingVolumeHierarchy.toRayArray(rayDistribution);
+        if (rays == null || threshold < this.threshold) {
+            return Arrays.asList(objects);
+        }
+        final int rayCount = rayDistribution.getRayCount();
+        double certaintySum = 0;
+        for (int i = 0; i < rayCount; i++) {
+            certaintySum += rays[7 * i + 6];
+        }
+        if (certaintySum > MAX_CERTAINTY_SUM) {
+            return Arrays.asList(objects);
+        }
+        // with certainties summing up to at most 1, an object can only reach the threshold if a single ray does.
+        final BitSet selected = new BitSet(objects.length);
+        for (int i = 0; i < rayCount; i++) {
+            final int cell = getCell(rays, i);
+            if (cell < 0 || dense.get(cell)) {
+                return Arrays.asList(objects);
+            }
+            for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                selected.set(candidates[k]);
+            }
+        }
+        final List<SelectableObject> result = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            result.add(objects[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed objects.
+     *
+     * @return the number of indexed objects.
+     */
+    public int size() {
+        return objects.length;
+    }
+}
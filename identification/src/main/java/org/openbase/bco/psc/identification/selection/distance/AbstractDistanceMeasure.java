@@ -37,6 +37,11 @@ public abstract class AbstractDistanceMeasure {
     protected static final Vector3d Y_AXIS = new Vector3d(0, 1, 0);
     protected static final Vector3d Z_AXIS = new Vector3d(0, 0, 1);
     protected static final Point3d ZERO_POINT = new Point3d(0, 0, 0);
+    /**
+     * Lower bound of the extents in meters used to normalize distances, so that flat boxes do not cause divisions by zero.
+     */
+    protected static final double MINIMAL_EXTENT = 0.001;
+    private static final double LN2 = Math.log(2);
 
     protected static int argMin(double[] values) {
         if (values.length < 1) {
@@ -79,47 +84,73 @@ public abstract class AbstractDistanceMeasure {
     }
 
     protected static final Point3d getMaximalPointOnBox(final Point3d origin, final Vector3d direction, final float width, final float depth, final float height) {
-        Vector3d size = new Vector3d(width, depth, height);
-        Vector3d dims = new Vector3d(size);
-        dims.scale(0.5);
-        Vector3d originDir = new Vector3d(origin);
-        Vector3d toCenter = new Vector3d(originDir);
-        toCenter.scale(-1);
-        Vector3d planeNormal = new Vector3d(toCenter);
-        planeNormal.normalize();
-
-        double factor = planeNormal.dot(toCenter) / planeNormal.dot(direction);
-        Vector3d orthoDir = new Vector3d(direction);
-        orthoDir.scale(factor);
-        orthoDir.add(originDir);
-
-        double[] possibleFactors = new double[]{Math.abs(dims.x / orthoDir.x), Math.abs(dims.y / orthoDir.y), Math.abs(dims.z / orthoDir.z)};
-        int index = argMin(possibleFactors);
-        Vector3d indexVector = index == 0 ? X_AXIS : index == 1 ? Y_AXIS : Z_AXIS;
-        Vector3d facePoint = new Vector3d(orthoDir);
-        facePoint.scale(possibleFactors[index]);
-
-        Vector3d normalToPointingPlane = new Vector3d();
-        normalToPointingPlane.cross(direction, orthoDir);
-        Vector3d faceNormal = new Vector3d(indexVector);
-        faceNormal.scale(Math.signum(facePoint.dot(indexVector)));
-        Vector3d inFaceDir = new Vector3d();
-        inFaceDir.cross(faceNormal, normalToPointingPlane);
-
-        double sign = Math.signum(Math.abs(originDir.dot(indexVector)) - dims.dot(indexVector));
+        final double[] point = new double[3];
+        getMaximalPointOnBox(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, width, depth, height, point);
+        return new Point3d(point);
+    }
+
+    /**
+     * Calculates the point on the surface of the box, that lies in the plane spanned by the ray and the box center and deviates maximally from the line
+     * between ray origin and box center into the direction of the ray. Everything is given in box center coordinates.
+     *
+     * @param point array of at least three values, into which the point is written.
+     */
+    protected static final void getMaximalPointOnBox(final double ox, final double oy, final double oz, final double dx, final double dy, final double dz,
+            final float width, final float depth, final float height, final double[] point) {
+        final double hx = width * 0.5, hy = depth * 0.5, hz = height * 0.5;
+        // normal of the plane through the center orthogonal to the line between origin and center.
+        final double norm = 1.0 / Math.sqrt(ox * ox + oy * oy + oz * oz);
+        final double nx = -ox * norm, ny = -oy * norm, nz = -oz * norm;
+        final double factor = (nx * -ox + ny * -oy + nz * -oz) / (nx * dx + ny * dy + nz * dz);
+        // intersection of the ray and the plane.
+        final double mx = dx * factor + ox, my = dy * factor + oy, mz = dz * factor + oz;
+
+        final double fx = Math.abs(hx / mx), fy = Math.abs(hy / my), fz = Math.abs(hz / mz);
+        final int index = fy < fx ? (fz < fy ? 2 : 1) : (fz < fx ? 2 : 0);
+        final double faceFactor = index == 0 ? fx : index == 1 ? fy : fz;
+        final double px = mx * faceFactor, py = my * faceFactor, pz = mz * faceFactor;
+
+        final double cx = dy * mz - dz * my, cy = dz * mx - dx * mz, cz = dx * my - dy * mx;
+        final double faceSign = Math.signum(index == 0 ? px : index == 1 ? py : pz);
+        final double fnx = index == 0 ? faceSign : 0, fny = index == 1 ? faceSign : 0, fnz = index == 2 ? faceSign : 0;
+        final double ix = fny * cz - fnz * cy, iy = fnz * cx - fnx * cz, iz = fnx * cy - fny * cx;
+
+        double sign = Math.signum(index == 0 ? Math.abs(ox) - hx : index == 1 ? Math.abs(oy) - hy : Math.abs(oz) - hz);
         sign = sign != 0 ? sign : -1;
 
-        double[] possibleScales = new double[3];
-        possibleScales[0] = Math.abs((dims.x - Math.signum(inFaceDir.x) * sign * facePoint.x) / inFaceDir.x);
-        possibleScales[1] = Math.abs((dims.y - Math.signum(inFaceDir.y) * sign * facePoint.y) / inFaceDir.y);
-        possibleScales[2] = Math.abs((dims.z - Math.signum(inFaceDir.z) * sign * facePoint.z) / inFaceDir.z);
-        possibleScales[index] = Double.MAX_VALUE;
-        double scale = min(possibleScales);
-
-        Point3d result = new Point3d(inFaceDir);
-        result.scale(sign * scale);
-        result.add(facePoint);
-        return result;
+        final double sx = index == 0 ? Double.MAX_VALUE : Math.abs((hx - Math.signum(ix) * sign * px) / ix);
+        final double sy = index == 1 ? Double.MAX_VALUE : Math.abs((hy - Math.signum(iy) * sign * py) / iy);
+        final double sz = index == 2 ? Double.MAX_VALUE : Math.abs((hz - Math.signum(iz) * sign * pz) / iz);
+        double scale = sx;
+        if (sy < scale) {
+            scale = sy;
+        }
+        if (sz < scale) {
+            scale = sz;
+        }
+        point[0] = ix * (sign * scale) + px;
+        point[1] = iy * (sign * scale) + py;
+        point[2] = iz * (sign * scale) + pz;
+    }
+
+    /**
+     * Calculates the angle between two vectors given by their components.
+     *
+     * @return the angle in radians.
+     */
+    protected static final double getAngle(final double x1, final double y1, final double z1, final double x2, final double y2, final double z2) {
+        return Math.acos((x1 * x2 + y1 * y2 + z1 * z2) / (Math.sqrt(x1 * x1 + y1 * y1 + z1 * z1) * Math.sqrt(x2 * x2 + y2 * y2 + z2 * z2)));
+    }
+
+    /**
+     * Maps a deviation, which is normalized so that 1 corresponds to the border of the box, to a probability.
+     * No deviation results in 1, a deviation of 1 results in 0.5 and the probability decreases quickly for larger deviations.
+     *
+     * @param deviation the normalized deviation.
+     * @return the probability.
+     */
+    protected static final double getDeviationProbability(final double deviation) {
+        return Math.exp(-LN2 * deviation * deviation);
     }
 
     /**
@@ -156,17 +187,37 @@ public abstract class AbstractDistanceMeasure {
 
     public final double probability(Ray3DFloat ray, BoundingBox box) {
         Point3d origin = toPoint(ray.getOrigin());
-        Vector3d direction = toVector(ray.getDirection());
-        //Transform everything to center coordinates of bounding box.
-        Point3d transformedOrigin = box.toCenterCoordinates(origin);
-        Vector3d transformedDirection = box.toCenterCoordinates(direction);
-        double distance = new Vector3d(origin).length();
+        double distance = origin.distance(ZERO_POINT);
         //TODO: How much is that?!
         if (distance < 0.05) {
             return 1;
         }
+        //Transform everything to center coordinates of bounding box.
+        Point3d transformedOrigin = box.toCenterCoordinates(origin);
+        Vector3d transformedDirection = box.toCenterCoordinates(toVector(ray.getDirection()));
         return distanceProbability(transformedOrigin, transformedDirection, box.getWidth(), box.getDepth(), box.getHeight());
     }
 
+    /**
+     * Gets an upper bound of the probability of a box, if every point of the box deviates at least by the given angle from the ray direction as seen from the
+     * ray origin. This is used to skip boxes that can not reach the threshold.
+     * Measures that can not provide a bound return 1, which disables skipping.
+     *
+     * @param minimalAngle the minimal angle in radians between the ray direction and any point of the box.
+     * @return an upper bound of the probability.
+     */
+    public double maximalProbability(final double minimalAngle) {
+        return 1;
+    }
+
+    /**
+     * Checks whether <code>maximalProbability</code> provides a bound below 1, so that skipping boxes is worth evaluating the bound.
+     *
+     * @return true, if the measure bounds the probability by the minimal angle.
+     */
+    public boolean isBounded() {
+        return false;
+    }
+
     protected abstract double distanceProbability(final Point3d origin, final Vector3d direction, final float width, final float depth, final float height);
 }
@@ -52,4 +52,29 @@ public class AngleMeasure extends AbstractDistanceMeasure {
         double prob = Math.pow(Math.max(1 - angle * 2 / Math.PI, 0), .5);
         return prob;
     }
+
+    /**
+     * {@inheritDoc}
+     * The angle to the box center is at least the minimal angle and the probability decreases with the angle.
+     *
+     * @param minimalAngle {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public double maximalProbability(final double minimalAngle) {
+        if (minimalAngle > Math.PI / 2) {
+            return 0;
+        }
+        return Math.pow(Math.max(1 - minimalAngle * 2 / Math.PI, 0), .5);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isBounded() {
+        return true;
+    }
 }
@@ -0,0 +1,145 @@
+package org.openbase.bco.psc.identification.selection.distance;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.List;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Matrix4d;
+import org.openbase.bco.psc.identification.selection.BoundingBox;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+
+/**
+ * Scores a ray against many bounding boxes at once using the same model as the AngleMeasure.
+ * The inverse center transforms of all boxes are stored contiguously as one float array per component, so that a ray is scored against all
+ * boxes in a single allocation free loop instead of transforming it into every box separately.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class AngleScoringEngine {
+
+    /**
+     * Rays with an origin closer to the root origin than this get the probability 1 for every box, see AbstractDistanceMeasure.
+     */
+    private static final double ROOT_DISTANCE = 0.05;
+
+    private final int size;
+    // rotation part of the transforms from root to box center coordinates
+    private final float[] r00, r01, r02, r10, r11, r12, r20, r21, r22;
+    // translation part of the transforms from root to box center coordinates
+    private final float[] tx, ty, tz;
+
+    /**
+     * Constructor.
+     *
+     * @param boxes the bounding boxes in the order their probabilities are returned.
+     */
+    public AngleScoringEngine(final List<BoundingBox> boxes) {
+        size = boxes.size();
+        r00 = new float[size];
+        r01 = new float[size];
+        r02 = new float[size];
+        r10 = new float[size];
+        r11 = new float[size];
+        r12 = new float[size];
+        r20 = new float[size];
+        r21 = new float[size];
+        r22 = new float[size];
+        tx = new float[size];
+        ty = new float[size];
+        tz = new float[size];
+        final Matrix4d matrix = new Matrix4d();
+        for (int i = 0; i < size; i++) {
+            final BoundingBox box = boxes.get(i);
+            final Transform3D transform = box.getReverseCenterTransform();
+            transform.get(matrix);
+            r00[i] = (float) matrix.m00;
+            r01[i] = (float) matrix.m01;
+            r02[i] = (float) matrix.m02;
+            r10[i] = (float) matrix.m10;
+            r11[i] = (float) matrix.m11;
+            r12[i] = (float) matrix.m12;
+            r20[i] = (float) matrix.m20;
+            r21[i] = (float) matrix.m21;
+            r22[i] = (float) matrix.m22;
+            tx[i] = (float) matrix.m03;
+            ty[i] = (float) matrix.m13;
+            tz[i] = (float) matrix.m23;
+        }
+    }
+
+    /**
+     * Calculates the probability of the ray pointing at each of the boxes.
+     *
+     * @param ray the ray in root coordinates.
+     * @param probabilities array of at least the size of this engine the probabilities are written to in the order of the boxes.
+     */
+    public void score(final Ray3DFloat ray, final double[] probabilities) {
+        final Vec3DFloat origin = ray.getOrigin();
+        final Vec3DFloat direction = ray.getDirection();
+        score(origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ(), probabilities);
+    }
+
+    /**
+     * Calculates the probability of the ray pointing at each of the boxes.
+     *
+     * @param ox x coordinate of the ray origin in root coordinates.
+     * @param oy y coordinate of the ray origin in root coordinates.
+     * @param oz z coordinate of the ray origin in root coordinates.
+     * @param dx x coordinate of the ray direction in root coordinates.
+     * @param dy y coordinate of the ray direction in root coordinates.
+     * @param dz z coordinate of the ray direction in root coordinates.
+     * @param probabilities array of at least the size of this engine the probabilities are written to in the order of the boxes.
+     */
+    public void score(final float ox, final float oy, final float oz, final float dx, final float dy, final float dz, final double[] probabilities) {
+        // the stored floats are widened to double, so only their storage differs from the AngleMeasure.
+        final double x = ox, y = oy, z = oz;
+        if (Math.sqrt(x * x + y * y + z * z) < ROOT_DISTANCE) {
+            for (int i = 0; i < size; i++) {
+                probabilities[i] = 1;
+            }
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            // vector from the transformed origin to the box center, which is the origin of the center coordinates.
+            final double cx = -(r00[i] * x + r01[i] * y + r02[i] * z + tx[i]);
+            final double cy = -(r10[i] * x + r11[i] * y + r12[i] * z + ty[i]);
+            final double cz = -(r20[i] * x + r21[i] * y + r22[i] * z + tz[i]);
+            final double ex = r00[i] * (double) dx + r01[i] * (double) dy + r02[i] * (double) dz;
+            final double ey = r10[i] * (double) dx + r11[i] * (double) dy + r12[i] * (double) dz;
+            final double ez = r20[i] * (double) dx + r21[i] * (double) dy + r22[i] * (double) dz;
+            final double cos = (cx * ex + cy * ey + cz * ez) / Math.sqrt((cx * cx + cy * cy + cz * cz) * (ex * ex + ey * ey + ez * ez));
+            final double angle = Math.acos(cos);
+            probabilities[i] = angle > Math.PI / 2 ? 0 : Math.sqrt(Math.max(1 - angle * 2 / Math.PI, 0));
+        }
+    }
+
+    /**
+     * Gets the number of boxes.
+     *
+     * @return the number of boxes.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -25,11 +25,18 @@ import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 /**
+ * Rates a box by the angle between the ray and the box center, relative to the angle between the box center and the border of the box in the direction of
+ * the ray as seen from the ray origin. Boxes are thereby rated by their apparent size instead of a fixed angle.
  *
  * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
  */
 public class AngleVsMaxMeasure extends AbstractDistanceMeasure {
 
+    /**
+     * Buffer for the maximal point on the box, so that rating does not allocate.
+     */
+    private static final ThreadLocal<double[]> MAXIMAL_POINT = ThreadLocal.withInitial(() -> new double[3]);
+
     /**
      * {@inheritDoc}
      *
@@ -42,18 +49,19 @@ public class AngleVsMaxMeasure extends AbstractDistanceMeasure {
      */
     @Override
     protected double distanceProbability(Point3d origin, Vector3d direction, float width, float depth, float height) {
-        Vector3d toCenter = new Vector3d(origin);
-        toCenter.scale(-1.0);
-        Vector3d maxPointDirection = new Vector3d(getMaximalPointOnBox(origin, direction, width, depth, height));
-        maxPointDirection.sub(origin);
-        double angle = getAngle(toCenter, direction);
+        final double ox = origin.x, oy = origin.y, oz = origin.z;
+        final double dx = direction.x, dy = direction.y, dz = direction.z;
+        final double angle = getAngle(-ox, -oy, -oz, dx, dy, dz);
         if (angle > Math.PI / 2) {
             return 0;
         }
-        double maxAngle = getAngle(toCenter, maxPointDirection);
-        //TODO: Calculate probability:
-        double name = angle / Math.sqrt(maxAngle);
-
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final double[] maximalPoint = MAXIMAL_POINT.get();
+        getMaximalPointOnBox(ox, oy, oz, dx, dy, dz, width, depth, height, maximalPoint);
+        final double maxAngle = getAngle(-ox, -oy, -oz, maximalPoint[0] - ox, maximalPoint[1] - oy, maximalPoint[2] - oz);
+        // the maximal point is undefined if the ray passes through the center.
+        if (!(maxAngle > 0)) {
+            return 1;
+        }
+        return getDeviationProbability(angle / maxAngle);
     }
 }
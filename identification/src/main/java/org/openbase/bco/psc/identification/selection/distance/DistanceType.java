@@ -28,8 +28,8 @@ package org.openbase.bco.psc.identification.selection.distance;
  */
 public enum DistanceType {
     ANGLE,
-    ORTHOGONAL
-//    ANGLE_MAX,
+    ORTHOGONAL,
+    ANGLE_MAX,
 //    ORTHOGONAL_MAX,
-//    PEARSON
+    PEARSON
 }
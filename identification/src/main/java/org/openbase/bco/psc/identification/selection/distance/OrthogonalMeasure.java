@@ -25,6 +25,7 @@ import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 /**
+ * Rates a box by the orthogonal distance between the ray and the box center, relative to the radius of the bounding sphere of the box.
  *
  * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
  */
@@ -42,9 +43,17 @@ public class OrthogonalMeasure extends AbstractDistanceMeasure {
      */
     @Override
     protected double distanceProbability(Point3d origin, Vector3d direction, float width, float depth, float height) {
-        double distance = getClosestPoint(origin, direction).distance(ZERO_POINT);
-        //TODO: Calculate probability:
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        final double ox = origin.x, oy = origin.y, oz = origin.z;
+        final double dx = direction.x, dy = direction.y, dz = direction.z;
+        final double along = -(ox * dx + oy * dy + oz * dz);
+        if (along < 0) {
+            return 0;
+        }
+        // closest point of the ray to the center.
+        final double t = along / (dx * dx + dy * dy + dz * dz);
+        final double cx = ox + t * dx, cy = oy + t * dy, cz = oz + t * dz;
+        final double radiusSquared = 0.25 * ((double) width * width + (double) depth * depth + (double) height * height);
+        return getDeviationProbability(Math.sqrt((cx * cx + cy * cy + cz * cz) / Math.max(radiusSquared, MINIMAL_EXTENT * MINIMAL_EXTENT)));
     }
 
 }
@@ -25,11 +25,12 @@ import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 /**
+ * Rates a box by the distance between the ray and the box center, measured per axis relative to the half extent of the box. A deviation of 1 corresponds to
+ * the ellipsoid inscribed in the box, so small and elongated boxes are rated by their actual shape.
  *
  * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
  */
 public class PearsonMeasure extends AbstractDistanceMeasure {
-    //TODO: Not really a probability here...
 
     /**
      * {@inheritDoc}
@@ -43,14 +44,20 @@ public class PearsonMeasure extends AbstractDistanceMeasure {
      */
     @Override
     protected double distanceProbability(Point3d origin, Vector3d direction, float width, float depth, float height) {
-        Point3d closestPoint = getClosestPoint(origin, direction);
-        if (closestPoint == null) {
-            return Double.MAX_VALUE;
+        final double ox = origin.x, oy = origin.y, oz = origin.z;
+        final double dx = direction.x, dy = direction.y, dz = direction.z;
+        final double along = -(ox * dx + oy * dy + oz * dz);
+        if (along < 0) {
+            return 0;
         }
-        return pearsonLength(new Vector3d(closestPoint), new Vector3d(width, depth, height));
+        // closest point of the ray to the center.
+        final double t = along / (dx * dx + dy * dy + dz * dz);
+        final double cx = ox + t * dx, cy = oy + t * dy, cz = oz + t * dz;
+        return getDeviationProbability(pearsonLength(cx, cy, cz, width * 0.5, depth * 0.5, height * 0.5));
     }
 
-    private double pearsonLength(final Vector3d vector, final Vector3d size) {
-        return Math.sqrt((vector.x * vector.x) / (size.x * size.x) + (vector.y * vector.y) / (size.y * size.y) + (vector.z * vector.z) / (size.z * size.z));
+    private static double pearsonLength(final double x, final double y, final double z, final double halfWidth, final double halfDepth, final double halfHeight) {
+        final double sx = Math.max(halfWidth, MINIMAL_EXTENT), sy = Math.max(halfDepth, MINIMAL_EXTENT), sz = Math.max(halfHeight, MINIMAL_EXTENT);
+        return Math.sqrt((x * x) / (sx * sx) + (y * y) / (sy * sy) + (z * z) / (sz * sz));
     }
 }
@@ -0,0 +1,196 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.bco.psc.identification.selection.distance.AngleVsMaxMeasure;
+import org.openbase.bco.psc.identification.selection.distance.DistanceType;
+import org.openbase.bco.psc.identification.selection.distance.OrthogonalMeasure;
+import org.openbase.bco.psc.identification.selection.distance.PearsonMeasure;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+
+/**
+ * Synthetic rooms and pointing rays for the benchmarks, so that no BCO registry is needed.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+final class BenchmarkFixtures {
+
+    /**
+     * Edge length in meters of the quadratic room the boxes are placed in.
+     */
+    static final double ROOM_SIZE = 20;
+    /**
+     * Height in meters of the room the boxes are placed in.
+     */
+    static final double ROOM_HEIGHT = 3;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Creates randomly placed and rotated boxes with edge lengths between 0.1 and 1.1 meters.
+     *
+     * @param count the number of boxes.
+     * @param seed the seed of the random placement.
+     * @return the boxes.
+     */
+    static List<BoundingBox> createBoxes(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<BoundingBox> boxes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Quat4d rotation = new Quat4d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+            rotation.normalize();
+            final Vector3d translation = new Vector3d(random.nextDouble() * ROOM_SIZE, random.nextDouble() * ROOM_SIZE, random.nextDouble() * ROOM_HEIGHT);
+            boxes.add(new BoundingBox(new Transform3D(rotation, translation, 1), 0.1f + random.nextFloat(), 0.1f + random.nextFloat(), 0.1f + random.nextFloat()));
+        }
+        return boxes;
+    }
+
+    /**
+     * Creates a ray distribution of one pointing person like the ray selectors of the ray extractor. The rays share roughly the same origin and direction
+     * and their certainties sum up to the pointing probability.
+     *
+     * @param random the random generator.
+     * @param rayCount the number of rays per distribution.
+     * @return the ray distribution.
+     */
+    static PointingRay3DFloatDistribution createDistribution(final Random random, final int rayCount) {
+        final double x = random.nextDouble() * ROOM_SIZE, y = random.nextDouble() * ROOM_SIZE, z = 1.2 + random.nextDouble() * 0.6;
+        final double dx = random.nextGaussian(), dy = random.nextGaussian(), dz = random.nextGaussian() * 0.3;
+        final float certainty = (float) (0.5 + random.nextDouble() * 0.5);
+        final PointingRay3DFloatDistribution.Builder distribution = PointingRay3DFloatDistribution.newBuilder();
+        for (int i = 0; i < rayCount; i++) {
+            distribution.addRay(PointingRay3DFloat.newBuilder()
+                    .setCertainty(certainty / rayCount)
+                    .setRay(Ray3DFloat.newBuilder()
+                            .setOrigin(toVec3DFloat(x + random.nextGaussian() * 0.1, y + random.nextGaussian() * 0.1, z + random.nextGaussian() * 0.1))
+                            .setDirection(toVec3DFloat(dx + random.nextGaussian() * 0.05, dy + random.nextGaussian() * 0.05, dz + random.nextGaussian() * 0.05))));
+        }
+        return distribution.build();
+    }
+
+    /**
+     * Creates collections with a single ray distribution each.
+     *
+     * @param count the number of collections.
+     * @param rayCount the number of rays per distribution.
+     * @param seed the seed of the random rays.
+     * @return the collections.
+     */
+    static PointingRay3DFloatDistributionCollection[] createCollections(final int count, final int rayCount, final long seed) {
+        final Random random = new Random(seed);
+        final PointingRay3DFloatDistributionCollection[] collections = new PointingRay3DFloatDistributionCollection[count];
+        for (int i = 0; i < count; i++) {
+            collections[i] = PointingRay3DFloatDistributionCollection.newBuilder().addElement(createDistribution(random, rayCount)).build();
+        }
+        return collections;
+    }
+
+    /**
+     * Registers a selectable object for every box at once, so that the registry observers of the selector only run once.
+     *
+     * @param selector the selector.
+     * @param boxes the boxes of the units.
+     * @throws CouldNotPerformException if the objects could not be registered.
+     * @throws InterruptedException if interrupted while applying the configs.
+     */
+    static void registerObjects(final AbstractUnitSelector selector, final List<BoundingBox> boxes) throws CouldNotPerformException, InterruptedException {
+        final Map<String, BoundingBox> boxMap = new HashMap<>();
+        for (int i = 0; i < boxes.size(); i++) {
+            boxMap.put(getUnitId(i), boxes.get(i));
+        }
+        final SyntheticBoundingBoxLoader loader = new SyntheticBoundingBoxLoader(boxMap);
+        try {
+            final Map<String, SelectableObject> objects = new HashMap<>();
+            for (String id : boxMap.keySet()) {
+                final SelectableObject object = new SelectableObject(null, loader);
+                object.applyConfigUpdate(UnitConfig.newBuilder().setId(id).build());
+                objects.put(id, object);
+            }
+            selector.getSelectedObjectRegistry().replaceInternalMap(objects);
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    static String getUnitId(final int index) {
+        return "unit-" + index;
+    }
+
+    static AbstractDistanceMeasure createDistanceMeasure(final DistanceType distanceType) {
+        switch (distanceType) {
+            case ORTHOGONAL:
+                return new OrthogonalMeasure();
+            case ANGLE_MAX:
+                return new AngleVsMaxMeasure();
+            case PEARSON:
+                return new PearsonMeasure();
+            case ANGLE:
+            default:
+                return new AngleMeasure();
+        }
+    }
+
+    private static Vec3DFloat toVec3DFloat(final double x, final double y, final double z) {
+        return Vec3DFloat.newBuilder().setX((float) x).setY((float) y).setZ((float) z).build();
+    }
+
+    /**
+     * Loader returning synthetic boxes instead of requesting the transformations from the registry.
+     */
+    private static final class SyntheticBoundingBoxLoader extends BoundingBoxLoader {
+
+        private final Map<String, BoundingBox> boxes;
+
+        private SyntheticBoundingBoxLoader(final Map<String, BoundingBox> boxes) {
+            super(new ArrayList<>());
+            this.boxes = boxes;
+        }
+
+        @Override
+        protected BoundingBox load(final UnitConfig config) throws CouldNotPerformException {
+            final BoundingBox box = boxes.get(config.getId());
+            if (box == null) {
+                throw new CouldNotPerformException("No synthetic box for unit " + config.getId());
+            }
+            return box;
+        }
+    }
+}
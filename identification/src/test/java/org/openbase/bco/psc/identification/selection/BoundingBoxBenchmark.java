@@ -0,0 +1,89 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the transformation of ray origins and directions into box center coordinates, which precedes every rating of a distance measure.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundingBoxBenchmark {
+
+    /**
+     * Number of boxes, points and vectors the benchmarks iterate over.
+     */
+    private static final int FIXTURE_SIZE = 1024;
+
+    private BoundingBox[] boxes;
+    private Point3d[] points;
+    private Vector3d[] vectors;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final List<BoundingBox> boxList = BenchmarkFixtures.createBoxes(FIXTURE_SIZE, 42);
+        boxes = boxList.toArray(new BoundingBox[FIXTURE_SIZE]);
+        final Random random = new Random(7);
+        points = new Point3d[FIXTURE_SIZE];
+        vectors = new Vector3d[FIXTURE_SIZE];
+        for (int i = 0; i < FIXTURE_SIZE; i++) {
+            points[i] = new Point3d(random.nextDouble() * BenchmarkFixtures.ROOM_SIZE, random.nextDouble() * BenchmarkFixtures.ROOM_SIZE, random.nextDouble() * 2);
+            vectors[i] = new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    public Point3d toCenterCoordinatesPoint() {
+        next = (next + 1) % FIXTURE_SIZE;
+        return boxes[next].toCenterCoordinates(points[next]);
+    }
+
+    @Benchmark
+    public Vector3d toCenterCoordinatesVector() {
+        next = (next + 1) % FIXTURE_SIZE;
+        return boxes[next].toCenterCoordinates(vectors[next]);
+    }
+}
@@ -0,0 +1,215 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*-
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.bco.psc.identification.selection.distance.OrthogonalMeasure;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+
+/**
+ * Compares the candidates of the bounding volume hierarchy and the visibility field with the probabilities of all objects.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class CandidateProviderTest {
+
+    private static final int BOX_COUNT = 100;
+    private static final int DISTRIBUTION_COUNT = 100;
+    private static final double VOXEL_SIZE = 2;
+    private static final double[] THRESHOLDS = {0, 0.2, 0.5, 0.8, 1};
+
+    private List<BoundingBox> boxes;
+    private PointingRay3DFloatDistribution[] distributions;
+
+    public CandidateProviderTest() {
+    }
+
+    @Before
+    public void setUp() {
+        boxes = BenchmarkFixtures.createBoxes(BOX_COUNT, 3);
+        final Random random = new Random(4);
+        distributions = new PointingRay3DFloatDistribution[DISTRIBUTION_COUNT];
+        for (int i = 0; i < DISTRIBUTION_COUNT; i++) {
+            distributions[i] = BenchmarkFixtures.createDistribution(random, 1 + i % 8);
+        }
+    }
+
+    private static AbstractUnitSelector createSelector(final SelectorType selectorType, final double threshold, final AbstractDistanceMeasure distance) throws Exception {
+        return selectorType == SelectorType.MAX ? new MaxSelector(threshold, distance) : new MeanSelector(threshold, distance);
+    }
+
+    /**
+     * Calculates the probability of every object without any pruning.
+     */
+    private static Map<String, Float> getProbabilities(final AbstractUnitSelector selector, final PointingRay3DFloatDistribution rayDist) throws Exception {
+        final Map<String, Float> probabilities = new HashMap<>();
+        for (SelectableObject object : selector.getSelectedObjectRegistry().getEntries()) {
+            probabilities.put(object.getId(), selector.calculateProbability(object.getBoundingBox(), rayDist));
+        }
+        return probabilities;
+    }
+
+    /**
+     * Gets the ids of the objects reaching the threshold like UnitRanking.
+     */
+    private static Set<String> getExpected(final Map<String, Float> probabilities, final double threshold) {
+        final Set<String> expected = new HashSet<>();
+        for (Map.Entry<String, Float> entry : probabilities.entrySet()) {
+            if (!(entry.getValue() < threshold)) {
+                expected.add(entry.getKey());
+            }
+        }
+        return expected;
+    }
+
+    private static Set<String> getIds(final List<SelectableObject> objects) throws Exception {
+        final Set<String> ids = new HashSet<>();
+        for (SelectableObject object : objects) {
+            ids.add(object.getId());
+        }
+        return ids;
+    }
+
+    private static Map<String, Float> select(final AbstractUnitSelector selector, final PointingRay3DFloatDistribution rayDist) throws Exception {
+        final Map<String, Float> selected = new HashMap<>();
+        for (UnitProbability unitProbability : selector.getUnitProbabilities(rayDist)) {
+            selected.put(unitProbability.getId(), unitProbability.getProbability());
+        }
+        return selected;
+    }
+
+    /**
+     * Checks that the candidates of both providers contain every object reaching the threshold and that the selector ranks the same units with and
+     * without the bounding volume hierarchy.
+     */
+    private void assertCandidates(final SelectorType selectorType, final double threshold) throws Exception {
+        final AngleMeasure distance = new AngleMeasure();
+        final AbstractUnitSelector selector = createSelector(selectorType, threshold, distance);
+        BenchmarkFixtures.registerObjects(selector, boxes);
+        final AbstractUnitSelector indexedSelector = createSelector(selectorType, threshold, distance);
+        BenchmarkFixtures.registerObjects(indexedSelector, boxes);
+        indexedSelector.enableSpatialIndex();
+        final List<SelectableObject> objects = selector.getSelectedObjectRegistry().getEntries();
+        final BoundingVolumeHierarchy hierarchy = BoundingVolumeHierarchy.build(objects);
+        final VisibilityField field = VisibilityField.build(objects, VOXEL_SIZE, distance, threshold);
+        assertNotNull(field);
+        for (PointingRay3DFloatDistribution rayDist : distributions) {
+            final Map<String, Float> probabilities = getProbabilities(selector, rayDist);
+            final Set<String> expected = getExpected(probabilities, threshold);
+            assertTrue(getIds(hierarchy.getCandidates(rayDist, distance, threshold)).containsAll(expected));
+            assertTrue(getIds(field.getCandidates(rayDist, distance, threshold)).containsAll(expected));
+            final Map<String, Float> selected = select(selector, rayDist);
+            assertEquals(expected, selected.keySet());
+            assertEquals(selected, select(indexedSelector, rayDist));
+            for (String id : expected) {
+                assertEquals(probabilities.get(id), selected.get(id));
+            }
+        }
+    }
+
+    /**
+     * Test of the getCandidates methods of BoundingVolumeHierarchy and VisibilityField with the MaxSelector.
+     */
+    @Test
+    public void testMaxSelector() throws Exception {
+        System.out.println("maxSelector");
+        for (double threshold : THRESHOLDS) {
+            assertCandidates(SelectorType.MAX, threshold);
+        }
+    }
+
+    /**
+     * Test of the getCandidates methods of BoundingVolumeHierarchy and VisibilityField with the MeanSelector.
+     */
+    @Test
+    public void testMeanSelector() throws Exception {
+        System.out.println("meanSelector");
+        for (double threshold : THRESHOLDS) {
+            assertCandidates(SelectorType.MEAN, threshold);
+        }
+    }
+
+    /**
+     * Test of the getCandidates methods of BoundingVolumeHierarchy and VisibilityField with a threshold equal to the probability of an object.
+     */
+    @Test
+    public void testThresholdEqualToProbability() throws Exception {
+        System.out.println("thresholdEqualToProbability");
+        final AngleMeasure distance = new AngleMeasure();
+        for (SelectorType selectorType : new SelectorType[]{SelectorType.MAX, SelectorType.MEAN}) {
+            final AbstractUnitSelector selector = createSelector(selectorType, 0, distance);
+            BenchmarkFixtures.registerObjects(selector, boxes);
+            final List<SelectableObject> objects = selector.getSelectedObjectRegistry().getEntries();
+            final BoundingVolumeHierarchy hierarchy = BoundingVolumeHierarchy.build(objects);
+            for (int i = 0; i < 5; i++) {
+                final PointingRay3DFloatDistribution rayDist = distributions[i];
+                String best = null;
+                float bestProbability = 0;
+                for (Map.Entry<String, Float> entry : getProbabilities(selector, rayDist).entrySet()) {
+                    if (entry.getValue() > bestProbability) {
+                        best = entry.getKey();
+                        bestProbability = entry.getValue();
+                    }
+                }
+                assertNotNull(best);
+                final VisibilityField field = VisibilityField.build(objects, VOXEL_SIZE, distance, bestProbability);
+                assertNotNull(field);
+                assertTrue(getIds(hierarchy.getCandidates(rayDist, distance, bestProbability)).contains(best));
+                assertTrue(getIds(field.getCandidates(rayDist, distance, bestProbability)).contains(best));
+                final AbstractUnitSelector thresholdSelector = createSelector(selectorType, bestProbability, distance);
+                BenchmarkFixtures.registerObjects(thresholdSelector, boxes);
+                thresholdSelector.enableSpatialIndex();
+                assertEquals(bestProbability, select(thresholdSelector, rayDist).get(best), 0);
+            }
+        }
+    }
+
+    /**
+     * Test of the getCandidates method of BoundingVolumeHierarchy with a distance measure without bound.
+     */
+    @Test
+    public void testUnboundedDistance() throws Exception {
+        System.out.println("unboundedDistance");
+        final OrthogonalMeasure distance = new OrthogonalMeasure();
+        assertFalse(distance.isBounded());
+        final AbstractUnitSelector selector = new MaxSelector(0.5, distance);
+        BenchmarkFixtures.registerObjects(selector, boxes);
+        final AbstractUnitSelector indexedSelector = new MaxSelector(0.5, distance);
+        BenchmarkFixtures.registerObjects(indexedSelector, boxes);
+        indexedSelector.enableSpatialIndex();
+        // without a bound the hierarchy can not skip any object, but it still has to find every selected one.
+        for (PointingRay3DFloatDistribution rayDist : distributions) {
+            assertEquals(select(selector, rayDist), select(indexedSelector, rayDist));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openbase.bco.psc.identification.selection.distance.AbstractDistanceMeasure;
+import org.openbase.bco.psc.identification.selection.distance.DistanceType;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rating of a single box by every distance measure and by the selectors combining the rays of a distribution.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceMeasureBenchmark {
+
+    /**
+     * Number of boxes and ray distributions the benchmarks iterate over, so that no single pair is optimized for.
+     */
+    private static final int FIXTURE_SIZE = 1024;
+
+    @Param({"ANGLE", "ORTHOGONAL", "ANGLE_MAX", "PEARSON"})
+    public DistanceType distanceType;
+
+    @Param({"1", "3", "5"})
+    public int raysPerDistribution;
+
+    private AbstractDistanceMeasure distance;
+    private MaxSelector maxSelector;
+    private MeanSelector meanSelector;
+    private BoundingBox[] boxes;
+    private PointingRay3DFloatDistribution[] distributions;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        distance = BenchmarkFixtures.createDistanceMeasure(distanceType);
+        maxSelector = new MaxSelector(0.5, distance);
+        meanSelector = new MeanSelector(0.5, distance);
+        final List<BoundingBox> boxList = BenchmarkFixtures.createBoxes(FIXTURE_SIZE, 42);
+        boxes = boxList.toArray(new BoundingBox[FIXTURE_SIZE]);
+        final Random random = new Random(7);
+        distributions = new PointingRay3DFloatDistribution[FIXTURE_SIZE];
+        for (int i = 0; i < FIXTURE_SIZE; i++) {
+            distributions[i] = BenchmarkFixtures.createDistribution(random, raysPerDistribution);
+        }
+    }
+
+    @Benchmark
+    public double probability() {
+        next = (next + 1) % FIXTURE_SIZE;
+        return distance.probability(distributions[next].getRay(0).getRay(), boxes[next]);
+    }
+
+    @Benchmark
+    public float maxSelectorCalculateProbability() {
+        next = (next + 1) % FIXTURE_SIZE;
+        return maxSelector.calculateProbability(boxes[next], distributions[next]);
+    }
+
+    @Benchmark
+    public float meanSelectorCalculateProbability() {
+        next = (next + 1) % FIXTURE_SIZE;
+        return meanSelector.calculateProbability(boxes[next], distributions[next]);
+    }
+}
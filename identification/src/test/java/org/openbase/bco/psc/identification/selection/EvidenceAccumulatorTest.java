@@ -0,0 +1,208 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*-
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class EvidenceAccumulatorTest {
+
+    private static final long HALF_LIFE = 100;
+    /**
+     * Frame interval the accumulator assumes for the first frame of a user.
+     */
+    private static final long FRAME_INTERVAL = 33;
+    private static final double EPSILON = 1e-4;
+
+    /**
+     * Weight of the first frame of a new user.
+     */
+    private double firstWeight;
+
+    /**
+     * Selector that selects the unit named by the x coordinate of the ray direction with probability 1, so that the tests do not depend on the
+     * distance measures.
+     */
+    private static class DirectionSelector extends AbstractUnitSelector {
+
+        DirectionSelector() throws org.openbase.jul.exception.InstantiationException {
+            super(0, new AngleMeasure());
+        }
+
+        @Override
+        public List<UnitProbability> getUnitProbabilities(PointingRay3DFloatDistribution rayDist) throws CouldNotPerformException {
+            final String id = "unit" + (int) rayDist.getRay(0).getRay().getDirection().getX();
+            return Collections.singletonList(UnitProbability.newBuilder().setId(id).setProbability(1f).build());
+        }
+
+        @Override
+        protected float calculateProbability(BoundingBox boundingBox, PointingRay3DFloatDistribution pointingRays) {
+            return 0;
+        }
+
+        @Override
+        protected float accumulate(float accumulator, float rayProbability) {
+            return accumulator;
+        }
+    }
+
+    public EvidenceAccumulatorTest() {
+    }
+
+    @Before
+    public void setUp() {
+        firstWeight = 1 - Math.pow(0.5, (double) FRAME_INTERVAL / HALF_LIFE);
+    }
+
+    private static PointingRay3DFloatDistribution ray(double originX, int unit) {
+        final Vec3DFloat origin = Vec3DFloat.newBuilder().setX((float) originX).setZ(1f).build();
+        final Vec3DFloat direction = Vec3DFloat.newBuilder().setX(unit).setY(1f).build();
+        return PointingRay3DFloatDistribution.newBuilder().addRay(PointingRay3DFloat.newBuilder().setCertainty(1f)
+                .setRay(Ray3DFloat.newBuilder().setOrigin(origin).setDirection(direction))).build();
+    }
+
+    private static PointingRay3DFloatDistributionCollection frame(PointingRay3DFloatDistribution... rays) {
+        final PointingRay3DFloatDistributionCollection.Builder collection = PointingRay3DFloatDistributionCollection.newBuilder();
+        for (PointingRay3DFloatDistribution rayDist : rays) {
+            collection.addElement(rayDist);
+        }
+        return collection.build();
+    }
+
+    /**
+     * Test of decay method, of class EvidenceAccumulator.
+     */
+    @Test
+    public void testDecayWithdrawsUnits() throws Exception {
+        System.out.println("decayWithdrawsUnits");
+        final EvidenceAccumulator accumulator = new EvidenceAccumulator(new DirectionSelector(), HALF_LIFE, firstWeight / 2);
+        assertTrue(accumulator.update(frame(ray(0, 1)), 1000));
+        assertEquals(1, accumulator.getUnitProbabilities().getElementCount());
+        // the user stops pointing.
+        assertFalse(accumulator.update(frame(), 1000));
+
+        // the score only falls below the threshold after one half-life.
+        assertFalse(accumulator.decay(1000 + HALF_LIFE - 5));
+        assertEquals(1, accumulator.getUnitProbabilities().getElementCount());
+        assertTrue(accumulator.decay(1000 + HALF_LIFE + 5));
+        assertEquals(0, accumulator.getUnitProbabilities().getElementCount());
+        assertFalse(accumulator.decay(1000 + 10 * HALF_LIFE));
+    }
+
+    /**
+     * Test of the half-life weighting of the update method, of class EvidenceAccumulator.
+     */
+    @Test
+    public void testHalfLife() throws Exception {
+        System.out.println("halfLife");
+        final EvidenceAccumulator accumulator = new EvidenceAccumulator(new DirectionSelector(), HALF_LIFE, 0.01);
+        assertTrue(accumulator.update(frame(ray(0, 1)), 1000));
+        UnitProbabilityCollection units = accumulator.getUnitProbabilities();
+        assertEquals("unit1", units.getElement(0).getId());
+        assertEquals(firstWeight, units.getElement(0).getProbability(), EPSILON);
+
+        assertTrue(accumulator.update(frame(ray(0, 2)), 1000 + HALF_LIFE));
+        units = accumulator.getUnitProbabilities();
+        assertEquals(2, units.getElementCount());
+        assertEquals("unit2", units.getElement(0).getId());
+        assertEquals(0.5, units.getElement(0).getProbability(), EPSILON);
+        assertEquals("unit1", units.getElement(1).getId());
+        assertEquals(firstWeight / 2, units.getElement(1).getProbability(), EPSILON);
+
+        // a periodic decay of a user who stopped pointing must not change the weight of the next frame.
+        assertFalse(accumulator.update(frame(), 1000 + 2 * HALF_LIFE));
+        accumulator.decay(1000 + 5 * HALF_LIFE / 2);
+        assertTrue(accumulator.update(frame(ray(0, 3)), 1000 + 3 * HALF_LIFE));
+        units = accumulator.getUnitProbabilities();
+        assertEquals("unit3", units.getElement(0).getId());
+        assertEquals(0.75, units.getElement(0).getProbability(), EPSILON);
+        assertEquals("unit2", units.getElement(1).getId());
+        assertEquals(0.125, units.getElement(1).getProbability(), EPSILON);
+    }
+
+    /**
+     * Test of decay method while the rays do not change, of class EvidenceAccumulator.
+     */
+    @Test
+    public void testDecayHoldsUnchangedRays() throws Exception {
+        System.out.println("decayHoldsUnchangedRays");
+        final EvidenceAccumulator accumulator = new EvidenceAccumulator(new DirectionSelector(), HALF_LIFE, 0.5);
+        assertFalse(accumulator.update(frame(ray(0, 1)), 1000));
+        // no frame is received while the user keeps pointing, e.g. until the heartbeat of the ray extractor, which may be longer than the half-life.
+        assertTrue(accumulator.decay(1000 + HALF_LIFE));
+        for (long time = 1000 + 2 * HALF_LIFE; time <= 1000 + 10 * HALF_LIFE; time += HALF_LIFE) {
+            assertFalse(accumulator.decay(time));
+            assertEquals("unit1", accumulator.getUnitProbabilities().getElement(0).getId());
+        }
+        // the repeated frame of the heartbeat does not change anything.
+        assertFalse(accumulator.update(frame(ray(0, 1)), 1000 + 20 * HALF_LIFE));
+
+        // the user stops pointing, so the held score of almost 1 falls below the threshold after one half-life.
+        assertFalse(accumulator.update(frame(), 1000 + 20 * HALF_LIFE));
+        assertFalse(accumulator.decay(1000 + 21 * HALF_LIFE - 5));
+        assertTrue(accumulator.decay(1000 + 21 * HALF_LIFE + 5));
+        assertEquals(0, accumulator.getUnitProbabilities().getElementCount());
+    }
+
+    /**
+     * Test of the assignment of rays to users, of class EvidenceAccumulator.
+     */
+    @Test
+    public void testUserSeparation() throws Exception {
+        System.out.println("userSeparation");
+        final EvidenceAccumulator accumulator = new EvidenceAccumulator(new DirectionSelector(), HALF_LIFE, 0.01);
+        // two users pointing at the same unit are not summed up.
+        assertTrue(accumulator.update(frame(ray(0, 1), ray(2, 1)), 1000));
+        assertEquals(firstWeight, accumulator.getUnitProbabilities().getElement(0).getProbability(), EPSILON);
+
+        // the second user moved by less than the association distance and keeps pointing, while the first user stopped.
+        assertTrue(accumulator.update(frame(ray(2.3, 3)), 1000 + HALF_LIFE));
+        UnitProbabilityCollection units = accumulator.getUnitProbabilities();
+        assertEquals(2, units.getElementCount());
+        assertEquals("unit3", units.getElement(0).getId());
+        assertEquals(0.5, units.getElement(0).getProbability(), EPSILON);
+        assertEquals(firstWeight / 2, units.getElement(1).getProbability(), EPSILON);
+
+        // a ray further away than the association distance belongs to a new user, whose first frame has less weight.
+        assertTrue(accumulator.update(frame(ray(2.3, 3), ray(3.5, 4)), 1000 + 2 * HALF_LIFE));
+        units = accumulator.getUnitProbabilities();
+        assertEquals(3, units.getElementCount());
+        assertEquals("unit4", units.getElement(1).getId());
+        assertTrue(units.getElement(1).getProbability() < 0.5);
+    }
+}
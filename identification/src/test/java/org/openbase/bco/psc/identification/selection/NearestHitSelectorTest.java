@@ -0,0 +1,158 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*-
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.type.domotic.unit.UnitProbabilityType.UnitProbability;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class NearestHitSelectorTest {
+
+    private static final double THRESHOLD = 0.5;
+    private static final double EPSILON = 1e-4;
+
+    /**
+     * A unit in front of the ray origin, a unit behind it and a unit to the side.
+     */
+    private final List<BoundingBox> boxes = Arrays.asList(box(2, -0.25, 0.75, 0.5f, 0.5f, 0.5f), box(4, -0.25, 0.75, 0.5f, 0.5f, 0.5f),
+            box(2, 1.75, 0.75, 0.5f, 0.5f, 0.5f));
+    private final String front = BenchmarkFixtures.getUnitId(0);
+    private final String behind = BenchmarkFixtures.getUnitId(1);
+    private final String side = BenchmarkFixtures.getUnitId(2);
+
+    private NearestHitSelector selector;
+
+    public NearestHitSelectorTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        selector = new NearestHitSelector(THRESHOLD, new AngleMeasure());
+        BenchmarkFixtures.registerObjects(selector, boxes);
+    }
+
+    /**
+     * Creates an axis aligned box with the given left front bottom corner.
+     */
+    private static BoundingBox box(double x, double y, double z, float width, float depth, float height) {
+        return new BoundingBox(new Transform3D(new Quat4d(0, 0, 0, 1), new Vector3d(x, y, z), 1), width, depth, height);
+    }
+
+    private static PointingRay3DFloatDistribution ray(float directionX, float directionY) {
+        final Vec3DFloat origin = Vec3DFloat.newBuilder().setZ(1f).build();
+        final Vec3DFloat direction = Vec3DFloat.newBuilder().setX(directionX).setY(directionY).build();
+        return PointingRay3DFloatDistribution.newBuilder().addRay(PointingRay3DFloat.newBuilder().setCertainty(1f)
+                .setRay(Ray3DFloat.newBuilder().setOrigin(origin).setDirection(direction))).build();
+    }
+
+    private Map<String, Float> select(final AbstractUnitSelector unitSelector, final PointingRay3DFloatDistribution rayDist) throws Exception {
+        final Map<String, Float> selected = new HashMap<>();
+        for (UnitProbability unitProbability : unitSelector.getUnitProbabilities(rayDist)) {
+            selected.put(unitProbability.getId(), unitProbability.getProbability());
+        }
+        return selected;
+    }
+
+    /**
+     * Adds a wall between the ray origin and the unit to the side.
+     */
+    private void addWall() throws Exception {
+        final BoundingBox wall = box(1, 0.6, 0, 0.05f, 3, 3);
+        final LocationWalls locationWalls = new LocationWalls() {
+            @Override
+            public synchronized List<BoundingBox> getWalls() {
+                return Collections.singletonList(wall);
+            }
+        };
+        selector.getLocationRegistry().replaceInternalMap(Collections.singletonMap("location", locationWalls));
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    /**
+     * Test of getUnitProbabilities method with a ray hitting a unit, of class NearestHitSelector.
+     */
+    @Test
+    public void testDirectHit() throws Exception {
+        System.out.println("directHit");
+        final Map<String, Float> selected = select(selector, ray(1, 0));
+        // the other units reach the threshold without occlusion, but only the hit unit is rated.
+        assertEquals(ids(front), selected.keySet());
+        assertEquals(1, selected.get(front), EPSILON);
+        final MaxSelector maxSelector = new MaxSelector(THRESHOLD, new AngleMeasure());
+        BenchmarkFixtures.registerObjects(maxSelector, boxes);
+        assertEquals(ids(front, behind, side), select(maxSelector, ray(1, 0)).keySet());
+    }
+
+    /**
+     * Test of getUnitProbabilities method with a ray missing all units, of class NearestHitSelector.
+     */
+    @Test
+    public void testOccludedUnit() throws Exception {
+        System.out.println("occludedUnit");
+        final PointingRay3DFloatDistribution rayDist = ray(1, 0.5f);
+        final Map<String, Float> selected = select(selector, rayDist);
+        // the unit behind is within the threshold angle, but its center is occluded by the unit in front.
+        assertEquals(ids(front, side), selected.keySet());
+        final AngleMeasure distance = new AngleMeasure();
+        assertEquals(distance.probability(rayDist.getRay(0).getRay(), boxes.get(0)), selected.get(front), EPSILON);
+        assertEquals(distance.probability(rayDist.getRay(0).getRay(), boxes.get(2)), selected.get(side), EPSILON);
+        assertTrue(distance.probability(rayDist.getRay(0).getRay(), boxes.get(1)) >= THRESHOLD);
+    }
+
+    /**
+     * Test of getUnitProbabilities method with a unit behind a wall, of class NearestHitSelector.
+     */
+    @Test
+    public void testUnitBehindWall() throws Exception {
+        System.out.println("unitBehindWall");
+        assertEquals(ids(side), select(selector, ray(1, 0.8f)).keySet());
+        addWall();
+        // the ray passes the wall, but the line of sight to the unit to the side does not.
+        assertEquals(ids(front), select(selector, ray(1, 0.5f)).keySet());
+        // the ray hits the wall before the unit to the side, so only the visible unit in front is rated.
+        assertEquals(ids(front), select(selector, ray(1, 0.8f)).keySet());
+        assertEquals(ids(front), select(selector, ray(1, 0)).keySet());
+    }
+}
@@ -0,0 +1,205 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*-
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.List;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Point3d;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class RayCasterTest {
+
+    private static final int BOX = 0;
+    private static final int WALL = 1;
+    private static final int FRONT_BOX = 2;
+
+    /**
+     * A box behind a wall, a box in front of the wall and randomly placed boxes far above, so that the caster consists of several nodes.
+     */
+    private List<BoundingBox> boxes;
+
+    public RayCasterTest() {
+    }
+
+    @Before
+    public void setUp() {
+        boxes = new ArrayList<>();
+        boxes.add(box(4, -0.5, 0.5, 1, 1, 1));
+        boxes.add(box(2, -3, -1, 0.1f, 6, 4));
+        boxes.add(box(1, -1.5, 0.5, 0.5f, 0.5f, 0.5f));
+        for (BoundingBox box : BenchmarkFixtures.createBoxes(20, 1)) {
+            boxes.add(new BoundingBox(moveUp(box), box.getWidth(), box.getDepth(), box.getHeight()));
+        }
+    }
+
+    /**
+     * Creates an axis aligned box with the given left front bottom corner.
+     */
+    private static BoundingBox box(double x, double y, double z, float width, float depth, float height) {
+        return new BoundingBox(new Transform3D(new Quat4d(0, 0, 0, 1), new Vector3d(x, y, z), 1), width, depth, height);
+    }
+
+    /**
+     * Moves the transformation of a box 10 meters up, so that it is far away from the boxes of the tests.
+     */
+    private static Transform3D moveUp(final BoundingBox box) {
+        final Transform3D transform = box.getForwardTransform();
+        final Vector3d translation = new Vector3d();
+        transform.get(translation);
+        translation.z += 10;
+        transform.setTranslation(translation);
+        return transform;
+    }
+
+    /**
+     * Test of castRay method with a box behind a wall, of class RayCaster.
+     */
+    @Test
+    public void testBoxBehindWall() {
+        System.out.println("boxBehindWall");
+        final RayCaster caster = new RayCaster(boxes);
+        assertEquals(boxes.size(), caster.size());
+        assertEquals(WALL, caster.castRay(0, 0.1, 1.1, 1, 0.01, 0, Double.POSITIVE_INFINITY));
+        assertTrue(caster.isOccluded(0, 0, 1, 4.5, 0, 1, 1, BOX));
+        // the wall is not reached by the checked part of the segment.
+        assertFalse(caster.isOccluded(0, 0, 1, 4.5, 0, 1, 0.4, BOX));
+        // the box is hit without the wall.
+        final List<BoundingBox> withoutWall = new ArrayList<>(boxes);
+        withoutWall.remove(WALL);
+        assertEquals(BOX, new RayCaster(withoutWall).castRay(0, 0.1, 1.1, 1, 0.01, 0, Double.POSITIVE_INFINITY));
+        assertFalse(new RayCaster(withoutWall).isOccluded(0, 0, 1, 4.5, 0, 1, 1, BOX));
+    }
+
+    /**
+     * Test of castRay method with a ray that hits the wall before the box, of class RayCaster.
+     */
+    @Test
+    public void testWallHitFirst() {
+        System.out.println("wallHitFirst");
+        // the box is listed after the wall, so the order of the list does not decide the hit.
+        final List<BoundingBox> reordered = new ArrayList<>(boxes);
+        reordered.add(reordered.remove(BOX));
+        final int wall = WALL - 1, frontBox = FRONT_BOX - 1, box = reordered.size() - 1;
+        final RayCaster caster = new RayCaster(reordered);
+        assertEquals(wall, caster.castRay(0, 0, 1, 1, 0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(box, caster.castRay(3, 0, 1, 1, 0, 0, Double.POSITIVE_INFINITY));
+        // the box in front of the wall is hit before the wall behind it.
+        assertEquals(frontBox, caster.castRay(0, 0, 1, 1.25, -1.25, -0.25, Double.POSITIVE_INFINITY));
+        // the wall is only hit within the maximal distance.
+        assertEquals(-1, caster.castRay(0, 0, 1, 1, 0, 0, 1.9));
+        assertEquals(wall, caster.castRay(0, 0, 1, 1, 0, 0, 2.05));
+    }
+
+    /**
+     * Test of castRay and isOccluded methods with rays parallel to the axes, of class RayCaster.
+     */
+    @Test
+    public void testAxisParallelRays() {
+        System.out.println("axisParallelRays");
+        final RayCaster caster = new RayCaster(boxes);
+        assertEquals(WALL, caster.castRay(0, 1.5, 2.5, 1, 0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(BOX, caster.castRay(4.5, 0, -5, 0, 0, 1, Double.POSITIVE_INFINITY));
+        assertEquals(BOX, caster.castRay(4.5, 5, 1, 0, -1, 0, Double.POSITIVE_INFINITY));
+        assertEquals(FRONT_BOX, caster.castRay(1.25, -1.25, 0, 0, 0, 2, Double.POSITIVE_INFINITY));
+        // a ray along a face of the wall, whose origin lies on the bounds of the nodes containing the wall.
+        assertEquals(WALL, caster.castRay(0, -3, 1, 1, 0, 0, 10));
+        // rays passing the boxes in parallel to their faces.
+        assertEquals(-1, caster.castRay(4.5, 0.6, -5, 0, 0, 1, 8));
+        assertEquals(-1, caster.castRay(0, 2.1, 3.5, 1, 0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(-1, caster.castRay(5.1, 5, 1, 0, -1, 0, Double.POSITIVE_INFINITY));
+        assertTrue(caster.isOccluded(0, 0, 1, 4.5, 0, 1, 1, -1));
+        assertFalse(caster.isOccluded(4.5, 0, -5, 4.5, 0, 0, 1, -1));
+        assertTrue(caster.isOccluded(4.5, 0, -5, 4.5, 0, 1, 1, -1));
+        assertFalse(caster.isOccluded(4.5, 0, -5, 4.5, 0, 1, 1, BOX));
+    }
+
+    /**
+     * Test of castRay and isOccluded methods with a ray origin inside a box, of class RayCaster.
+     */
+    @Test
+    public void testOriginInsideBox() {
+        System.out.println("originInsideBox");
+        final RayCaster caster = new RayCaster(boxes);
+        // the box containing the origin is ignored, so the ray leaves it and hits the wall.
+        assertEquals(WALL, caster.castRay(4.5, 0, 1, -1, 0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(-1, caster.castRay(4.5, 0, 1, 1, 0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(-1, caster.castRay(2.05, 0, 1, 1, 0, 0, 1.9));
+        assertEquals(BOX, caster.castRay(2.05, 0, 1, 1, 0, 0, Double.POSITIVE_INFINITY));
+        assertFalse(caster.isOccluded(4.5, 0, 1, 8, 0, 1, 1, -1));
+        assertTrue(caster.isOccluded(4.5, 0, 1, 0, 0, 1, 1, -1));
+        assertFalse(caster.isOccluded(4.5, 0, 1, 0, 0, 1, 1, WALL));
+    }
+
+    /**
+     * Test of castRay method against a search over all rotated boxes, of class RayCaster.
+     */
+    @Test
+    public void testRotatedBoxes() {
+        System.out.println("rotatedBoxes");
+        final List<BoundingBox> rotated = BenchmarkFixtures.createBoxes(50, 2);
+        final RayCaster caster = new RayCaster(rotated);
+        final Point3d origin = new Point3d(BenchmarkFixtures.ROOM_SIZE / 2, BenchmarkFixtures.ROOM_SIZE / 2, 1.5);
+        for (BoundingBox target : rotated) {
+            final Vector3d direction = new Vector3d(target.getRootCenter());
+            direction.sub(origin);
+            int expected = -1;
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < rotated.size(); i++) {
+                final double entry = getEntry(rotated.get(i), origin, direction);
+                if (entry >= 0 && entry < nearest) {
+                    nearest = entry;
+                    expected = i;
+                }
+            }
+            assertEquals(expected, caster.castRay(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, Double.POSITIVE_INFINITY));
+        }
+    }
+
+    /**
+     * Calculates the entry distance of a ray into a box in multiples of the direction.
+     *
+     * @return the entry distance, which is negative if the origin is inside the box, or NaN if the box is missed.
+     */
+    private static double getEntry(final BoundingBox box, final Point3d origin, final Vector3d direction) {
+        final double[] o = new double[3], d = new double[3], extent = {box.getWidth() / 2.0, box.getDepth() / 2.0, box.getHeight() / 2.0};
+        box.toCenterCoordinates(origin).get(o);
+        box.toCenterCoordinates(direction).get(d);
+        double entry = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            final double t1 = (-extent[axis] - o[axis]) / d[axis];
+            final double t2 = (extent[axis] - o[axis]) / d[axis];
+            entry = Math.max(entry, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return entry <= exit && exit >= 0 ? entry : Double.NaN;
+    }
+}
@@ -0,0 +1,104 @@
+package org.openbase.bco.psc.identification.selection;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Identification
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openbase.bco.psc.identification.selection.distance.AngleMeasure;
+import org.openbase.type.domotic.unit.UnitProbabilityCollectionType.UnitProbabilityCollection;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rating of a synthetic room by the unit selectors, with and without the spatial index and the scoring engine.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitSelectorBenchmark {
+
+    /**
+     * Number of different ray collections the benchmarks iterate over, so that no single ray is optimized for.
+     */
+    private static final int COLLECTION_COUNT = 64;
+
+    public enum Index {
+        NONE,
+        SPATIAL_INDEX,
+        SCORING_ENGINE
+    }
+
+    @Param({"10", "100", "1000", "10000", "50000"})
+    public int unitCount;
+
+    @Param({"1", "3", "5"})
+    public int raysPerDistribution;
+
+    @Param({"MAX", "MEAN"})
+    public SelectorType selectorType;
+
+    @Param({"NONE", "SPATIAL_INDEX", "SCORING_ENGINE"})
+    public Index index;
+
+    private AbstractUnitSelector selector;
+    private PointingRay3DFloatDistributionCollection[] collections;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        selector = selectorType == SelectorType.MAX ? new MaxSelector(0.5, new AngleMeasure()) : new MeanSelector(0.5, new AngleMeasure());
+        BenchmarkFixtures.registerObjects(selector, BenchmarkFixtures.createBoxes(unitCount, 42));
+        switch (index) {
+            case SPATIAL_INDEX:
+                selector.enableSpatialIndex();
+                break;
+            case SCORING_ENGINE:
+                selector.enableScoringEngine();
+                break;
+            default:
+                break;
+        }
+        collections = BenchmarkFixtures.createCollections(COLLECTION_COUNT, raysPerDistribution, 7);
+    }
+
+    @Benchmark
+    public UnitProbabilityCollection getUnitProbabilities() throws Exception {
+        next = (next + 1) % COLLECTION_COUNT;
+        return selector.getUnitProbabilities(collections[next]);
+    }
+}
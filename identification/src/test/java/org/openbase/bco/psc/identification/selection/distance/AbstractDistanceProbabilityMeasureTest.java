@@ -21,11 +21,18 @@ package org.openbase.bco.psc.identification.selection.distance;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.media.j3d.Transform3D;
 import javax.vecmath.Point3d;
+import javax.vecmath.Quat4d;
 import javax.vecmath.Vector3d;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import static org.openbase.bco.psc.identification.Testing.*;
+import org.openbase.bco.psc.identification.selection.BoundingBox;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
 import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
 
 /**
@@ -150,4 +157,93 @@ public class AbstractDistanceProbabilityMeasureTest {
                 AbstractDistanceMeasure.getMaximalPointOnBox(new Point3d(2.000000, 0.600000, 1.600000),
                         new Vector3d(-1.500000, -0.300000, -0.700000), 1.000000f, 1.000000f, 1.000000f), delta);
     }
+
+    /**
+     * Test of distanceProbability method, of class OrthogonalMeasure.
+     */
+    @Test
+    public void testOrthogonalMeasure() {
+        System.out.println("orthogonalMeasure");
+        double delta = 0.000001;
+        OrthogonalMeasure measure = new OrthogonalMeasure();
+        assertEquals(1.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1, 0, 0), 1f, 1f, 1f), delta);
+        assertEquals(0.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(-1, 0, 0), 1f, 1f, 1f), delta);
+        // a ray touching the bounding sphere of the box
+        assertEquals(0.5, measure.distanceProbability(new Point3d(-2, Math.sqrt(3) / 2, 0), new Vector3d(1, 0, 0), 1f, 1f, 1f), delta);
+        assertTrue(measure.distanceProbability(new Point3d(-2, 0.2, 0), new Vector3d(1, 0, 0), 1f, 1f, 1f)
+                > measure.distanceProbability(new Point3d(-2, 0.4, 0), new Vector3d(1, 0, 0), 1f, 1f, 1f));
+    }
+
+    /**
+     * Test of distanceProbability method, of class PearsonMeasure.
+     */
+    @Test
+    public void testPearsonMeasure() {
+        System.out.println("pearsonMeasure");
+        double delta = 0.000001;
+        PearsonMeasure measure = new PearsonMeasure();
+        assertEquals(1.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1, 0, 0), 1f, 0.2f, 1f), delta);
+        assertEquals(0.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(-1, 0, 0), 1f, 0.2f, 1f), delta);
+        // rays touching the inscribed ellipsoid of the box
+        assertEquals(0.5, measure.distanceProbability(new Point3d(-2, 0.1, 0), new Vector3d(1, 0, 0), 1f, 0.2f, 1f), delta);
+        assertEquals(0.5, measure.distanceProbability(new Point3d(-2, 0, 0.5), new Vector3d(1, 0, 0), 1f, 0.2f, 1f), delta);
+    }
+
+    /**
+     * Test of distanceProbability method, of class AngleVsMaxMeasure.
+     */
+    @Test
+    public void testAngleVsMaxMeasure() {
+        System.out.println("angleVsMaxMeasure");
+        double delta = 0.000001;
+        AngleVsMaxMeasure measure = new AngleVsMaxMeasure();
+        assertEquals(1.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1, 0, 0), 1f, 1f, 1f), delta);
+        assertEquals(0.0, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(-1, 0, 0), 1f, 1f, 1f), delta);
+        // a ray pointing at the edge of the box, which is the maximal point in the pointing plane
+        assertEquals(0.5, measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1.5, 0.5, 0), 1f, 1f, 1f), delta);
+        // the same angle is rated higher for a bigger box
+        assertTrue(measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1.5, 0.5, 0), 2f, 2f, 2f)
+                > measure.distanceProbability(new Point3d(-2, 0, 0), new Vector3d(1.5, 0.5, 0), 1f, 1f, 1f));
+    }
+
+    /**
+     * Test of score method, of class AngleScoringEngine, against the probability method of class AngleMeasure.
+     */
+    @Test
+    public void testAngleScoringEngine() {
+        System.out.println("angleScoringEngine");
+        double delta = 0.001;
+        Random random = new Random(42);
+        List<BoundingBox> boxes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Quat4d rotation = new Quat4d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+            rotation.normalize();
+            Vector3d translation = new Vector3d(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 3);
+            boxes.add(new BoundingBox(new Transform3D(rotation, translation, 1), 0.1f + random.nextFloat(), 0.1f + random.nextFloat(), 0.1f + random.nextFloat()));
+        }
+        AngleScoringEngine engine = new AngleScoringEngine(boxes);
+        assertEquals(boxes.size(), engine.size());
+        AngleMeasure measure = new AngleMeasure();
+        double[] probabilities = new double[engine.size()];
+        for (int r = 0; r < 200; r++) {
+            Ray3DFloat ray = Ray3DFloat.newBuilder()
+                    .setOrigin(toVec3DFloat(random.nextFloat() * 10 - 5, random.nextFloat() * 10 - 5, random.nextFloat() * 2))
+                    .setDirection(toVec3DFloat((float) random.nextGaussian(), (float) random.nextGaussian(), (float) random.nextGaussian()))
+                    .build();
+            engine.score(ray, probabilities);
+            for (int i = 0; i < boxes.size(); i++) {
+                assertEquals(measure.probability(ray, boxes.get(i)), probabilities[i], delta);
+            }
+        }
+        System.out.println("ray at root origin");
+        Ray3DFloat ray = Ray3DFloat.newBuilder().setOrigin(toVec3DFloat(0.01f, 0, 0.02f)).setDirection(toVec3DFloat(0, 0, 1)).build();
+        engine.score(ray, probabilities);
+        for (int i = 0; i < boxes.size(); i++) {
+            assertEquals(measure.probability(ray, boxes.get(i)), probabilities[i], 0.0);
+        }
+    }
+
+    private static Vec3DFloat toVec3DFloat(float x, float y, float z) {
+        return Vec3DFloat.newBuilder().setX(x).setY(y).setZ(z).build();
+    }
 }
@@ -0,0 +1,375 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.slf4j.LoggerFactory;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+/**
+ * Loads data derived from unit configs, e.g. transformations or service remotes, in parallel on a bounded executor. All loads of a registry update are
+ * started at once, so that the objects created one after another by a RegistrySynchronizer only wait for the slowest load instead of the sum of all loads.
+ * Data is only loaded again if the fingerprint of the config changed. Data loaded in advance that is not handed out is discarded when its config is removed,
+ * turns out not to be required or is released explicitly.
+ *
+ * @param <DATA> the type of the loaded data.
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public abstract class AbstractParallelConfigLoader<DATA> {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(AbstractParallelConfigLoader.class);
+    /**
+     * Default number of loads executed at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private final int parallelism;
+    private final Map<String, Load<DATA>> loads = new HashMap<>();
+    /**
+     * Executor running the loads, replaced when the loader is started again after a shutdown.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism the maximal number of loads executed at the same time.
+     */
+    public AbstractParallelConfigLoader(final int parallelism) {
+        this.parallelism = parallelism;
+        this.executorService = createExecutorService();
+    }
+
+    private ExecutorService createExecutorService() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, getClass().getSimpleName() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts loading the data of all dal units and unit groups of the registry, which are the only units that can be pointing control units.
+     *
+     * @param unitRegistryData the data of the unit registry.
+     * @throws InterruptedException if interrupted while checking the candidates.
+     */
+    public void loadAll(final UnitRegistryData unitRegistryData) throws InterruptedException {
+        final List<UnitConfig> configs = new ArrayList<>(unitRegistryData.getDalUnitConfigList());
+        configs.addAll(unitRegistryData.getUnitGroupUnitConfigList());
+        loadAll(configs);
+    }
+
+    /**
+     * Starts loading the data of all candidate configs whose fingerprint changed since their data was last loaded. The loads of configs that are not
+     * contained anymore are discarded. Nothing is loaded while the loader is shut down.
+     *
+     * @param configs the configs of the registry.
+     * @throws InterruptedException if interrupted while checking the candidates.
+     */
+    public void loadAll(final Collection<UnitConfig> configs) throws InterruptedException {
+        synchronized (this) {
+            if (executorService.isShutdown()) {
+                return;
+            }
+        }
+        final Set<String> ids = new HashSet<>();
+        for (UnitConfig config : configs) {
+            ids.add(config.getId());
+        }
+        synchronized (this) {
+            for (Iterator<Map.Entry<String, Load<DATA>>> iterator = loads.entrySet().iterator(); iterator.hasNext();) {
+                final Map.Entry<String, Load<DATA>> entry = iterator.next();
+                if (!ids.contains(entry.getKey())) {
+                    if (entry.getValue().future != null) {
+                        discardLoad(entry.getValue());
+                    }
+                    iterator.remove();
+                }
+            }
+        }
+        int started = 0;
+        for (UnitConfig config : configs) {
+            try {
+                if (!isCandidate(config)) {
+                    continue;
+                }
+                final long fingerprint = getFingerprint(config);
+                synchronized (this) {
+                    if (executorService.isShutdown()) {
+                        return;
+                    }
+                    final Load<DATA> current = loads.get(config.getId());
+                    if (current != null && current.fingerprint == fingerprint) {
+                        continue;
+                    }
+                    if (current != null && current.future != null) {
+                        discardLoad(current);
+                    }
+                    final Load<DATA> load = new Load<>(fingerprint);
+                    load.future = submitInAdvance(config, load);
+                    loads.put(config.getId(), load);
+                    started++;
+                }
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not check unit " + config.getId() + " for loading", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+        if (started > 0) {
+            LOGGER.debug("Started " + started + " loads of " + getClass().getSimpleName() + ".");
+        }
+    }
+
+    /**
+     * Gets the data of a config. If its loading was started in advance for the same fingerprint, its result is taken, otherwise the loading is started now.
+     * The data is handed out once, afterwards only the fingerprint is kept, so that unchanged configs are not loaded again. If the config was not considered
+     * required when loading in advance, the data is loaded now.
+     *
+     * @param config the config of the unit.
+     * @return the loaded data.
+     * @throws CouldNotPerformException if the data could not be loaded or if the loader is shut down.
+     * @throws InterruptedException if interrupted while waiting for the data.
+     */
+    public DATA get(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        final long fingerprint = getFingerprint(config);
+        final Future<DATA> future;
+        synchronized (this) {
+            if (executorService.isShutdown()) {
+                throw new CouldNotPerformException("Could not load data of unit " + config.getId() + " because the loader is shut down.");
+            }
+            Load<DATA> load = loads.get(config.getId());
+            if (load == null || load.fingerprint != fingerprint || load.future == null) {
+                if (load != null && load.future != null) {
+                    discardLoad(load);
+                }
+                load = new Load<>(fingerprint);
+                load.future = submit(config, load);
+                loads.put(config.getId(), load);
+            }
+            future = load.future;
+            load.future = null;
+        }
+        try {
+            final DATA data = future.get();
+            if (data != null) {
+                return data;
+            }
+            final Future<DATA> retry;
+            synchronized (this) {
+                if (executorService.isShutdown()) {
+                    throw new CouldNotPerformException("Could not load data of unit " + config.getId() + " because the loader is shut down.");
+                }
+                retry = submit(config, new Load<>(fingerprint));
+            }
+            return retry.get();
+        } catch (CancellationException ex) {
+            throw new CouldNotPerformException("Could not load data of unit " + config.getId() + " because the loader was shut down.", ex);
+        } catch (ExecutionException ex) {
+            synchronized (this) {
+                loads.remove(config.getId());
+            }
+            throw new CouldNotPerformException("Could not load data of unit " + config.getId(), ex.getCause());
+        }
+    }
+
+    /**
+     * Discards the data loaded in advance for a config which is not going to be requested, e.g. because it was filtered by the synchronizer.
+     * Data that was already handed out is not affected.
+     *
+     * @param config the config of the unit.
+     */
+    public synchronized void release(final UnitConfig config) {
+        final Load<DATA> load = loads.get(config.getId());
+        if (load != null && load.future != null) {
+            discardLoad(load);
+            loads.remove(config.getId());
+        }
+    }
+
+    /**
+     * Starts the threads of the loader again after a shutdown. Does nothing if the loader is running.
+     */
+    public synchronized void start() {
+        if (executorService.isShutdown()) {
+            executorService = createExecutorService();
+        }
+    }
+
+    /**
+     * Stops all loads and discards the data that has not been handed out. Nothing is loaded until the loader is started again.
+     */
+    public synchronized void shutdown() {
+        for (Load<DATA> load : loads.values()) {
+            if (load.future != null) {
+                discardLoad(load);
+            }
+        }
+        loads.clear();
+        for (Runnable pending : executorService.shutdownNow()) {
+            // loads that never started would otherwise block the callers waiting for them.
+            ((Future<?>) pending).cancel(false);
+        }
+    }
+
+    private Future<DATA> submit(final UnitConfig config, final Load<DATA> load) {
+        return executorService.submit(() -> complete(load, load(config)));
+    }
+
+    private Future<DATA> submitInAdvance(final UnitConfig config, final Load<DATA> load) {
+        return executorService.submit(() -> complete(load, isRequired(config) ? load(config) : null));
+    }
+
+    /**
+     * Hands out the data of a finished load, or discards it if the load was discarded while it was running.
+     *
+     * @param load the load.
+     * @param data the loaded data, may be null.
+     * @return the data or null if it was discarded.
+     */
+    private DATA complete(final Load<DATA> load, final DATA data) {
+        if (data == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (!load.discarded) {
+                load.loaded = true;
+                return data;
+            }
+        }
+        discard(data);
+        return null;
+    }
+
+    /**
+     * Discards a load whose data has not been handed out. Data that is still loading is discarded when the load finishes, because the loading may
+     * not react to a cancellation. Has to be called while holding the lock of this loader.
+     *
+     * @param load the load.
+     */
+    private void discardLoad(final Load<DATA> load) {
+        load.discarded = true;
+        if (!load.loaded) {
+            // loads that did not start yet are skipped, running ones discard their data themselves.
+            load.future.cancel(false);
+            return;
+        }
+        try {
+            discard(load.future.get());
+        } catch (ExecutionException | CancellationException ex) {
+            // failed loads have nothing to discard.
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the fingerprint of the parts of a config the loaded data depends on.
+     *
+     * @param config the config of the unit.
+     * @return the fingerprint, which has to be stable across restarts.
+     */
+    public abstract long getFingerprint(final UnitConfig config);
+
+    /**
+     * Cheap check whether data may be required for a config, which is used to skip loads for configs that are filtered anyway.
+     *
+     * @param config the config of the unit.
+     * @return true if the data of the config should be loaded in advance.
+     * @throws CouldNotPerformException if the check failed.
+     * @throws InterruptedException if interrupted during the check.
+     */
+    protected abstract boolean isCandidate(final UnitConfig config) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Complete check whether data is required for a config, which is evaluated on the threads of the executor before loading in advance, so that
+     * expensive checks do not delay the start of the other loads. All candidates are required by default.
+     *
+     * @param config the config of the unit.
+     * @return true if the data of the config is going to be requested.
+     * @throws CouldNotPerformException if the check failed.
+     * @throws InterruptedException if interrupted during the check.
+     */
+    protected boolean isRequired(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        return true;
+    }
+
+    /**
+     * Loads the data of a config. This is called on the threads of the executor.
+     *
+     * @param config the config of the unit.
+     * @return the loaded data.
+     * @throws CouldNotPerformException if the data could not be loaded.
+     * @throws InterruptedException if interrupted while loading.
+     */
+    protected abstract DATA load(final UnitConfig config) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Releases data that was loaded but never handed out. Does nothing by default.
+     *
+     * @param data the data to release.
+     */
+    protected void discard(final DATA data) {
+    }
+
+    /**
+     * Loaded or loading data of a config and the fingerprint it was loaded for.
+     */
+    private static final class Load<DATA> {
+
+        private final long fingerprint;
+        /**
+         * Future of the data, null once it has been handed out. Data loaded in advance is null if it was not required.
+         */
+        private Future<DATA> future;
+        /**
+         * True, if the data was loaded and not discarded while loading.
+         */
+        private boolean loaded;
+        /**
+         * True, if the load was discarded, so that data loaded afterwards is discarded as well.
+         */
+        private boolean discarded;
+
+        private Load(final long fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import com.google.protobuf.Message;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import javax.media.j3d.Transform3D;
+import org.openbase.bco.dal.lib.layer.service.Services;
+import org.openbase.bco.dal.remote.action.RemoteAction;
+import org.openbase.bco.dal.remote.layer.unit.Units;
+import org.openbase.bco.registry.remote.Registries;
+import org.openbase.bco.registry.unit.lib.UnitRegistry;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.iface.Configurable;
+import org.openbase.jul.pattern.Factory;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.storage.registry.RegistrySynchronizer;
+import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceDescriptionType.ServiceDescription;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.spatial.ShapeType.Shape;
+
+import static org.openbase.bco.registry.remote.Registries.getTemplateRegistry;
+import static org.openbase.bco.registry.remote.Registries.getUnitRegistry;
+
+/**
+ * Unit data source backed by the BCO registry and unit remotes.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class BCOUnitDataSource implements UnitDataSource {
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void waitForData() throws CouldNotPerformException, InterruptedException {
+        Registries.getUnitRegistry().waitForData();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public UnitRegistryData getData() throws CouldNotPerformException {
+        return getUnitRegistry().getData();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param observer {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public void addDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) throws CouldNotPerformException {
+        getUnitRegistry().addDataObserver(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param observer {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public void removeDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) throws CouldNotPerformException {
+        getUnitRegistry().removeDataObserver(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public Transform3D getUnitToRootTransform3D(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        try {
+            return Registries.getUnitRegistry(true).getUnitToRootTransform3D(config).get(UnitRegistry.RCT_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException ex) {
+            throw new CouldNotPerformException("Transformation of unit " + config.getId() + " not available.", ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public boolean hasUnitToRootTransformation(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        try {
+            Registries.getUnitRegistry(true).getUnitToRootTransformation(config).get(10000, TimeUnit.SECONDS);
+        } catch (CouldNotPerformException | TimeoutException ex) {
+            throw new CouldNotPerformException("GlobalTransformReceiver not available.", ex);
+        } catch (ExecutionException ex) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public Shape getUnitShape(final UnitConfig config) throws CouldNotPerformException {
+        return getUnitRegistry().getUnitShapeByUnitConfig(config);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public boolean hasGlobalBoundingBoxCenter(final UnitConfig config) throws CouldNotPerformException, InterruptedException {
+        try {
+            Registries.getUnitRegistry(true).getUnitBoundingBoxCenterGlobalPoint3d(config);
+            return true;
+        } catch (CouldNotPerformException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc} Falls back to the service type of the description if the template registry does not know the template.
+     *
+     * @param serviceDescription {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public ServiceType getServiceType(final ServiceDescription serviceDescription) throws InterruptedException {
+        try {
+            return getTemplateRegistry().getServiceTemplateById(serviceDescription.getServiceTemplateId()).getServiceType();
+        } catch (CouldNotPerformException ex) {
+            return serviceDescription.getServiceType();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param <M> {@inheritDoc}
+     * @param config {@inheritDoc}
+     * @param serviceType {@inheritDoc}
+     * @param stateClass {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public <M extends Message> M getServiceState(final UnitConfig config, final ServiceType serviceType, final Class<M> stateClass) throws CouldNotPerformException, InterruptedException {
+        final Message state = Services.invokeProviderServiceMethod(serviceType, Units.getUnit(config, true));
+        if (!stateClass.isInstance(state)) {
+            throw new CouldNotPerformException(serviceType.name() + " of unit " + config.getId() + " is not of type " + stateClass.getSimpleName());
+        }
+        return stateClass.cast(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param actionParameter {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public Future<?> applyAction(final ActionParameter actionParameter) throws CouldNotPerformException, InterruptedException {
+        return new RemoteAction(actionParameter).execute();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param <ENTRY> {@inheritDoc}
+     * @param registry {@inheritDoc}
+     * @param factory {@inheritDoc}
+     * @param filter {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public <ENTRY extends Configurable<String, UnitConfig>> UnitConfigSynchronizer createSynchronizer(final SynchronizableRegistryImpl<String, ENTRY> registry,
+            final Factory<ENTRY, UnitConfig> factory, final Predicate<UnitConfig> filter) throws CouldNotPerformException, InterruptedException {
+        final RegistrySynchronizer<String, ENTRY, UnitConfig, UnitConfig.Builder> registrySynchronizer = new RegistrySynchronizer<>(
+                registry, getUnitRegistry().getUnitConfigRemoteRegistry(), getUnitRegistry(), factory);
+        registrySynchronizer.addFilter(filter::test);
+        return new UnitConfigSynchronizer() {
+            @Override
+            public void activate() throws CouldNotPerformException, InterruptedException {
+                registrySynchronizer.activate();
+            }
+
+            @Override
+            public void deactivate() throws CouldNotPerformException, InterruptedException {
+                registrySynchronizer.deactivate();
+            }
+        };
+    }
+}
@@ -0,0 +1,448 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import javax.media.j3d.Transform3D;
+import javax.vecmath.Point3d;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufJSonProcessor;
+import org.openbase.jul.iface.Configurable;
+import org.openbase.jul.pattern.Factory;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
+import org.openbase.type.configuration.EntryType.Entry;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceDescriptionType.ServiceDescription;
+import org.openbase.type.domotic.service.ServiceStateDescriptionType.ServiceStateDescription;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.openbase.type.geometry.AxisAlignedBoundingBox3DFloatType.AxisAlignedBoundingBox3DFloat;
+import org.openbase.type.geometry.PoseType.Pose;
+import org.openbase.type.spatial.ShapeType.Shape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit data source backed by a JSON file containing UnitRegistryData. Transformations are computed from the placement poses along the
+ * location hierarchy and actions are applied to an in-memory copy of the service states, so that the pipeline can be run end to end without
+ * a BCO installation.
+ * <p>
+ * The initial service state of a unit can be given as meta config entry with the key <code>PSC_FIXTURE_STATE.&lt;SERVICE_TYPE&gt;</code>
+ * and the JSON serialized service state as value.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class FixtureUnitDataSource implements UnitDataSource {
+
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FixtureUnitDataSource.class);
+    /**
+     * Prefix of the meta config keys containing the initial service states.
+     */
+    public static final String SERVICE_STATE_META_CONFIG_PREFIX = "PSC_FIXTURE_STATE.";
+    /**
+     * Maximal depth of the location hierarchy, used to detect cyclic placements.
+     */
+    private static final int MAX_LOCATION_DEPTH = 64;
+
+    /**
+     * The fixture file.
+     */
+    private final File fixtureFile;
+    /**
+     * Observers notified when the fixture is reloaded.
+     */
+    private final List<Observer<DataProvider<UnitRegistryData>, UnitRegistryData>> observers = new CopyOnWriteArrayList<>();
+    /**
+     * Number of actions applied since the fixture was loaded.
+     */
+    private final AtomicLong appliedActionCount = new AtomicLong();
+    /**
+     * The current unit registry data.
+     */
+    private UnitRegistryData data;
+    /**
+     * All unit configs of the fixture by their id.
+     */
+    private Map<String, UnitConfig> unitConfigs = Collections.emptyMap();
+    /**
+     * The JSON serialized service states by unit id and service type.
+     */
+    private final Map<String, Map<ServiceType, String>> serviceStates = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param fixtureFile the JSON file containing the unit registry data.
+     * @throws CouldNotPerformException if the fixture could not be loaded.
+     */
+    public FixtureUnitDataSource(final File fixtureFile) throws CouldNotPerformException {
+        this.fixtureFile = fixtureFile;
+        load();
+    }
+
+    /**
+     * Reads the fixture file again and notifies all observers. The service states are reset to the ones of the file.
+     *
+     * @throws CouldNotPerformException if the fixture could not be loaded.
+     */
+    public void reload() throws CouldNotPerformException {
+        final UnitRegistryData newData = load();
+        for (Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer : observers) {
+            try {
+                observer.update(null, newData);
+            } catch (Exception ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not notify observer about reloaded fixture.", ex), LOGGER, LogLevel.WARN);
+            }
+        }
+    }
+
+    private synchronized UnitRegistryData load() throws CouldNotPerformException {
+        final String json;
+        try {
+            json = new String(Files.readAllBytes(fixtureFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new CouldNotPerformException("Could not read unit data fixture " + fixtureFile.getAbsolutePath(), ex);
+        }
+        data = new ProtoBufJSonProcessor().deserialize(json, UnitRegistryData.class);
+
+        final Map<String, UnitConfig> configs = new LinkedHashMap<>();
+        for (FieldDescriptor field : data.getDescriptorForType().getFields()) {
+            if (field.isRepeated() && field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && field.getMessageType().equals(UnitConfig.getDescriptor())) {
+                for (Object config : (List<?>) data.getField(field)) {
+                    configs.put(((UnitConfig) config).getId(), (UnitConfig) config);
+                }
+            }
+        }
+        unitConfigs = Collections.unmodifiableMap(configs);
+
+        serviceStates.clear();
+        for (UnitConfig config : configs.values()) {
+            for (Entry entry : config.getMetaConfig().getEntryList()) {
+                if (!entry.getKey().startsWith(SERVICE_STATE_META_CONFIG_PREFIX)) {
+                    continue;
+                }
+                try {
+                    final ServiceType serviceType = ServiceType.valueOf(entry.getKey().substring(SERVICE_STATE_META_CONFIG_PREFIX.length()));
+                    serviceStates.computeIfAbsent(config.getId(), id -> new EnumMap<>(ServiceType.class)).put(serviceType, entry.getValue());
+                } catch (IllegalArgumentException ex) {
+                    LOGGER.warn("Unknown service type in meta config entry " + entry.getKey() + " of unit " + config.getId());
+                }
+            }
+        }
+        appliedActionCount.set(0);
+        LOGGER.info("Loaded " + configs.size() + " unit configs from fixture " + fixtureFile.getAbsolutePath());
+        return data;
+    }
+
+    /**
+     * Gets the current service state of a unit.
+     *
+     * @param unitId the id of the unit.
+     * @param serviceType the service type.
+     * @return the JSON serialized service state.
+     * @throws NotAvailableException if no state of this service is known for the unit.
+     */
+    public synchronized String getServiceState(final String unitId, final ServiceType serviceType) throws NotAvailableException {
+        final Map<ServiceType, String> states = serviceStates.get(unitId);
+        if (states == null || !states.containsKey(serviceType)) {
+            throw new NotAvailableException(serviceType.name() + " of unit " + unitId);
+        }
+        return states.get(serviceType);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param <M> {@inheritDoc}
+     * @param config {@inheritDoc}
+     * @param serviceType {@inheritDoc}
+     * @param stateClass {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public <M extends Message> M getServiceState(final UnitConfig config, final ServiceType serviceType, final Class<M> stateClass) throws CouldNotPerformException {
+        return new ProtoBufJSonProcessor().deserialize(getServiceState(config.getId(), serviceType), stateClass);
+    }
+
+    /**
+     * Gets the number of actions applied since the fixture was loaded.
+     *
+     * @return the number of applied actions.
+     */
+    public long getAppliedActionCount() {
+        return appliedActionCount.get();
+    }
+
+    /**
+     * {@inheritDoc} The fixture is loaded on construction, so this returns immediately.
+     */
+    @Override
+    public void waitForData() {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public synchronized UnitRegistryData getData() {
+        return data;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param observer {@inheritDoc}
+     */
+    @Override
+    public void addDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param observer {@inheritDoc}
+     */
+    @Override
+    public void removeDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public synchronized Transform3D getUnitToRootTransform3D(final UnitConfig config) throws CouldNotPerformException {
+        final Transform3D transform = new Transform3D();
+        UnitConfig current = config;
+        for (int depth = 0; depth < MAX_LOCATION_DEPTH; depth++) {
+            if (isRootLocation(current)) {
+                return transform;
+            }
+            final Transform3D parentTransform = toTransform3D(current.getPlacementConfig().getPose());
+            parentTransform.mul(transform);
+            transform.set(parentTransform);
+            final String locationId = current.getPlacementConfig().getLocationId();
+            current = unitConfigs.get(locationId);
+            if (current == null) {
+                throw new NotAvailableException("Transformation of unit " + config.getId() + " because location " + locationId + " is unknown");
+            }
+        }
+        throw new NotAvailableException("Transformation of unit " + config.getId() + " because its location hierarchy is deeper than " + MAX_LOCATION_DEPTH);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean hasUnitToRootTransformation(final UnitConfig config) {
+        try {
+            getUnitToRootTransform3D(config);
+            return true;
+        } catch (CouldNotPerformException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public Shape getUnitShape(final UnitConfig config) throws CouldNotPerformException {
+        if (!config.getPlacementConfig().hasShape()) {
+            throw new NotAvailableException("Shape of unit " + config.getId());
+        }
+        return config.getPlacementConfig().getShape();
+    }
+
+    /**
+     * Gets the center of the bounding box of a unit in root location coordinates.
+     *
+     * @param config the config of the unit.
+     * @return the center of the bounding box.
+     * @throws CouldNotPerformException if the unit has no shape or is not placed in the location hierarchy.
+     */
+    public Point3d getUnitBoundingBoxCenterGlobalPoint3d(final UnitConfig config) throws CouldNotPerformException {
+        final AxisAlignedBoundingBox3DFloat boundingBox = getUnitShape(config).getBoundingBox();
+        final Point3d center = new Point3d(
+                boundingBox.getLeftFrontBottom().getX() + boundingBox.getWidth() / 2.0,
+                boundingBox.getLeftFrontBottom().getY() + boundingBox.getDepth() / 2.0,
+                boundingBox.getLeftFrontBottom().getZ() + boundingBox.getHeight() / 2.0);
+        getUnitToRootTransform3D(config).transform(center);
+        return center;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param config {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean hasGlobalBoundingBoxCenter(final UnitConfig config) {
+        try {
+            getUnitBoundingBoxCenterGlobalPoint3d(config);
+            return true;
+        } catch (CouldNotPerformException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc} A fixture has no service templates, so this is the service type of the description.
+     *
+     * @param serviceDescription {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public ServiceType getServiceType(final ServiceDescription serviceDescription) {
+        return serviceDescription.getServiceType();
+    }
+
+    /**
+     * {@inheritDoc} The service state is stored and the returned future is already done.
+     *
+     * @param actionParameter {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public synchronized Future<?> applyAction(final ActionParameter actionParameter) throws CouldNotPerformException {
+        final ServiceStateDescription description = actionParameter.getServiceStateDescription();
+        if (!unitConfigs.containsKey(description.getUnitId())) {
+            throw new NotAvailableException("Unit " + description.getUnitId());
+        }
+        serviceStates.computeIfAbsent(description.getUnitId(), id -> new EnumMap<>(ServiceType.class))
+                .put(description.getServiceType(), description.getServiceState());
+        appliedActionCount.incrementAndGet();
+        LOGGER.debug("Applied " + description.getServiceType() + " " + description.getServiceState() + " to unit " + description.getUnitId());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * {@inheritDoc} The registry is synchronized on activation and whenever the fixture is reloaded.
+     *
+     * @param <ENTRY> {@inheritDoc}
+     * @param registry {@inheritDoc}
+     * @param factory {@inheritDoc}
+     * @param filter {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <ENTRY extends Configurable<String, UnitConfig>> UnitConfigSynchronizer createSynchronizer(final SynchronizableRegistryImpl<String, ENTRY> registry,
+            final Factory<ENTRY, UnitConfig> factory, final Predicate<UnitConfig> filter) {
+        return new UnitConfigSynchronizer() {
+            private final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> dataObserver = (source, value) -> synchronize();
+
+            @Override
+            public void activate() throws CouldNotPerformException, InterruptedException {
+                addDataObserver(dataObserver);
+                synchronize();
+            }
+
+            @Override
+            public void deactivate() {
+                removeDataObserver(dataObserver);
+            }
+
+            private void synchronize() throws CouldNotPerformException, InterruptedException {
+                final List<UnitConfig> configs;
+                synchronized (FixtureUnitDataSource.this) {
+                    configs = new ArrayList<>(unitConfigs.values());
+                }
+                final Map<String, ENTRY> currentEntries = registry.getEntryMap();
+                final Map<String, ENTRY> entries = new HashMap<>();
+                for (UnitConfig config : configs) {
+                    if (filter.test(config)) {
+                        continue;
+                    }
+                    final ENTRY entry = currentEntries.get(config.getId());
+                    if (entry == null) {
+                        entries.put(config.getId(), factory.newInstance(config));
+                    } else {
+                        if (!entry.getConfig().equals(config)) {
+                            entry.applyConfigUpdate(config);
+                        }
+                        entries.put(config.getId(), entry);
+                    }
+                }
+                registry.replaceInternalMap(entries);
+            }
+        };
+    }
+
+    private boolean isRootLocation(final UnitConfig config) {
+        return config.getUnitType() == UnitType.LOCATION && config.getLocationConfig().getRoot();
+    }
+
+    private static Transform3D toTransform3D(final Pose pose) {
+        final Quat4d rotation = new Quat4d(pose.getRotation().getQx(), pose.getRotation().getQy(), pose.getRotation().getQz(), pose.getRotation().getQw());
+        if (rotation.x == 0 && rotation.y == 0 && rotation.z == 0 && rotation.w == 0) {
+            rotation.w = 1;
+        }
+        final Vector3d translation = new Vector3d(pose.getTranslation().getX(), pose.getTranslation().getY(), pose.getTranslation().getZ());
+        return new Transform3D(rotation, translation, 1);
+    }
+}
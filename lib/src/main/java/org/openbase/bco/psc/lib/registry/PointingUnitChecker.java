@@ -22,14 +22,7 @@ package org.openbase.bco.psc.lib.registry;
  * #L%
  */
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import org.openbase.bco.registry.lib.util.UnitConfigProcessor;
-import org.openbase.bco.registry.remote.Registries;
-
-import static org.openbase.bco.registry.remote.Registries.getTemplateRegistry;
-
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.slf4j.LoggerFactory;
 import org.openbase.type.configuration.MetaConfigType.MetaConfig;
@@ -53,6 +46,27 @@ public class PointingUnitChecker {
         return false;
     }
 
+    /**
+     * Checks the same conditions as isPointingControlUnit apart from the location data, which can be skipped if the bounding box of the unit is already
+     * known, e.g. from a cache.
+     *
+     * @param config the config of the unit.
+     * @param registryFlags the flags of which one has to be set in the meta config.
+     * @return true if the unit is a pointing control unit, provided it has location data.
+     * @throws InterruptedException if interrupted while checking the service templates.
+     * @throws CouldNotPerformException if the unit type could not be checked.
+     */
+    public static boolean isPointingControlUnitCandidate(UnitConfig config, List<String> registryFlags) throws InterruptedException, CouldNotPerformException {
+        if (config != null && isRegistryFlagSet(config.getMetaConfig(), registryFlags) && hasPowerStateService(config)) {
+            try {
+                return config.getUnitType() == UnitType.UNIT_GROUP || UnitConfigProcessor.isDalUnit(config);
+            } catch (CouldNotPerformException ex) {
+                throw new CouldNotPerformException("Could not check if unit " + config.getLabel() + " is dal unit.", ex);
+            }
+        }
+        return false;
+    }
+
     public static boolean isDalOrGroupWithLocation(UnitConfig config) throws InterruptedException, CouldNotPerformException {
         try {
             if (config != null && (config.getUnitType() == UnitType.UNIT_GROUP || UnitConfigProcessor.isDalUnit(config))) {
@@ -68,33 +82,17 @@ public class PointingUnitChecker {
         if (!hasLocationData(config)) {
             return false;
         }
-        try {
-            Registries.getUnitRegistry(true).getUnitBoundingBoxCenterGlobalPoint3d(config);
-            return true;
-        } catch (CouldNotPerformException ex) {
-            return false;
-        }
+        return UnitDataSources.getInstance().hasGlobalBoundingBoxCenter(config);
     }
 
     public static boolean hasLocationData(UnitConfig config) throws InterruptedException, CouldNotPerformException {
-        try {
-            Registries.getUnitRegistry(true).getUnitToRootTransformation(config).get(10000, TimeUnit.SECONDS);
-        } catch (CouldNotPerformException | TimeoutException ex) {
-            throw new CouldNotPerformException("GlobalTransformReceiver not available.", ex);
-        } catch (ExecutionException ex) {
-            return false;
-        }
-        return true;
+        return UnitDataSources.getInstance().hasUnitToRootTransformation(config);
     }
 
-    private static boolean hasPowerStateService(UnitConfig config) throws InterruptedException {
+    private static boolean hasPowerStateService(UnitConfig config) throws InterruptedException, CouldNotPerformException {
+        final UnitDataSource unitDataSource = UnitDataSources.getInstance();
         for (ServiceConfig sc : config.getServiceConfigList()) {
-            ServiceTemplate.ServiceType type;
-            try {
-                type = getTemplateRegistry().getServiceTemplateById(sc.getServiceDescription().getServiceTemplateId()).getServiceType();
-            } catch (CouldNotPerformException ex) {
-                type = sc.getServiceDescription().getServiceType();
-            }
+            final ServiceTemplate.ServiceType type = unitDataSource.getServiceType(sc.getServiceDescription());
             if (ServiceTemplate.ServiceType.POWER_STATE_SERVICE == type
                     && ServiceTemplate.ServicePattern.OPERATION == sc.getServiceDescription().getPattern()) {
                 return true;
@@ -0,0 +1,48 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.jul.exception.CouldNotPerformException;
+
+/**
+ * Keeps a local registry in sync with the unit configs of a unit data source while it is active.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public interface UnitConfigSynchronizer {
+
+    /**
+     * Synchronizes the local registry and keeps it in sync until deactivation.
+     *
+     * @throws CouldNotPerformException if the synchronization could not be started.
+     * @throws InterruptedException if interrupted while synchronizing.
+     */
+    void activate() throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Stops synchronizing the local registry.
+     *
+     * @throws CouldNotPerformException if the synchronization could not be stopped.
+     * @throws InterruptedException if interrupted while stopping.
+     */
+    void deactivate() throws CouldNotPerformException, InterruptedException;
+}
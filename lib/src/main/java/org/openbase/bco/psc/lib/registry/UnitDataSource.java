@@ -0,0 +1,166 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import com.google.protobuf.Message;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import javax.media.j3d.Transform3D;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.iface.Configurable;
+import org.openbase.jul.pattern.Factory;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.service.ServiceDescriptionType.ServiceDescription;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.spatial.ShapeType.Shape;
+
+/**
+ * Provides the unit configs, their placement, their service states and the execution of actions to the PSC components. The live implementation is backed by the BCO
+ * registry and unit remotes, the fixture implementation by a file, so that the pipeline can run without a BCO installation.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public interface UnitDataSource {
+
+    /**
+     * Waits until the unit data is available.
+     *
+     * @throws CouldNotPerformException if the data will not become available.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void waitForData() throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Gets the current unit registry data.
+     *
+     * @return the unit registry data.
+     * @throws CouldNotPerformException if the data is not available.
+     */
+    UnitRegistryData getData() throws CouldNotPerformException;
+
+    /**
+     * Adds an observer that is notified whenever the unit registry data changes.
+     *
+     * @param observer the observer.
+     * @throws CouldNotPerformException if the data can not be observed.
+     */
+    void addDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) throws CouldNotPerformException;
+
+    /**
+     * Removes an observer added by addDataObserver.
+     *
+     * @param observer the observer.
+     * @throws CouldNotPerformException if the data can not be observed.
+     */
+    void removeDataObserver(final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> observer) throws CouldNotPerformException;
+
+    /**
+     * Gets the transformation from the coordinate system of a unit to the root location.
+     *
+     * @param config the config of the unit.
+     * @return the transformation.
+     * @throws CouldNotPerformException if the transformation is not available.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    Transform3D getUnitToRootTransform3D(final UnitConfig config) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Checks whether a unit is placed in the location hierarchy, waiting until this is known.
+     *
+     * @param config the config of the unit.
+     * @return true, if the transformation of the unit to the root location exists.
+     * @throws CouldNotPerformException if the transformations can not be looked up.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    boolean hasUnitToRootTransformation(final UnitConfig config) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Gets the shape of a unit.
+     *
+     * @param config the config of the unit.
+     * @return the shape.
+     * @throws CouldNotPerformException if the shape is not available.
+     */
+    Shape getUnitShape(final UnitConfig config) throws CouldNotPerformException;
+
+    /**
+     * Checks whether the center of the bounding box of a unit can be transformed to the root location, i.e. whether the unit has a shape and is placed
+     * in the location hierarchy.
+     *
+     * @param config the config of the unit.
+     * @return true, if the global center of the bounding box is available.
+     * @throws CouldNotPerformException if the unit data can not be looked up.
+     * @throws InterruptedException if interrupted while waiting for the transformation.
+     */
+    boolean hasGlobalBoundingBoxCenter(final UnitConfig config) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Gets the service type of a service description, which is defined by its service template if the template is known.
+     *
+     * @param serviceDescription the service description.
+     * @return the service type.
+     * @throws InterruptedException if interrupted while waiting for the service templates.
+     */
+    ServiceType getServiceType(final ServiceDescription serviceDescription) throws InterruptedException;
+
+    /**
+     * Gets the current state of a service of a unit.
+     *
+     * @param <M> the type of the service state.
+     * @param config the config of the unit.
+     * @param serviceType the service type.
+     * @param stateClass the class of the service state.
+     * @return the service state.
+     * @throws CouldNotPerformException if the state is not available.
+     * @throws InterruptedException if interrupted while waiting for the unit.
+     */
+    <M extends Message> M getServiceState(final UnitConfig config, final ServiceType serviceType, final Class<M> stateClass) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Executes an action on the unit specified in its service state description.
+     *
+     * @param actionParameter the action parameter.
+     * @return a future that is done when the action was executed.
+     * @throws CouldNotPerformException if the action could not be started.
+     * @throws InterruptedException if interrupted while starting the action.
+     */
+    Future<?> applyAction(final ActionParameter actionParameter) throws CouldNotPerformException, InterruptedException;
+
+    /**
+     * Creates a synchronizer keeping a local registry in sync with the unit configs of this data source.
+     *
+     * @param <ENTRY> the type of the registry entries.
+     * @param registry the local registry.
+     * @param factory the factory creating the entries.
+     * @param filter the filter, which returns true for all configs that are not added to the registry.
+     * @return the synchronizer, which still has to be activated.
+     * @throws CouldNotPerformException if the synchronizer could not be created.
+     * @throws InterruptedException if interrupted while creating the synchronizer.
+     */
+    <ENTRY extends Configurable<String, UnitConfig>> UnitConfigSynchronizer createSynchronizer(final SynchronizableRegistryImpl<String, ENTRY> registry,
+            final Factory<ENTRY, UnitConfig> factory, final Predicate<UnitConfig> filter) throws CouldNotPerformException, InterruptedException;
+}
@@ -0,0 +1,75 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.File;
+import org.openbase.bco.psc.lib.jp.JPUnitDataFixture;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.exception.JPNotAvailableException;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the unit data source used by all components of a process. If a fixture is given by the JPUnitDataFixture property, the
+ * FixtureUnitDataSource is used, otherwise the BCO registry.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public final class UnitDataSources {
+
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnitDataSources.class);
+    /**
+     * The unit data source of this process.
+     */
+    private static UnitDataSource instance;
+
+    private UnitDataSources() {
+    }
+
+    /**
+     * Gets the unit data source of this process and creates it on the first call.
+     *
+     * @return the unit data source.
+     * @throws CouldNotPerformException if the fixture could not be loaded.
+     */
+    public synchronized static UnitDataSource getInstance() throws CouldNotPerformException {
+        if (instance == null) {
+            File fixtureFile = null;
+            try {
+                fixtureFile = JPService.getProperty(JPUnitDataFixture.class).getValue();
+            } catch (JPNotAvailableException ex) {
+                LOGGER.debug("No unit data fixture property available, using the BCO registry.");
+            }
+            if (fixtureFile != null && !fixtureFile.getPath().isEmpty()) {
+                LOGGER.info("Selected unit data fixture: " + fixtureFile.getAbsolutePath());
+                instance = new FixtureUnitDataSource(fixtureFile);
+            } else {
+                instance = new BCOUnitDataSource();
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,171 @@
+package org.openbase.bco.psc.lib.trace;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import org.openbase.jul.exception.NotAvailableException;
+import rsb.MetaData;
+
+/**
+ * Propagates a trace id and the times of the passed pipeline stages through the user infos and user times of the RSB meta data, so that the latency
+ * of every stage can be computed for an event when it reaches the end of the pipeline. The times are given in microseconds like all RSB timestamps.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public final class EventTrace {
+
+    /**
+     * Key of the user info containing the trace id.
+     */
+    public static final String TRACE_ID_USER_INFO_KEY = "psc-trace-id";
+    /**
+     * Key of the user time containing the create time of the tracker frames an event was derived from, if it differs from the create time of the event.
+     */
+    public static final String FRAME_CREATE_TIME_USER_TIME_KEY = "psc-frame-create-time";
+
+    private EventTrace() {
+    }
+
+    /**
+     * Starts a trace for an event entering the pipeline, unless the event is already traced. The create time of the event is used as time of the raw
+     * posture stage.
+     *
+     * @param metaData the meta data of the event.
+     */
+    public static void start(final MetaData metaData) {
+        if (!metaData.hasUserInfo(TRACE_ID_USER_INFO_KEY)) {
+            metaData.setUserInfo(TRACE_ID_USER_INFO_KEY, UUID.randomUUID().toString());
+        }
+        if (!metaData.hasUserTime(TraceStage.RAW_POSTURE.getUserTimeKey())) {
+            metaData.setUserTime(TraceStage.RAW_POSTURE.getUserTimeKey(), metaData.getCreateTime() > 0 ? metaData.getCreateTime() : currentTimeMicros());
+        }
+    }
+
+    /**
+     * Records the current time as time of a stage.
+     *
+     * @param metaData the meta data of the event.
+     * @param stage the stage that was just passed.
+     */
+    public static void mark(final MetaData metaData, final TraceStage stage) {
+        metaData.setUserTime(stage.getUserTimeKey(), currentTimeMicros());
+    }
+
+    /**
+     * Records the time of a stage that was passed earlier, e.g. the receive time of an event.
+     *
+     * @param metaData the meta data of the event.
+     * @param stage the stage.
+     * @param time the time of the stage in microseconds.
+     */
+    public static void mark(final MetaData metaData, final TraceStage stage, final long time) {
+        metaData.setUserTime(stage.getUserTimeKey(), time);
+    }
+
+    /**
+     * Copies the trace id and the stage times of an event to the event derived from it. Nothing is copied if the source is not traced.
+     *
+     * @param source the meta data of the received event.
+     * @param target the meta data of the event that is sent.
+     */
+    public static void copy(final MetaData source, final MetaData target) {
+        if (!source.hasUserInfo(TRACE_ID_USER_INFO_KEY)) {
+            return;
+        }
+        target.setUserInfo(TRACE_ID_USER_INFO_KEY, source.getUserInfo(TRACE_ID_USER_INFO_KEY));
+        for (TraceStage stage : TraceStage.values()) {
+            if (source.hasUserTime(stage.getUserTimeKey())) {
+                target.setUserTime(stage.getUserTimeKey(), source.getUserTime(stage.getUserTimeKey()));
+            }
+        }
+    }
+
+    /**
+     * Checks whether an event is traced.
+     *
+     * @param metaData the meta data of the event.
+     * @return true, if the event has a trace id.
+     */
+    public static boolean isTraced(final MetaData metaData) {
+        return metaData != null && metaData.hasUserInfo(TRACE_ID_USER_INFO_KEY);
+    }
+
+    /**
+     * Gets the trace id of an event.
+     *
+     * @param metaData the meta data of the event.
+     * @return the trace id.
+     * @throws NotAvailableException if the event is not traced.
+     */
+    public static String getTraceId(final MetaData metaData) throws NotAvailableException {
+        if (!isTraced(metaData)) {
+            throw new NotAvailableException("Trace id");
+        }
+        return metaData.getUserInfo(TRACE_ID_USER_INFO_KEY);
+    }
+
+    /**
+     * Gets the times of all stages that were passed by an event.
+     *
+     * @param metaData the meta data of the event.
+     * @return the times in microseconds by the stage, in the order of the stages.
+     */
+    public static Map<TraceStage, Long> getStageTimes(final MetaData metaData) {
+        final Map<TraceStage, Long> stageTimes = new EnumMap<>(TraceStage.class);
+        for (TraceStage stage : TraceStage.values()) {
+            if (metaData.hasUserTime(stage.getUserTimeKey())) {
+                stageTimes.put(stage, metaData.getUserTime(stage.getUserTimeKey()));
+            }
+        }
+        return stageTimes;
+    }
+
+    /**
+     * Sets the create time of the tracker frames an event was derived from, e.g. for merged postures that are created at a later time than the
+     * frames of the single trackers.
+     *
+     * @param metaData the meta data of the event.
+     * @param createTime the create time of the frames in microseconds.
+     */
+    public static void setFrameCreateTime(final MetaData metaData, final long createTime) {
+        metaData.setUserTime(FRAME_CREATE_TIME_USER_TIME_KEY, createTime);
+    }
+
+    /**
+     * Gets the create time of the tracker frames an event was derived from. If no frame create time was set, the create time of the event is returned.
+     *
+     * @param metaData the meta data of the event.
+     * @return the create time of the frames in microseconds.
+     */
+    public static long getFrameCreateTime(final MetaData metaData) {
+        if (metaData.hasUserTime(FRAME_CREATE_TIME_USER_TIME_KEY)) {
+            return metaData.getUserTime(FRAME_CREATE_TIME_USER_TIME_KEY);
+        }
+        return metaData.getCreateTime();
+    }
+
+    private static long currentTimeMicros() {
+        return System.currentTimeMillis() * 1000;
+    }
+}
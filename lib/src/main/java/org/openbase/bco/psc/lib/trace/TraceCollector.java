@@ -0,0 +1,213 @@
+package org.openbase.bco.psc.lib.trace;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsb.MetaData;
+
+/**
+ * Collects the latencies of traced events that reached the end of the pipeline in histograms. The latency of a stage is the time between the
+ * previous stage passed by the event and the stage itself, so it includes the transport from the previous component. Stages an event did not pass,
+ * e.g. the merging of a single tracker, are skipped. The histograms are logged in a fixed interval.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class TraceCollector {
+
+    /**
+     * Logger instance.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceCollector.class);
+    /**
+     * Default interval in milliseconds in which the histograms are logged.
+     */
+    public static final long DEFAULT_REPORT_INTERVAL = 60000;
+    /**
+     * Upper bounds of the histogram buckets in milliseconds. The last bucket contains all larger latencies.
+     */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    /**
+     * Interval in milliseconds in which the histograms are logged, or 0 if they are not logged.
+     */
+    private final long reportInterval;
+    /**
+     * The histograms of the stage latencies by the stage.
+     */
+    private final Map<TraceStage, long[]> stageHistograms = new EnumMap<>(TraceStage.class);
+    /**
+     * The histogram of the latencies from the first to the last stage.
+     */
+    private final long[] totalHistogram = new long[BUCKET_BOUNDS.length + 1];
+
+    private long traces = 0;
+    private long skewed = 0;
+    private long lastReport = System.currentTimeMillis();
+
+    /**
+     * Constructor.
+     *
+     * @param reportInterval interval in milliseconds in which the histograms are logged, or 0 if they are not logged.
+     */
+    public TraceCollector(final long reportInterval) {
+        this.reportInterval = reportInterval;
+        for (TraceStage stage : TraceStage.values()) {
+            stageHistograms.put(stage, new long[BUCKET_BOUNDS.length + 1]);
+        }
+    }
+
+    /**
+     * Records the stage latencies of an event. Events that are not traced are ignored.
+     *
+     * @param metaData the meta data of the event.
+     */
+    public synchronized void record(final MetaData metaData) {
+        if (!EventTrace.isTraced(metaData)) {
+            return;
+        }
+        final Map<TraceStage, Long> stageTimes = EventTrace.getStageTimes(metaData);
+        if (stageTimes.isEmpty()) {
+            return;
+        }
+        final Map<TraceStage, Long> stageLatencies = new EnumMap<>(TraceStage.class);
+        Long firstTime = null;
+        Long previousTime = null;
+        for (Map.Entry<TraceStage, Long> entry : stageTimes.entrySet()) {
+            if (previousTime == null) {
+                firstTime = entry.getValue();
+            } else if (entry.getValue() < previousTime) {
+                // stages running on hosts with unsynchronized clocks can appear to be passed before their predecessor.
+                skewed++;
+                return;
+            } else {
+                stageLatencies.put(entry.getKey(), entry.getValue() - previousTime);
+            }
+            previousTime = entry.getValue();
+        }
+        for (Map.Entry<TraceStage, Long> entry : stageLatencies.entrySet()) {
+            add(stageHistograms.get(entry.getKey()), entry.getValue());
+        }
+        add(totalHistogram, previousTime - firstTime);
+        traces++;
+
+        final long currentTime = System.currentTimeMillis();
+        if (reportInterval > 0 && currentTime - lastReport > reportInterval) {
+            lastReport = currentTime;
+            LOGGER.info(getSummary());
+        }
+    }
+
+    private static void add(final long[] histogram, final long latencyMicros) {
+        final long latency = latencyMicros / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && latency > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        histogram[bucket]++;
+    }
+
+    /**
+     * Gets the upper bounds of the histogram buckets in milliseconds. The histograms contain one more bucket for all larger latencies.
+     *
+     * @return the bucket bounds.
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Gets the histogram of the latencies of a stage.
+     *
+     * @param stage the stage.
+     * @return the number of latencies per bucket.
+     */
+    public synchronized long[] getHistogram(final TraceStage stage) {
+        return stageHistograms.get(stage).clone();
+    }
+
+    /**
+     * Gets the histogram of the latencies from the first to the last stage of the events.
+     *
+     * @return the number of latencies per bucket.
+     */
+    public synchronized long[] getTotalHistogram() {
+        return totalHistogram.clone();
+    }
+
+    /**
+     * Gets the number of recorded traces.
+     *
+     * @return the number of traces.
+     */
+    public synchronized long getTraceCount() {
+        return traces;
+    }
+
+    /**
+     * Gets the number of traces that were dropped because a stage appeared to be passed before its predecessor.
+     *
+     * @return the number of dropped traces.
+     */
+    public synchronized long getSkewedTraceCount() {
+        return skewed;
+    }
+
+    /**
+     * Gets a summary of the histograms containing the count, median and 95th percentile of every stage that was passed by any event.
+     *
+     * @return the summary.
+     */
+    public synchronized String getSummary() {
+        final StringBuilder summary = new StringBuilder("Latency of " + traces + " traces (" + skewed + " skewed):");
+        for (Map.Entry<TraceStage, long[]> entry : stageHistograms.entrySet()) {
+            appendSummary(summary, entry.getKey().name(), entry.getValue());
+        }
+        appendSummary(summary, "TOTAL", totalHistogram);
+        return summary.toString();
+    }
+
+    private static void appendSummary(final StringBuilder summary, final String name, final long[] histogram) {
+        final long count = Arrays.stream(histogram).sum();
+        if (count == 0) {
+            return;
+        }
+        summary.append(" ").append(name).append("[n=").append(count)
+                .append(", p50<=").append(getPercentileBound(histogram, count, 0.5))
+                .append(", p95<=").append(getPercentileBound(histogram, count, 0.95))
+                .append("]");
+    }
+
+    private static String getPercentileBound(final long[] histogram, final long count, final double quantile) {
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++) {
+            cumulative += histogram[bucket];
+            if (cumulative >= quantile * count) {
+                return BUCKET_BOUNDS[bucket] + "ms";
+            }
+        }
+        return ">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + "ms";
+    }
+}
@@ -0,0 +1,73 @@
+package org.openbase.bco.psc.lib.trace;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * The stages of the PSC pipeline at which the time of a traced event is recorded, in the order in which they are passed.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public enum TraceStage {
+    /**
+     * The raw postures were created by the tracker, e.g. a Kinect.
+     */
+    RAW_POSTURE,
+    /**
+     * The postures were transformed into root coordinates.
+     */
+    TRANSFORM,
+    /**
+     * The postures of several trackers were merged.
+     */
+    MERGE,
+    /**
+     * The pointing rays were extracted from the postures.
+     */
+    RAY_EXTRACTION,
+    /**
+     * The pointed at units were identified.
+     */
+    IDENTIFICATION,
+    /**
+     * The intent completing a match of the selected units was received. If it was received after the selection, e.g. a spoken command, the latency of
+     * this stage contains the time waited for it.
+     */
+    INTENT_RECEIVE,
+    /**
+     * The selected units were matched with an intent.
+     */
+    INTENT_MATCH,
+    /**
+     * The resulting action was handed to the action dispatcher.
+     */
+    ACTION_DISPATCH;
+
+    /**
+     * Gets the key of the user time in the RSB meta data containing the time of this stage.
+     *
+     * @return the user time key.
+     */
+    public String getUserTimeKey() {
+        return "psc-" + name().toLowerCase().replace('_', '-');
+    }
+}
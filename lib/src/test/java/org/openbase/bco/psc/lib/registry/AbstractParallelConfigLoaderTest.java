@@ -0,0 +1,193 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class AbstractParallelConfigLoaderTest {
+
+    /**
+     * The data discarded by the loader.
+     */
+    private List<String> discarded;
+    /**
+     * Counted down when the load of the unit "slow" started.
+     */
+    private CountDownLatch slowStarted;
+    /**
+     * Released to finish the load of the unit "slow".
+     */
+    private CountDownLatch slowRelease;
+    private TestLoader loader;
+
+    /**
+     * Loader whose data is the id of the unit and whose loads do not react to interruptions.
+     */
+    private class TestLoader extends AbstractParallelConfigLoader<String> {
+
+        TestLoader() {
+            super(2);
+        }
+
+        @Override
+        public long getFingerprint(final UnitConfig config) {
+            return 0;
+        }
+
+        @Override
+        protected boolean isCandidate(final UnitConfig config) {
+            return true;
+        }
+
+        @Override
+        protected String load(final UnitConfig config) {
+            if (config.getId().equals("slow")) {
+                slowStarted.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        slowRelease.await();
+                        break;
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return config.getId();
+        }
+
+        @Override
+        protected void discard(final String data) {
+            discarded.add(data);
+        }
+    }
+
+    public AbstractParallelConfigLoaderTest() {
+    }
+
+    @Before
+    public void setUp() {
+        discarded = Collections.synchronizedList(new ArrayList<>());
+        slowStarted = new CountDownLatch(1);
+        slowRelease = new CountDownLatch(1);
+        loader = new TestLoader();
+    }
+
+    @After
+    public void tearDown() {
+        slowRelease.countDown();
+        loader.shutdown();
+    }
+
+    private static UnitConfig config(final String id) {
+        return UnitConfig.newBuilder().setId(id).build();
+    }
+
+    private void waitForDiscarded(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (discarded.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Test of the release method while the data is loading, of class AbstractParallelConfigLoader.
+     */
+    @Test
+    public void testReleaseDuringLoad() throws Exception {
+        System.out.println("releaseDuringLoad");
+        loader.loadAll(Collections.singletonList(config("slow")));
+        assertTrue(slowStarted.await(5000, TimeUnit.MILLISECONDS));
+        loader.release(config("slow"));
+        assertTrue(discarded.isEmpty());
+
+        // the load finishes although it was released, so its data has to be discarded.
+        slowRelease.countDown();
+        waitForDiscarded(1);
+        assertEquals(Collections.singletonList("slow"), discarded);
+    }
+
+    /**
+     * Test of the release method after the data was handed out or loaded, of class AbstractParallelConfigLoader.
+     */
+    @Test
+    public void testReleaseAfterLoad() throws Exception {
+        System.out.println("releaseAfterLoad");
+        loader.loadAll(Collections.singletonList(config("unit1")));
+        // the data is handed out once and not affected by a release afterwards.
+        assertEquals("unit1", loader.get(config("unit1")));
+        loader.release(config("unit1"));
+        assertTrue(discarded.isEmpty());
+
+        loader.loadAll(Collections.singletonList(config("slow")));
+        assertTrue(slowStarted.await(5000, TimeUnit.MILLISECONDS));
+        slowRelease.countDown();
+        loader.release(config("slow"));
+        waitForDiscarded(1);
+        // data is discarded exactly once, whether the load finished before the release or after it.
+        Thread.sleep(50);
+        assertEquals(Collections.singletonList("slow"), discarded);
+    }
+
+    /**
+     * Test of the shutdown and start methods, of class AbstractParallelConfigLoader.
+     */
+    @Test
+    public void testShutdownAndStart() throws Exception {
+        System.out.println("shutdownAndStart");
+        loader.loadAll(Collections.singletonList(config("slow")));
+        assertTrue(slowStarted.await(5000, TimeUnit.MILLISECONDS));
+        loader.shutdown();
+        try {
+            loader.get(config("unit1"));
+            fail("A shut down loader loaded data.");
+        } catch (CouldNotPerformException ex) {
+            // expected
+        }
+        // loading in advance is skipped while the loader is shut down.
+        loader.loadAll(Collections.singletonList(config("unit1")));
+
+        slowRelease.countDown();
+        waitForDiscarded(1);
+        assertEquals(Collections.singletonList("slow"), discarded);
+
+        loader.start();
+        assertEquals("unit1", loader.get(config("unit1")));
+    }
+}
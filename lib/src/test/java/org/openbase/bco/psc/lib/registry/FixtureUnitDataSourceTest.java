@@ -0,0 +1,250 @@
+package org.openbase.bco.psc.lib.registry;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.Future;
+import javax.vecmath.Point3d;
+import org.junit.Before;
+import org.junit.Rule;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.InstantiationException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufJSonProcessor;
+import org.openbase.jul.iface.Configurable;
+import org.openbase.jul.pattern.Factory;
+import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
+import org.openbase.type.domotic.action.ActionParameterType.ActionParameter;
+import org.openbase.type.domotic.service.ServiceTemplateType.ServiceTemplate.ServiceType;
+import org.openbase.type.domotic.state.PowerStateType.PowerState;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class FixtureUnitDataSourceTest {
+
+    private static final double EPSILON = 1e-5;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File fixtureFile;
+    private FixtureUnitDataSource dataSource;
+
+    /**
+     * Registry entry recording the config updates applied by the synchronizer.
+     */
+    private static class TestEntry implements Configurable<String, UnitConfig> {
+
+        private UnitConfig config;
+        private int updateCount;
+
+        @Override
+        public UnitConfig applyConfigUpdate(final UnitConfig config) {
+            this.config = config;
+            updateCount++;
+            return config;
+        }
+
+        @Override
+        public String getId() {
+            return config.getId();
+        }
+
+        @Override
+        public UnitConfig getConfig() {
+            return config;
+        }
+    }
+
+    public FixtureUnitDataSourceTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fixtureFile = temporaryFolder.newFile("fixture.json");
+        try (InputStream fixture = FixtureUnitDataSourceTest.class.getResourceAsStream("fixture.json")) {
+            Files.write(fixtureFile.toPath(), readAll(fixture));
+        }
+        dataSource = new FixtureUnitDataSource(fixtureFile);
+    }
+
+    private static byte[] readAll(final InputStream input) throws Exception {
+        final java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int length;
+        while ((length = input.read(buffer)) > 0) {
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    private void replaceInFixture(final String target, final String replacement) throws Exception {
+        final String json = new String(Files.readAllBytes(fixtureFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.contains(target));
+        Files.write(fixtureFile.toPath(), json.replace(target, replacement).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private UnitConfig getConfig(final String id) {
+        for (UnitConfig config : dataSource.getData().getDalUnitConfigList()) {
+            if (config.getId().equals(id)) {
+                return config;
+            }
+        }
+        for (UnitConfig config : dataSource.getData().getLocationUnitConfigList()) {
+            if (config.getId().equals(id)) {
+                return config;
+            }
+        }
+        throw new AssertionError("Unit " + id + " is not in the fixture.");
+    }
+
+    private static ActionParameter powerAction(final String unitId, final PowerState.State state) throws CouldNotPerformException {
+        final ActionParameter.Builder actionParameter = ActionParameter.newBuilder();
+        actionParameter.getServiceStateDescriptionBuilder()
+                .setUnitId(unitId)
+                .setServiceType(ServiceType.POWER_STATE_SERVICE)
+                .setServiceStateClassName(PowerState.class.getName())
+                .setServiceState(new ProtoBufJSonProcessor().serialize(PowerState.newBuilder().setValue(state).build()));
+        return actionParameter.build();
+    }
+
+    /**
+     * Test of getUnitToRootTransform3D method, of class FixtureUnitDataSource.
+     */
+    @Test
+    public void testTransformComposition() throws Exception {
+        System.out.println("transformComposition");
+        // the lamp is placed 2 meters along the x axis of the room, which is rotated by 90 degrees and placed 1 meter along the x axis of the root.
+        final Point3d origin = new Point3d();
+        dataSource.getUnitToRootTransform3D(getConfig("lamp")).transform(origin);
+        assertEquals(1.0, origin.x, EPSILON);
+        assertEquals(2.0, origin.y, EPSILON);
+        assertEquals(0.0, origin.z, EPSILON);
+
+        final Point3d center = dataSource.getUnitBoundingBoxCenterGlobalPoint3d(getConfig("lamp"));
+        assertEquals(0.8, center.x, EPSILON);
+        assertEquals(2.1, center.y, EPSILON);
+        assertEquals(0.3, center.z, EPSILON);
+        assertTrue(dataSource.hasGlobalBoundingBoxCenter(getConfig("lamp")));
+
+        // the location of the outlet is unknown.
+        assertFalse(dataSource.hasUnitToRootTransformation(getConfig("outlet")));
+        assertFalse(dataSource.hasGlobalBoundingBoxCenter(getConfig("outlet")));
+        assertTrue(dataSource.hasUnitToRootTransformation(getConfig("root")));
+    }
+
+    /**
+     * Test of applyAction and getServiceState methods, of class FixtureUnitDataSource.
+     */
+    @Test
+    public void testServiceStateRoundTrip() throws Exception {
+        System.out.println("serviceStateRoundTrip");
+        final UnitConfig lamp = getConfig("lamp");
+        assertEquals(PowerState.State.OFF, dataSource.getServiceState(lamp, ServiceType.POWER_STATE_SERVICE, PowerState.class).getValue());
+
+        final Future<?> future = dataSource.applyAction(powerAction("lamp", PowerState.State.ON));
+        assertTrue(future.isDone());
+        assertEquals(PowerState.State.ON, dataSource.getServiceState(lamp, ServiceType.POWER_STATE_SERVICE, PowerState.class).getValue());
+        assertEquals(1, dataSource.getAppliedActionCount());
+
+        // the outlet has no initial state.
+        try {
+            dataSource.getServiceState(getConfig("outlet"), ServiceType.POWER_STATE_SERVICE, PowerState.class);
+            fail("The outlet has a power state.");
+        } catch (NotAvailableException ex) {
+            // expected
+        }
+        try {
+            dataSource.applyAction(powerAction("unknown", PowerState.State.ON));
+            fail("An action was applied to an unknown unit.");
+        } catch (NotAvailableException ex) {
+            // expected
+        }
+
+        // reloading resets the states to the ones of the file.
+        dataSource.reload();
+        assertEquals(PowerState.State.OFF, dataSource.getServiceState(lamp, ServiceType.POWER_STATE_SERVICE, PowerState.class).getValue());
+        assertEquals(0, dataSource.getAppliedActionCount());
+    }
+
+    /**
+     * Test of getServiceType method, of class FixtureUnitDataSource.
+     */
+    @Test
+    public void testGetServiceType() throws Exception {
+        System.out.println("getServiceType");
+        assertEquals(ServiceType.POWER_STATE_SERVICE, dataSource.getServiceType(getConfig("lamp").getServiceConfig(0).getServiceDescription()));
+    }
+
+    /**
+     * Test of createSynchronizer method, of class FixtureUnitDataSource.
+     */
+    @Test
+    public void testSynchronizer() throws Exception {
+        System.out.println("synchronizer");
+        final SynchronizableRegistryImpl<String, TestEntry> registry = new SynchronizableRegistryImpl<>();
+        final Factory<TestEntry, UnitConfig> factory = new Factory<TestEntry, UnitConfig>() {
+            @Override
+            public TestEntry newInstance(final UnitConfig config) throws InstantiationException {
+                final TestEntry entry = new TestEntry();
+                entry.applyConfigUpdate(config);
+                return entry;
+            }
+        };
+        final UnitConfigSynchronizer synchronizer = dataSource.createSynchronizer(registry, factory, config -> config.getUnitType() == UnitType.LOCATION);
+        synchronizer.activate();
+        Map<String, TestEntry> entries = registry.getEntryMap();
+        assertEquals(2, entries.size());
+        final TestEntry lamp = entries.get("lamp");
+        assertNotNull(lamp);
+        assertNotNull(entries.get("outlet"));
+
+        // the changed lamp is updated, the removed outlet is removed and the added socket is created.
+        replaceInFixture("\"width\": 0.2", "\"width\": 0.3");
+        replaceInFixture("\"id\": \"outlet\"", "\"id\": \"socket\"");
+        dataSource.reload();
+        entries = registry.getEntryMap();
+        assertEquals(2, entries.size());
+        assertSame(lamp, entries.get("lamp"));
+        assertEquals(2, lamp.updateCount);
+        assertEquals(0.3f, lamp.getConfig().getPlacementConfig().getShape().getBoundingBox().getWidth(), EPSILON);
+        assertNull(entries.get("outlet"));
+        assertNotNull(entries.get("socket"));
+
+        // a deactivated synchronizer ignores further changes.
+        synchronizer.deactivate();
+        replaceInFixture("\"id\": \"socket\"", "\"id\": \"outlet\"");
+        dataSource.reload();
+        assertNotNull(registry.getEntryMap().get("socket"));
+    }
+}
@@ -0,0 +1,143 @@
+package org.openbase.bco.psc.lib.trace;
+
+/*-
+ * #%L
+ * BCO PSC Library
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.junit.Before;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import rsb.MetaData;
+
+/**
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class TraceCollectorTest {
+
+    private TraceCollector traceCollector;
+
+    public TraceCollectorTest() {
+    }
+
+    @Before
+    public void setUp() {
+        traceCollector = new TraceCollector(0);
+    }
+
+    /**
+     * Creates the meta data of a traced event that passed the given stages at the given times in milliseconds.
+     */
+    private static MetaData trace(final TraceStage[] stages, final double... times) {
+        final MetaData metaData = new MetaData();
+        metaData.setUserInfo(EventTrace.TRACE_ID_USER_INFO_KEY, "trace");
+        for (int i = 0; i < stages.length; i++) {
+            EventTrace.mark(metaData, stages[i], (long) (times[i] * 1000));
+        }
+        return metaData;
+    }
+
+    private static int getBucket(final long latency) {
+        final long[] bounds = TraceCollector.getBucketBounds();
+        for (int bucket = 0; bucket < bounds.length; bucket++) {
+            if (bounds[bucket] == latency) {
+                return bucket;
+            }
+        }
+        throw new AssertionError("No bucket with bound " + latency);
+    }
+
+    /**
+     * Test of the histograms of the record method, of class TraceCollector.
+     */
+    @Test
+    public void testHistogram() {
+        System.out.println("histogram");
+        final TraceStage[] stages = {TraceStage.RAW_POSTURE, TraceStage.RAY_EXTRACTION, TraceStage.IDENTIFICATION, TraceStage.INTENT_RECEIVE, TraceStage.INTENT_MATCH};
+        traceCollector.record(trace(stages, 1000, 1004, 1019, 1519, 1520));
+        assertEquals(1, traceCollector.getTraceCount());
+        assertEquals(1, traceCollector.getHistogram(TraceStage.RAY_EXTRACTION)[getBucket(5)]);
+        assertEquals(1, traceCollector.getHistogram(TraceStage.IDENTIFICATION)[getBucket(20)]);
+        // the wait for the intent is recorded separately from the matching.
+        assertEquals(1, traceCollector.getHistogram(TraceStage.INTENT_RECEIVE)[getBucket(500)]);
+        assertEquals(1, traceCollector.getHistogram(TraceStage.INTENT_MATCH)[getBucket(1)]);
+        assertEquals(1, traceCollector.getTotalHistogram()[getBucket(1000)]);
+        // stages that were not passed stay empty.
+        assertEquals(0, sum(traceCollector.getHistogram(TraceStage.RAW_POSTURE)));
+        assertEquals(0, sum(traceCollector.getHistogram(TraceStage.MERGE)));
+
+        // latencies above the last bound are counted in the additional bucket.
+        traceCollector.record(trace(new TraceStage[]{TraceStage.RAW_POSTURE, TraceStage.TRANSFORM}, 0, 6000));
+        final long[] histogram = traceCollector.getHistogram(TraceStage.TRANSFORM);
+        assertEquals(TraceCollector.getBucketBounds().length + 1, histogram.length);
+        assertEquals(1, histogram[histogram.length - 1]);
+    }
+
+    private static long sum(final long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Test of the percentiles of the getSummary method, of class TraceCollector.
+     */
+    @Test
+    public void testPercentiles() {
+        System.out.println("percentiles");
+        final TraceStage[] stages = {TraceStage.RAW_POSTURE, TraceStage.TRANSFORM};
+        for (int i = 0; i < 19; i++) {
+            traceCollector.record(trace(stages, 0, 1));
+        }
+        traceCollector.record(trace(stages, 0, 100));
+        assertTrue(traceCollector.getSummary(), traceCollector.getSummary().contains("TRANSFORM[n=20, p50<=1ms, p95<=1ms]"));
+        traceCollector.record(trace(stages, 0, 100));
+        assertTrue(traceCollector.getSummary(), traceCollector.getSummary().contains("TRANSFORM[n=21, p50<=1ms, p95<=100ms]"));
+        traceCollector.record(trace(stages, 0, 6000));
+        traceCollector.record(trace(stages, 0, 6000));
+        traceCollector.record(trace(stages, 0, 6000));
+        assertTrue(traceCollector.getSummary(), traceCollector.getSummary().contains("TRANSFORM[n=24, p50<=1ms, p95<=>5000ms]"));
+        assertFalse(traceCollector.getSummary().contains("MERGE"));
+    }
+
+    /**
+     * Test of skewed and untraced events, of class TraceCollector.
+     */
+    @Test
+    public void testSkew() {
+        System.out.println("skew");
+        // the identification host is 10 milliseconds behind the host extracting the rays.
+        traceCollector.record(trace(new TraceStage[]{TraceStage.RAW_POSTURE, TraceStage.RAY_EXTRACTION, TraceStage.IDENTIFICATION}, 0, 20, 10));
+        assertEquals(0, traceCollector.getTraceCount());
+        assertEquals(1, traceCollector.getSkewedTraceCount());
+        assertEquals(0, sum(traceCollector.getHistogram(TraceStage.RAY_EXTRACTION)));
+        assertEquals(0, sum(traceCollector.getTotalHistogram()));
+
+        final MetaData untraced = new MetaData();
+        EventTrace.mark(untraced, TraceStage.RAW_POSTURE, 0);
+        EventTrace.mark(untraced, TraceStage.TRANSFORM, 1000);
+        traceCollector.record(untraced);
+        traceCollector.record(null);
+        assertEquals(0, traceCollector.getTraceCount());
+        assertEquals(1, traceCollector.getSkewedTraceCount());
+    }
+}
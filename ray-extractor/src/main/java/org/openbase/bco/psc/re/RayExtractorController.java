@@ -22,19 +22,35 @@ package org.openbase.bco.psc.re;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import java.io.File;
 import java.util.Arrays;
 import java.util.stream.Collectors;
+import org.openbase.bco.psc.lib.trace.EventTrace;
+import org.openbase.bco.psc.lib.trace.TraceStage;
+import org.openbase.bco.psc.re.jp.JPChangeCertaintyEpsilon;
+import org.openbase.bco.psc.re.jp.JPChangeDirectionEpsilon;
+import org.openbase.bco.psc.re.jp.JPChangeHeartbeat;
+import org.openbase.bco.psc.re.jp.JPChangeOriginEpsilon;
+import org.openbase.bco.psc.re.jp.JPPreFilter;
+import org.openbase.bco.psc.re.jp.JPPreFilterMinimalElbowAngle;
+import org.openbase.bco.psc.re.jp.JPPredictionLatency;
+import org.openbase.bco.psc.re.jp.JPPredictionMeasureLatency;
 import org.openbase.bco.psc.re.jp.JPRayExtractorThreshold;
 import org.openbase.bco.psc.re.jp.JPRayExtractorType;
+import org.openbase.bco.psc.re.jp.JPRaySelectorModelFile;
 import org.openbase.bco.psc.re.jp.JPRaySelectorType;
 import org.openbase.bco.psc.re.pointing.AbstractRayExtractor;
 import org.openbase.bco.psc.re.pointing.ArmPostureExtractor;
 import org.openbase.bco.psc.re.pointing.ExtractorType;
 import static org.openbase.bco.psc.re.pointing.ExtractorType.*;
+import org.openbase.bco.psc.re.pointing.PointingPreFilter;
 import org.openbase.bco.psc.re.pointing.PostureHistoryExtractor;
+import org.openbase.bco.psc.re.pointing.RayChangeDetector;
+import org.openbase.bco.psc.re.pointing.RayPredictor;
 import org.openbase.bco.psc.re.pointing.SimpleExtractor;
 import org.openbase.bco.psc.re.pointing.selectors.ChoiceSelector;
 import org.openbase.bco.psc.re.pointing.selectors.DistributedSelector;
+import org.openbase.bco.psc.re.pointing.selectors.ModelFileSelector;
 import org.openbase.bco.psc.re.pointing.selectors.PolynomialOrNeckSelector5;
 import org.openbase.bco.psc.re.pointing.selectors.PolynomialSelectorDegree3;
 import org.openbase.bco.psc.re.pointing.selectors.PolynomialSelectorDegree5;
@@ -68,6 +84,10 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
     private double threshold;
     private RSBConnection rsbConnection;
     private AbstractRayExtractor pointingExtractor;
+    private PointingPreFilter preFilter;
+    private RayPredictor rayPredictor;
+    private RayChangeDetector changeDetector;
+    private ModelFileSelector modelFileSelector;
 
     private boolean initialized;
     private boolean active;
@@ -92,6 +112,9 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
 
         LOGGER.trace("New TrackedPostures3DFloat event received.");
         TrackedPostures3DFloat postures = (TrackedPostures3DFloat) event.getData();
+        if (rayPredictor != null) {
+            rayPredictor.updateLatency(EventTrace.getFrameCreateTime(event.getMetaData()));
+        }
         pointingExtractor.updatePostures(postures);
         try {
             LOGGER.trace("Getting pointing rays.");
@@ -99,13 +122,25 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
 
             //TODO add either posture id to pointingRays or make a PointingRayCollectionList possible!
             // Maybe even PointingRays3DFloat + Collection including ID?!aswell!!
-            rsbConnection.publishData(PointingRay3DFloatDistributionCollection.newBuilder()
+            final PointingRay3DFloatDistributionCollection rays = PointingRay3DFloatDistributionCollection.newBuilder()
                     .addAllElement(pointingExtractor.getPointingRays().stream()
                             .filter(rd -> rd.getRayList().stream()
                             .map(r -> r.getCertainty())
                             .reduce(0.0f, Float::sum) >= threshold)
                             .collect(Collectors.toList()))
-                    .build());
+                    .build();
+            if (changeDetector != null && !changeDetector.checkPublish(rays, System.currentTimeMillis())) {
+                LOGGER.trace("Pointing rays did not change, skipping publication.");
+                return;
+            }
+            final Event rayEvent = new Event(PointingRay3DFloatDistributionCollection.class);
+            rayEvent.setData(rays);
+            EventTrace.copy(event.getMetaData(), rayEvent.getMetaData());
+            EventTrace.mark(rayEvent.getMetaData(), TraceStage.RAY_EXTRACTION);
+            if (rayPredictor != null) {
+                rayEvent.getMetaData().setUserInfo(RayPredictor.LATENCY_USER_INFO_KEY, Long.toString(rayPredictor.getLatency()));
+            }
+            rsbConnection.publishEvent(rayEvent);
         } catch (CouldNotPerformException ex) {
             ExceptionPrinter.printHistory(new CouldNotPerformException("Could not send the pointing rays.", ex), LOGGER);
         } catch (InterruptedException ex) {
@@ -129,7 +164,7 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
         }
     }
 
-    private void initExtractor() throws JPNotAvailableException {
+    private void initExtractor() throws JPNotAvailableException, InitializationException, InterruptedException {
         ExtractorType extractorType = JPService.getProperty(JPRayExtractorType.class).getValue();
         LOGGER.info("Selected Extractor implementation: " + extractorType.name());
         SelectorType selectorType = JPService.getProperty(JPRaySelectorType.class).getValue();
@@ -153,6 +188,13 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
             case DISTRIBUTED:
                 raySelector = new DistributedSelector();
                 break;
+            case MODEL_FILE:
+                final File modelFile = JPService.getProperty(JPRaySelectorModelFile.class).getValue();
+                LOGGER.info("Selected selector model file: " + modelFile.getAbsolutePath());
+                modelFileSelector = new ModelFileSelector(modelFile);
+                modelFileSelector.init();
+                raySelector = modelFileSelector;
+                break;
             default:
                 raySelector = new ChoiceSelector(Arrays.asList(PointingType.HEAD_HAND, PointingType.SHOULDER_HAND));
                 break;
@@ -171,6 +213,32 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
                 pointingExtractor = new SimpleExtractor(raySelector);
                 break;
         }
+        if (JPService.getProperty(JPPreFilter.class).getValue()) {
+            final double minimalElbowAngle = JPService.getProperty(JPPreFilterMinimalElbowAngle.class).getValue();
+            LOGGER.info("Selected pre-filter with minimal elbow angle: " + minimalElbowAngle);
+            preFilter = new PointingPreFilter(minimalElbowAngle);
+            pointingExtractor.setPreFilter(preFilter);
+        }
+        final long predictionLatency = JPService.getProperty(JPPredictionLatency.class).getValue();
+        final boolean measureLatency = JPService.getProperty(JPPredictionMeasureLatency.class).getValue();
+        if (predictionLatency > 0 || measureLatency) {
+            if (pointingExtractor instanceof PostureHistoryExtractor) {
+                LOGGER.info("Selected ray prediction latency: " + predictionLatency + " ms" + (measureLatency ? " plus measured latency" : ""));
+                rayPredictor = new RayPredictor(predictionLatency, measureLatency);
+                ((PostureHistoryExtractor) pointingExtractor).setRayPredictor(rayPredictor);
+            } else {
+                LOGGER.warn("Ray prediction requires the extractor " + POSTURE_DURATION.name() + " and is disabled.");
+            }
+        }
+        final long heartbeat = JPService.getProperty(JPChangeHeartbeat.class).getValue();
+        if (heartbeat > 0) {
+            final double originEpsilon = JPService.getProperty(JPChangeOriginEpsilon.class).getValue();
+            final double directionEpsilon = JPService.getProperty(JPChangeDirectionEpsilon.class).getValue();
+            final double certaintyEpsilon = JPService.getProperty(JPChangeCertaintyEpsilon.class).getValue();
+            LOGGER.info("Selected change detection with heartbeat: " + heartbeat + " ms, origin epsilon: " + originEpsilon
+                    + " m, direction epsilon: " + directionEpsilon + " degrees, certainty epsilon: " + certaintyEpsilon);
+            changeDetector = new RayChangeDetector(originEpsilon, directionEpsilon, certaintyEpsilon, heartbeat);
+        }
     }
 
     @Override
@@ -181,6 +249,9 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
         }
         if (!active) {
             active = true;
+            if (modelFileSelector != null) {
+                modelFileSelector.activate();
+            }
             rsbConnection.activate();
         }
     }
@@ -191,6 +262,12 @@ public class RayExtractorController extends AbstractEventHandler implements RayE
         if (active) {
             active = false;
             rsbConnection.deactivate();
+            if (modelFileSelector != null) {
+                modelFileSelector.deactivate();
+            }
+            if (preFilter != null) {
+                LOGGER.info(preFilter.toString());
+            }
         }
     }
 
@@ -5,12 +5,21 @@ import org.openbase.bco.psc.lib.jp.JPLocalOutput;
 import org.openbase.bco.psc.lib.jp.JPPSCBaseScope;
 import org.openbase.bco.psc.lib.jp.JPPostureScope;
 import org.openbase.bco.psc.lib.jp.JPRayScope;
+import org.openbase.bco.psc.re.jp.JPChangeCertaintyEpsilon;
+import org.openbase.bco.psc.re.jp.JPChangeDirectionEpsilon;
+import org.openbase.bco.psc.re.jp.JPChangeHeartbeat;
+import org.openbase.bco.psc.re.jp.JPChangeOriginEpsilon;
 import org.openbase.bco.psc.re.jp.JPDurationLookback;
 import org.openbase.bco.psc.re.jp.JPDurationMaximalAngle;
 import org.openbase.bco.psc.re.jp.JPDurationProbabilityThreshold;
 import org.openbase.bco.psc.re.jp.JPDurationReductionFactor;
+import org.openbase.bco.psc.re.jp.JPPreFilter;
+import org.openbase.bco.psc.re.jp.JPPreFilterMinimalElbowAngle;
+import org.openbase.bco.psc.re.jp.JPPredictionLatency;
+import org.openbase.bco.psc.re.jp.JPPredictionMeasureLatency;
 import org.openbase.bco.psc.re.jp.JPRayExtractorThreshold;
 import org.openbase.bco.psc.re.jp.JPRayExtractorType;
+import org.openbase.bco.psc.re.jp.JPRaySelectorModelFile;
 import org.openbase.bco.psc.re.jp.JPRaySelectorType;
 import org.openbase.bco.authentication.lib.BCO;
 import org.openbase.jps.core.JPService;
@@ -62,6 +71,7 @@ public class RayExtractorLauncher extends AbstractLauncher<RayExtractorControlle
         // Component specific
         JPService.registerProperty(JPRayExtractorType.class);
         JPService.registerProperty(JPRaySelectorType.class);
+        JPService.registerProperty(JPRaySelectorModelFile.class);
 
         // PostureHistoryExtractor stuff
         JPService.registerProperty(JPDurationLookback.class);
@@ -69,6 +79,20 @@ public class RayExtractorLauncher extends AbstractLauncher<RayExtractorControlle
         JPService.registerProperty(JPDurationMaximalAngle.class);
         JPService.registerProperty(JPDurationReductionFactor.class);
 
+        // Pre-filter
+        JPService.registerProperty(JPPreFilter.class);
+        JPService.registerProperty(JPPreFilterMinimalElbowAngle.class);
+
+        // Ray prediction
+        JPService.registerProperty(JPPredictionLatency.class);
+        JPService.registerProperty(JPPredictionMeasureLatency.class);
+
+        // Change detection
+        JPService.registerProperty(JPChangeHeartbeat.class);
+        JPService.registerProperty(JPChangeOriginEpsilon.class);
+        JPService.registerProperty(JPChangeDirectionEpsilon.class);
+        JPService.registerProperty(JPChangeCertaintyEpsilon.class);
+
         // Transport specification
         JPService.registerProperty(JPLocalInput.class);
         JPService.registerProperty(JPLocalOutput.class);
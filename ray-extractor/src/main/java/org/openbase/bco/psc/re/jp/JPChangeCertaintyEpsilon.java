@@ -0,0 +1,69 @@
+package org.openbase.bco.psc.re.jp;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.jps.exception.JPNotAvailableException;
+import org.openbase.jps.preset.AbstractJPDouble;
+
+/**
+ * JavaProperty used to specify the difference in certainty a ray needs to be published again.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPChangeCertaintyEpsilon extends AbstractJPDouble {
+
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--re-change-certainty-epsilon"};
+
+    /**
+     * Constructor.
+     */
+    public JPChangeCertaintyEpsilon() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected Double getPropertyDefaultValue() throws JPNotAvailableException {
+        return 0.02;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "This is only used if a heartbeat is specified via " + JPChangeHeartbeat.COMMAND_IDENTIFIERS[0]
+                + ". It specifies the difference in certainty of a ray required to be considered as changed.";
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.openbase.bco.psc.re.jp;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.bco.psc.lib.jp.AbstractJPTimeout;
+import org.openbase.jps.exception.JPNotAvailableException;
+
+/**
+ * JavaProperty used to specify the heartbeat interval of the change detection.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class JPChangeHeartbeat extends AbstractJPTimeout {
+
+    /**
+     * The identifiers that can be used in front of the command line argument.
+     */
+    public final static String[] COMMAND_IDENTIFIERS = {"--re-change-heartbeat"};
+
+    /**
+     * Constructor.
+     */
+    public JPChangeHeartbeat() {
+        super(COMMAND_IDENTIFIERS);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     * @throws JPNotAvailableException {@inheritDoc}
+     */
+    @Override
+    protected Long getPropertyDefaultValue() throws JPNotAvailableException {
+        return 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Maximal time in milliseconds between two published ray collections. If greater than 0, ray collections are only published "
+                + "if they changed meaningfully compared to the last published one or if this interval passed. 0 publishes every collection.";
+    }
+
+}
@@ -40,6 +40,10 @@ public abstract class AbstractRayExtractor {
      * The ray selector that is used to select the correct rays.
      */
     private final RaySelectorInterface raySelector;
+    /**
+     * Optional gate that rejects arms before the pointing probability and the rays are calculated.
+     */
+    private PointingPreFilter preFilter;
 
     /**
      * Constructor.
@@ -50,6 +54,26 @@ public abstract class AbstractRayExtractor {
         this.raySelector = raySelector;
     }
 
+    /**
+     * Sets the gate that is used to reject arms before the pointing probability and the rays are calculated.
+     *
+     * @param preFilter the gate to be used or null, if all arms should be evaluated.
+     */
+    public void setPreFilter(final PointingPreFilter preFilter) {
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * Checks whether the given arm passes the pre-filter, if one is set.
+     *
+     * @param posture the tracked posture.
+     * @param right if true, the right arm is checked, else the left one.
+     * @return true, if no pre-filter is set or the arm passes it.
+     */
+    protected boolean isPointingCandidate(final TrackedPosture3DFloat posture, final boolean right) {
+        return preFilter == null || preFilter.accept(posture, right);
+    }
+
     //TODO: 1. Maybe add implementation that checks the other arm (whole posture) as well
     // 2. An implementation that consideres the arm trajectory instead of fixed angles.
     //================================================================================
@@ -79,14 +103,33 @@ public abstract class AbstractRayExtractor {
      * @return Pointing rays of the tracked person.
      */
     protected List<PointingRay3DFloatDistribution> getRays(final TrackedPosture3DFloat posture, final double probabilityLeft, final double probabilityRight) {
+        return getRays(posture, true, probabilityLeft, true, probabilityRight);
+    }
+
+    /**
+     * Gets the pointing rays for the arms of a single posture that passed the pre-filter with cummulated probabilities specified in the parameters.
+     *
+     * @param posture posture to get the pointing rays for.
+     * @param candidateLeft true, if the left arm passed the pre-filter.
+     * @param probabilityLeft current probability of a pointing gesture with the left arm.
+     * @param candidateRight true, if the right arm passed the pre-filter.
+     * @param probabilityRight current probability of a pointing gesture with the right arm.
+     * @return Pointing rays of the tracked person.
+     */
+    protected List<PointingRay3DFloatDistribution> getRays(final TrackedPosture3DFloat posture, final boolean candidateLeft, final double probabilityLeft,
+            final boolean candidateRight, final double probabilityRight) {
         final List<PointingRay3DFloatDistribution> tempList = new ArrayList<>();
-        final PointingRay3DFloatDistribution rightRays = raySelector.getRays(posture, true, probabilityRight);
-        if (rightRays.getRayCount() > 0) {
-            tempList.add(rightRays);
+        if (candidateRight) {
+            final PointingRay3DFloatDistribution rightRays = raySelector.getRays(posture, true, probabilityRight);
+            if (rightRays.getRayCount() > 0) {
+                tempList.add(rightRays);
+            }
         }
-        final PointingRay3DFloatDistribution leftRays = raySelector.getRays(posture, false, probabilityLeft);
-        if (leftRays.getRayCount() > 0) {
-            tempList.add(leftRays);
+        if (candidateLeft) {
+            final PointingRay3DFloatDistribution leftRays = raySelector.getRays(posture, false, probabilityLeft);
+            if (leftRays.getRayCount() > 0) {
+                tempList.add(leftRays);
+            }
         }
         return tempList;
     }
@@ -77,7 +77,12 @@ public class ArmPostureExtractor extends AbstractRayExtractor {
         }
         return lastPostures.getPostureList().stream()
                 .filter(posture -> checkPosture(posture))
-                .map(posture -> getRays(posture, pointingProbability(posture, false), pointingProbability(posture, true)))
+                .map(posture -> {
+                    final boolean candidateLeft = isPointingCandidate(posture, false);
+                    final boolean candidateRight = isPointingCandidate(posture, true);
+                    return getRays(posture, candidateLeft, candidateLeft ? pointingProbability(posture, false) : 0,
+                            candidateRight, candidateRight ? pointingProbability(posture, true) : 0);
+                })
                 .flatMap(List::stream)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,175 @@
+package org.openbase.bco.psc.re.pointing;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static org.openbase.bco.psc.lib.pointing.PostureFunctions.postureConfidence;
+import org.openbase.bco.psc.lib.pointing.Joints;
+import org.openbase.type.geometry.TranslationType.Translation;
+import org.openbase.type.kinematics.Posture3DFloatType.Posture3DFloat;
+import org.openbase.type.tracking.TrackedPosture3DFloatType.TrackedPosture3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cheap early-reject gate that is evaluated per arm before the pointing probability model and the ray selectors.
+ * An arm is rejected if its joints are not tracked at all, if the hand is below the hip or if the elbow is bent too far to be part of a pointing gesture.
+ * The gate keeps track of how many arms it rejected, so that its thresholds can be tuned against the recorded reject ratio.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class PointingPreFilter {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PointingPreFilter.class);
+
+    /**
+     * Number of evaluated arms after which the reject ratio is logged.
+     */
+    private static final long REPORT_INTERVAL = 10000;
+
+    /**
+     * Minimal elbow angle in degrees an arm needs to have to pass the gate.
+     */
+    private final double minimalElbowAngle;
+    /**
+     * Cosine of the minimal elbow angle, which is compared against to avoid the calculation of the angle itself.
+     */
+    private final double maximalElbowCosine;
+
+    /**
+     * Number of arms evaluated by the gate.
+     */
+    private long evaluated;
+    /**
+     * Number of arms rejected because of a joint confidence of zero.
+     */
+    private long rejectedConfidence;
+    /**
+     * Number of arms rejected because the hand was below the hip.
+     */
+    private long rejectedHeight;
+    /**
+     * Number of arms rejected because the elbow was bent too far.
+     */
+    private long rejectedElbow;
+
+    /**
+     * Constructor.
+     *
+     * @param minimalElbowAngle minimal elbow angle in degrees an arm needs to have to pass the gate. 180 degrees is a fully extended arm.
+     */
+    public PointingPreFilter(final double minimalElbowAngle) {
+        this.minimalElbowAngle = minimalElbowAngle;
+        this.maximalElbowCosine = Math.cos(Math.toRadians(minimalElbowAngle));
+    }
+
+    /**
+     * Checks whether the given arm of the posture can be part of a pointing gesture at all.
+     *
+     * @param posture the tracked posture.
+     * @param right if true, the right arm is checked, else the left one.
+     * @return false, if the arm can be safely rejected without evaluating the pointing probability model.
+     */
+    public synchronized boolean accept(final TrackedPosture3DFloat posture, final boolean right) {
+        evaluated++;
+        try {
+            if (postureConfidence(posture, right) == 0) {
+                rejectedConfidence++;
+                return false;
+            }
+            final Posture3DFloat joints = posture.getPosture();
+            final Translation hand = joints.getPosition(right ? Joints.HandRight.getValue() : Joints.HandLeft.getValue());
+            final Translation hip = joints.getPosition(right ? Joints.HipRight.getValue() : Joints.HipLeft.getValue());
+            if (hand.getZ() < hip.getZ()) {
+                rejectedHeight++;
+                return false;
+            }
+            final Translation elbow = joints.getPosition(right ? Joints.ElbowRight.getValue() : Joints.ElbowLeft.getValue());
+            final Translation shoulder = joints.getPosition(right ? Joints.ShoulderRight.getValue() : Joints.ShoulderLeft.getValue());
+            if (isElbowBent(elbow, shoulder, hand)) {
+                rejectedElbow++;
+                return false;
+            }
+            return true;
+        } finally {
+            if (evaluated % REPORT_INTERVAL == 0) {
+                LOGGER.info(toString());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the angle at the elbow is smaller than the minimal elbow angle.
+     *
+     * @param elbow position of the elbow.
+     * @param shoulder position of the shoulder.
+     * @param hand position of the hand.
+     * @return true, if the elbow angle is smaller than the minimal elbow angle.
+     */
+    private boolean isElbowBent(final Translation elbow, final Translation shoulder, final Translation hand) {
+        final double ux = shoulder.getX() - elbow.getX();
+        final double uy = shoulder.getY() - elbow.getY();
+        final double uz = shoulder.getZ() - elbow.getZ();
+        final double fx = hand.getX() - elbow.getX();
+        final double fy = hand.getY() - elbow.getY();
+        final double fz = hand.getZ() - elbow.getZ();
+        final double lengths = (ux * ux + uy * uy + uz * uz) * (fx * fx + fy * fy + fz * fz);
+        if (lengths == 0) {
+            return false;
+        }
+        return ux * fx + uy * fy + uz * fz > maximalElbowCosine * Math.sqrt(lengths);
+    }
+
+    /**
+     * Gets the minimal elbow angle used by this gate.
+     *
+     * @return the minimal elbow angle in degrees.
+     */
+    public double getMinimalElbowAngle() {
+        return minimalElbowAngle;
+    }
+
+    /**
+     * Gets the ratio of evaluated arms that have been rejected by this gate.
+     *
+     * @return the reject ratio between 0 and 1.
+     */
+    public synchronized double getRejectRatio() {
+        if (evaluated == 0) {
+            return 0;
+        }
+        return ((double) (rejectedConfidence + rejectedHeight + rejectedElbow)) / evaluated;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Pre-filter rejected %.1f%% of %d arms (confidence: %d, hand below hip: %d, elbow angle below %.1f: %d).",
+                getRejectRatio() * 100, evaluated, rejectedConfidence, rejectedHeight, minimalElbowAngle, rejectedElbow);
+    }
+}
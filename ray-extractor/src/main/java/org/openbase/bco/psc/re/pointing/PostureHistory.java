@@ -24,6 +24,7 @@ package org.openbase.bco.psc.re.pointing;
  */
 import java.util.LinkedList;
 import java.util.ListIterator;
+import javafx.geometry.Point3D;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.type.tracking.TrackedPosture3DFloatType.TrackedPosture3DFloat;
@@ -47,6 +48,14 @@ public class PostureHistory {
      * The last tracked instance of the posture.
      */
     private TrackedPosture3DFloat lastPosture;
+    /**
+     * Whether the right arm of the last posture passed the pre-filter.
+     */
+    private boolean lastCandidateRight;
+    /**
+     * Whether the left arm of the last posture passed the pre-filter.
+     */
+    private boolean lastCandidateLeft;
 
     /**
      * Constructor.
@@ -78,7 +87,24 @@ public class PostureHistory {
      * @param pointingProbabilityLeft the base probability of a pointing gesture using the left arm.
      */
     public void update(final long timestamp, final TrackedPosture3DFloat posture, final double pointingProbabilityRight, final double pointingProbabilityLeft) {
+        update(timestamp, posture, true, pointingProbabilityRight, true, pointingProbabilityLeft);
+    }
+
+    /**
+     * Updates the history with new posture data including the result of the pre-filter for both arms.
+     *
+     * @param timestamp the time of the current observation of the posture.
+     * @param posture the current instance of the posture.
+     * @param candidateRight true, if the right arm passed the pre-filter.
+     * @param pointingProbabilityRight the base probability of a pointing gesture using the right arm.
+     * @param candidateLeft true, if the left arm passed the pre-filter.
+     * @param pointingProbabilityLeft the base probability of a pointing gesture using the left arm.
+     */
+    public void update(final long timestamp, final TrackedPosture3DFloat posture, final boolean candidateRight, final double pointingProbabilityRight,
+            final boolean candidateLeft, final double pointingProbabilityLeft) {
         this.lastPosture = posture;
+        this.lastCandidateRight = candidateRight;
+        this.lastCandidateLeft = candidateLeft;
         add(new PostureHistoryEntry(timestamp, posture, pointingProbabilityRight, pointingProbabilityLeft));
     }
 
@@ -104,6 +130,16 @@ public class PostureHistory {
         return history.getFirst().getProbability(right);
     }
 
+    /**
+     * Returns whether the given arm of the last posture passed the pre-filter.
+     *
+     * @param right if true, the result for the <b>right</b> arm is returned.
+     * @return true, if the given arm of the last posture passed the pre-filter.
+     */
+    public boolean isLastCandidate(final boolean right) {
+        return right ? lastCandidateRight : lastCandidateLeft;
+    }
+
     /**
      * Gets the last instance of the tracked posture.
      *
@@ -142,6 +178,34 @@ public class PostureHistory {
         return history.getFirst().getTimestamp() - currentTs;
     }
 
+    /**
+     * Estimates the angular velocity of the shoulder-hand direction of the given arm from the entries in the given time window.
+     *
+     * @param right if true, the right arm is used, else the left one.
+     * @param window the time window in milliseconds that is used for the estimation.
+     * @return the rotation axis scaled by the angular speed in radians per millisecond or a zero vector, if the arm is not moving.
+     * @throws NotAvailableException is thrown, if the history has not been updated since the last call of <code>clear()</code>.
+     */
+    public Point3D getAngularVelocity(final boolean right, final long window) throws NotAvailableException {
+        if (history.isEmpty()) {
+            throw new NotAvailableException("Angular velocity", new CouldNotPerformException("getAngularVelocity called on empty history."));
+        }
+        final PostureHistoryEntry newest = history.getFirst();
+        PostureHistoryEntry oldest = newest;
+        for (PostureHistoryEntry entry : history) {
+            if (newest.getTimestamp() - entry.getTimestamp() > window) {
+                break;
+            }
+            oldest = entry;
+        }
+        final long duration = newest.getTimestamp() - oldest.getTimestamp();
+        final Point3D axis = oldest.getDirection(right).crossProduct(newest.getDirection(right));
+        if (duration == 0 || axis.magnitude() == 0) {
+            return Point3D.ZERO;
+        }
+        return axis.normalize().multiply(Math.toRadians(newest.directionAngle(oldest, right)) / duration);
+    }
+
     /**
      * Returns whether the history is empty.
      *
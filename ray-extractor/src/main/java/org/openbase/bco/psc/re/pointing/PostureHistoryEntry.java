@@ -111,6 +111,20 @@ public class PostureHistoryEntry {
         }
     }
 
+    /**
+     * Gets the shoulder-hand direction of the given arm.
+     *
+     * @param right if true, the direction of the right arm is returned.
+     * @return The shoulder-hand direction of the given arm.
+     */
+    public Point3D getDirection(boolean right) {
+        if (right) {
+            return directionRight;
+        } else {
+            return directionLeft;
+        }
+    }
+
 //    public double maxDistance(PostureHistoryEntry other, boolean right) {
 //        double distance = other.head.distance(head);
 //        if (right) {
@@ -78,6 +78,10 @@ public class PostureHistoryExtractor extends AbstractRayExtractor {
      * History of important stats on the past tracked postures.
      */
     private final LinkedList<PostureHistory> postureHistory = new LinkedList<>();
+    /**
+     * Optional predictor that extrapolates the rays to compensate the latency of the pipeline.
+     */
+    private RayPredictor rayPredictor;
 
     /**
      * Constructor.
@@ -98,6 +102,15 @@ public class PostureHistoryExtractor extends AbstractRayExtractor {
         LOGGER.info("Selected reduction factor: " + reductionFactor + ", resulting reduction range: " + reductionRange);
     }
 
+    /**
+     * Sets the predictor that is used to extrapolate the rays along the current arm movement.
+     *
+     * @param rayPredictor the predictor to be used or null, if the rays should not be extrapolated.
+     */
+    public synchronized void setRayPredictor(final RayPredictor rayPredictor) {
+        this.rayPredictor = rayPredictor;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -117,7 +130,10 @@ public class PostureHistoryExtractor extends AbstractRayExtractor {
         while (it.hasNext()) {
             final TrackedPosture3DFloat posture = postures.getPosture(it.nextIndex());
             if (checkPosture(posture)) {
-                it.next().update(timestamp, posture, pointingProbability(posture, true), pointingProbability(posture, false));
+                final boolean candidateRight = isPointingCandidate(posture, true);
+                final boolean candidateLeft = isPointingCandidate(posture, false);
+                it.next().update(timestamp, posture, candidateRight, candidateRight ? pointingProbability(posture, true) : 0,
+                        candidateLeft, candidateLeft ? pointingProbability(posture, false) : 0);
             } else {
                 it.next().clear();
             }
@@ -137,7 +153,16 @@ public class PostureHistoryExtractor extends AbstractRayExtractor {
             if (!postureHistoryList.isEmpty()) {
                 final double durationFactorRight = ((double) Long.min(lookback, postureHistoryList.getDuration(probabilityThreshold, maxAngle, true))) / lookback * reductionRange + reductionFactor;
                 final double durationFactorLeft = ((double) Long.min(lookback, postureHistoryList.getDuration(probabilityThreshold, maxAngle, false))) / lookback * reductionRange + reductionFactor;
-                pointingRays.addAll(getRays(postureHistoryList.getLastPosture(), durationFactorLeft * postureHistoryList.getLastProbability(false), durationFactorRight * postureHistoryList.getLastProbability(true)));
+                final List<PointingRay3DFloatDistribution> rays = getRays(postureHistoryList.getLastPosture(),
+                        postureHistoryList.isLastCandidate(false), durationFactorLeft * postureHistoryList.getLastProbability(false),
+                        postureHistoryList.isLastCandidate(true), durationFactorRight * postureHistoryList.getLastProbability(true));
+                if (rayPredictor == null) {
+                    pointingRays.addAll(rays);
+                } else {
+                    for (PointingRay3DFloatDistribution distribution : rays) {
+                        pointingRays.add(rayPredictor.predict(distribution, postureHistoryList));
+                    }
+                }
             }
         }
         return pointingRays;
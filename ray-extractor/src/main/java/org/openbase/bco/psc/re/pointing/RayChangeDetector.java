@@ -0,0 +1,153 @@
+package org.openbase.bco.psc.re.pointing;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionCollectionType.PointingRay3DFloatDistributionCollection;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+
+/**
+ * Decides whether a new collection of pointing rays differs enough from the last published one to be published again.
+ * Collections are compared ray by ray against the last <b>published</b> collection, so that small changes can not accumulate unnoticed.
+ * A heartbeat interval guarantees that the current state is published regularly even if nothing changes.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class RayChangeDetector {
+
+    /**
+     * Squared minimal distance in meters the origin of a ray has to move to be considered as changed.
+     */
+    private final double originEpsilonSquared;
+    /**
+     * Cosine of the minimal angle the direction of a ray has to turn to be considered as changed.
+     */
+    private final double directionEpsilonCosine;
+    /**
+     * Minimal difference of the certainty of a ray to be considered as changed.
+     */
+    private final double certaintyEpsilon;
+    /**
+     * Maximal time in milliseconds between two published collections.
+     */
+    private final long heartbeat;
+
+    /**
+     * The last published collection.
+     */
+    private PointingRay3DFloatDistributionCollection lastPublished;
+    /**
+     * Time in milliseconds of the last publication.
+     */
+    private long lastPublishTime;
+
+    /**
+     * Constructor.
+     *
+     * @param originEpsilon minimal distance in meters the origin of a ray has to move to be considered as changed.
+     * @param directionEpsilon minimal angle in degrees the direction of a ray has to turn to be considered as changed.
+     * @param certaintyEpsilon minimal difference of the certainty of a ray to be considered as changed.
+     * @param heartbeat maximal time in milliseconds between two published collections.
+     */
+    public RayChangeDetector(final double originEpsilon, final double directionEpsilon, final double certaintyEpsilon, final long heartbeat) {
+        this.originEpsilonSquared = originEpsilon * originEpsilon;
+        this.directionEpsilonCosine = Math.cos(Math.toRadians(directionEpsilon));
+        this.certaintyEpsilon = certaintyEpsilon;
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Checks whether the collection should be published and remembers it as last published collection if so.
+     *
+     * @param rays the new collection of pointing rays.
+     * @param timestamp the current time in milliseconds.
+     * @return true, if the collection changed meaningfully or the heartbeat interval passed since the last publication.
+     */
+    public synchronized boolean checkPublish(final PointingRay3DFloatDistributionCollection rays, final long timestamp) {
+        if (lastPublished != null && timestamp - lastPublishTime < heartbeat && !hasChanged(lastPublished, rays)) {
+            return false;
+        }
+        lastPublished = rays;
+        lastPublishTime = timestamp;
+        return true;
+    }
+
+    /**
+     * Compares two collections of pointing rays.
+     *
+     * @param last the last published collection.
+     * @param current the current collection.
+     * @return true, if any ray changed more than the epsilons allow or the structure of the collections differs.
+     */
+    private boolean hasChanged(final PointingRay3DFloatDistributionCollection last, final PointingRay3DFloatDistributionCollection current) {
+        if (last.getElementCount() != current.getElementCount()) {
+            return true;
+        }
+        for (int i = 0; i < current.getElementCount(); i++) {
+            final PointingRay3DFloatDistribution lastDistribution = last.getElement(i);
+            final PointingRay3DFloatDistribution currentDistribution = current.getElement(i);
+            if (lastDistribution.getRayCount() != currentDistribution.getRayCount()) {
+                return true;
+            }
+            for (int j = 0; j < currentDistribution.getRayCount(); j++) {
+                if (hasChanged(lastDistribution.getRay(j), currentDistribution.getRay(j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares two pointing rays.
+     *
+     * @param last the last published ray.
+     * @param current the current ray.
+     * @return true, if the ray changed more than the epsilons allow.
+     */
+    private boolean hasChanged(final PointingRay3DFloat last, final PointingRay3DFloat current) {
+        if (last.getType() != current.getType() || last.getRightHandPointing() != current.getRightHandPointing()) {
+            return true;
+        }
+        if (Math.abs(last.getCertainty() - current.getCertainty()) > certaintyEpsilon) {
+            return true;
+        }
+        final Vec3DFloat lastOrigin = last.getRay().getOrigin();
+        final Vec3DFloat currentOrigin = current.getRay().getOrigin();
+        final double dx = currentOrigin.getX() - lastOrigin.getX();
+        final double dy = currentOrigin.getY() - lastOrigin.getY();
+        final double dz = currentOrigin.getZ() - lastOrigin.getZ();
+        if (dx * dx + dy * dy + dz * dz > originEpsilonSquared) {
+            return true;
+        }
+        final Vec3DFloat a = last.getRay().getDirection();
+        final Vec3DFloat b = current.getRay().getDirection();
+        final double lengths = ((double) a.getX() * a.getX() + a.getY() * a.getY() + a.getZ() * a.getZ())
+                * ((double) b.getX() * b.getX() + b.getY() * b.getY() + b.getZ() * b.getZ());
+        if (lengths == 0) {
+            return true;
+        }
+        return (double) a.getX() * b.getX() + a.getY() * b.getY() + a.getZ() * b.getZ() < directionEpsilonCosine * Math.sqrt(lengths);
+    }
+}
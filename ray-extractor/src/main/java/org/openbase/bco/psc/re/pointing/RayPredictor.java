@@ -0,0 +1,167 @@
+package org.openbase.bco.psc.re.pointing;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import javafx.geometry.Point3D;
+import org.openbase.bco.psc.lib.pointing.Joints;
+import static org.openbase.bco.psc.lib.pointing.PostureFunctions.getPoint3D;
+import static org.openbase.bco.psc.lib.pointing.PostureFunctions.toVec3DFloat;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.type.geometry.Ray3DFloatType.Ray3DFloat;
+import org.openbase.type.math.Vec3DFloatType.Vec3DFloat;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat;
+import org.openbase.type.tracking.TrackedPosture3DFloatType.TrackedPosture3DFloat;
+
+/**
+ * Compensates the latency of the pipeline by extrapolating pointing rays along the current arm movement.
+ * The angular velocity of the shoulder-hand direction is estimated from the posture history and the rays are rotated around the shoulder by the angle the arm
+ * is expected to cover during the latency.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class RayPredictor {
+
+    /**
+     * Key of the rsb meta data user info that contains the latency in milliseconds used for the prediction of the published rays.
+     */
+    public static final String LATENCY_USER_INFO_KEY = "prediction-latency";
+    /**
+     * Time window in milliseconds that is used to estimate the angular velocity of the arm.
+     */
+    public static final long VELOCITY_WINDOW = 150;
+    /**
+     * Maximal angle in radians a ray is rotated by the prediction.
+     */
+    public static final double MAX_PREDICTION_ANGLE = Math.toRadians(30);
+    /**
+     * Maximal latency in milliseconds that is accepted from the measurement, larger values are considered as clock skew.
+     */
+    public static final long MAX_MEASURED_LATENCY = 1000;
+
+    /**
+     * The configured latency in milliseconds which is added to the measured one.
+     */
+    private final long configuredLatency;
+    /**
+     * If true, the latency between the creation of the posture data and its processing is measured and added to the configured latency.
+     */
+    private final boolean measureLatency;
+    /**
+     * The latency in milliseconds used for the current prediction.
+     */
+    private long latency;
+
+    /**
+     * Constructor.
+     *
+     * @param configuredLatency the configured latency in milliseconds.
+     * @param measureLatency if true, the latency since the creation of the posture data is measured and added to the configured latency.
+     */
+    public RayPredictor(final long configuredLatency, final boolean measureLatency) {
+        this.configuredLatency = configuredLatency;
+        this.measureLatency = measureLatency;
+        this.latency = configuredLatency;
+    }
+
+    /**
+     * Updates the latency used for the following predictions.
+     *
+     * @param createTime creation time of the tracker frames the processed posture data was derived from in microseconds.
+     * @return the latency in milliseconds that will be used for the prediction.
+     */
+    public synchronized long updateLatency(final long createTime) {
+        latency = configuredLatency;
+        if (measureLatency && createTime > 0) {
+            final long measuredLatency = System.currentTimeMillis() - createTime / 1000;
+            if (measuredLatency >= 0 && measuredLatency <= MAX_MEASURED_LATENCY) {
+                latency += measuredLatency;
+            }
+        }
+        return latency;
+    }
+
+    /**
+     * Gets the latency used for the current prediction.
+     *
+     * @return the latency in milliseconds.
+     */
+    public synchronized long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Extrapolates all rays of the distribution by the current latency based on the arm movement stored in the history.
+     *
+     * @param distribution the ray distribution of one arm.
+     * @param history the history of the posture the distribution belongs to.
+     * @return the extrapolated ray distribution or the original one, if the arm is not moving.
+     * @throws NotAvailableException is thrown, if the history is empty.
+     */
+    public PointingRay3DFloatDistribution predict(final PointingRay3DFloatDistribution distribution, final PostureHistory history) throws NotAvailableException {
+        if (distribution.getRayCount() == 0) {
+            return distribution;
+        }
+        final boolean right = distribution.getRay(0).getRightHandPointing();
+        final Point3D angularVelocity = history.getAngularVelocity(right, VELOCITY_WINDOW);
+        final double angle = Math.min(angularVelocity.magnitude() * getLatency(), MAX_PREDICTION_ANGLE);
+        if (angle == 0) {
+            return distribution;
+        }
+        final Point3D axis = angularVelocity.normalize();
+        final Point3D shoulder = getPoint3D(history.getLastPosture(), right ? Joints.ShoulderRight : Joints.ShoulderLeft);
+        final PointingRay3DFloatDistribution.Builder builder = distribution.toBuilder().clearRay();
+        for (final PointingRay3DFloat pointingRay : distribution.getRayList()) {
+            final Ray3DFloat ray = pointingRay.getRay();
+            final Point3D origin = shoulder.add(rotate(toPoint3D(ray.getOrigin()).subtract(shoulder), axis, angle));
+            final Point3D direction = rotate(toPoint3D(ray.getDirection()), axis, angle);
+            builder.addRay(pointingRay.toBuilder().setRay(ray.toBuilder().setOrigin(toVec3DFloat(origin)).setDirection(toVec3DFloat(direction))));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Rotates the vector around the normalized axis using Rodrigues' rotation formula.
+     *
+     * @param vector the vector to be rotated.
+     * @param axis the normalized rotation axis.
+     * @param angle the rotation angle in radians.
+     * @return the rotated vector.
+     */
+    private static Point3D rotate(final Point3D vector, final Point3D axis, final double angle) {
+        final double cos = Math.cos(angle);
+        return vector.multiply(cos)
+                .add(axis.crossProduct(vector).multiply(Math.sin(angle)))
+                .add(axis.multiply(axis.dotProduct(vector) * (1 - cos)));
+    }
+
+    /**
+     * Converts the vector to a Point3D.
+     *
+     * @param vec the vector to be converted.
+     * @return the converted vector.
+     */
+    private static Point3D toPoint3D(final Vec3DFloat vec) {
+        return new Point3D(vec.getX(), vec.getY(), vec.getZ());
+    }
+}
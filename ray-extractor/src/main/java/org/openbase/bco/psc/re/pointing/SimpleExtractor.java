@@ -74,7 +74,7 @@ public class SimpleExtractor extends AbstractRayExtractor {
         }
         return lastPostures.getPostureList().stream()
                 .filter(posture -> checkPosture(posture))
-                .map(posture -> getRays(posture, 1, 1))
+                .map(posture -> getRays(posture, isPointingCandidate(posture, false), 1, isPointingCandidate(posture, true), 1))
                 .flatMap(List::stream)
                 .collect(Collectors.toList());
     }
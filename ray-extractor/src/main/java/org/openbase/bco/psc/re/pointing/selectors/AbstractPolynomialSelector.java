@@ -43,11 +43,7 @@ public abstract class AbstractPolynomialSelector implements RaySelectorInterface
         Point3D hand = getPoint3D(posture, right ? Joints.HandRight : Joints.HandLeft);
         Point3D spineShoulder = getPoint3D(posture, Joints.SpineShoulder);
         Point3D spineHeadDirection = getPoint3D(posture, Joints.Head).subtract(spineShoulder);
-        double factor = 0;
-        final double[] parameters = getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            factor += Math.pow(handHeightAngle, parameters.length - i - 1) * parameters[i];
-        }
+        double factor = evaluate(getParameters(), handHeightAngle);
         Point3D start = spineShoulder.add(spineHeadDirection.multiply(factor));
         return PointingRay3DFloatDistribution.newBuilder().addRay(PointingRay3DFloat.newBuilder()
                 .setType(PointingType.OTHER)
@@ -61,4 +57,19 @@ public abstract class AbstractPolynomialSelector implements RaySelectorInterface
     }
 
     protected abstract double[] getParameters();
+
+    /**
+     * Evaluates the polynomial with the given parameters using Horner's scheme.
+     *
+     * @param parameters the parameters of the polynomial starting with the highest order.
+     * @param x the value the polynomial is evaluated at.
+     * @return the value of the polynomial.
+     */
+    public static double evaluate(final double[] parameters, final double x) {
+        double result = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            result = result * x + parameters[i];
+        }
+        return result;
+    }
 }
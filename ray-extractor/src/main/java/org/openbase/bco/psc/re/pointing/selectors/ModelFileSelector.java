@@ -0,0 +1,293 @@
+package org.openbase.bco.psc.re.pointing.selectors;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.InitializationException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.iface.Launchable;
+import org.openbase.jul.iface.VoidInitializable;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat.PointingType;
+import org.openbase.type.tracking.TrackedPosture3DFloatType.TrackedPosture3DFloat;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector that loads its model from a file and reloads it whenever the file changes, so that the model can be tuned without restarting the component and
+ * losing the posture histories.
+ * The file is read as java properties. The key <code>model</code> selects the model type:
+ * <ul>
+ * <li><code>polynomial</code>: <code>coefficients</code> contains the comma separated polynomial parameters starting with the highest order, which are
+ * used like in the PolynomialSelectorDegree5.</li>
+ * <li><code>piecewise</code>: for each used PointingType the key of its name contains comma separated <code>angle:weight</code> pairs over the hand height
+ * angle, which are interpolated linearly like in the DistributedSelector. A single weight without angle results in a constant ray mixture weight.</li>
+ * </ul>
+ * If a changed file can not be parsed, the previous model is kept.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class ModelFileSelector implements RaySelectorInterface, Launchable<Void>, VoidInitializable {
+
+    /**
+     * Logger instance.
+     */
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ModelFileSelector.class);
+
+    /**
+     * Key of the model type.
+     */
+    public static final String MODEL_KEY = "model";
+    /**
+     * Key of the polynomial parameters.
+     */
+    public static final String COEFFICIENTS_KEY = "coefficients";
+    /**
+     * Model type of a polynomial model.
+     */
+    public static final String POLYNOMIAL_MODEL = "polynomial";
+    /**
+     * Model type of a piecewise linear model.
+     */
+    public static final String PIECEWISE_MODEL = "piecewise";
+
+    /**
+     * The watched model file.
+     */
+    private final File modelFile;
+    /**
+     * The selector created from the current model.
+     */
+    private volatile RaySelectorInterface selector;
+
+    /**
+     * Watch service used to detect changes of the model file.
+     */
+    private WatchService watchService;
+    /**
+     * Thread waiting for changes of the model file.
+     */
+    private Thread watcher;
+
+    private boolean initialized;
+    private boolean active;
+
+    /**
+     * Constructor.
+     *
+     * @param modelFile the file containing the model.
+     */
+    public ModelFileSelector(final File modelFile) {
+        this.modelFile = modelFile.getAbsoluteFile();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws InitializationException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void init() throws InitializationException, InterruptedException {
+        if (!initialized) {
+            try {
+                selector = loadModel(modelFile);
+                LOGGER.info("Loaded selector model from " + modelFile.getPath());
+                initialized = true;
+            } catch (CouldNotPerformException ex) {
+                throw new InitializationException(ModelFileSelector.class, ex);
+            }
+        }
+    }
+
+    @Override
+    public PointingRay3DFloatDistribution getRays(TrackedPosture3DFloat posture, boolean right, double pointingProbability) {
+        return selector.getRays(posture, right, pointingProbability);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void activate() throws CouldNotPerformException, InterruptedException {
+        if (!initialized) {
+            throw new CouldNotPerformException("Activate can only be called after init.");
+        }
+        if (!active) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                modelFile.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException ex) {
+                throw new CouldNotPerformException("Could not watch the model file " + modelFile.getPath(), ex);
+            }
+            watcher = new Thread(this::watch, "SelectorModelWatcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            active = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void deactivate() throws CouldNotPerformException, InterruptedException {
+        if (active) {
+            active = false;
+            watcher.interrupt();
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                throw new CouldNotPerformException("Could not stop watching the model file " + modelFile.getPath(), ex);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Waits for changes of the model file and reloads the model until the watch service is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || modelFile.getName().equals(String.valueOf(event.context()))) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            LOGGER.debug("Stopped watching the model file " + modelFile.getPath());
+        }
+    }
+
+    /**
+     * Reloads the model from the model file and keeps the previous one if this fails.
+     */
+    private void reload() {
+        try {
+            selector = loadModel(modelFile);
+            LOGGER.info("Reloaded selector model from " + modelFile.getPath());
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory(new CouldNotPerformException("Could not reload the selector model, keeping the previous one.", ex), LOGGER, LogLevel.WARN);
+        }
+    }
+
+    /**
+     * Parses the model file and creates the selector described by it.
+     *
+     * @param modelFile the file containing the model.
+     * @return the selector described by the model file.
+     * @throws CouldNotPerformException is thrown, if the file can not be read or does not contain a valid model.
+     */
+    public static RaySelectorInterface loadModel(final File modelFile) throws CouldNotPerformException {
+        final Properties properties = new Properties();
+        try (FileInputStream input = new FileInputStream(modelFile)) {
+            properties.load(input);
+        } catch (IOException ex) {
+            throw new CouldNotPerformException("Could not read the model file " + modelFile.getPath(), ex);
+        }
+        final String model = properties.getProperty(MODEL_KEY, "").trim();
+        try {
+            switch (model) {
+                case POLYNOMIAL_MODEL:
+                    final String coefficients = properties.getProperty(COEFFICIENTS_KEY);
+                    if (coefficients == null) {
+                        throw new CouldNotPerformException("The polynomial model in " + modelFile.getPath() + " does not specify " + COEFFICIENTS_KEY + ".");
+                    }
+                    final String[] values = coefficients.split(",");
+                    final double[] parameters = new double[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        parameters[i] = Double.parseDouble(values[i].trim());
+                    }
+                    return new PolynomialSelector(parameters);
+                case PIECEWISE_MODEL:
+                    final PiecewiseLinearSelector piecewiseSelector = new PiecewiseLinearSelector();
+                    boolean empty = true;
+                    for (PointingType type : PointingType.values()) {
+                        final String table = properties.getProperty(type.name());
+                        if (table == null) {
+                            continue;
+                        }
+                        final String[] entries = table.split(",");
+                        final double[] angles = new double[entries.length];
+                        final double[] weights = new double[entries.length];
+                        for (int i = 0; i < entries.length; i++) {
+                            final String[] entry = entries[i].split(":");
+                            if (entry.length == 1 && entries.length == 1) {
+                                weights[i] = Double.parseDouble(entry[0].trim());
+                            } else if (entry.length == 2) {
+                                angles[i] = Double.parseDouble(entry[0].trim());
+                                weights[i] = Double.parseDouble(entry[1].trim());
+                            } else {
+                                throw new CouldNotPerformException("Invalid entry \"" + entries[i] + "\" for " + type.name() + " in " + modelFile.getPath() + ".");
+                            }
+                        }
+                        piecewiseSelector.setTable(type, angles, weights);
+                        empty = false;
+                    }
+                    if (empty) {
+                        throw new CouldNotPerformException("The piecewise model in " + modelFile.getPath() + " does not specify any ray type.");
+                    }
+                    return piecewiseSelector;
+                default:
+                    throw new CouldNotPerformException("Unknown model type \"" + model + "\" in " + modelFile.getPath() + ".");
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new CouldNotPerformException("Could not parse the model file " + modelFile.getPath(), ex);
+        }
+    }
+}
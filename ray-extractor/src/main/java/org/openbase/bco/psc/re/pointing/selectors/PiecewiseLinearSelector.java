@@ -0,0 +1,107 @@
+package org.openbase.bco.psc.re.pointing.selectors;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import static org.openbase.bco.psc.lib.pointing.PostureFunctions.*;
+import org.openbase.type.tracking.PointingRay3DFloatDistributionType.PointingRay3DFloatDistribution;
+import org.openbase.type.tracking.PointingRay3DFloatType.PointingRay3DFloat.PointingType;
+import org.openbase.type.tracking.TrackedPosture3DFloatType.TrackedPosture3DFloat;
+
+/**
+ * Selector that distributes the pointing probability over several ray types like the DistributedSelector, but with weights that are looked up in
+ * piecewise linear tables over the hand height angle.
+ * A table with a single entry results in a constant weight, so fixed ray mixtures can be expressed as well.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class PiecewiseLinearSelector implements RaySelectorInterface {
+
+    /**
+     * Sorted hand height angles of the breakpoints for each ray type.
+     */
+    private final Map<PointingType, double[]> angles = new EnumMap<>(PointingType.class);
+    /**
+     * Weights at the breakpoints for each ray type.
+     */
+    private final Map<PointingType, double[]> weights = new EnumMap<>(PointingType.class);
+
+    /**
+     * Adds the weight table for the given ray type.
+     *
+     * @param type the ray type.
+     * @param angles the sorted hand height angles of the breakpoints in degrees.
+     * @param weights the weights at the breakpoints.
+     * @throws IllegalArgumentException is thrown, if the table is empty, the arrays differ in length or the angles are not sorted.
+     */
+    public void setTable(final PointingType type, final double[] angles, final double[] weights) {
+        if (angles.length == 0 || angles.length != weights.length) {
+            throw new IllegalArgumentException("The table of " + type.name() + " needs the same positive number of angles and weights.");
+        }
+        for (int i = 1; i < angles.length; i++) {
+            if (angles[i] <= angles[i - 1]) {
+                throw new IllegalArgumentException("The angles of the table of " + type.name() + " are not strictly increasing.");
+            }
+        }
+        this.angles.put(type, angles.clone());
+        this.weights.put(type, weights.clone());
+    }
+
+    @Override
+    public PointingRay3DFloatDistribution getRays(TrackedPosture3DFloat posture, boolean right, double pointingProbability) {
+        final double handHeightAngle = getHandHeightAngle(posture, right, false);
+        final PointingRay3DFloatDistribution.Builder builder = PointingRay3DFloatDistribution.newBuilder();
+        for (Map.Entry<PointingType, double[]> entry : angles.entrySet()) {
+            final double weight = interpolate(entry.getValue(), weights.get(entry.getKey()), handHeightAngle);
+            builder.addRay(getPointingRay(posture, right, pointingProbability * weight, entry.getKey()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Interpolates linearly between the breakpoints of a table and clamps at its ends.
+     *
+     * @param angles the sorted angles of the breakpoints.
+     * @param weights the weights at the breakpoints.
+     * @param angle the angle the table is evaluated at.
+     * @return the interpolated weight.
+     */
+    static double interpolate(final double[] angles, final double[] weights, final double angle) {
+        if (angle <= angles[0]) {
+            return weights[0];
+        }
+        final int last = angles.length - 1;
+        if (angle >= angles[last]) {
+            return weights[last];
+        }
+        final int index = Arrays.binarySearch(angles, angle);
+        if (index >= 0) {
+            return weights[index];
+        }
+        final int upper = -index - 1;
+        final int lower = upper - 1;
+        return weights[lower] + (weights[upper] - weights[lower]) * (angle - angles[lower]) / (angles[upper] - angles[lower]);
+    }
+}
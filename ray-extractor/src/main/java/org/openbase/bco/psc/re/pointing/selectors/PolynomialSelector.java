@@ -0,0 +1,51 @@
+package org.openbase.bco.psc.re.pointing.selectors;
+
+/*
+ * -
+ * #%L
+ * BCO PSC Ray Extractor
+ * %%
+ * Copyright (C) 2016 - 2019 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Polynomial selector using parameters that are provided at runtime, e.g. loaded from a model file.
+ *
+ * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
+ */
+public class PolynomialSelector extends AbstractPolynomialSelector {
+
+    /**
+     * The parameters of the polynomial starting with the highest order.
+     */
+    private final double[] parameters;
+
+    /**
+     * Constructor.
+     *
+     * @param parameters the parameters of the polynomial starting with the highest order.
+     */
+    public PolynomialSelector(final double[] parameters) {
+        this.parameters = parameters.clone();
+    }
+
+    @Override
+    protected double[] getParameters() {
+        return parameters;
+    }
+}
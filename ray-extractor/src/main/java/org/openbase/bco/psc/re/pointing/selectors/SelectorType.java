@@ -31,6 +31,7 @@ public enum SelectorType {
     POLYNOMIAL_3,
     POLYNOMIAL_5,
     POLY_NECK_5,
-    DISTRIBUTED
+    DISTRIBUTED,
+    MODEL_FILE
     //TODO: Add distributed probability over selected rays.
 }
@@ -26,6 +26,11 @@ package org.openbase.bco.psc.sm;
 import org.openbase.bco.psc.lib.jp.JPPSCBaseScope;
 import org.openbase.bco.psc.lib.jp.JPPostureScope;
 import org.openbase.bco.psc.lib.registry.PointingUnitChecker;
+import org.openbase.bco.psc.lib.registry.UnitConfigSynchronizer;
+import org.openbase.bco.psc.lib.registry.UnitDataSource;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
+import org.openbase.bco.psc.lib.trace.EventTrace;
+import org.openbase.bco.psc.lib.trace.TraceStage;
 import org.openbase.bco.psc.sm.jp.*;
 import org.openbase.bco.psc.sm.merging.MergingScheduler;
 import org.openbase.bco.psc.sm.merging.PostureFrame;
@@ -37,7 +42,6 @@ import org.openbase.bco.psc.sm.transformation.FileTransformer;
 import org.openbase.bco.psc.sm.transformation.RegistryTransformer;
 import org.openbase.bco.psc.sm.transformation.RegistryTransformerFactory;
 import org.openbase.bco.psc.sm.transformation.Transformer;
-import org.openbase.bco.registry.remote.Registries;
 import org.openbase.jps.core.JPService;
 import org.openbase.jps.exception.JPNotAvailableException;
 import org.openbase.jps.exception.JPValidationException;
@@ -51,7 +55,6 @@ import org.openbase.jul.iface.Launchable;
 import org.openbase.jul.iface.VoidInitializable;
 import org.openbase.jul.pattern.Observer;
 import org.openbase.jul.pattern.provider.DataProvider;
-import org.openbase.jul.storage.registry.RegistrySynchronizer;
 import org.openbase.jul.storage.registry.SynchronizableRegistryImpl;
 import org.slf4j.LoggerFactory;
 import rsb.AbstractEventHandler;
@@ -68,7 +71,6 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
-import static org.openbase.bco.registry.remote.Registries.getUnitRegistry;
 
 /**
  * @author <a href="mailto:thuppke@techfak.uni-bielefeld.de">Thoren Huppke</a>
@@ -81,7 +83,7 @@ public class SkeletonMergingController extends AbstractEventHandler implements S
     private final List<String> deviceClassList = new ArrayList<>();
     private final Map<Scope, String> scopeIdMap = new HashMap<>();
     private final Map<Scope, FileTransformer> scopeFileTransformerMap = new HashMap<>();
-    private RegistrySynchronizer<String, RegistryTransformer, UnitConfig, UnitConfig.Builder> registryTransformerRegistrySynchronizer;
+    private UnitConfigSynchronizer registryTransformerRegistrySynchronizer;
     private SynchronizableRegistryImpl<String, RegistryTransformer> registryTransformerRegistry;
 
     // Merging stuff:
@@ -117,6 +119,7 @@ public class SkeletonMergingController extends AbstractEventHandler implements S
         }
 
         LOGGER.trace("New TrackedPostures3DFloat event received on scope " + event.getScope().toString());
+        EventTrace.start(event.getMetaData());
         Optional<Scope> bestScope = event.getScope().superScopes(true).stream()
                 .filter(s -> scopeIdMap.containsKey(s) || scopeFileTransformerMap.containsKey(s))
                 .sorted((o1, o2) -> o2.toString().length() - o1.toString().length())
@@ -142,13 +145,16 @@ public class SkeletonMergingController extends AbstractEventHandler implements S
 
             if (mergingEnabled) {
                 LOGGER.trace("Passing the transformed postures to the merger.");
-                merger.postureUpdate(new PostureFrame(System.currentTimeMillis(), scope, transformedPostures));
+                EventTrace.mark(event.getMetaData(), TraceStage.TRANSFORM);
+                merger.postureUpdate(new PostureFrame(System.currentTimeMillis(), EventTrace.getFrameCreateTime(event.getMetaData()), scope, transformedPostures));
+                mergingScheduler.updateTrace(event.getMetaData());
                 //TODO merge the data here!
 //                return;
             } else {
                 LOGGER.trace("Creating and sending transformed event.");
                 final Event transformedEvent = copyEventMetaData(event);
                 transformedEvent.setData(transformedPostures);
+                EventTrace.mark(transformedEvent.getMetaData(), TraceStage.TRANSFORM);
 
                 rsbConnection.publishEvent(transformedEvent);
             }
@@ -246,11 +252,10 @@ public class SkeletonMergingController extends AbstractEventHandler implements S
     private void initializeRegistryConnection() throws InterruptedException, CouldNotPerformException {
         try {
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.getUnitRegistry().waitForData();
+            final UnitDataSource unitDataSource = UnitDataSources.getInstance();
+            unitDataSource.waitForData();
 
-            registryTransformerRegistrySynchronizer = new RegistrySynchronizer<>(
-                    registryTransformerRegistry, getUnitRegistry().getUnitConfigRemoteRegistry(), getUnitRegistry(), RegistryTransformerFactory.getInstance());
-            registryTransformerRegistrySynchronizer.addFilter(unitConfig -> {
+            registryTransformerRegistrySynchronizer = unitDataSource.createSynchronizer(registryTransformerRegistry, RegistryTransformerFactory.getInstance(), unitConfig -> {
                 //TODO: Load Kinects from the registry by a flag or so and device type and get the scopes somehow. Also check enabled state.
                 if (!idRestriction.isEmpty() && !idRestriction.contains(unitConfig.getId())) {
                     return true;
@@ -294,7 +299,7 @@ public class SkeletonMergingController extends AbstractEventHandler implements S
             throw new CouldNotPerformException("Activate can only be called after init.");
         }
         if (!active) {
-            Registries.waitForData();
+            UnitDataSources.getInstance().waitForData();
             LOGGER.info("Activating Registry synchronization.");
             registryTransformerRegistrySynchronizer.activate();
             rsbConnection.activate();
@@ -4,6 +4,7 @@ import org.openbase.bco.psc.lib.jp.JPLocalInput;
 import org.openbase.bco.psc.lib.jp.JPLocalOutput;
 import org.openbase.bco.psc.lib.jp.JPPSCBaseScope;
 import org.openbase.bco.psc.lib.jp.JPPostureScope;
+import org.openbase.bco.psc.lib.jp.JPUnitDataFixture;
 import org.openbase.bco.psc.sm.jp.JPDeviceClassList;
 import org.openbase.bco.psc.sm.jp.JPDisableRegistry;
 import org.openbase.bco.psc.sm.jp.JPFileTransformers;
@@ -66,6 +67,9 @@ public class SkeletonMergingLauncher extends AbstractLauncher<SkeletonMergingCon
         // Transport specification
         JPService.registerProperty(JPLocalInput.class);
         JPService.registerProperty(JPLocalOutput.class);
+
+        // Unit data source
+        JPService.registerProperty(JPUnitDataFixture.class);
     }
 
     /**
@@ -24,13 +24,19 @@ package org.openbase.bco.psc.sm.merging;
  */
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openbase.bco.psc.lib.trace.EventTrace;
+import org.openbase.bco.psc.lib.trace.TraceStage;
 import org.openbase.bco.psc.sm.rsb.RSBConnection;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.iface.Launchable;
 import org.openbase.jul.iface.VoidInitializable;
+import org.openbase.type.tracking.TrackedPostures3DFloatType.TrackedPostures3DFloat;
 import org.slf4j.LoggerFactory;
+import rsb.Event;
+import rsb.MetaData;
 
 /**
  * This class handles the timing of merging and publishing of the tracked posture data.
@@ -56,6 +62,10 @@ public class MergingScheduler extends TimerTask implements Launchable<Void>, Voi
      * The merger from which the merged data can be acquired.
      */
     private final SkeletonMergerInterface merger;
+    /**
+     * Meta data of the latest posture event passed to the merger since the last publication, whose trace is continued by the merged data.
+     */
+    private final AtomicReference<MetaData> latestTrace = new AtomicReference<>();
     /**
      * The timer that executes the merging schedule.
      */
@@ -75,6 +85,15 @@ public class MergingScheduler extends TimerTask implements Launchable<Void>, Voi
         this.merger = merger;
     }
 
+    /**
+     * Sets the posture event whose trace is continued by the next merged data.
+     *
+     * @param metaData the meta data of the posture event passed to the merger.
+     */
+    public void updateTrace(final MetaData metaData) {
+        latestTrace.set(metaData);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -82,7 +101,18 @@ public class MergingScheduler extends TimerTask implements Launchable<Void>, Voi
     public void run() {
         try {
             if (rsbConnection.isActive()) {
-                rsbConnection.publishData(merger.createMergedData());
+                final Event mergedEvent = new Event(TrackedPostures3DFloat.class);
+                mergedEvent.setData(merger.createMergedData());
+                final long mergedCreateTime = merger.getMergedCreateTime();
+                if (mergedCreateTime > 0) {
+                    EventTrace.setFrameCreateTime(mergedEvent.getMetaData(), mergedCreateTime);
+                }
+                final MetaData trace = latestTrace.getAndSet(null);
+                if (trace != null) {
+                    EventTrace.copy(trace, mergedEvent.getMetaData());
+                    EventTrace.mark(mergedEvent.getMetaData(), TraceStage.MERGE);
+                }
+                rsbConnection.publishEvent(mergedEvent);
                 //TODO: Send rsb messages for new and lost postures...
             }
         } catch (CouldNotPerformException ex) {
@@ -37,12 +37,18 @@ import org.openbase.type.tracking.TrackedPostures3DFloatType.TrackedPostures3DFl
 public class PostureFrame {
 
     private final long timestamp;
+    private final long createTime;
     private final Scope scope;
     private final TrackedPostures3DFloat postures;
     private final List<Skeleton3D> joints;
 
     public PostureFrame(final long timestamp, final Scope scope, final TrackedPostures3DFloat postures) {
+        this(timestamp, timestamp * 1000, scope, postures);
+    }
+
+    public PostureFrame(final long timestamp, final long createTime, final Scope scope, final TrackedPostures3DFloat postures) {
         this.timestamp = timestamp;
+        this.createTime = createTime;
         this.scope = scope;
         this.postures = postures;
         this.joints = postures.getPostureList().stream()
@@ -59,6 +65,7 @@ public class PostureFrame {
 
     public PostureFrame(final long timestamp, final List<Skeleton3D> joints) {
         this.timestamp = timestamp;
+        this.createTime = timestamp * 1000;
         this.scope = new Scope("/");
         this.joints = joints;
         this.postures = TrackedPostures3DFloat.newBuilder()
@@ -84,6 +91,15 @@ public class PostureFrame {
         return timestamp;
     }
 
+    /**
+     * Gets the time the postures were created by the tracker.
+     *
+     * @return the create time in microseconds.
+     */
+    public long getCreateTime() {
+        return createTime;
+    }
+
     public long getAge(final long currentTimestamp) {
         return currentTimestamp - timestamp;
     }
@@ -47,6 +47,7 @@ public class SkeletonMerger implements SkeletonMergerInterface {
     private final Stabilizer stabilizer;
     private final HashMap<String, PostureFrame> inputFrames = new HashMap<>();
     private MergingHistory history;
+    private long mergedCreateTime;
     final AtomicInteger lastLostCounter = new AtomicInteger();
     final AtomicInteger lastAddCounter = new AtomicInteger();
 
@@ -67,6 +68,7 @@ public class SkeletonMerger implements SkeletonMergerInterface {
 
         // Remove too old frames
         inputFrames.entrySet().removeIf(e -> e.getValue().getAge(currentTime) > FRAME_DURATION);
+        mergedCreateTime = (long) inputFrames.values().stream().mapToLong(PostureFrame::getCreateTime).average().orElse(0);
 
         //TODO: Clustering approach where all distances are calculated first and then merging takes place in ascending order (Would probably be more accurate)?! Can use DistanceMap for that.
         // Create groups that belong to a single person based on previous groups
@@ -89,6 +91,11 @@ public class SkeletonMerger implements SkeletonMergerInterface {
         return history.getLastResult().getPostures();
     }
 
+    @Override
+    public synchronized long getMergedCreateTime() {
+        return mergedCreateTime;
+    }
+
     private List<HashMap<String, Integer>> collectGroups() {
         final List<HashMap<String, Integer>> postureCollection = history != null ? new ArrayList(history.getConnections()) : new ArrayList<>();
         final ListIterator<HashMap<String, Integer>> historyIterator = postureCollection.listIterator();
@@ -33,4 +33,11 @@ public interface SkeletonMergerInterface {
     void postureUpdate(final PostureFrame postureFrame);
 
     TrackedPostures3DFloat createMergedData();
+
+    /**
+     * Gets the create time of the tracker frames the last merged data was created from.
+     *
+     * @return the mean create time of the merged frames in microseconds or 0, if no frames were merged.
+     */
+    long getMergedCreateTime();
 }
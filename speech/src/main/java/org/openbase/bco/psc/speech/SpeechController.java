@@ -24,9 +24,9 @@ package org.openbase.bco.psc.speech;
  */
 
 import org.openbase.bco.dal.lib.action.ActionDescriptionProcessor;
+import org.openbase.bco.psc.lib.registry.UnitDataSources;
 import org.openbase.bco.psc.speech.conversion.KeywordConverter;
 import org.openbase.bco.psc.speech.rsb.RSBConnection;
-import org.openbase.bco.registry.remote.Registries;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InitializationException;
 import org.openbase.jul.exception.NotAvailableException;
@@ -109,7 +109,7 @@ public class SpeechController extends AbstractEventHandler implements Speech, La
     private void initializeRegistryConnection() throws InterruptedException, CouldNotPerformException {
         try {
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.getUnitRegistry().waitForData();
+            UnitDataSources.getInstance().waitForData();
 
         } catch (NotAvailableException ex) {
             throw new CouldNotPerformException("Could not connect to the registry.", ex);
@@ -152,7 +152,7 @@ public class SpeechController extends AbstractEventHandler implements Speech, La
         if (!active) {
             active = true;
             LOGGER.info("Waiting for bco registry synchronization...");
-            Registries.waitForData();
+            UnitDataSources.getInstance().waitForData();
             LOGGER.info("Activating Registry synchronization.");
             rsbConnection.activate();
         }